@@ -0,0 +1,161 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.benchmarks;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tolstoy.drupal.sheephole.api.inventory.IFleetInventory;
+import com.tolstoy.drupal.sheephole.api.inventory.ISiteInventory;
+import com.tolstoy.drupal.sheephole.app.advisory.AdvisoryDatabase;
+import com.tolstoy.drupal.sheephole.app.advisory.AdvisoryReport;
+import com.tolstoy.drupal.sheephole.app.inventory.SiteInventory;
+
+/**
+ * Checking a whole fleet's installed packages against a stored advisory database of roughly
+ * Packagist's size. The database is written to a temporary directory and never refreshed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdvisoryCheckBenchmark {
+	@Param({ "50", "500" })
+	private int siteCount;
+
+	@Param({ "5000" })
+	private int advisoryCount;
+
+	private File directory;
+	private AdvisoryDatabase database;
+	private IFleetInventory inventory;
+
+	@Setup
+	public void setup() throws Exception {
+		Random random = new Random( SyntheticCatalog.DEFAULT_SEED );
+		int packageCount = advisoryCount / 3;
+
+		JSONObject byPackage = new JSONObject();
+		for ( int i = 0; i < advisoryCount; i++ ) {
+			String packageName = "drupal/package_" + random.nextInt( packageCount );
+			int major = 1 + random.nextInt( 3 );
+			int minor = random.nextInt( 20 );
+
+			JSONObject advisory = new JSONObject();
+			advisory.put( "advisoryId", "PKSA-" + i );
+			advisory.put( "packageName", packageName );
+			advisory.put( "title", "Advisory " + i );
+			advisory.put( "affectedVersions", ">=" + major + ".0.0,<" + major + "." + minor + "." + random.nextInt( 5 ) +
+											( random.nextInt( 3 ) == 0 ? "|>=" + ( major + 1 ) + ".0.0,<" + ( major + 1 ) + ".1.0" : "" ) );
+			advisory.put( "reportedAt", "2024-01-01 00:00:00" );
+
+			JSONArray list = byPackage.optJSONArray( packageName );
+			if ( list == null ) {
+				list = new JSONArray();
+				byPackage.put( packageName, list );
+			}
+			list.put( advisory );
+		}
+
+		directory = Files.createTempDirectory( "advisory-benchmark" ).toFile();
+		JSONObject root = new JSONObject();
+		root.put( "advisories", byPackage );
+		Files.writeString( new File( directory, "advisories.json" ).toPath(), root.toString(), StandardCharsets.UTF_8 );
+
+		database = new AdvisoryDatabase( directory, "http://localhost:1/", Duration.ofSeconds( 1 ) );
+
+		//	every site has about 200 packages out of a pool twice that size, on a handful of versions
+		List<ISiteInventory> sites = new ArrayList<ISiteInventory>( siteCount );
+		for ( int s = 0; s < siteCount; s++ ) {
+			Map<String,String> packages = new TreeMap<String,String>();
+			for ( int p = 0; p < 200; p++ ) {
+				packages.put( "drupal/package_" + random.nextInt( packageCount * 2 ), ( 1 + random.nextInt( 3 ) ) + "." + random.nextInt( 20 ) + ".0" );
+			}
+			sites.add( new SiteInventory( s, "site " + s, "", 0, packages, String::intern ) );
+		}
+
+		inventory = new FixedInventory( sites );
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		FileUtils.deleteDirectory( directory );
+	}
+
+	@Benchmark
+	public AdvisoryReport check() {
+		return AdvisoryReport.check( inventory, database, -1 );
+	}
+
+	private static final class FixedInventory implements IFleetInventory {
+		private final List<ISiteInventory> sites;
+		private final Map<Long,ISiteInventory> byId;
+
+		FixedInventory( List<ISiteInventory> sites ) {
+			this.sites = sites;
+			this.byId = new LinkedHashMap<Long,ISiteInventory>();
+			for ( ISiteInventory site : sites ) {
+				byId.put( site.getProfileId(), site );
+			}
+		}
+
+		@Override
+		public List<ISiteInventory> getSites() {
+			return sites;
+		}
+
+		@Override
+		public ISiteInventory getSite( long profileId ) {
+			return byId.get( profileId );
+		}
+
+		@Override
+		public Map<Long,String> findPackage( String packageName ) {
+			return Collections.emptyMap();
+		}
+
+		@Override
+		public List<String> searchPackages( String substring ) {
+			return Collections.emptyList();
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tolstoy.drupal.sheephole.api.catalog.IInstallableCatalog;
+import com.tolstoy.drupal.sheephole.api.installation.PlatformType;
+import com.tolstoy.drupal.sheephole.api.installation.ProjectType;
+import com.tolstoy.drupal.sheephole.app.catalog.InstallableCatalog;
+import com.tolstoy.drupal.sheephole.app.catalog.MappedCatalogFile;
+import com.tolstoy.drupal.sheephole.app.installation.JsonUtils;
+
+/**
+ * Loading a D10 catalog and a D11 catalog that shares 90% of its projects with it, either parsed
+ * from JSON into Installable objects or, as BusinessLogic.loadCachedCatalog does, opened over a
+ * mapped catalog file. Run with "-prof gc" to see allocation per catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class CatalogParseBenchmark {
+	@Param({ "1000", "10000", "50000" })
+	private int catalogSize;
+
+	private String json10;
+	private String json11;
+	private Path directory;
+	private File mappedFile;
+
+	@Setup
+	public void setup() throws Exception {
+		json10 = SyntheticCatalog.generateJson( 0, catalogSize, SyntheticCatalog.DEFAULT_SEED );
+		json11 = SyntheticCatalog.generateJson( catalogSize / 10, catalogSize, SyntheticCatalog.DEFAULT_SEED );
+
+		Map<Integer,String> jsonByMajor = new LinkedHashMap<Integer,String>();
+		jsonByMajor.put( 10, json10 );
+		jsonByMajor.put( 11, json11 );
+
+		//	a rewrite starts a new generation next to the file, so give it a directory of its own
+		directory = Files.createTempDirectory( "sheephole-catalog" );
+		mappedFile = directory.resolve( "catalog.dat" ).toFile();
+		try ( MappedCatalogFile file = new MappedCatalogFile( mappedFile ) ) {
+			file.rewrite( InstallableCatalog.toRecords( ProjectType.EXTENSION, jsonByMajor ) );
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		FileUtils.deleteDirectory( directory.toFile() );
+	}
+
+	@Benchmark
+	public IInstallableCatalog parseSingleCatalog() throws Exception {
+		return new InstallableCatalog.Builder( PlatformType.DRUPAL, new JsonUtils() )
+				.addJson( json10, 10 )
+				.build();
+	}
+
+	@Benchmark
+	public IInstallableCatalog parseBothCatalogs() throws Exception {
+		return new InstallableCatalog.Builder( PlatformType.DRUPAL, new JsonUtils() )
+				.addJson( json10, 10 )
+				.addJson( json11, 11 )
+				.build();
+	}
+
+	@Benchmark
+	public IInstallableCatalog openMappedCatalog() throws Exception {
+		try ( MappedCatalogFile file = new MappedCatalogFile( mappedFile ) ) {
+			return InstallableCatalog.open( file.getSnapshot(), PlatformType.DRUPAL, new JsonUtils() );
+		}
+	}
+}
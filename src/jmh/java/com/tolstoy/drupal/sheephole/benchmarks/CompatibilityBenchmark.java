@@ -0,0 +1,79 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.semver4j.Semver;
+
+import com.tolstoy.drupal.sheephole.api.installation.IInstallable;
+import com.tolstoy.drupal.sheephole.api.installation.PlatformType;
+import com.tolstoy.drupal.sheephole.app.catalog.InstallableCatalog;
+import com.tolstoy.drupal.sheephole.app.installation.JsonUtils;
+
+/**
+ * "Which modules work with this site's core version", by checking every installable's
+ * constraint and through the catalog's compatibility index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompatibilityBenchmark {
+	@Param({ "10000" })
+	private int catalogSize;
+
+	@Param({ "10.3.6", "11.1.2" })
+	private String coreVersion;
+
+	private InstallableCatalog catalog;
+	private Semver version;
+
+	@Setup
+	public void setup() throws Exception {
+		catalog = new InstallableCatalog.Builder( PlatformType.DRUPAL, new JsonUtils() )
+					.addJson( SyntheticCatalog.generateJson( catalogSize, SyntheticCatalog.DEFAULT_SEED ), 10 )
+					.addJson( SyntheticCatalog.generateJson( catalogSize / 2, catalogSize, SyntheticCatalog.DEFAULT_SEED ), 11 )
+					.build();
+		version = new Semver( coreVersion );
+
+		//	the index is built on first use, keep that out of the measurement
+		catalog.getCompatibleInstallables( version );
+	}
+
+	@Benchmark
+	public List<IInstallable> scan() {
+		return catalog.getInstallables().stream().filter( installable -> installable.getInstallableVersion().isCompatible( version ) ).collect( Collectors.toList() );
+	}
+
+	@Benchmark
+	public List<IInstallable> indexed() {
+		return catalog.getCompatibleInstallables( version );
+	}
+}
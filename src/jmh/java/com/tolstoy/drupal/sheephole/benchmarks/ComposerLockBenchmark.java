@@ -0,0 +1,134 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tolstoy.drupal.sheephole.app.inventory.ComposerLockReader;
+
+/**
+ * Getting name and version of every package out of a composer.lock, by building the whole
+ * document with org.json and by streaming it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComposerLockBenchmark {
+	@Param({ "150", "400" })
+	private int packageCount;
+
+	private byte[] lock;
+
+	@Setup
+	public void setup() {
+		lock = generateLock( packageCount, SyntheticCatalog.DEFAULT_SEED ).getBytes( StandardCharsets.UTF_8 );
+	}
+
+	@Benchmark
+	public Map<String,String> tree() {
+		Map<String,String> ret = new TreeMap<String,String>();
+		JSONObject root = new JSONObject( new String( lock, StandardCharsets.UTF_8 ) );
+
+		for ( String key : new String[] { "packages", "packages-dev" } ) {
+			JSONArray packages = root.optJSONArray( key );
+			if ( packages == null ) {
+				continue;
+			}
+			for ( Object tempObj : packages ) {
+				JSONObject item = (JSONObject) tempObj;
+				ret.put( item.getString( "name" ), item.optString( "version", "" ) );
+			}
+		}
+
+		return ret;
+	}
+
+	@Benchmark
+	public Map<String,String> streaming() throws Exception {
+		return ComposerLockReader.read( new ByteArrayInputStream( lock ) );
+	}
+
+	/**
+	 * Entries shaped like real ones, with the autoload, dist and description bulk that the
+	 * streaming reader skips.
+	 */
+	public static String generateLock( int packageCount, long seed ) {
+		Random random = new Random( seed );
+		JSONArray packages = new JSONArray();
+
+		for ( int i = 0; i < packageCount; i++ ) {
+			String name = ( i % 3 == 0 ? "symfony" : "drupal" ) + "/package_" + i;
+			String version = ( 1 + random.nextInt( 6 ) ) + "." + random.nextInt( 20 ) + "." + random.nextInt( 10 );
+
+			JSONObject dist = new JSONObject();
+			dist.put( "type", "zip" );
+			dist.put( "url", "https://ftp.drupal.org/files/projects/package_" + i + "-" + version + ".zip" );
+			dist.put( "reference", Long.toHexString( random.nextLong() ) + Long.toHexString( random.nextLong() ) );
+			dist.put( "shasum", Long.toHexString( random.nextLong() ) + Long.toHexString( random.nextLong() ) );
+
+			JSONObject psr4 = new JSONObject();
+			for ( int j = 0; j < 4; j++ ) {
+				psr4.put( "Vendor\\\\Package" + i + "\\\\Sub" + j + "\\\\", "src/Sub" + j + "/" );
+			}
+			JSONObject autoload = new JSONObject();
+			autoload.put( "psr-4", psr4 );
+
+			JSONObject require = new JSONObject();
+			require.put( "php", ">=8.1" );
+			require.put( "drupal/core", "^10 || ^11" );
+
+			JSONObject item = new JSONObject();
+			item.put( "name", name );
+			item.put( "version", version );
+			item.put( "type", "drupal-module" );
+			item.put( "dist", dist );
+			item.put( "require", require );
+			item.put( "autoload", autoload );
+			item.put( "description", "Package " + i + " " + "lorem ipsum dolor sit amet ".repeat( 6 ) );
+			item.put( "license", new JSONArray().put( "GPL-2.0-or-later" ) );
+			packages.put( item );
+		}
+
+		JSONObject root = new JSONObject();
+		root.put( "_readme", new JSONArray().put( "This file locks the dependencies of your project to a known state" ) );
+		root.put( "content-hash", Long.toHexString( seed ) );
+		root.put( "packages", packages );
+		root.put( "packages-dev", new JSONArray() );
+		root.put( "minimum-stability", "stable" );
+
+		return root.toString();
+	}
+}
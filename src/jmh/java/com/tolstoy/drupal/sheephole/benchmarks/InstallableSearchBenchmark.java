@@ -0,0 +1,63 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tolstoy.drupal.sheephole.api.installation.IInstallable;
+
+/**
+ * The autocompletion filter from the install dialog, run over a whole catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstallableSearchBenchmark {
+	@Param({ "10000" })
+	private int catalogSize;
+
+	@Param({ "vie", "paragraphs", "media_gallery", "zzz" })
+	private String query;
+
+	private List<IInstallable> installables;
+
+	@Setup
+	public void setup() throws Exception {
+		installables = SyntheticCatalog.generate( catalogSize, SyntheticCatalog.DEFAULT_SEED, 10 );
+	}
+
+	@Benchmark
+	public List<IInstallable> filterCatalog() {
+		String match = query.toLowerCase();
+
+		return installables.stream().filter( installable -> installable.isMatchFor( match ) ).collect( Collectors.toList() );
+	}
+}
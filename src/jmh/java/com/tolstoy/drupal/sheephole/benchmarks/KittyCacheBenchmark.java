@@ -0,0 +1,99 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.spaceprogram.kittycache.KittyCache;
+
+/**
+ * KittyCache under contention: readers and writers share one cache, sized like the one in
+ * CachingProfileManager. A key space larger than the cache forces evictions.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KittyCacheBenchmark {
+	private static final int TTL_SECONDS = 3600;
+
+	@Param({ "100" })
+	private int maxSize;
+
+	@Param({ "50", "1000" })
+	private int keySpace;
+
+	private KittyCache<Long,String> cache;
+	private String[] values;
+
+	@Setup
+	public void setup() {
+		cache = new KittyCache<Long,String>( maxSize );
+		values = new String[ keySpace ];
+
+		for ( int i = 0; i < keySpace; i++ ) {
+			values[ i ] = "profile-" + i;
+			if ( i < maxSize ) {
+				cache.put( (long) i, values[ i ], TTL_SECONDS );
+			}
+		}
+	}
+
+	@Benchmark
+	@Group("readMostly")
+	@GroupThreads(3)
+	public String readMostlyGet() {
+		return cache.get( (long) ThreadLocalRandom.current().nextInt( keySpace ) );
+	}
+
+	@Benchmark
+	@Group("readMostly")
+	@GroupThreads(1)
+	public void readMostlyPut() {
+		int key = ThreadLocalRandom.current().nextInt( keySpace );
+		cache.put( (long) key, values[ key ], TTL_SECONDS );
+	}
+
+	@Benchmark
+	@Group("writeHeavy")
+	@GroupThreads(2)
+	public String writeHeavyGet() {
+		return cache.get( (long) ThreadLocalRandom.current().nextInt( keySpace ) );
+	}
+
+	@Benchmark
+	@Group("writeHeavy")
+	@GroupThreads(2)
+	public void writeHeavyPut() {
+		int key = ThreadLocalRandom.current().nextInt( keySpace );
+		cache.put( (long) key, values[ key ], TTL_SECONDS );
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tolstoy.drupal.sheephole.api.installation.IInstallable;
+
+/**
+ * Installable description access, cycling through the catalog so every call sees a different
+ * description. The plain text is memoized, so after warmup plainDescription measures the cached
+ * path; description measures inflating the stored HTML.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlainDescriptionBenchmark {
+	private static final int CATALOG_SIZE = 2000;
+
+	private List<IInstallable> installables;
+	private int next;
+
+	@Setup
+	public void setup() throws Exception {
+		installables = SyntheticCatalog.generate( CATALOG_SIZE, SyntheticCatalog.DEFAULT_SEED, 10 );
+		next = 0;
+	}
+
+	@Benchmark
+	public String plainDescription() {
+		IInstallable installable = installables.get( next );
+		next = ( next + 1 ) % installables.size();
+
+		return installable.getPlainDescription( 40 );
+	}
+
+	@Benchmark
+	public String description() {
+		IInstallable installable = installables.get( next );
+		next = ( next + 1 ) % installables.size();
+
+		return installable.getDescription();
+	}
+
+	@Benchmark
+	public String summary() {
+		IInstallable installable = installables.get( next );
+		next = ( next + 1 ) % installables.size();
+
+		return installable.getSummary();
+	}
+}
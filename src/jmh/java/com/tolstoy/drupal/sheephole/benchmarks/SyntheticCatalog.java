@@ -0,0 +1,151 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.benchmarks;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.tolstoy.drupal.sheephole.api.installation.IInstallable;
+import com.tolstoy.drupal.sheephole.api.installation.PlatformType;
+import com.tolstoy.drupal.sheephole.app.catalog.InstallableCatalog;
+import com.tolstoy.drupal.sheephole.app.installation.JsonUtils;
+
+/**
+ * Builds catalogs shaped like the drupal.org JSON:API dumps in src/main/resources.
+ * The same seed always produces the same catalog.
+ */
+public final class SyntheticCatalog {
+	public static final long DEFAULT_SEED = 20250219L;
+
+	/** Every generated project was last changed within the year before this (2025-02-01). */
+	public static final long NEWEST_CHANGE = 1738368000L;
+
+	private static final String[] WORDS = { "views", "field", "paragraphs", "media", "token", "path", "admin", "toolbar",
+											"webform", "search", "api", "layout", "builder", "block", "menu", "link",
+											"entity", "reference", "commerce", "migrate", "plus", "tools", "redirect",
+											"metatag", "schema", "image", "gallery", "social", "share", "cache", "form",
+											"mail", "smtp", "calendar", "geo", "location", "taxonomy", "access", "user" };
+
+	private static final String[] EMOJIS = { "\uD83D\uDE80", "\u2728", "\uD83D\uDD25", "\uD83D\uDC4D", "\u2705" };
+
+	private static final String[] COVERAGE = { "covered", "not-covered", "revoked" };
+
+	private static final String[] CORE_VERSION_REQUIREMENTS = { "^10 || ^11", "^9.5 || ^10 || ^11", "^10.3 || ^11", "^10.1 || ^11",
+																"^9 || ^10", "^10", "^11", "^11.1", "^10.2 || ^11.0", ">=10.2.4 <12" };
+
+	private SyntheticCatalog() {
+	}
+
+	public static String generateJson( int count, long seed ) {
+		return generateJson( 0, count, seed );
+	}
+
+	/**
+	 * Projects are numbered, and project <code>i</code> is the same for a given seed no matter
+	 * which range it is generated in, so overlapping ranges model the D10 and D11 catalogs.
+	 */
+	public static String generateJson( int from, int count, long seed ) {
+		JSONArray data = new JSONArray();
+
+		for ( int i = from; i < from + count; i++ ) {
+			Random random = new Random( seed * 31 + i );
+			String firstWord = WORDS[ random.nextInt( WORDS.length ) ];
+			String secondWord = WORDS[ random.nextInt( WORDS.length ) ];
+			String machineName = firstWord + "_" + secondWord + "_" + i;
+
+			JSONObject body = new JSONObject();
+			body.put( "value", generateDescription( random, firstWord, secondWord ) );
+			body.put( "format", "full_html" );
+
+			JSONObject attributes = new JSONObject();
+			attributes.put( "title", capitalize( firstWord ) + " " + capitalize( secondWord ) + " " + i );
+			attributes.put( "body", body );
+			attributes.put( "drupal_internal__nid", 1000000 + i );
+			attributes.put( "field_project_machine_name", machineName );
+			attributes.put( "field_active_installs_total", random.nextInt( 500000 ) );
+			attributes.put( "field_security_advisory_coverage", COVERAGE[ random.nextInt( COVERAGE.length ) ] );
+			attributes.put( "field_composer_namespace", "drupal/" + machineName );
+			attributes.put( "changed", formatChanged( NEWEST_CHANGE - random.nextInt( 365 * 86400 ) ) );
+			attributes.put( "core_version_requirement", CORE_VERSION_REQUIREMENTS[ random.nextInt( CORE_VERSION_REQUIREMENTS.length ) ] );
+
+			JSONObject item = new JSONObject();
+			item.put( "type", "node--project_module" );
+			item.put( "id", new UUID( seed, i ).toString() );
+			item.put( "attributes", attributes );
+
+			data.put( item );
+		}
+
+		JSONObject root = new JSONObject();
+		root.put( "data", data );
+
+		return root.toString();
+	}
+
+	public static List<IInstallable> generate( int count, long seed, int majorVersion ) throws Exception {
+		return new InstallableCatalog.Builder( PlatformType.DRUPAL, new JsonUtils() )
+				.addJson( generateJson( count, seed ), majorVersion )
+				.build()
+				.getInstallables();
+	}
+
+	private static String generateDescription( Random random, String first, String second ) {
+		StringBuilder sb = new StringBuilder( 1024 );
+		int paragraphs = 1 + random.nextInt( 4 );
+
+		for ( int p = 0; p < paragraphs; p++ ) {
+			sb.append( "<p>" );
+			int words = 20 + random.nextInt( 60 );
+			for ( int w = 0; w < words; w++ ) {
+				if ( random.nextInt( 25 ) == 0 ) {
+					sb.append( "<strong>" ).append( first ).append( "</strong> " );
+				}
+				else if ( random.nextInt( 40 ) == 0 ) {
+					sb.append( "<a href=\"https://www.drupal.org/project/" ).append( second ).append( "\">" ).append( second ).append( "</a> " );
+				}
+				else if ( random.nextInt( 60 ) == 0 ) {
+					sb.append( EMOJIS[ random.nextInt( EMOJIS.length ) ] ).append( ' ' );
+				}
+				else {
+					sb.append( WORDS[ random.nextInt( WORDS.length ) ] ).append( ' ' );
+				}
+			}
+			sb.append( "</p>\n" );
+		}
+
+		if ( random.nextBoolean() ) {
+			sb.append( "<ul>" );
+			for ( int i = 0; i < 3; i++ ) {
+				sb.append( "<li>" ).append( WORDS[ random.nextInt( WORDS.length ) ] ).append( " &amp; " ).append( first ).append( "</li>" );
+			}
+			sb.append( "</ul>" );
+		}
+
+		return sb.toString();
+	}
+
+	public static String formatChanged( long epochSeconds ) {
+		return Instant.ofEpochSecond( epochSeconds ).atOffset( ZoneOffset.UTC ).toString();
+	}
+
+	private static String capitalize( String s ) {
+		return Character.toUpperCase( s.charAt( 0 ) ) + s.substring( 1 );
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.benchmarks.catalog;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tolstoy.drupal.sheephole.app.catalog.CatalogStore;
+import com.tolstoy.drupal.sheephole.app.catalog.CatalogSync;
+import com.tolstoy.drupal.sheephole.benchmarks.SyntheticCatalog;
+
+/**
+ * CatalogSync against a RecordedCatalogServer. The local store starts as a synthetic catalog and
+ * the server additionally holds <code>deltaSize</code> projects changed after it.
+ * <code>refresh</code> merges that delta into a freshly seeded store every invocation;
+ * <code>unchangedRefresh</code> repeats a sync that has already caught up, which should be a
+ * single conditional request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogSyncBenchmark {
+	private static final int MAJOR_VERSION = 10;
+
+	@Param({ "5000" })
+	public int catalogSize;
+
+	@Param({ "0", "50", "2000" })
+	public int deltaSize;
+
+	private Path directory;
+	private String seedJson;
+	private RecordedCatalogServer server;
+	private CatalogStore store;
+	private CatalogSync sync;
+	private CatalogStore caughtUpStore;
+	private CatalogSync caughtUpSync;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		seedJson = SyntheticCatalog.generateJson( catalogSize, SyntheticCatalog.DEFAULT_SEED );
+
+		List<JSONObject> records = new ArrayList<JSONObject>();
+		for ( Object tempObj : new JSONObject( seedJson ).getJSONArray( "data" ) ) {
+			records.add( (JSONObject) tempObj );
+		}
+
+		String deltaJson = SyntheticCatalog.generateJson( catalogSize, deltaSize, SyntheticCatalog.DEFAULT_SEED );
+		int i = 0;
+		for ( Object tempObj : new JSONObject( deltaJson ).getJSONArray( "data" ) ) {
+			JSONObject item = (JSONObject) tempObj;
+			item.getJSONObject( "attributes" ).put( "changed", SyntheticCatalog.formatChanged( SyntheticCatalog.NEWEST_CHANGE + 60 + i++ ) );
+			records.add( item );
+		}
+
+		server = new RecordedCatalogServer( records );
+		directory = Files.createTempDirectory( "sheephole-catalog-sync" );
+
+		store = new CatalogStore( directory.resolve( "fresh" ).toFile() );
+		sync = createSync( store );
+
+		caughtUpStore = new CatalogStore( directory.resolve( "caught-up" ).toFile() );
+		caughtUpStore.writeJson( MAJOR_VERSION, seedJson );
+		caughtUpSync = createSync( caughtUpStore );
+		caughtUpSync.sync( MAJOR_VERSION );
+	}
+
+	@Setup(Level.Invocation)
+	public void resetStore() throws Exception {
+		FileUtils.cleanDirectory( store.getDirectory() );
+		store.writeJson( MAJOR_VERSION, seedJson );
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		server.close();
+		FileUtils.deleteDirectory( directory.toFile() );
+	}
+
+	@Benchmark
+	public int refresh() throws Exception {
+		return sync.sync( MAJOR_VERSION );
+	}
+
+	@Benchmark
+	public int unchangedRefresh() throws Exception {
+		return caughtUpSync.sync( MAJOR_VERSION );
+	}
+
+	//	the delta is all new projects, which are only merged from a filtered listing; the server ignores the filter
+	private CatalogSync createSync( CatalogStore catalogStore ) {
+		return new CatalogSync( catalogStore, server.getUrl(), Collections.singletonMap( MAJOR_VERSION, "filter%5Bcore%5D=" + MAJOR_VERSION ), 50, 1000, 0, Duration.ofSeconds( 10 ) );
+	}
+}
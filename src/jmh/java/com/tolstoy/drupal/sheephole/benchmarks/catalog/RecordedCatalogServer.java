@@ -0,0 +1,147 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.benchmarks.catalog;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.tolstoy.drupal.sheephole.app.catalog.CatalogSync;
+
+/**
+ * Local stand-in for the drupal.org JSON:API project listing. It serves a fixed set of recorded
+ * project records, honouring the <code>changed</code> filter, <code>page[limit]</code> and
+ * <code>page[offset]</code>, and answers 304 when the If-None-Match header matches the ETag of
+ * the page it would send.
+ */
+public class RecordedCatalogServer implements AutoCloseable {
+	public static final String PATH = "/jsonapi/node/project_module";
+
+	private final HttpServer server;
+	private final AtomicInteger requests;
+	private final AtomicInteger notModified;
+	private volatile List<JSONObject> records;
+
+	public RecordedCatalogServer( List<JSONObject> records ) throws IOException {
+		this.requests = new AtomicInteger();
+		this.notModified = new AtomicInteger();
+		setRecords( records );
+
+		server = HttpServer.create( new InetSocketAddress( "127.0.0.1", 0 ), 0 );
+		server.createContext( PATH, this::handle );
+		server.start();
+	}
+
+	public String getUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + PATH;
+	}
+
+	public void setRecords( List<JSONObject> records ) {
+		List<JSONObject> sorted = new ArrayList<JSONObject>( records );
+		sorted.sort( Comparator.comparingLong( CatalogSync::getChanged ) );
+
+		this.records = sorted;
+	}
+
+	public int getRequestCount() {
+		return requests.get();
+	}
+
+	public int getNotModifiedCount() {
+		return notModified.get();
+	}
+
+	@Override
+	public void close() {
+		server.stop( 0 );
+	}
+
+	private void handle( HttpExchange exchange ) throws IOException {
+		requests.incrementAndGet();
+
+		Map<String,String> params = parseQuery( exchange.getRequestURI().getRawQuery() );
+		long since = Long.parseLong( params.getOrDefault( "filter[changed][value]", "0" ) );
+		int limit = Integer.parseInt( params.getOrDefault( "page[limit]", "50" ) );
+		int offset = Integer.parseInt( params.getOrDefault( "page[offset]", "0" ) );
+
+		List<JSONObject> matching = new ArrayList<JSONObject>();
+		for ( JSONObject record : records ) {
+			if ( CatalogSync.getChanged( record ) >= since ) {
+				matching.add( record );
+			}
+		}
+
+		JSONObject page = new JSONObject();
+		page.put( "data", new JSONArray( matching.subList( Math.min( offset, matching.size() ), Math.min( offset + limit, matching.size() ) ) ) );
+
+		JSONObject links = new JSONObject();
+		if ( offset + limit < matching.size() ) {
+			links.put( "next", new JSONObject().put( "href", getUrl() + "?filter%5Bchanged%5D%5Bvalue%5D=" + since +
+																"&filter%5Bchanged%5D%5Boperator%5D=%3E%3D&sort=changed" +
+																"&page%5Blimit%5D=" + limit + "&page%5Boffset%5D=" + ( offset + limit ) ) );
+		}
+		page.put( "links", links );
+
+		byte[] body = page.toString().getBytes( StandardCharsets.UTF_8 );
+		String etag = "\"" + Integer.toHexString( Arrays.hashCode( body ) ) + "\"";
+
+		exchange.getResponseHeaders().set( "ETag", etag );
+
+		if ( etag.equals( exchange.getRequestHeaders().getFirst( "If-None-Match" ) ) ) {
+			notModified.incrementAndGet();
+			exchange.sendResponseHeaders( 304, -1 );
+			exchange.close();
+			return;
+		}
+
+		exchange.getResponseHeaders().set( "Content-Type", "application/vnd.api+json" );
+		exchange.sendResponseHeaders( 200, body.length );
+
+		try ( OutputStream os = exchange.getResponseBody() ) {
+			os.write( body );
+		}
+	}
+
+	private static Map<String,String> parseQuery( String rawQuery ) {
+		Map<String,String> ret = new HashMap<String,String>();
+
+		if ( rawQuery == null ) {
+			return ret;
+		}
+
+		for ( String pair : rawQuery.split( "&" ) ) {
+			int eq = pair.indexOf( '=' );
+			if ( eq > 0 ) {
+				ret.put( URLDecoder.decode( pair.substring( 0, eq ), StandardCharsets.UTF_8 ),
+							URLDecoder.decode( pair.substring( eq + 1 ), StandardCharsets.UTF_8 ) );
+			}
+		}
+
+		return ret;
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.benchmarks.ssh;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tolstoy.drupal.sheephole.app.SSHManager;
+import com.tolstoy.drupal.sheephole.app.composer.ComposerPreflight;
+import com.tolstoy.drupal.sheephole.app.composer.PackageMetadataCache;
+import com.tolstoy.drupal.sheephole.app.installation.SiteProfile;
+
+/**
+ * composerInstall with and without the preflight, for a package with a stable release and for
+ * one that only has a dev branch. Without the preflight the dev-only package costs a failed
+ * composer run before the one that works.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ComposerPreflightBenchmark {
+	@Param({ "0", "25" })
+	private long roundTripMillis;
+
+	@Param({ "250" })
+	private long composerLatencyMillis;
+
+	@Param({ "drupal/token", "drupal/experimental_dev" })
+	private String packageName;
+
+	@Param({ "false", "true" })
+	private boolean preflight;
+
+	private FakeDrupalSite site;
+	private EmbeddedSshServer server;
+	private RecordedComposerRepository repository;
+	private Path cacheDirectory;
+	private SSHManager sshManager;
+
+	@Setup
+	public void setup() throws Exception {
+		site = new FakeDrupalSite( "10.3.6", composerLatencyMillis, 100 );
+		server = new EmbeddedSshServer( site.getBinDirectory(), roundTripMillis );
+
+		repository = new RecordedComposerRepository();
+		repository.addStable( "drupal/token", "^10 || ^11" );
+		repository.addDevOnly( "drupal/experimental_dev", "^10.3 || ^11" );
+
+		if ( preflight ) {
+			cacheDirectory = Files.createTempDirectory( "sheephole-composer-metadata" );
+
+			Map<String,String> urls = new HashMap<String,String>();
+			urls.put( "", repository.getUrlTemplate() );
+
+			PackageMetadataCache cache = new PackageMetadataCache( cacheDirectory.toFile(), urls, Duration.ofHours( 1 ), Duration.ofSeconds( 5 ) );
+			sshManager = new HarnessSSHManager( new ComposerPreflight( cache ) );
+		}
+		else {
+			sshManager = new HarnessSSHManager();
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void resetSite() throws Exception {
+		site.resetMinimumStability();
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		server.close();
+		repository.close();
+		site.close();
+		if ( cacheDirectory != null ) {
+			FileUtils.deleteDirectory( cacheDirectory.toFile() );
+		}
+	}
+
+	@Benchmark
+	public void composerInstall() throws Exception {
+		SiteProfile profile = new SiteProfile( 1, "benchmark", EmbeddedSshServer.USER_NAME, server.getUri(), site.getDirectory() );
+		profile.setVersion( site.getDrupalVersion() );
+
+		sshManager.composerInstall( profile, EmbeddedSshServer.PASSWORD, packageName, null );
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.benchmarks.ssh;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+
+/**
+ * In-process sshd on 127.0.0.1 for exercising SSHManager without a real host.
+ * Every exec request runs through /bin/sh with the given bin directory first on the PATH,
+ * so the FakeDrupalSite composer script is picked up. Network latency is simulated by
+ * delaying authentication and the start of every command by one round trip.
+ */
+public class EmbeddedSshServer implements AutoCloseable {
+	public static final String USER_NAME = "sheep";
+	public static final String PASSWORD = "baa";
+
+	private final SshServer server;
+	private final Path workDirectory;
+	private volatile long roundTripMillis;
+
+	public EmbeddedSshServer( Path binDirectory, long roundTripMillis ) throws IOException {
+		this.roundTripMillis = roundTripMillis;
+		this.workDirectory = Files.createTempDirectory( "sheephole-sshd" );
+
+		Map<String,String> environment = new HashMap<String,String>();
+		environment.put( "PATH", binDirectory.toAbsolutePath() + ":" + System.getenv( "PATH" ) );
+		environment.put( "HOME", workDirectory.toAbsolutePath().toString() );
+
+		server = SshServer.setUpDefaultServer();
+		server.setHost( "127.0.0.1" );
+		server.setPort( 0 );
+		server.setKeyPairProvider( new SimpleGeneratorHostKeyProvider( workDirectory.resolve( "hostkey.ser" ) ) );
+		server.setPasswordAuthenticator( ( userName, password, session ) -> {
+			simulateRoundTrip();
+			return USER_NAME.equals( userName ) && PASSWORD.equals( password );
+		});
+		server.setCommandFactory( ( channel, command ) -> new ShellCommand( command, environment, this.roundTripMillis ) );
+
+		server.start();
+	}
+
+	public int getPort() {
+		return server.getPort();
+	}
+
+	public String getUri() {
+		return "127.0.0.1:" + getPort();
+	}
+
+	public void setRoundTripMillis( long roundTripMillis ) {
+		this.roundTripMillis = roundTripMillis;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			server.stop( true );
+		}
+		finally {
+			FileUtils.deleteDirectory( workDirectory.toFile() );
+		}
+	}
+
+	private void simulateRoundTrip() {
+		if ( roundTripMillis > 0 ) {
+			try {
+				Thread.sleep( roundTripMillis );
+			}
+			catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
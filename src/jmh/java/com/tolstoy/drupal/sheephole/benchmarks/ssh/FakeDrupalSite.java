@@ -0,0 +1,146 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.benchmarks.ssh;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * A Drupal site root on the local disk: composer.json, composer.lock, core/lib/Drupal.php and a
+ * scripted <code>composer</code> in bin/ whose latency and amount of output are configurable.
+ * Like the real one, the fake composer refuses to require a package whose name ends in _dev
+ * until <code>composer config minimum-stability dev</code> has been run. <code>composer update
+ * --dry-run</code> lists the updates set with {@link #setPendingUpdates(int)}, and a real update
+ * clears them.
+ */
+public class FakeDrupalSite implements AutoCloseable {
+	private final Path root;
+	private final Path binDirectory;
+	private final String drupalVersion;
+
+	public FakeDrupalSite( String drupalVersion, long composerLatencyMillis, int composerOutputLines ) throws IOException {
+		this.drupalVersion = drupalVersion;
+		this.root = Files.createTempDirectory( "sheephole-site" );
+		this.binDirectory = Files.createDirectories( root.resolve( "bin" ) );
+
+		write( root.resolve( "composer.json" ), "{\n" +
+					"  \"name\": \"drupal/recommended-project\",\n" +
+					"  \"type\": \"project\",\n" +
+					"  \"require\": {\n" +
+					"    \"drupal/core-recommended\": \"^" + drupalVersion + "\"\n" +
+					"  },\n" +
+					"  \"minimum-stability\": \"stable\"\n" +
+					"}\n" );
+
+		write( root.resolve( "composer.lock" ), "{\n" +
+					"  \"packages\": [\n" +
+					"    { \"name\": \"drupal/core\", \"version\": \"" + drupalVersion + "\", \"type\": \"drupal-core\" },\n" +
+					"    { \"name\": \"drupal/core-recommended\", \"version\": \"" + drupalVersion + "\", \"type\": \"metapackage\" }\n" +
+					"  ],\n" +
+					"  \"packages-dev\": [],\n" +
+					"  \"minimum-stability\": \"stable\"\n" +
+					"}\n" );
+
+		Files.createDirectories( root.resolve( "core/lib" ) );
+		write( root.resolve( "core/lib/Drupal.php" ), "<?php\n\n" +
+					"namespace Drupal;\n\n" +
+					"class Drupal {\n\n" +
+					"  const VERSION = '" + drupalVersion + "';\n\n" +
+					"  const CORE_COMPATIBILITY = '8.x';\n" +
+					"}\n" );
+
+		writeComposer( composerLatencyMillis, composerOutputLines );
+	}
+
+	public String getDirectory() {
+		return root.toAbsolutePath().toString();
+	}
+
+	public String getDrupalVersion() {
+		return drupalVersion;
+	}
+
+	public Path getBinDirectory() {
+		return binDirectory;
+	}
+
+	/**
+	 * Undoes a previous <code>composer config minimum-stability</code>.
+	 */
+	public void resetMinimumStability() throws IOException {
+		Files.deleteIfExists( root.resolve( ".minimum-stability" ) );
+	}
+
+	/**
+	 * @param count how many packages the next <code>composer update</code> would upgrade
+	 */
+	public void setPendingUpdates( int count ) throws IOException {
+		Path pending = root.resolve( ".pending-updates" );
+
+		if ( count < 1 ) {
+			Files.deleteIfExists( pending );
+			return;
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for ( int i = 0; i < count; i++ ) {
+			sb.append( "  - Upgrading drupal/fake_" ).append( i ).append( " (1.0." ).append( i ).append( " => 1.0." ).append( i + 1 ).append( ")\n" );
+		}
+
+		write( pending, sb.toString() );
+	}
+
+	public void writeComposer( long latencyMillis, int outputLines ) throws IOException {
+		Path composer = binDirectory.resolve( "composer" );
+
+		write( composer, "#!/bin/sh\n" +
+					"# fake composer generated by the benchmark harness\n" +
+					"case \"$1\" in\n" +
+					"  config) [ \"$2\" = minimum-stability ] && echo \"$3\" > .minimum-stability; exit 0 ;;\n" +
+					"esac\n" +
+					"sleep " + ( latencyMillis / 1000.0 ) + "\n" +
+					"if [ \"$1 $2\" = 'update --dry-run' ]; then\n" +
+					"  if [ -f .pending-updates ]; then echo 'Package operations: 0 installs, some updates, 0 removals' >&2; cat .pending-updates >&2;\n" +
+					"  else echo 'Nothing to modify in lock file' >&2; echo 'Nothing to install, update or remove' >&2; fi\n" +
+					"  exit 0\n" +
+					"fi\n" +
+					"case \"$1 $2\" in\n" +
+					"  require\\ *_dev) [ \"$(cat .minimum-stability 2>/dev/null)\" = dev ] || { echo \"Could not find a version of package $2 matching your minimum-stability (stable)\" >&2; exit 2; } ;;\n" +
+					"esac\n" +
+					"echo 'Loading composer repositories with package information'\n" +
+					"echo 'Updating dependencies'\n" +
+					"echo 'Package operations: " + outputLines + " installs, 0 updates, 0 removals'\n" +
+					"awk 'BEGIN { for ( i = 0; i < " + outputLines + "; i++ ) printf \"  - Installing drupal/fake_%d (1.0.%d): Extracting archive\\n\", i, i }'\n" +
+					"echo 'Generating autoload files'\n" +
+					"[ \"$1\" = update ] && rm -f .pending-updates\n" +
+					"exit 0\n" );
+
+		Files.setPosixFilePermissions( composer, PosixFilePermissions.fromString( "rwxr-xr-x" ) );
+	}
+
+	@Override
+	public void close() throws IOException {
+		FileUtils.deleteDirectory( root.toFile() );
+	}
+
+	private static void write( Path path, String contents ) throws IOException {
+		Files.write( path, contents.getBytes( StandardCharsets.UTF_8 ) );
+	}
+}
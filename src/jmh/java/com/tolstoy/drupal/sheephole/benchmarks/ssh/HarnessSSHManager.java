@@ -0,0 +1,45 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.benchmarks.ssh;
+
+import java.io.IOException;
+
+import net.schmizz.sshj.Config;
+import net.schmizz.sshj.SSHClient;
+import net.schmizz.sshj.transport.verification.PromiscuousVerifier;
+
+import com.tolstoy.drupal.sheephole.app.SSHManager;
+import com.tolstoy.drupal.sheephole.app.composer.ComposerPreflight;
+
+/**
+ * SSHManager that trusts the throwaway host key of EmbeddedSshServer instead of ~/.ssh/known_hosts.
+ */
+public class HarnessSSHManager extends SSHManager {
+	public HarnessSSHManager() {
+		super();
+	}
+
+	public HarnessSSHManager( ComposerPreflight preflight ) {
+		super( preflight );
+	}
+
+	@Override
+	protected SSHClient createClient( Config config ) throws IOException {
+		SSHClient ssh = new SSHClient( config );
+
+		ssh.addHostKeyVerifier( new PromiscuousVerifier() );
+
+		return ssh;
+	}
+}
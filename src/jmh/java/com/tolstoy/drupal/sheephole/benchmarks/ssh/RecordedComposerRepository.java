@@ -0,0 +1,122 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.benchmarks.ssh;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Local stand-in for a composer repository's p2 metadata. Each package gets stable releases,
+ * pre-releases or only a dev branch, with a drupal/core requirement, in the minified format
+ * packagist.org serves.
+ */
+public class RecordedComposerRepository implements AutoCloseable {
+	public static final String PATH = "/p2/";
+
+	private final HttpServer server;
+	private final Map<String,String> bodies;
+	private final AtomicInteger requests;
+
+	public RecordedComposerRepository() throws IOException {
+		this.bodies = new ConcurrentHashMap<String,String>();
+		this.requests = new AtomicInteger();
+
+		server = HttpServer.create( new InetSocketAddress( "127.0.0.1", 0 ), 0 );
+		server.createContext( PATH, this::handle );
+		server.start();
+	}
+
+	/**
+	 * @return a metadata URL template for PackageMetadataCache
+	 */
+	public String getUrlTemplate() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + PATH + "%package%.json";
+	}
+
+	public void addStable( String packageName, String coreRequirement ) {
+		bodies.put( packageName, createBody( packageName, coreRequirement, "1.2.0", "1.1.0", "1.0.0" ) );
+	}
+
+	public void addPreRelease( String packageName, String coreRequirement ) {
+		bodies.put( packageName, createBody( packageName, coreRequirement, "2.0.0-beta2", "2.0.0-alpha1" ) );
+	}
+
+	public void addDevOnly( String packageName, String coreRequirement ) {
+		bodies.put( packageName, createBody( packageName, coreRequirement ) );
+		bodies.put( packageName + "~dev", createBody( packageName, coreRequirement, "1.x-dev" ) );
+	}
+
+	public int getRequestCount() {
+		return requests.get();
+	}
+
+	@Override
+	public void close() {
+		server.stop( 0 );
+	}
+
+	private static String createBody( String packageName, String coreRequirement, String... versions ) {
+		JSONArray list = new JSONArray();
+
+		for ( int i = 0; i < versions.length; i++ ) {
+			JSONObject version = new JSONObject();
+			version.put( "version", versions[ i ] );
+
+			//	minified: only the first entry carries the fields the others share
+			if ( i == 0 ) {
+				version.put( "name", packageName );
+				version.put( "type", "drupal-module" );
+				version.put( "require", new JSONObject().put( "drupal/core", coreRequirement ) );
+			}
+
+			list.put( version );
+		}
+
+		JSONObject root = new JSONObject();
+		root.put( "minified", "composer/2.0" );
+		root.put( "packages", new JSONObject().put( packageName, list ) );
+
+		return root.toString();
+	}
+
+	private void handle( HttpExchange exchange ) throws IOException {
+		requests.incrementAndGet();
+
+		String path = exchange.getRequestURI().getPath().substring( PATH.length() );
+		String body = path.endsWith( ".json" ) ? bodies.get( path.substring( 0, path.length() - 5 ) ) : null;
+
+		if ( body == null ) {
+			exchange.sendResponseHeaders( 404, -1 );
+			exchange.close();
+			return;
+		}
+
+		byte[] bytes = body.getBytes( StandardCharsets.UTF_8 );
+		exchange.getResponseHeaders().set( "Content-Type", "application/json" );
+		exchange.sendResponseHeaders( 200, bytes.length );
+		try ( OutputStream out = exchange.getResponseBody() ) {
+			out.write( bytes );
+		}
+	}
+}
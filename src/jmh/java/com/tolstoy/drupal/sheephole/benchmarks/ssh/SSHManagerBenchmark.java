@@ -0,0 +1,137 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.benchmarks.ssh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tolstoy.drupal.sheephole.api.installation.ISiteProfile;
+import com.tolstoy.drupal.sheephole.app.IInstallationInfo;
+import com.tolstoy.drupal.sheephole.app.SSHManager;
+import com.tolstoy.drupal.sheephole.app.installation.SiteProfile;
+
+/**
+ * SSHManager against EmbeddedSshServer. roundTripMillis simulates network latency per exec,
+ * composerLatencyMillis and composerOutputLines shape the fake composer run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SSHManagerBenchmark {
+	@Param({ "0", "25", "100" })
+	private long roundTripMillis;
+
+	@Param({ "0" })
+	private long composerLatencyMillis;
+
+	@Param({ "100", "5000" })
+	private int composerOutputLines;
+
+	@Param({ "8" })
+	private int fleetSize;
+
+	private List<FakeDrupalSite> sites;
+	private EmbeddedSshServer server;
+	private SSHManager sshManager;
+	private ExecutorService fleetExecutor;
+
+	@Setup
+	public void setup() throws Exception {
+		sites = new ArrayList<FakeDrupalSite>( fleetSize );
+		for ( int i = 0; i < fleetSize; i++ ) {
+			sites.add( new FakeDrupalSite( "10.3.6", composerLatencyMillis, composerOutputLines ) );
+		}
+
+		server = new EmbeddedSshServer( sites.get( 0 ).getBinDirectory(), roundTripMillis );
+		sshManager = new HarnessSSHManager();
+		fleetExecutor = Executors.newFixedThreadPool( fleetSize );
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		fleetExecutor.shutdownNow();
+		server.close();
+		for ( FakeDrupalSite site : sites ) {
+			site.close();
+		}
+	}
+
+	@Benchmark
+	public IInstallationInfo getInstallationInfo() throws Exception {
+		return sshManager.getInstallationInfo( EmbeddedSshServer.USER_NAME, EmbeddedSshServer.PASSWORD, server.getUri(), sites.get( 0 ).getDirectory() );
+	}
+
+	@Benchmark
+	public void composerInstall() throws Exception {
+		sshManager.composerInstall( createProfile( sites.get( 0 ) ), EmbeddedSshServer.PASSWORD, "drupal/token", null );
+	}
+
+	@Benchmark
+	public int fleetGetInstallationInfo() throws Exception {
+		List<Future<IInstallationInfo>> futures = new ArrayList<Future<IInstallationInfo>>( fleetSize );
+		for ( FakeDrupalSite site : sites ) {
+			futures.add( fleetExecutor.submit( () -> sshManager.getInstallationInfo( EmbeddedSshServer.USER_NAME, EmbeddedSshServer.PASSWORD, server.getUri(), site.getDirectory() ) ) );
+		}
+
+		int count = 0;
+		for ( Future<IInstallationInfo> future : futures ) {
+			if ( future.get() != null ) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	@Benchmark
+	public int fleetComposerUpdate() throws Exception {
+		List<Future<?>> futures = new ArrayList<Future<?>>( fleetSize );
+		for ( FakeDrupalSite site : sites ) {
+			futures.add( fleetExecutor.submit( () -> {
+				sshManager.composerUpdate( createProfile( site ), EmbeddedSshServer.PASSWORD, null );
+				return null;
+			}));
+		}
+
+		for ( Future<?> future : futures ) {
+			future.get();
+		}
+
+		return futures.size();
+	}
+
+	private ISiteProfile createProfile( FakeDrupalSite site ) {
+		return new SiteProfile( 1, "benchmark", EmbeddedSshServer.USER_NAME, server.getUri(), site.getDirectory() );
+	}
+}
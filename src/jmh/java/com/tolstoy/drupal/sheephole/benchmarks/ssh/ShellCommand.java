@@ -0,0 +1,135 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.benchmarks.ssh;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+import org.apache.sshd.server.Environment;
+import org.apache.sshd.server.ExitCallback;
+import org.apache.sshd.server.channel.ChannelSession;
+import org.apache.sshd.server.command.Command;
+
+/**
+ * Runs an exec request through /bin/sh on the local machine, after sleeping for the
+ * simulated round trip.
+ */
+class ShellCommand implements Command {
+	private final String command;
+	private final Map<String,String> environment;
+	private final long roundTripMillis;
+
+	private InputStream in;
+	private OutputStream out;
+	private OutputStream err;
+	private ExitCallback callback;
+	private volatile Process process;
+	private Thread thread;
+
+	ShellCommand( String command, Map<String,String> environment, long roundTripMillis ) {
+		this.command = command;
+		this.environment = environment;
+		this.roundTripMillis = roundTripMillis;
+	}
+
+	@Override
+	public void setInputStream( InputStream in ) {
+		this.in = in;
+	}
+
+	@Override
+	public void setOutputStream( OutputStream out ) {
+		this.out = out;
+	}
+
+	@Override
+	public void setErrorStream( OutputStream err ) {
+		this.err = err;
+	}
+
+	@Override
+	public void setExitCallback( ExitCallback callback ) {
+		this.callback = callback;
+	}
+
+	@Override
+	public void start( ChannelSession channel, Environment env ) throws IOException {
+		thread = new Thread( this::run, "fake-sshd-exec" );
+		thread.setDaemon( true );
+		thread.start();
+	}
+
+	@Override
+	public void destroy( ChannelSession channel ) throws Exception {
+		Process p = process;
+		if ( p != null ) {
+			p.descendants().forEach( ProcessHandle::destroyForcibly );
+			p.destroyForcibly();
+		}
+
+		if ( thread != null ) {
+			thread.interrupt();
+		}
+	}
+
+	private void run() {
+		int exitValue = 255;
+
+		try {
+			if ( roundTripMillis > 0 ) {
+				Thread.sleep( roundTripMillis );
+			}
+
+			ProcessBuilder builder = new ProcessBuilder( "/bin/sh", "-c", command );
+			builder.environment().putAll( environment );
+
+			process = builder.start();
+			process.getOutputStream().close();
+
+			Thread errPump = new Thread( () -> pump( process.getErrorStream(), err ), "fake-sshd-stderr" );
+			errPump.setDaemon( true );
+			errPump.start();
+
+			pump( process.getInputStream(), out );
+			errPump.join();
+
+			exitValue = process.waitFor();
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+		catch ( Exception e ) {
+			exitValue = 127;
+		}
+		finally {
+			callback.onExit( exitValue );
+		}
+	}
+
+	private static void pump( InputStream from, OutputStream to ) {
+		try {
+			byte[] buf = new byte[ 8192 ];
+			int n;
+			while ( ( n = from.read( buf ) ) >= 0 ) {
+				to.write( buf, 0, n );
+				to.flush();
+			}
+		}
+		catch ( IOException e ) {
+			//	the client went away
+		}
+	}
+}
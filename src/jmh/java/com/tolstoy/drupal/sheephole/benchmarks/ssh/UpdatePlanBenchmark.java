@@ -0,0 +1,134 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.benchmarks.ssh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tolstoy.drupal.sheephole.api.installation.ISiteProfile;
+import com.tolstoy.drupal.sheephole.app.SSHManager;
+import com.tolstoy.drupal.sheephole.app.composer.FleetUpdatePlan;
+import com.tolstoy.drupal.sheephole.app.composer.UpdateOperation;
+import com.tolstoy.drupal.sheephole.app.composer.UpdatePlan;
+import com.tolstoy.drupal.sheephole.app.composer.UpdatePlanner;
+import com.tolstoy.drupal.sheephole.app.installation.SiteProfile;
+
+/**
+ * Updating a fleet where only some sites have anything to update: composer update on every
+ * site, against a dry run everywhere followed by composer update where it found changes. The
+ * fake composer takes as long for a dry run as for an update, which flatters the blind run;
+ * a real dry run downloads and extracts nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UpdatePlanBenchmark {
+	@Param({ "25" })
+	private long roundTripMillis;
+
+	@Param({ "250" })
+	private long composerLatencyMillis;
+
+	@Param({ "5000" })
+	private int composerOutputLines;
+
+	@Param({ "16" })
+	private int fleetSize;
+
+	@Param({ "0.1", "0.5" })
+	private double pendingFraction;
+
+	@Param({ "4" })
+	private int parallelism;
+
+	//	stands in for a dry run that was never done
+	private static final UpdateOperation BLIND = new UpdateOperation( UpdateOperation.Type.UPDATE, "*", "?", "?" );
+
+	private List<FakeDrupalSite> sites;
+	private List<ISiteProfile> profiles;
+	private EmbeddedSshServer server;
+	private UpdatePlanner planner;
+
+	@Setup
+	public void setup() throws Exception {
+		sites = new ArrayList<FakeDrupalSite>( fleetSize );
+		for ( int i = 0; i < fleetSize; i++ ) {
+			sites.add( new FakeDrupalSite( "10.3.6", composerLatencyMillis, composerOutputLines ) );
+		}
+
+		server = new EmbeddedSshServer( sites.get( 0 ).getBinDirectory(), roundTripMillis );
+
+		profiles = new ArrayList<ISiteProfile>( fleetSize );
+		for ( int i = 0; i < fleetSize; i++ ) {
+			profiles.add( new SiteProfile( i + 1, "site " + i, EmbeddedSshServer.USER_NAME, server.getUri(), sites.get( i ).getDirectory() ) );
+		}
+
+		SSHManager sshManager = new HarnessSSHManager();
+		planner = new UpdatePlanner( sshManager, parallelism );
+	}
+
+	@Setup(Level.Invocation)
+	public void resetSites() throws Exception {
+		int pending = (int) Math.round( fleetSize * pendingFraction );
+		for ( int i = 0; i < fleetSize; i++ ) {
+			sites.get( i ).setPendingUpdates( i < pending ? 3 : 0 );
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		server.close();
+		for ( FakeDrupalSite site : sites ) {
+			site.close();
+		}
+	}
+
+	/**
+	 * Every site gets composer update, as if each one had changes.
+	 */
+	@Benchmark
+	public int blind() throws Exception {
+		List<UpdatePlan> plans = new ArrayList<UpdatePlan>( profiles.size() );
+		for ( ISiteProfile profile : profiles ) {
+			plans.add( new UpdatePlan( profile, List.of( BLIND ) ) );
+		}
+
+		return planner.apply( new FleetUpdatePlan( plans ), EmbeddedSshServer.PASSWORD ).size();
+	}
+
+	@Benchmark
+	public int planned() throws Exception {
+		FleetUpdatePlan plan = planner.plan( profiles, EmbeddedSshServer.PASSWORD );
+
+		return planner.apply( plan, EmbeddedSshServer.PASSWORD ).size();
+	}
+}
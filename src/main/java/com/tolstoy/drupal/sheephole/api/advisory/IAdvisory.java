@@ -0,0 +1,47 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.api.advisory;
+
+/**
+ * One security advisory for one composer package.
+ */
+public interface IAdvisory {
+	String getId();
+
+	String getPackageName();
+
+	String getTitle();
+
+	String getLink();
+
+	/**
+	 * @return empty if the advisory has no CVE
+	 */
+	String getCve();
+
+	/**
+	 * @return empty if the source didn't rate it
+	 */
+	String getSeverity();
+
+	/**
+	 * @return the affected versions as a composer constraint, e.g. <code>&gt;=1.0.0,&lt;1.2.3|&gt;=2.0.0,&lt;2.0.4</code>
+	 */
+	String getAffectedVersions();
+
+	/**
+	 * @return seconds since the epoch
+	 */
+	long getReportedAt();
+}
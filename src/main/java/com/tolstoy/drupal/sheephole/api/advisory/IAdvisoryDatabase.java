@@ -0,0 +1,37 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.api.advisory;
+
+import java.util.List;
+
+/**
+ * The locally cached advisories. Lookups never go to the network.
+ */
+public interface IAdvisoryDatabase {
+	/**
+	 * @return the advisories whose affected versions include the version; empty if the version
+	 * can't be compared, e.g. a dev branch
+	 */
+	List<IAdvisory> getAdvisories( String packageName, String version );
+
+	List<IAdvisory> getAdvisories( String packageName );
+
+	int size();
+
+	/**
+	 * Fetches the advisories changed since the last refresh and merges them into the local copy.
+	 * @return the number of advisories added or replaced
+	 */
+	int refresh() throws Exception;
+}
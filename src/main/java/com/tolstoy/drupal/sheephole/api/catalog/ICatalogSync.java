@@ -0,0 +1,33 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.api.catalog;
+
+import java.util.function.Consumer;
+
+import org.json.JSONObject;
+
+public interface ICatalogSync {
+	/**
+	 * Pulls the projects changed since the last sync for one major version into the local store.
+	 * @return the number of records that were added or replaced
+	 */
+	default int sync( int majorVersion ) throws Exception {
+		return sync( majorVersion, item -> {} );
+	}
+
+	/**
+	 * As {@link #sync(int)}, also handing every added or replaced JSON:API item to <code>merged</code>.
+	 */
+	int sync( int majorVersion, Consumer<JSONObject> merged ) throws Exception;
+}
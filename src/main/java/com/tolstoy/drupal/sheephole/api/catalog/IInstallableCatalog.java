@@ -0,0 +1,46 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.api.catalog;
+
+import java.util.List;
+
+import org.semver4j.Semver;
+
+import com.tolstoy.drupal.sheephole.api.installation.IInstallable;
+import com.tolstoy.drupal.sheephole.api.installation.ProjectType;
+
+public interface IInstallableCatalog {
+	List<IInstallable> getInstallables();
+
+	List<IInstallable> getInstallables( int majorVersion );
+
+	List<IInstallable> getInstallables( ProjectType projectType );
+
+	List<IInstallable> getInstallables( ProjectType projectType, int majorVersion );
+
+	/**
+	 * @return the installables whose version constraint the platform version satisfies
+	 */
+	List<IInstallable> getCompatibleInstallables( Semver platformVersion );
+
+	List<IInstallable> getCompatibleInstallables( ProjectType projectType, Semver platformVersion );
+
+	IInstallable getInstallable( String machineName );
+
+	IInstallable getInstallable( ProjectType projectType, String machineName );
+
+	List<Integer> getMajorVersions();
+
+	int size();
+}
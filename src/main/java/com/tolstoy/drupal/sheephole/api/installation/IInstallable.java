@@ -21,6 +21,7 @@ public interface IInstallable {
 	String getDescription();
 	String getPlainDescription( int maxLen );
 	PlatformType getType();
+	ProjectType getProjectType();
 	IInstallableVersion getInstallableVersion();
 	List<IInstallationInstruction> getInstallationInstructions();
 	boolean isMatchFor( String substring );
@@ -19,4 +19,9 @@ import org.semver4j.Semver;
 
 public interface IInstallableVersion {
 	boolean isCompatible( Semver other );
+
+	/**
+	 * @return the platform versions this works with as a composer constraint, e.g. "^10.3 || ^11"
+	 */
+	String getConstraint();
 }
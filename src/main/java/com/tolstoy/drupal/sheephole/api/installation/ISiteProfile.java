@@ -17,6 +17,8 @@ import javafx.beans.property.BooleanProperty;
 
 import org.semver4j.Semver;
 
+import com.tolstoy.drupal.sheephole.api.ssh.ISSHTransportSettings;
+
 public interface ISiteProfile {
 
 	boolean isMatchFor( String substring );
@@ -69,5 +71,12 @@ public interface ISiteProfile {
 
 	void setPassword( String password );
 
+	/**
+	 * @return never null; the defaults for profiles that never set any
+	 */
+	ISSHTransportSettings getTransportSettings();
+
+	void setTransportSettings( ISSHTransportSettings transportSettings );
+
 	BooleanProperty getToBeDeletedProperty();
 }
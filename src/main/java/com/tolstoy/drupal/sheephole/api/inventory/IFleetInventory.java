@@ -0,0 +1,36 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.api.inventory;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What is installed where, as of the last collection from each site.
+ */
+public interface IFleetInventory {
+	List<ISiteInventory> getSites();
+
+	ISiteInventory getSite( long profileId );
+
+	/**
+	 * @return profile id to installed version, for every site that has the package
+	 */
+	Map<Long,String> findPackage( String packageName );
+
+	/**
+	 * @return the installed package names containing the substring, sorted
+	 */
+	List<String> searchPackages( String substring );
+}
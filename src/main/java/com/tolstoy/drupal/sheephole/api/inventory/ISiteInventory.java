@@ -0,0 +1,44 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.api.inventory;
+
+import java.util.List;
+
+/**
+ * The packages in one site's composer.lock.
+ */
+public interface ISiteInventory {
+	long getProfileId();
+
+	String getTitle();
+
+	/**
+	 * @return SHA-256 of the composer.lock this was read from
+	 */
+	String getLockHash();
+
+	/**
+	 * @return when it was read, in seconds since the epoch
+	 */
+	long getCollected();
+
+	/**
+	 * @return the installed version, null if the package isn't installed
+	 */
+	String getVersion( String packageName );
+
+	List<String> getPackageNames();
+
+	int size();
+}
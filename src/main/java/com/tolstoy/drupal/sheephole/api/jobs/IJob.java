@@ -0,0 +1,54 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.api.jobs;
+
+/**
+ * An install or update as stored in the job queue. Instances are snapshots; the queue hands out
+ * a new one whenever the job changes.
+ */
+public interface IJob {
+	long getId();
+
+	JobType getType();
+
+	long getProfileId();
+
+	/**
+	 * @return the composer package for an install, empty for an update
+	 */
+	String getTarget();
+
+	JobState getState();
+
+	/**
+	 * @return how many times the job has been started
+	 */
+	int getAttempts();
+
+	int getMaxAttempts();
+
+	/**
+	 * @return seconds since the epoch before which a queued job won't be started
+	 */
+	long getNextRunAt();
+
+	long getCreated();
+
+	long getModified();
+
+	/**
+	 * @return the last error, or empty
+	 */
+	String getMessage();
+}
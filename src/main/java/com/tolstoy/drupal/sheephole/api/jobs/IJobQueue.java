@@ -0,0 +1,57 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.api.jobs;
+
+import java.util.List;
+
+import com.tolstoy.drupal.sheephole.api.installation.ISiteProfile;
+
+/**
+ * Installs and updates, run by a fixed number of workers in the order they were queued. Jobs
+ * are stored in the database, so those queued or running when the application stops are run
+ * when it starts again.
+ */
+public interface IJobQueue {
+	/**
+	 * @param password kept in memory only; a job resumed after a restart authenticates with the
+	 * profile's own password or the default SSH keys
+	 */
+	IJob enqueue( JobType type, ISiteProfile profile, String target, String password ) throws Exception;
+
+	/**
+	 * Queues a failed job again with a fresh set of attempts.
+	 * @return null if there is no such failed job
+	 */
+	IJob retry( long id, String password ) throws Exception;
+
+	IJob getJob( long id ) throws Exception;
+
+	/**
+	 * @return the most recent jobs, newest first
+	 */
+	List<IJob> getJobs( int limit ) throws Exception;
+
+	/**
+	 * @param profileId only that profile's attempts, or -1 for all
+	 * @return the most recent attempts, newest first
+	 */
+	List<IOperationRecord> getHistory( long profileId, int limit ) throws Exception;
+
+	/**
+	 * Phase time percentiles of the attempts that succeeded since the given time.
+	 * @param byHost one summary per host if true, one per site otherwise
+	 * @return slowest first, by p95 of the total time
+	 */
+	List<ITimingSummary> getTimingSummaries( boolean byHost, long sinceSeconds ) throws Exception;
+}
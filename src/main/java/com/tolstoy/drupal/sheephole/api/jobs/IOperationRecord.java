@@ -0,0 +1,56 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.api.jobs;
+
+/**
+ * One attempt at a job, as kept in the operation history after the job queue's own row has
+ * moved on or been retried.
+ */
+public interface IOperationRecord {
+	long getId();
+
+	long getJobId();
+
+	long getProfileId();
+
+	JobType getType();
+
+	String getTarget();
+
+	/**
+	 * @return the profile's host at the time
+	 */
+	String getHost();
+
+	/**
+	 * @return SUCCEEDED, FAILED, or QUEUED when the attempt failed and another will follow
+	 */
+	JobState getOutcome();
+
+	int getAttempt();
+
+	/**
+	 * @return seconds since the epoch
+	 */
+	long getStarted();
+
+	long getFinished();
+
+	String getMessage();
+
+	/**
+	 * @return -1 if the phase wasn't reached or wasn't timed
+	 */
+	long getMillis( OperationPhase phase );
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.api.jobs;
+
+/**
+ * The parts of an install or update that are timed. RESOLVE is composer working out what to
+ * change, up to writing the lock file; DOWNLOAD runs from there to the first package being
+ * installed. TOTAL is the whole attempt, so it includes time no phase accounts for.
+ */
+public enum OperationPhase {
+	CONNECT,
+	AUTH,
+	PROBE,
+	RESOLVE,
+	DOWNLOAD,
+	TOTAL;
+
+	/**
+	 * @return the operation_history column holding this phase's milliseconds
+	 */
+	public String getColumnName() {
+		return name().toLowerCase() + "_ms";
+	}
+}
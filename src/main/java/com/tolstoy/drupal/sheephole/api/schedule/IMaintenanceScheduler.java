@@ -0,0 +1,42 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.api.schedule;
+
+import java.util.List;
+
+/**
+ * Queues composer update for each scheduled site when its maintenance window opens.
+ */
+public interface IMaintenanceScheduler {
+	/**
+	 * Creates or replaces the profile's schedule.
+	 * @throws IllegalArgumentException if the cron expression or time zone is invalid
+	 */
+	IUpdateSchedule setSchedule( long profileId, String cron, String timeZone, int jitterMinutes, boolean enabled ) throws Exception;
+
+	void removeSchedule( long profileId ) throws Exception;
+
+	/**
+	 * @return null if the profile has no schedule
+	 */
+	IUpdateSchedule getSchedule( long profileId ) throws Exception;
+
+	List<IUpdateSchedule> getSchedules() throws Exception;
+
+	/**
+	 * Profiles don't store passwords, so scheduled updates log in with this one.
+	 * @param password null to use the SSH keys
+	 */
+	void setPassword( String password );
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.api.schedule;
+
+/**
+ * When a site's maintenance window opens, as a cron expression in the site's time zone.
+ */
+public interface IUpdateSchedule {
+	long getProfileId();
+
+	String getCron();
+
+	/**
+	 * @return a zone id such as Europe/Berlin, or empty for the local zone
+	 */
+	String getTimeZone();
+
+	/**
+	 * @return the update starts up to this many minutes after the window opens
+	 */
+	int getJitterMinutes();
+
+	boolean isEnabled();
+
+	/**
+	 * @return seconds since the epoch, -1 if the schedule is disabled or never matches
+	 */
+	long getNextRunAt();
+
+	long getLastRunAt();
+
+	/**
+	 * @return the job queued by the last run, -1 if there hasn't been one
+	 */
+	long getLastJobId();
+}
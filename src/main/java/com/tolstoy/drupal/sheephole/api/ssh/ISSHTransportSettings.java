@@ -0,0 +1,54 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.api.ssh;
+
+import java.util.List;
+
+/**
+ * How a site's SSH connection is set up. Names are the SSH algorithm names, e.g.
+ * aes128-gcm@openssh.com or curve25519-sha256; ones the client doesn't support are ignored.
+ */
+public interface ISSHTransportSettings {
+	/**
+	 * @return whether to ask for zlib compression; it only helps on slow links
+	 */
+	boolean isCompression();
+
+	/**
+	 * @return ciphers to prefer, best first; the rest of the client's ciphers follow in their
+	 * usual order. Empty for the client's order.
+	 */
+	List<String> getCiphers();
+
+	/**
+	 * @return key exchange algorithms to prefer, as for getCiphers()
+	 */
+	List<String> getKeyExchanges();
+
+	/**
+	 * @return seconds between keepalive messages, 0 for none
+	 */
+	int getKeepAliveSeconds();
+
+	/**
+	 * @return how long to wait for the TCP connection, 0 to wait as long as the OS does
+	 */
+	int getConnectTimeoutSeconds();
+
+	/**
+	 * @return how long to wait for a channel to open, a request to be answered, or a command to
+	 * exit once its output has ended
+	 */
+	int getCommandTimeoutSeconds();
+}
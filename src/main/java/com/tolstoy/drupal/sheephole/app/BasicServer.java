@@ -22,6 +22,7 @@ import java.net.InetSocketAddress;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -30,19 +31,37 @@ import org.apache.http.NameValuePair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.dizitart.jbus.JBus;
+import org.json.JSONArray;
+import org.json.JSONObject;
 
+import com.tolstoy.drupal.sheephole.api.advisory.IAdvisoryDatabase;
 import com.tolstoy.drupal.sheephole.api.installation.PlatformType;
 import com.tolstoy.drupal.sheephole.api.installation.ProjectType;
+import com.tolstoy.drupal.sheephole.api.inventory.IFleetInventory;
+import com.tolstoy.drupal.sheephole.api.inventory.ISiteInventory;
+import com.tolstoy.drupal.sheephole.api.jobs.IJob;
+import com.tolstoy.drupal.sheephole.api.jobs.IJobQueue;
+import com.tolstoy.drupal.sheephole.api.jobs.ITimingSummary;
+import com.tolstoy.drupal.sheephole.api.jobs.OperationPhase;
+import com.tolstoy.drupal.sheephole.app.advisory.AdvisoryReport;
 
 public class BasicServer extends Thread {
 	private static final Logger logger = LogManager.getLogger( BasicServer.class );
 
+	public static final int DEFAULT_PORT = 41295;
+
 	private final JBus jbus;
 	private final int port;
+	private final IFleetInventory inventory;
+	private final IAdvisoryDatabase advisories;
+	private final IJobQueue jobQueue;
 
-	public BasicServer( int port, JBus jbus ) {
+	public BasicServer( int port, JBus jbus, IFleetInventory inventory, IAdvisoryDatabase advisories, IJobQueue jobQueue ) {
 		this.port = port;
 		this.jbus = jbus;
+		this.inventory = inventory;
+		this.advisories = advisories;
+		this.jobQueue = jobQueue;
 	}
 
 	public void run() {
@@ -81,6 +100,18 @@ public class BasicServer extends Thread {
 			else if ( "install-module".equals( path ) ) {
 				handleInstallModule( exchange, path, uri );
 			}
+			else if ( "inventory".equals( path ) ) {
+				handleInventory( exchange, path, uri );
+			}
+			else if ( "advisories".equals( path ) ) {
+				handleAdvisories( exchange, path, uri );
+			}
+			else if ( "jobs".equals( path ) ) {
+				handleJobs( exchange, path, uri );
+			}
+			else if ( "timings".equals( path ) ) {
+				handleTimings( exchange, path, uri );
+			}
 			else {
 				send( exchange, "" );
 			}
@@ -92,12 +123,15 @@ public class BasicServer extends Thread {
 
 		private void handleInstallModule( HttpExchange exchange, String path, URI uri ) throws IOException {
 			String machineName = null;
+			ProjectType projectType = ProjectType.EXTENSION;
 
 			List<NameValuePair> params = URLEncodedUtils.parse( IOUtils.toString( exchange.getRequestBody(), StandardCharsets.UTF_8 ), StandardCharsets.UTF_8 );
 			for ( NameValuePair param : params ) {
 				if ( "machine_name".equals( param.getName() ) && param.getValue() != null && param.getValue().length() > 1 ) {
 					machineName = param.getValue();
-					break;
+				}
+				else if ( "project_type".equals( param.getName() ) && param.getValue() != null ) {
+					projectType = parseProjectType( param.getValue() );
 				}
 			}
 
@@ -105,11 +139,197 @@ public class BasicServer extends Thread {
 				send( exchange, "" );
 			}
 
-			logger.info( "Server got request to install module: " + machineName );
+			logger.info( "Server got request to install {}: {}", projectType, machineName );
 
 			send( exchange, "bombarde" );
 
-			jbus.post( new InstallationRequestEvent( PlatformType.DRUPAL, ProjectType.EXTENSION, machineName ) );
+			jbus.post( new InstallationRequestEvent( PlatformType.DRUPAL, projectType, machineName ) );
+		}
+
+		/**
+		 * With <code>?package=vendor/name</code>, the sites that have it and their versions;
+		 * with <code>?search=text</code> or nothing, package names and how many sites have each.
+		 */
+		private void handleInventory( HttpExchange exchange, String path, URI uri ) throws IOException {
+			String packageName = null;
+			String search = "";
+
+			for ( NameValuePair param : URLEncodedUtils.parse( uri, StandardCharsets.UTF_8 ) ) {
+				if ( "package".equals( param.getName() ) && param.getValue() != null ) {
+					packageName = param.getValue().trim();
+				}
+				else if ( "search".equals( param.getName() ) && param.getValue() != null ) {
+					search = param.getValue().trim();
+				}
+			}
+
+			JSONObject ret = new JSONObject();
+
+			if ( packageName != null ) {
+				JSONArray sites = new JSONArray();
+				for ( Map.Entry<Long,String> entry : inventory.findPackage( packageName ).entrySet() ) {
+					ISiteInventory site = inventory.getSite( entry.getKey() );
+					JSONObject obj = new JSONObject();
+					obj.put( "id", entry.getKey() );
+					obj.put( "title", site != null ? site.getTitle() : "" );
+					obj.put( "version", entry.getValue() );
+					sites.put( obj );
+				}
+
+				ret.put( "package", packageName );
+				ret.put( "sites", sites );
+			}
+			else {
+				JSONObject packages = new JSONObject();
+				for ( String name : inventory.searchPackages( search ) ) {
+					packages.put( name, inventory.findPackage( name ).size() );
+				}
+
+				ret.put( "site_count", inventory.getSites().size() );
+				ret.put( "packages", packages );
+			}
+
+			sendJson( exchange, ret.toString() );
+		}
+
+		/**
+		 * The installed packages that have advisories against them, from the local copies only;
+		 * <code>?site=id</code> limits it to one profile.
+		 */
+		private void handleAdvisories( HttpExchange exchange, String path, URI uri ) throws IOException {
+			long profileId = -1;
+
+			for ( NameValuePair param : URLEncodedUtils.parse( uri, StandardCharsets.UTF_8 ) ) {
+				if ( "site".equals( param.getName() ) && param.getValue() != null ) {
+					try {
+						profileId = Long.parseLong( param.getValue().trim() );
+					}
+					catch ( NumberFormatException e ) {
+						send( exchange, "" );
+						return;
+					}
+				}
+			}
+
+			sendJson( exchange, AdvisoryReport.check( inventory, advisories, profileId ).toJSON().toString() );
+		}
+
+		/**
+		 * The most recent jobs, newest first; <code>?limit=n</code>, default 50.
+		 */
+		private void handleJobs( HttpExchange exchange, String path, URI uri ) throws IOException {
+			int limit = 50;
+
+			for ( NameValuePair param : URLEncodedUtils.parse( uri, StandardCharsets.UTF_8 ) ) {
+				if ( "limit".equals( param.getName() ) && param.getValue() != null ) {
+					try {
+						limit = Math.min( Integer.parseInt( param.getValue().trim() ), 1000 );
+					}
+					catch ( NumberFormatException e ) {
+						send( exchange, "" );
+						return;
+					}
+				}
+			}
+
+			JSONArray jobs = new JSONArray();
+
+			try {
+				for ( IJob job : jobQueue.getJobs( limit ) ) {
+					JSONObject obj = new JSONObject();
+					obj.put( "id", job.getId() );
+					obj.put( "type", job.getType().name() );
+					obj.put( "profile_id", job.getProfileId() );
+					obj.put( "target", job.getTarget() );
+					obj.put( "state", job.getState().name() );
+					obj.put( "attempts", job.getAttempts() );
+					obj.put( "max_attempts", job.getMaxAttempts() );
+					obj.put( "next_run_at", job.getNextRunAt() );
+					obj.put( "created", job.getCreated() );
+					obj.put( "modified", job.getModified() );
+					obj.put( "message", job.getMessage() );
+					jobs.put( obj );
+				}
+			}
+			catch ( Exception e ) {
+				logger.catching( e );
+				send( exchange, "" );
+				return;
+			}
+
+			JSONObject ret = new JSONObject();
+			ret.put( "jobs", jobs );
+
+			sendJson( exchange, ret.toString() );
+		}
+
+		/**
+		 * Phase time percentiles per site, or per host with <code>?by=host</code>, over the last
+		 * <code>?days=n</code> days, default 30.
+		 */
+		private void handleTimings( HttpExchange exchange, String path, URI uri ) throws IOException {
+			boolean byHost = false;
+			int days = 30;
+
+			for ( NameValuePair param : URLEncodedUtils.parse( uri, StandardCharsets.UTF_8 ) ) {
+				if ( "by".equals( param.getName() ) ) {
+					byHost = "host".equals( param.getValue() );
+				}
+				else if ( "days".equals( param.getName() ) && param.getValue() != null ) {
+					try {
+						days = Math.max( Integer.parseInt( param.getValue().trim() ), 1 );
+					}
+					catch ( NumberFormatException e ) {
+						send( exchange, "" );
+						return;
+					}
+				}
+			}
+
+			JSONArray summaries = new JSONArray();
+
+			try {
+				for ( ITimingSummary summary : jobQueue.getTimingSummaries( byHost, System.currentTimeMillis() / 1000 - days * 86400L ) ) {
+					JSONObject obj = new JSONObject();
+					obj.put( "host", summary.getHost() );
+					if ( !byHost ) {
+						obj.put( "profile_id", summary.getProfileId() );
+					}
+					obj.put( "count", summary.getCount() );
+					for ( OperationPhase phase : OperationPhase.values() ) {
+						JSONObject times = new JSONObject();
+						times.put( "p50", summary.getP50( phase ) );
+						times.put( "p95", summary.getP95( phase ) );
+						obj.put( phase.getColumnName(), times );
+					}
+					summaries.put( obj );
+				}
+			}
+			catch ( Exception e ) {
+				logger.catching( e );
+				send( exchange, "" );
+				return;
+			}
+
+			JSONObject ret = new JSONObject();
+			ret.put( "timings", summaries );
+
+			sendJson( exchange, ret.toString() );
+		}
+
+		/**
+		 * Accepts the enum names and the drupal.org words for them.
+		 */
+		private ProjectType parseProjectType( String value ) {
+			switch ( value.trim().toLowerCase() ) {
+				case "theme":
+					return ProjectType.THEME;
+				case "library":
+				case "general":
+					return ProjectType.LIBRARY;
+				default:
+					return ProjectType.EXTENSION;
+			}
 		}
 
 		private void send( HttpExchange exchange, String msg ) throws IOException {
@@ -119,6 +339,16 @@ public class BasicServer extends Thread {
 			os.close();
 		}
 
+		private void sendJson( HttpExchange exchange, String json ) throws IOException {
+			byte[] bytes = json.getBytes( StandardCharsets.UTF_8 );
+
+			exchange.getResponseHeaders().set( "Content-Type", "application/json; charset=utf-8" );
+			exchange.sendResponseHeaders( 200, bytes.length );
+			OutputStream os = exchange.getResponseBody();
+			os.write( bytes );
+			os.close();
+		}
+
 		private boolean isLocalAddress( String addr ) {
 			return ( "127.0.0.1".equals( addr ) || "localhost".equals( addr ) );
 		}
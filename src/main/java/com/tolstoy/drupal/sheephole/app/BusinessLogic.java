@@ -14,14 +14,18 @@
 package com.tolstoy.drupal.sheephole.app;
 
 import java.io.File;
+import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Properties;
 
 import org.apache.logging.log4j.LogManager;
@@ -40,6 +44,15 @@ import com.tolstoy.basic.app.storage.StorageEmbeddedDerby;
 import com.tolstoy.basic.app.utils.Utils;
 import com.tolstoy.basic.app.utils.ResourceBundleWithFormatting;
 import com.tolstoy.drupal.sheephole.api.IProfileManager;
+import com.tolstoy.drupal.sheephole.api.advisory.IAdvisoryDatabase;
+import com.tolstoy.drupal.sheephole.api.catalog.ICatalogSync;
+import com.tolstoy.drupal.sheephole.api.catalog.IInstallableCatalog;
+import com.tolstoy.drupal.sheephole.api.inventory.IFleetInventory;
+import com.tolstoy.drupal.sheephole.api.jobs.IJob;
+import com.tolstoy.drupal.sheephole.api.jobs.IJobQueue;
+import com.tolstoy.drupal.sheephole.api.jobs.IOperationRecord;
+import com.tolstoy.drupal.sheephole.api.jobs.ITimingSummary;
+import com.tolstoy.drupal.sheephole.api.jobs.JobType;
 import com.tolstoy.drupal.sheephole.api.installation.IAppDirectories;
 import com.tolstoy.drupal.sheephole.api.installation.ISiteProfile;
 import com.tolstoy.drupal.sheephole.api.installation.IInstallable;
@@ -52,8 +65,22 @@ import com.tolstoy.drupal.sheephole.api.installation.OperationResultType;
 import com.tolstoy.drupal.sheephole.api.installation.PlatformType;
 import com.tolstoy.drupal.sheephole.api.installation.ProjectType;
 import com.tolstoy.drupal.sheephole.api.preferences.IPreferences;
+import com.tolstoy.drupal.sheephole.api.schedule.IMaintenanceScheduler;
+import com.tolstoy.drupal.sheephole.api.schedule.IUpdateSchedule;
+import com.tolstoy.drupal.sheephole.api.ssh.ISSHTransportSettings;
 import com.tolstoy.drupal.sheephole.api.preferences.IPreferencesFactory;
 import com.tolstoy.drupal.sheephole.app.preferences.PreferencesFactory;
+import com.tolstoy.drupal.sheephole.app.advisory.AdvisoryDatabase;
+import com.tolstoy.drupal.sheephole.app.advisory.AdvisoryReport;
+import com.tolstoy.drupal.sheephole.app.catalog.CatalogStore;
+import com.tolstoy.drupal.sheephole.app.catalog.CatalogSync;
+import com.tolstoy.drupal.sheephole.app.catalog.InstallableCatalog;
+import com.tolstoy.drupal.sheephole.app.catalog.MappedCatalogFile;
+import com.tolstoy.drupal.sheephole.app.composer.ComposerPreflight;
+import com.tolstoy.drupal.sheephole.app.composer.FleetUpdatePlan;
+import com.tolstoy.drupal.sheephole.app.composer.PackageMetadataCache;
+import com.tolstoy.drupal.sheephole.app.composer.UpdatePlan;
+import com.tolstoy.drupal.sheephole.app.composer.UpdatePlanner;
 import com.tolstoy.drupal.sheephole.app.installation.AppDirectories;
 import com.tolstoy.drupal.sheephole.app.installation.BasicInstallableVersion;
 import com.tolstoy.drupal.sheephole.app.installation.Installable;
@@ -61,11 +88,28 @@ import com.tolstoy.drupal.sheephole.app.installation.InstallationInstruction;
 import com.tolstoy.drupal.sheephole.app.installation.JsonUtils;
 import com.tolstoy.drupal.sheephole.app.installation.OperationResult;
 import com.tolstoy.drupal.sheephole.app.installation.SiteProfile;
+import com.tolstoy.drupal.sheephole.app.inventory.FleetInventory;
+import com.tolstoy.drupal.sheephole.app.jobs.JobQueue;
+import com.tolstoy.drupal.sheephole.app.jobs.JobStore;
+import com.tolstoy.drupal.sheephole.app.jobs.OperationHistory;
+import com.tolstoy.drupal.sheephole.app.schedule.MaintenanceScheduler;
+import com.tolstoy.drupal.sheephole.app.schedule.ScheduleStore;
+import com.tolstoy.drupal.sheephole.app.ssh.HostGovernor;
+import com.tolstoy.drupal.sheephole.app.ssh.RemoteFileCache;
+import com.tolstoy.drupal.sheephole.app.ssh.TransportBenchmark;
+import com.tolstoy.drupal.sheephole.app.ssh.TransportMeasurement;
 
 public class BusinessLogic {
 	private static final Logger logger = LogManager.getLogger( BusinessLogic.class );
 	private static final String CACHED_MODULES_D10 = "drupal_modules_d10_feb25.json";
 	private static final String CACHED_MODULES_D11 = "drupal_modules_d11_feb25.json";
+	private static final String CACHED_THEMES = "drupal_themes_d%d_feb25.json";
+	private static final String CACHED_LIBRARIES = "drupal_libraries_d%d_feb25.json";
+	private static final String EMPTY_CATALOG = "{\"data\":[]}";
+	private static final int[] CATALOG_MAJOR_VERSIONS = { 10, 11 };
+	private static final String CATALOG_FILE_NAME = "catalog.dat";
+	private static final String INVENTORY_FILE_NAME = "inventory.json";
+	private static final int TRANSPORT_BENCHMARK_ROUNDS = 3;
 
 	private final JBus jbus;
 	private final IStorage storage;
@@ -74,18 +118,29 @@ public class BusinessLogic {
 	private final IResourceBundleWithFormatting bundle;
 	private final IProfileManager profileManager;
 	private final ISSHManager sshManager;
-	private final List<IInstallable> installables10;
-	private final List<IInstallable> installables11;
+	private final UpdatePlanner updatePlanner;
+	private final Map<ProjectType,CatalogStore> catalogStores;
+	private final MappedCatalogFile catalogFile;
+	private final Map<ProjectType,ICatalogSync> catalogSyncs;
+	private final FleetInventory inventory;
+	private final AdvisoryDatabase advisories;
+	private final JobQueue jobQueue;
+	private final MaintenanceScheduler scheduler;
+	private volatile IInstallableCatalog catalog;
 
 	private static final String[] TABLE_NAMES = { "preferences" };
 
 	public BusinessLogic( JBus jbus ) throws Exception {
+		this( jbus, true );
+	}
+
+	/**
+	 * @param runScheduler false for one-off commands, which shouldn't start maintenance window updates
+	 */
+	public BusinessLogic( JBus jbus, boolean runScheduler ) throws Exception {
 		this.jbus = jbus;
 		this.jbus.registerWeak( this );
 
-		this.installables10 = parseCachedModules( CACHED_MODULES_D10, new Semver( "10.0.0" ) );
-		this.installables11 = parseCachedModules( CACHED_MODULES_D11, new Semver( "11.0.0" ) );
-
 		Properties props = null;
 		Map<String,String> defaultAppPrefs = null;
 		IPreferencesFactory prefsFactory = null;
@@ -97,6 +152,13 @@ public class BusinessLogic {
 		IAppDirectories tempAppDirectories = null;
 		IProfileManager tempProfileManager = null;
 		ISSHManager tempSSHManager = null;
+		Map<ProjectType,CatalogStore> tempCatalogStores = new EnumMap<ProjectType,CatalogStore>( ProjectType.class );
+		MappedCatalogFile tempCatalogFile = null;
+		Map<ProjectType,ICatalogSync> tempCatalogSyncs = new EnumMap<ProjectType,ICatalogSync>( ProjectType.class );
+		FleetInventory tempInventory = null;
+		AdvisoryDatabase tempAdvisories = null;
+		JobQueue tempJobQueue = null;
+		MaintenanceScheduler tempScheduler = null;
 
 		try {
 			props = new Properties();
@@ -133,6 +195,25 @@ public class BusinessLogic {
 
 		this.appDirectories = tempAppDirectories;
 
+		try {
+			File catalogDirectory = tempAppDirectories.getSubdirectory( defaultAppPrefs.get( "catalog.dir_name" ) );
+
+			//	modules keep the unprefixed file names they had before other project types were stored
+			for ( ProjectType projectType : ProjectType.values() ) {
+				String prefix = projectType == ProjectType.EXTENSION ? "" : projectType.name().toLowerCase();
+				tempCatalogStores.put( projectType, new CatalogStore( catalogDirectory, prefix ) );
+			}
+
+			tempCatalogFile = new MappedCatalogFile( new File( catalogDirectory, CATALOG_FILE_NAME ) );
+		}
+		catch ( final Exception e ) {
+			handleError( true, this.bundle.getString( "exc_catalog_init", defaultAppPrefs.get( "catalog.dir_name" ) ), e );
+		}
+
+		this.catalogStores = Collections.unmodifiableMap( tempCatalogStores );
+		this.catalogFile = tempCatalogFile;
+		this.catalog = loadCachedCatalog();
+
 		try {
 			tempStorage = new StorageEmbeddedDerby( databaseConnectionString, Arrays.asList( TABLE_NAMES ) );
 
@@ -146,7 +227,28 @@ public class BusinessLogic {
 		this.storage = tempStorage;
 
 		try {
-			tempSSHManager = new SSHManager();
+			Map<String,String> metadataUrls = new HashMap<String,String>();
+			metadataUrls.put( "", defaultAppPrefs.get( "composer.metadata.url" ) );
+			metadataUrls.put( "drupal", defaultAppPrefs.get( "composer.metadata.url.drupal" ) );
+
+			PackageMetadataCache metadataCache = new PackageMetadataCache( tempAppDirectories.getSubdirectory( defaultAppPrefs.get( "composer.metadata.dir_name" ) ),
+																			metadataUrls,
+																			Duration.ofMinutes( Long.parseLong( defaultAppPrefs.get( "composer.metadata.max_age_minutes" ) ) ),
+																			Duration.ofSeconds( Long.parseLong( defaultAppPrefs.get( "composer.metadata.timeout_seconds" ) ) ) );
+
+			RemoteFileCache remoteFileCache = new RemoteFileCache( tempAppDirectories.getSubdirectory( defaultAppPrefs.get( "remote_files.dir_name" ) ) );
+
+			HostGovernor hostGovernor = new HostGovernor( Integer.parseInt( defaultAppPrefs.get( "ssh.host.max_connections" ) ),
+															Integer.parseInt( defaultAppPrefs.get( "ssh.host.max_channels_per_connection" ) ),
+															Duration.ofSeconds( Long.parseLong( defaultAppPrefs.get( "ssh.host.wait_seconds" ) ) ),
+															Integer.parseInt( defaultAppPrefs.get( "ssh.host.failure_threshold" ) ),
+															Duration.ofSeconds( Long.parseLong( defaultAppPrefs.get( "ssh.host.cooldown_seconds" ) ) ) );
+
+			tempSSHManager = new SSHManager( new ComposerPreflight( metadataCache ),
+												remoteFileCache,
+												Duration.ofSeconds( Long.parseLong( defaultAppPrefs.get( "ssh.operation_timeout_seconds" ) ) ),
+												hostGovernor,
+												Duration.ofSeconds( Long.parseLong( defaultAppPrefs.get( "ssh.prewarm.idle_seconds" ) ) ) );
 
 			tempProfileManager = new CachingProfileManager( new ProfileManager( tempStorage, tempSSHManager ) );
 		}
@@ -156,18 +258,107 @@ public class BusinessLogic {
 
 		this.sshManager = tempSSHManager;
 		this.profileManager = tempProfileManager;
+		this.updatePlanner = new UpdatePlanner( tempSSHManager, Integer.parseInt( defaultAppPrefs.get( "composer.update.parallelism" ) ) );
+
+		try {
+			tempJobQueue = new JobQueue( new JobStore( tempStorage ),
+											new OperationHistory( tempStorage ),
+											tempProfileManager,
+											tempSSHManager,
+											jbus,
+											Integer.parseInt( defaultAppPrefs.get( "jobs.workers" ) ),
+											Integer.parseInt( defaultAppPrefs.get( "jobs.max_attempts" ) ),
+											Long.parseLong( defaultAppPrefs.get( "jobs.retry_base_seconds" ) ),
+											Long.parseLong( defaultAppPrefs.get( "jobs.retry_max_seconds" ) ) );
+
+			tempJobQueue.start();
+		}
+		catch ( final Exception e ) {
+			handleError( true, this.bundle.getString( "exc_jobs_init" ), e );
+		}
+
+		this.jobQueue = tempJobQueue;
+
+		try {
+			tempScheduler = new MaintenanceScheduler( new ScheduleStore( tempStorage ),
+														tempProfileManager,
+														tempJobQueue,
+														Integer.parseInt( defaultAppPrefs.get( "schedule.max_concurrent" ) ),
+														Long.parseLong( defaultAppPrefs.get( "schedule.grace_minutes" ) ) * 60,
+														Long.parseLong( defaultAppPrefs.get( "schedule.tick_seconds" ) ) );
+
+			if ( runScheduler ) {
+				tempScheduler.start();
+			}
+		}
+		catch ( final Exception e ) {
+			handleError( true, this.bundle.getString( "exc_scheduler_init" ), e );
+		}
+
+		this.scheduler = tempScheduler;
+
+		try {
+			File inventoryDirectory = tempAppDirectories.getSubdirectory( defaultAppPrefs.get( "inventory.dir_name" ) );
+
+			tempInventory = new FleetInventory( tempSSHManager,
+												new File( inventoryDirectory, INVENTORY_FILE_NAME ),
+												Integer.parseInt( defaultAppPrefs.get( "inventory.parallelism" ) ) );
+		}
+		catch ( final Exception e ) {
+			handleError( true, this.bundle.getString( "exc_inventory_init", defaultAppPrefs.get( "inventory.dir_name" ) ), e );
+		}
+
+		this.inventory = tempInventory;
+
+		try {
+			tempAdvisories = new AdvisoryDatabase( tempAppDirectories.getSubdirectory( defaultAppPrefs.get( "advisories.dir_name" ) ),
+													defaultAppPrefs.get( "advisories.url" ),
+													Duration.ofSeconds( Long.parseLong( defaultAppPrefs.get( "advisories.timeout_seconds" ) ) ) );
+		}
+		catch ( final Exception e ) {
+			handleError( true, this.bundle.getString( "exc_advisories_init", defaultAppPrefs.get( "advisories.dir_name" ) ), e );
+		}
+
+		this.advisories = tempAdvisories;
 
 		try {
 			prefsFactory = new PreferencesFactory( this.storage, defaultAppPrefs );
 			tempPrefs = prefsFactory.getAppPreferences();
 
-			logger.info( "prefs before override=" + Utils.prettyPrintMap( "", Utils.sanitizeMap( tempPrefs.getValues() ) ) );
+			logger.info( "prefs before override={}", Utils.prettyPrintMap( "", Utils.sanitizeMap( tempPrefs.getValues() ) ) );
 		}
 		catch ( final Exception e ) {
 			handleError( true, this.bundle.getString( "exc_prefs_init" ), e );
 		}
 
 		this.prefs = tempPrefs;
+
+		try {
+			for ( ProjectType projectType : ProjectType.values() ) {
+				String url = tempPrefs.getValue( getCatalogSettingName( "catalog.sync.url", projectType ) );
+				if ( url == null || url.length() < 1 ) {
+					continue;
+				}
+
+				Map<Integer,String> filters = new HashMap<Integer,String>();
+				for ( int major : CATALOG_MAJOR_VERSIONS ) {
+					filters.put( major, tempPrefs.getValue( getCatalogSettingName( "catalog.sync.filter", projectType ) + "." + major ) );
+				}
+
+				tempCatalogSyncs.put( projectType, new CatalogSync( this.catalogStores.get( projectType ),
+																	url,
+																	filters,
+																	Integer.parseInt( tempPrefs.getValue( "catalog.sync.page_limit" ) ),
+																	Integer.parseInt( tempPrefs.getValue( "catalog.sync.max_pages" ) ),
+																	Long.parseLong( tempPrefs.getValue( "catalog.sync.initial_since" ) ),
+																	Duration.ofSeconds( Long.parseLong( tempPrefs.getValue( "catalog.sync.timeout_seconds" ) ) ) ) );
+			}
+		}
+		catch ( final Exception e ) {
+			handleError( true, this.bundle.getString( "exc_catalog_sync_init" ), e );
+		}
+
+		this.catalogSyncs = Collections.unmodifiableMap( tempCatalogSyncs );
 	}
 
 	public IOperationResult createProfile( String title, String userName, String password, String uri, String directory ) {
@@ -204,6 +395,23 @@ public class BusinessLogic {
 		return new OperationResult( OperationResultType.BAD_ARGUMENTS );
 	}
 
+	/**
+	 * Starts connecting to the profile's site in the background, ahead of an install or update.
+	 * @param password null or empty to use the profile's saved one, if any; without one the
+	 * connection is opened but not logged in
+	 */
+	public IOperationResult prewarmConnection( long profileId, String password ) {
+		IOperationResult res = loadProfileById( profileId );
+		if ( res.getType() != OperationResultType.SUCCESS ) {
+			return res;
+		}
+
+		ISiteProfile profile = (ISiteProfile) res.getData();
+		sshManager.prewarm( profile, password != null && password.length() > 0 ? password : profile.getPassword() );
+
+		return new OperationResult( OperationResultType.SUCCESS );
+	}
+
 	public IOperationResult getProfiles() {
 		List<ISiteProfile> profiles = null;
 
@@ -242,29 +450,68 @@ public class BusinessLogic {
 		return new OperationResult( OperationResultType.SUCCESS );
 	}
 
+	public IOperationResult saveTransportSettings( ISiteProfile profile, ISSHTransportSettings settings ) {
+		try {
+			profile.setTransportSettings( settings );
+			profileManager.saveProfile( profile );
+		}
+		catch ( Exception e ) {
+			logger.catching( e );
+			return new OperationResult( OperationResultType.FAILURE, e.getMessage() );
+		}
+
+		return new OperationResult( OperationResultType.SUCCESS, profile );
+	}
+
+	/**
+	 * Tries the profile's transport settings and a few variations against the site; this
+	 * takes several connections per variation, so call it off the UI thread.
+	 * @return on success, a List&lt;TransportMeasurement&gt;, fastest first
+	 */
+	public IOperationResult benchmarkTransport( ISiteProfile profile, String password ) {
+		List<TransportMeasurement> measurements = null;
+
+		try {
+			measurements = new TransportBenchmark( sshManager, TRANSPORT_BENCHMARK_ROUNDS ).run( profile, password );
+		}
+		catch ( Exception e ) {
+			logger.catching( e );
+			return new OperationResult( OperationResultType.FAILURE, e.getMessage() );
+		}
+
+		return new OperationResult( OperationResultType.SUCCESS, measurements );
+	}
+
 	public List<IInstallable> getInstallables( PlatformType type, Semver version ) {
 		if ( type != PlatformType.DRUPAL ) {
 			throw new IllegalArgumentException( "Unknown platform type: " + type );
 		}
 
-		if ( version.getMajor() == 10 ) {
-			return installables10;
+		IInstallableCatalog current = catalog;
+
+		List<IInstallable> ret = current.getCompatibleInstallables( version );
+		if ( ret.isEmpty() && !current.getMajorVersions().isEmpty() ) {
+			//	a platform release newer than anything in the catalog, offer the newest major's list
+			List<Integer> majors = current.getMajorVersions();
+			ret = current.getInstallables( majors.get( majors.size() - 1 ) );
 		}
 
-		return installables11;
+		return ret;
 	}
 
-	public List<IInstallable> getInstallables( PlatformType platformType, ProjectType projectType, String identifier ) {
+	/**
+	 * @param projectType null for all types
+	 * @return installables whose title or machine name contains the text, in catalog order
+	 */
+	public List<IInstallable> searchInstallables( ProjectType projectType, String text, int limit ) {
+		String match = text.trim().toLowerCase();
 		List<IInstallable> ret = new ArrayList<IInstallable>();
 
-		for ( IInstallable installable : installables10 ) {
-			if ( installable.getMachineName().equals( identifier ) ) {
-				ret.add( installable );
+		for ( IInstallable installable : projectType != null ? catalog.getInstallables( projectType ) : catalog.getInstallables() ) {
+			if ( ret.size() >= limit ) {
+				break;
 			}
-		}
-
-		for ( IInstallable installable : installables11 ) {
-			if ( installable.getMachineName().equals( identifier ) ) {
+			if ( installable.isMatchFor( match ) ) {
 				ret.add( installable );
 			}
 		}
@@ -272,11 +519,28 @@ public class BusinessLogic {
 		return ret;
 	}
 
+	public List<IInstallable> getInstallables( PlatformType platformType, ProjectType projectType, String identifier ) {
+		IInstallable installable = projectType != null ? catalog.getInstallable( projectType, identifier ) : catalog.getInstallable( identifier );
+
+		return installable != null ? Arrays.asList( installable ) : Collections.emptyList();
+	}
+
+	/**
+	 * Queues a composer require for each of the installable's packages.
+	 * @return on success, the list of queued IJobs
+	 */
 	public IOperationResult installInstallable( IInstallable installable, ISiteProfile profile, String password ) {
+		if ( profile.getVersion() != null && !installable.getInstallableVersion().isCompatible( profile.getVersion() ) ) {
+			return new OperationResult( OperationResultType.FAILURE,
+										installable.getMachineName() + " requires " + installable.getInstallableVersion().getConstraint() + ", site is at " + profile.getVersion() );
+		}
+
+		List<IJob> jobs = new ArrayList<IJob>();
+
 		try {
 			for ( IInstallationInstruction instruction : installable.getInstallationInstructions() ) {
 				if ( instruction.getType() == InstallationInstructionType.COMPOSER_NAMESPACE ) {
-					sshManager.composerInstall( profile, password, instruction.getCommand() );
+					jobs.add( jobQueue.enqueue( JobType.COMPOSER_INSTALL, profile, instruction.getCommand(), password ) );
 				}
 			}
 		}
@@ -285,12 +549,132 @@ public class BusinessLogic {
 			return new OperationResult( OperationResultType.FAILURE, e.getMessage() );
 		}
 
-		return new OperationResult( OperationResultType.SUCCESS );
+		return new OperationResult( OperationResultType.SUCCESS, jobs );
 	}
 
+	/**
+	 * @return on success, the queued IJob
+	 */
 	public IOperationResult composerUpdate( ISiteProfile profile, String password ) {
+		IJob job = null;
+
 		try {
-			sshManager.composerUpdate( profile, password );
+			job = jobQueue.enqueue( JobType.COMPOSER_UPDATE, profile, null, password );
+		}
+		catch ( Exception e ) {
+			logger.catching( e );
+			return new OperationResult( OperationResultType.FAILURE, e.getMessage() );
+		}
+
+		return new OperationResult( OperationResultType.SUCCESS, job );
+	}
+
+	/**
+	 * Dry-runs composer update on every profile's site; nothing on the sites changes.
+	 *
+	 * @param password for profiles that don't store one; if null those use the default SSH keys
+	 * @return on success, a FleetUpdatePlan, which lists the sites that couldn't be checked
+	 */
+	public IOperationResult planComposerUpdates( String password ) {
+		FleetUpdatePlan plan = null;
+
+		try {
+			plan = updatePlanner.plan( profileManager.getProfiles(), password );
+		}
+		catch ( Exception e ) {
+			logger.catching( e );
+			return new OperationResult( OperationResultType.FAILURE, e.getMessage() );
+		}
+
+		return new OperationResult( OperationResultType.SUCCESS, plan );
+	}
+
+	/**
+	 * Queues composer update for the sites the plan found changes for.
+	 * @return on success, the list of queued IJobs
+	 */
+	public IOperationResult applyComposerUpdates( FleetUpdatePlan plan, String password ) {
+		List<IJob> jobs = new ArrayList<IJob>();
+
+		try {
+			for ( UpdatePlan sitePlan : plan.getPending() ) {
+				ISiteProfile profile = sitePlan.getProfile();
+				String profilePassword = profile.getPassword();
+				jobs.add( jobQueue.enqueue( JobType.COMPOSER_UPDATE, profile, null, profilePassword != null && profilePassword.length() > 0 ? profilePassword : password ) );
+			}
+		}
+		catch ( Exception e ) {
+			logger.catching( e );
+			return new OperationResult( OperationResultType.FAILURE, e.getMessage() );
+		}
+
+		return new OperationResult( OperationResultType.SUCCESS, jobs );
+	}
+
+	/**
+	 * @return on success, the most recent jobs, newest first
+	 */
+	public IOperationResult getJobs( int limit ) {
+		List<IJob> jobs = null;
+
+		try {
+			jobs = jobQueue.getJobs( limit );
+		}
+		catch ( Exception e ) {
+			logger.catching( e );
+			return new OperationResult( OperationResultType.FAILURE, e.getMessage() );
+		}
+
+		return new OperationResult( OperationResultType.SUCCESS, jobs );
+	}
+
+	/**
+	 * Queues a failed job again with a fresh set of attempts.
+	 * @return on success, the requeued IJob; BAD_ARGUMENTS if there is no failed job with that id
+	 */
+	public IOperationResult retryJob( long id, String password ) {
+		IJob job = null;
+
+		try {
+			job = jobQueue.retry( id, password );
+		}
+		catch ( Exception e ) {
+			logger.catching( e );
+			return new OperationResult( OperationResultType.FAILURE, e.getMessage() );
+		}
+
+		return job != null ? new OperationResult( OperationResultType.SUCCESS, job ) : new OperationResult( OperationResultType.BAD_ARGUMENTS );
+	}
+
+	public IJobQueue getJobQueue() {
+		return jobQueue;
+	}
+
+	/**
+	 * @param cron five field cron expression for when the site's maintenance window opens
+	 * @param timeZone zone id, empty for the local zone
+	 * @return on success, the IUpdateSchedule; BAD_ARGUMENTS with a message if the expression or zone is invalid
+	 */
+	public IOperationResult setUpdateSchedule( ISiteProfile profile, String cron, String timeZone, int jitterMinutes, boolean enabled ) {
+		IUpdateSchedule schedule = null;
+
+		try {
+			schedule = scheduler.setSchedule( profile.getId(), cron, timeZone, jitterMinutes, enabled );
+		}
+		catch ( IllegalArgumentException e ) {
+			return new OperationResult( OperationResultType.BAD_ARGUMENTS, e.getMessage() );
+		}
+		catch ( Exception e ) {
+			logger.catching( e );
+			return new OperationResult( OperationResultType.FAILURE, e.getMessage() );
+		}
+
+		return new OperationResult( OperationResultType.SUCCESS, schedule );
+	}
+
+	public IOperationResult removeUpdateSchedule( ISiteProfile profile ) {
+		try {
+			scheduler.removeSchedule( profile.getId() );
 		}
 		catch ( Exception e ) {
 			logger.catching( e );
@@ -300,17 +684,283 @@ public class BusinessLogic {
 		return new OperationResult( OperationResultType.SUCCESS );
 	}
 
-	protected List<IInstallable> parseCachedModules( String resourcePath, Semver semver ) throws Exception {
-		List<IInstallable> ret = new ArrayList<IInstallable>( 10000 );
+	/**
+	 * @return on success, the list of IUpdateSchedules
+	 */
+	public IOperationResult getUpdateSchedules() {
+		List<IUpdateSchedule> schedules = null;
 
-		IJsonUtils jsonUtils = new JsonUtils();
-		String json = IOUtils.toString( getClass().getResource( "/" + resourcePath ), StandardCharsets.UTF_8 );
-		JSONObject root = new JSONObject( json );
-		for ( Object tempObj : root.getJSONArray( "data" ) ) {
-			ret.add( new Installable( (JSONObject) tempObj, PlatformType.DRUPAL, new BasicInstallableVersion( semver ), jsonUtils ) );
+		try {
+			schedules = scheduler.getSchedules();
+		}
+		catch ( Exception e ) {
+			logger.catching( e );
+			return new OperationResult( OperationResultType.FAILURE, e.getMessage() );
 		}
 
-		return ret;
+		return new OperationResult( OperationResultType.SUCCESS, schedules );
+	}
+
+	/**
+	 * @param profileId -1 for every profile
+	 * @return on success, the most recent IOperationRecords, newest first
+	 */
+	public IOperationResult getOperationHistory( long profileId, int limit ) {
+		List<IOperationRecord> records = null;
+
+		try {
+			records = jobQueue.getHistory( profileId, limit );
+		}
+		catch ( Exception e ) {
+			logger.catching( e );
+			return new OperationResult( OperationResultType.FAILURE, e.getMessage() );
+		}
+
+		return new OperationResult( OperationResultType.SUCCESS, records );
+	}
+
+	/**
+	 * @return on success, a List&lt;ITimingSummary&gt; of the last <code>days</code> days, slowest first
+	 */
+	public IOperationResult getTimingSummaries( boolean byHost, int days ) {
+		List<ITimingSummary> summaries = null;
+
+		try {
+			summaries = jobQueue.getTimingSummaries( byHost, System.currentTimeMillis() / 1000 - days * 86400L );
+		}
+		catch ( Exception e ) {
+			logger.catching( e );
+			return new OperationResult( OperationResultType.FAILURE, e.getMessage() );
+		}
+
+		return new OperationResult( OperationResultType.SUCCESS, summaries );
+	}
+
+	public IMaintenanceScheduler getScheduler() {
+		return scheduler;
+	}
+
+	public IPreferences getPreferences() {
+		return prefs;
+	}
+
+	/**
+	 * Stops the scheduler and the job queue. Jobs still running are resumed at the next start.
+	 */
+	public void shutdown() {
+		scheduler.shutdown();
+		jobQueue.shutdown();
+		sshManager.shutdown();
+	}
+
+	/**
+	 * Pulls catalog changes from drupal.org into the local store and, if anything changed, swaps in
+	 * a catalog rebuilt from it. Lookups keep using the old catalog until the new one is ready.
+	 */
+	public synchronized IOperationResult refreshCatalog() {
+		Map<ProjectType,Map<String,JSONObject>> mergedItems = new EnumMap<ProjectType,Map<String,JSONObject>>( ProjectType.class );
+		Map<ProjectType,Map<String,Long>> mergedMajors = new EnumMap<ProjectType,Map<String,Long>>( ProjectType.class );
+		int merged = 0;
+
+		try {
+			for ( Map.Entry<ProjectType,ICatalogSync> entry : catalogSyncs.entrySet() ) {
+				ProjectType projectType = entry.getKey();
+				CatalogStore store = catalogStores.get( projectType );
+				Map<String,JSONObject> items = mergedItems.computeIfAbsent( projectType, k -> new LinkedHashMap<String,JSONObject>() );
+				Map<String,Long> majors = mergedMajors.computeIfAbsent( projectType, k -> new HashMap<String,Long>() );
+
+				for ( int major : CATALOG_MAJOR_VERSIONS ) {
+					if ( !store.has( major ) ) {
+						store.writeJson( major, readBundledCatalog( projectType, major ) );
+					}
+
+					merged += entry.getValue().sync( major, item -> {
+						String machineName = CatalogStore.getMachineName( item );
+						items.put( machineName, item );
+						majors.merge( machineName, 1L << major, ( a, b ) -> a | b );
+					});
+				}
+			}
+
+			if ( merged > 0 ) {
+				appendToCatalogFile( mergedItems, mergedMajors );
+			}
+		}
+		catch ( Exception e ) {
+			logger.catching( e );
+			return new OperationResult( OperationResultType.FAILURE, e.getMessage() );
+		}
+
+		return new OperationResult( OperationResultType.SUCCESS, Integer.valueOf( merged ) );
+	}
+
+	/**
+	 * Reads composer.lock from every profile's site, skipping sites whose lock hasn't changed.
+	 *
+	 * @param password for profiles that don't store one; if null those use the default SSH keys
+	 * @return on success, a FleetInventory.Refresh; sites that could not be read are listed there
+	 */
+	public IOperationResult refreshInventory( String password ) {
+		FleetInventory.Refresh result = null;
+
+		try {
+			result = inventory.refresh( profileManager.getProfiles(), password );
+		}
+		catch ( Exception e ) {
+			logger.catching( e );
+			return new OperationResult( OperationResultType.FAILURE, e.getMessage() );
+		}
+
+		return new OperationResult( OperationResultType.SUCCESS, result );
+	}
+
+	public IFleetInventory getInventory() {
+		return inventory;
+	}
+
+	/**
+	 * Brings the advisories and, if asked to, the inventory up to date, checks every site and
+	 * writes the result to the reports directory. If the advisory feed can't be reached the
+	 * check uses the local copy.
+	 *
+	 * @param collect whether to read composer.lock from the sites first
+	 * @param password as for refreshInventory
+	 * @return on success, the AdvisoryReport
+	 */
+	public IOperationResult checkAdvisories( boolean collect, String password ) {
+		AdvisoryReport report = null;
+
+		try {
+			try {
+				advisories.refresh();
+			}
+			catch ( Exception e ) {
+				logger.warn( "cannot refresh advisories, checking against the {} stored ones: {}", advisories.size(), e.getMessage() );
+			}
+
+			if ( collect ) {
+				inventory.refresh( profileManager.getProfiles(), password );
+			}
+
+			report = AdvisoryReport.check( inventory, advisories, -1 );
+			File file = report.write( appDirectories.getReportsDirectory() );
+
+			logger.info( "{}, report written to {}", report, file );
+		}
+		catch ( Exception e ) {
+			logger.catching( e );
+			return new OperationResult( OperationResultType.FAILURE, e.getMessage() );
+		}
+
+		return new OperationResult( OperationResultType.SUCCESS, report );
+	}
+
+	public IAdvisoryDatabase getAdvisoryDatabase() {
+		return advisories;
+	}
+
+	/**
+	 * Opens the catalog over the mapped catalog file, first rebuilding that file if it is empty or
+	 * older than the JSON catalogs it is made from.
+	 */
+	protected IInstallableCatalog loadCachedCatalog() throws Exception {
+		MappedCatalogFile.Snapshot snapshot = catalogFile.getSnapshot();
+
+		boolean stale = snapshot.getEntries().isEmpty();
+		for ( CatalogStore store : catalogStores.values() ) {
+			for ( int major : CATALOG_MAJOR_VERSIONS ) {
+				stale |= store.getLastModified( major ) > catalogFile.getFile().lastModified();
+			}
+		}
+
+		if ( stale ) {
+			List<MappedCatalogFile.Record> records = new ArrayList<MappedCatalogFile.Record>();
+
+			for ( ProjectType projectType : ProjectType.values() ) {
+				//	prefer the synced copy of each major's catalog, fall back to the one bundled with the app
+				Map<Integer,String> jsonByMajor = new LinkedHashMap<Integer,String>();
+				for ( int major : CATALOG_MAJOR_VERSIONS ) {
+					String json = catalogStores.get( projectType ).readJson( major );
+					jsonByMajor.put( major, json != null ? json : readBundledCatalog( projectType, major ) );
+				}
+
+				records.addAll( InstallableCatalog.toRecords( projectType, jsonByMajor ) );
+			}
+
+			snapshot = catalogFile.rewrite( records );
+		}
+
+		return InstallableCatalog.open( snapshot, PlatformType.DRUPAL, new JsonUtils() );
+	}
+
+	/**
+	 * Appends the merged records, keeping the majors each project already had, and swaps in a
+	 * catalog over the result.
+	 */
+	protected void appendToCatalogFile( Map<ProjectType,Map<String,JSONObject>> mergedItems, Map<ProjectType,Map<String,Long>> mergedMajors ) throws Exception {
+		Map<ProjectType,Map<String,Long>> existingMajors = new EnumMap<ProjectType,Map<String,Long>>( ProjectType.class );
+		for ( MappedCatalogFile.Entry entry : catalogFile.getSnapshot().getEntries() ) {
+			Map<String,JSONObject> items = mergedItems.get( entry.getProjectType() );
+			if ( items != null && items.containsKey( entry.getMachineName() ) ) {
+				existingMajors.computeIfAbsent( entry.getProjectType(), k -> new HashMap<String,Long>() ).put( entry.getMachineName(), entry.getMajorVersionBits() );
+			}
+		}
+
+		List<MappedCatalogFile.Record> records = new ArrayList<MappedCatalogFile.Record>();
+		for ( Map.Entry<ProjectType,Map<String,JSONObject>> typeEntry : mergedItems.entrySet() ) {
+			ProjectType projectType = typeEntry.getKey();
+			Map<String,Long> existing = existingMajors.getOrDefault( projectType, Collections.emptyMap() );
+
+			for ( Map.Entry<String,JSONObject> entry : typeEntry.getValue().entrySet() ) {
+				long bits = existing.getOrDefault( entry.getKey(), 0L ) | mergedMajors.get( projectType ).get( entry.getKey() );
+				records.add( InstallableCatalog.toRecord( projectType, entry.getValue(), bits ) );
+			}
+		}
+
+		MappedCatalogFile.Snapshot snapshot = catalogFile.append( records );
+
+		if ( snapshot.getSupersededCount() > snapshot.getEntries().size() / 2 ) {
+			snapshot = catalogFile.compact();
+		}
+
+		catalog = InstallableCatalog.open( snapshot, PlatformType.DRUPAL, new JsonUtils() );
+	}
+
+	/**
+	 * Modules always ship with the app; themes and libraries only if their dumps were bundled.
+	 */
+	protected String readBundledCatalog( ProjectType projectType, int majorVersion ) throws Exception {
+		String resourcePath;
+
+		switch ( projectType ) {
+			case THEME:
+				resourcePath = String.format( CACHED_THEMES, majorVersion );
+				break;
+			case LIBRARY:
+				resourcePath = String.format( CACHED_LIBRARIES, majorVersion );
+				break;
+			default:
+				resourcePath = majorVersion == 10 ? CACHED_MODULES_D10 : CACHED_MODULES_D11;
+				break;
+		}
+
+		URL url = getClass().getResource( "/" + resourcePath );
+		if ( url == null ) {
+			if ( projectType == ProjectType.EXTENSION ) {
+				throw new IllegalStateException( "missing bundled catalog " + resourcePath );
+			}
+
+			return EMPTY_CATALOG;
+		}
+
+		return IOUtils.toString( url, StandardCharsets.UTF_8 );
+	}
+
+	/**
+	 * Modules use the plain setting, other project types add their name, e.g. catalog.sync.url.theme
+	 */
+	protected static String getCatalogSettingName( String name, ProjectType projectType ) {
+		return projectType == ProjectType.EXTENSION ? name : name + "." + projectType.name().toLowerCase();
 	}
 
 	protected void handleError( final boolean closeOnExit, final String msg, final Exception e ) throws Exception {
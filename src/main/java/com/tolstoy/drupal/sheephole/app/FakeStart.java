@@ -13,8 +13,27 @@
  */
 package com.tolstoy.drupal.sheephole.app;
 
+/**
+ * With <code>--headless</code> the JavaFX toolkit is never started, and logging leaves out the
+ * GUI's log window; see HeadlessStart.
+ */
 public class FakeStart {
+	private static final String CONFIGURATION_PROPERTY = "log4j2.configurationFile";
+	private static final String HEADLESS_CONFIGURATION = "log4j2-headless.xml";
+
 	public static void main( String[] args ) {
+		for ( String arg : args ) {
+			if ( "--headless".equals( arg ) ) {
+				//	before anything logs, which is when log4j reads its configuration
+				if ( System.getProperty( CONFIGURATION_PROPERTY ) == null ) {
+					System.setProperty( CONFIGURATION_PROPERTY, HEADLESS_CONFIGURATION );
+				}
+
+				HeadlessStart.main( args );
+				return;
+			}
+		}
+
 		Start.main( args );
 	}
 }
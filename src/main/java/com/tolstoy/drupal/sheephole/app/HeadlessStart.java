@@ -0,0 +1,432 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.dizitart.jbus.JBus;
+import org.dizitart.jbus.Subscribe;
+
+import com.tolstoy.drupal.sheephole.api.installation.IInstallable;
+import com.tolstoy.drupal.sheephole.api.installation.IOperationResult;
+import com.tolstoy.drupal.sheephole.api.installation.ISiteProfile;
+import com.tolstoy.drupal.sheephole.api.installation.OperationResultType;
+import com.tolstoy.drupal.sheephole.api.installation.PlatformType;
+import com.tolstoy.drupal.sheephole.api.installation.ProjectType;
+import com.tolstoy.drupal.sheephole.api.inventory.IFleetInventory;
+import com.tolstoy.drupal.sheephole.api.inventory.ISiteInventory;
+import com.tolstoy.drupal.sheephole.api.jobs.IJob;
+import com.tolstoy.drupal.sheephole.api.jobs.JobState;
+import com.tolstoy.drupal.sheephole.app.inventory.FleetInventory;
+import com.tolstoy.drupal.sheephole.app.ssh.SSHTransportSettings;
+import com.tolstoy.drupal.sheephole.app.ssh.TransportMeasurement;
+
+/**
+ * Runs without the JavaFX toolkit: nothing here, or in BusinessLogic and BasicServer, starts it,
+ * so no display is needed. Site profiles still use JavaFX properties, so the JavaFX jars have to
+ * be on the classpath. Passwords are read from the SHEEPHOLE_PASSWORD environment variable,
+ * never from the command line; without one, the SSH keys are used.
+ */
+public class HeadlessStart {
+	private static final Logger logger = LogManager.getLogger( HeadlessStart.class );
+	private static final String PASSWORD_VARIABLE = "SHEEPHOLE_PASSWORD";
+	private static final int SEARCH_LIMIT = 50;
+	private static final long POLL_MILLIS = 1000;
+
+	private static final String USAGE = String.join( "\n",
+		"usage: sheephole --headless <command> [options]",
+		"  profiles                                   list site profiles",
+		"  search <text> [--type module|theme|library]",
+		"                                             search the module catalog",
+		"  inventory [--refresh] [--package <name> | --search <text>]",
+		"                                             installed packages across sites",
+		"  install <profile> <machine name> [--type module|theme|library] [--no-wait]",
+		"  update <profile|all> [--no-wait]",
+		"  transport <profile> [--compression on|off] [--ciphers <names>] [--kex <names>] [--keepalive <s>]",
+		"            [--connect-timeout <s>] [--command-timeout <s>] [--benchmark]",
+		"                                             show or change a site's SSH settings, or time the alternatives",
+		"  daemon [--port <n>]                        run the local server and the scheduler until stopped",
+		"<profile> is a profile id or title. install and update wait for their jobs and exit 1 if any failed." );
+
+	private final BusinessLogic businessLogic;
+	private final String password;
+
+	protected HeadlessStart( BusinessLogic businessLogic, String password ) {
+		this.businessLogic = businessLogic;
+		this.password = password;
+	}
+
+	public static void main( String[] args ) {
+		List<String> argList = new ArrayList<String>( Arrays.asList( args ) );
+		argList.remove( "--headless" );
+
+		if ( argList.isEmpty() || argList.contains( "--help" ) ) {
+			System.out.println( USAGE );
+			System.exit( argList.isEmpty() ? 2 : 0 );
+		}
+
+		String command = argList.remove( 0 );
+		String password = System.getenv( PASSWORD_VARIABLE );
+		int status;
+
+		try {
+			JBus jbus = new JBus();
+			BusinessLogic businessLogic = new BusinessLogic( jbus, "daemon".equals( command ) );
+			HeadlessStart app = new HeadlessStart( businessLogic, password != null && password.length() > 0 ? password : null );
+
+			switch ( command ) {
+				case "profiles":
+					status = app.profiles();
+					break;
+				case "search":
+					status = app.search( argList );
+					break;
+				case "inventory":
+					status = app.inventory( argList );
+					break;
+				case "install":
+					status = app.install( argList );
+					break;
+				case "update":
+					status = app.update( argList );
+					break;
+				case "transport":
+					status = app.transport( argList );
+					break;
+				case "daemon":
+					jbus.registerWeak( app );
+					app.daemon( jbus, argList );
+
+					//	the JVM is already exiting, and the shutdown hook has shut everything down
+					return;
+				default:
+					System.err.println( "unknown command " + command + "\n" + USAGE );
+					status = 2;
+					break;
+			}
+
+			businessLogic.shutdown();
+		}
+		catch ( IllegalArgumentException e ) {
+			System.err.println( e.getMessage() + "\n" + USAGE );
+			status = 2;
+		}
+		catch ( Exception e ) {
+			logger.catching( e );
+			System.err.println( "error: " + e.getMessage() );
+			status = 1;
+		}
+
+		System.exit( status );
+	}
+
+	protected int profiles() throws Exception {
+		for ( ISiteProfile profile : getProfiles() ) {
+			System.out.println( profile.getId() + "\t" + profile.getTitle() + "\t" + profile.getUserName() + "@" + profile.getUri() + ":" + profile.getDirectory() + "\t" + profile.getVersion() );
+		}
+
+		return 0;
+	}
+
+	protected int search( List<String> args ) {
+		ProjectType projectType = parseProjectType( takeOption( args, "--type" ) );
+		String text = String.join( " ", requireArgs( args, 1, "search needs some text" ) );
+
+		for ( IInstallable installable : businessLogic.searchInstallables( projectType, text, SEARCH_LIMIT ) ) {
+			System.out.println( installable.getMachineName() + "\t" + installable.getProjectType() + "\t" + installable.getInstallableVersion().getConstraint() + "\t" + installable.getTitle() );
+		}
+
+		return 0;
+	}
+
+	protected int inventory( List<String> args ) {
+		boolean refresh = args.remove( "--refresh" );
+		String packageName = takeOption( args, "--package" );
+		String search = takeOption( args, "--search" );
+		int status = 0;
+
+		if ( refresh ) {
+			IOperationResult res = businessLogic.refreshInventory( password );
+			if ( res.getType() != OperationResultType.SUCCESS ) {
+				System.err.println( "" + res );
+				return 1;
+			}
+
+			FleetInventory.Refresh result = (FleetInventory.Refresh) res.getData();
+			for ( Map.Entry<String,String> failure : result.getFailures().entrySet() ) {
+				System.err.println( "not read: " + failure.getKey() + ": " + failure.getValue() );
+				status = 1;
+			}
+		}
+
+		IFleetInventory inventory = businessLogic.getInventory();
+
+		if ( packageName != null ) {
+			for ( Map.Entry<Long,String> entry : inventory.findPackage( packageName ).entrySet() ) {
+				ISiteInventory site = inventory.getSite( entry.getKey() );
+				System.out.println( entry.getKey() + "\t" + ( site != null ? site.getTitle() : "" ) + "\t" + entry.getValue() );
+			}
+		}
+		else {
+			for ( String name : inventory.searchPackages( search != null ? search : "" ) ) {
+				System.out.println( name + "\t" + inventory.findPackage( name ).size() );
+			}
+		}
+
+		return status;
+	}
+
+	protected int install( List<String> args ) throws Exception {
+		boolean wait = !args.remove( "--no-wait" );
+		ProjectType projectType = parseProjectType( takeOption( args, "--type" ) );
+		requireArgs( args, 2, "install needs a profile and a machine name" );
+
+		ISiteProfile profile = findProfile( args.get( 0 ) );
+		List<IInstallable> installables = businessLogic.getInstallables( PlatformType.DRUPAL, projectType != null ? projectType : ProjectType.EXTENSION, args.get( 1 ) );
+		if ( installables.isEmpty() ) {
+			System.err.println( "no such project in the catalog: " + args.get( 1 ) );
+			return 1;
+		}
+
+		IOperationResult res = businessLogic.installInstallable( installables.get( 0 ), profile, password );
+		if ( res.getType() != OperationResultType.SUCCESS ) {
+			System.err.println( "" + res );
+			return 1;
+		}
+
+		return finish( (List<IJob>) res.getData(), wait );
+	}
+
+	protected int update( List<String> args ) throws Exception {
+		boolean wait = !args.remove( "--no-wait" );
+		requireArgs( args, 1, "update needs a profile or all" );
+
+		List<ISiteProfile> profiles = "all".equals( args.get( 0 ) ) ? getProfiles() : Arrays.asList( findProfile( args.get( 0 ) ) );
+		List<IJob> jobs = new ArrayList<IJob>();
+
+		for ( ISiteProfile profile : profiles ) {
+			IOperationResult res = businessLogic.composerUpdate( profile, password );
+			if ( res.getType() != OperationResultType.SUCCESS ) {
+				System.err.println( profile.getTitle() + ": " + res );
+				return 1;
+			}
+
+			jobs.add( (IJob) res.getData() );
+		}
+
+		return finish( jobs, wait );
+	}
+
+	/**
+	 * Prints the profile's transport settings after applying any options given. With
+	 * --benchmark, also times the alternatives against the site; nothing is saved from that.
+	 */
+	protected int transport( List<String> args ) throws Exception {
+		boolean benchmark = args.remove( "--benchmark" );
+		String compression = takeOption( args, "--compression" );
+		String ciphers = takeOption( args, "--ciphers" );
+		String kex = takeOption( args, "--kex" );
+		String keepAlive = takeOption( args, "--keepalive" );
+		String connectTimeout = takeOption( args, "--connect-timeout" );
+		String commandTimeout = takeOption( args, "--command-timeout" );
+		requireArgs( args, 1, "transport needs a profile" );
+
+		ISiteProfile profile = findProfile( args.get( 0 ) );
+		SSHTransportSettings current = SSHTransportSettings.of( profile.getTransportSettings() );
+
+		if ( compression != null && !"on".equals( compression ) && !"off".equals( compression ) ) {
+			throw new IllegalArgumentException( "--compression is on or off" );
+		}
+
+		try {
+			SSHTransportSettings changed = new SSHTransportSettings(
+							compression != null ? "on".equals( compression ) : current.isCompression(),
+							ciphers != null ? SSHTransportSettings.parseNames( ciphers ) : current.getCiphers(),
+							kex != null ? SSHTransportSettings.parseNames( kex ) : current.getKeyExchanges(),
+							keepAlive != null ? Integer.parseInt( keepAlive ) : current.getKeepAliveSeconds(),
+							connectTimeout != null ? Integer.parseInt( connectTimeout ) : current.getConnectTimeoutSeconds(),
+							commandTimeout != null ? Integer.parseInt( commandTimeout ) : current.getCommandTimeoutSeconds() );
+
+			if ( !changed.equals( current ) ) {
+				IOperationResult res = businessLogic.saveTransportSettings( profile, changed );
+				if ( res.getType() != OperationResultType.SUCCESS ) {
+					System.err.println( "" + res );
+					return 1;
+				}
+			}
+		}
+		catch ( NumberFormatException e ) {
+			throw new IllegalArgumentException( "not a number of seconds: " + e.getMessage() );
+		}
+
+		System.out.println( profile.getTitle() + ": " + profile.getTransportSettings() );
+
+		if ( !benchmark ) {
+			return 0;
+		}
+
+		IOperationResult res = businessLogic.benchmarkTransport( profile, password );
+		if ( res.getType() != OperationResultType.SUCCESS ) {
+			System.err.println( "" + res );
+			return 1;
+		}
+
+		for ( TransportMeasurement measurement : (List<TransportMeasurement>) res.getData() ) {
+			System.out.println( "" + measurement );
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Runs until the JVM is stopped; the shutdown hook shuts the business logic down.
+	 */
+	protected void daemon( JBus jbus, List<String> args ) throws Exception {
+		String port = takeOption( args, "--port" );
+
+		businessLogic.getScheduler().setPassword( password );
+
+		BasicServer basicServer = new BasicServer( port != null ? Integer.parseInt( port ) : BasicServer.DEFAULT_PORT,
+													jbus,
+													businessLogic.getInventory(),
+													businessLogic.getAdvisoryDatabase(),
+													businessLogic.getJobQueue() );
+		basicServer.start();
+
+		CountDownLatch stopped = new CountDownLatch( 1 );
+		Runtime.getRuntime().addShutdownHook( new Thread( () -> {
+			logger.info( "stopping" );
+			businessLogic.shutdown();
+			stopped.countDown();
+		}, "shutdown" ) );
+
+		logger.info( "running headless; the scheduler and job queue are active" );
+		stopped.await();
+	}
+
+	/**
+	 * Prints each job's changes until all have finished.
+	 * @return 0 if every job succeeded
+	 */
+	protected int finish( List<IJob> jobs, boolean wait ) throws Exception {
+		for ( IJob job : jobs ) {
+			System.out.println( "" + job );
+		}
+
+		if ( !wait ) {
+			return 0;
+		}
+
+		List<IJob> pending = new ArrayList<IJob>( jobs );
+		boolean failed = false;
+
+		while ( !pending.isEmpty() ) {
+			Thread.sleep( POLL_MILLIS );
+
+			for ( int i = 0; i < pending.size(); i++ ) {
+				IJob before = pending.get( i );
+				IJob now = businessLogic.getJobQueue().getJob( before.getId() );
+				if ( now == null ) {
+					pending.remove( i-- );
+					continue;
+				}
+
+				if ( now.getState() != before.getState() || now.getAttempts() != before.getAttempts() ) {
+					System.out.println( "" + now );
+				}
+
+				if ( now.getState().isFinished() ) {
+					failed |= now.getState() != JobState.SUCCEEDED;
+					pending.remove( i-- );
+				}
+				else {
+					pending.set( i, now );
+				}
+			}
+		}
+
+		return failed ? 1 : 0;
+	}
+
+	protected List<ISiteProfile> getProfiles() {
+		IOperationResult res = businessLogic.getProfiles();
+		if ( res.getType() != OperationResultType.SUCCESS ) {
+			throw new IllegalStateException( "cannot load profiles: " + res );
+		}
+
+		return (List<ISiteProfile>) res.getData();
+	}
+
+	/**
+	 * @param key an id or a title, case doesn't matter
+	 */
+	protected ISiteProfile findProfile( String key ) {
+		for ( ISiteProfile profile : getProfiles() ) {
+			if ( key.equals( "" + profile.getId() ) || key.equalsIgnoreCase( profile.getTitle() ) ) {
+				return profile;
+			}
+		}
+
+		throw new IllegalArgumentException( "no profile " + key );
+	}
+
+	protected static String takeOption( List<String> args, String name ) {
+		int index = args.indexOf( name );
+		if ( index < 0 ) {
+			return null;
+		}
+		if ( index + 1 >= args.size() ) {
+			throw new IllegalArgumentException( name + " needs a value" );
+		}
+
+		args.remove( index );
+		return args.remove( index );
+	}
+
+	protected static List<String> requireArgs( List<String> args, int count, String message ) {
+		if ( args.size() < count ) {
+			throw new IllegalArgumentException( message );
+		}
+
+		return args;
+	}
+
+	protected static ProjectType parseProjectType( String value ) {
+		if ( value == null ) {
+			return null;
+		}
+
+		switch ( value.trim().toLowerCase() ) {
+			case "module":
+				return ProjectType.EXTENSION;
+			case "theme":
+				return ProjectType.THEME;
+			case "library":
+				return ProjectType.LIBRARY;
+			default:
+				throw new IllegalArgumentException( "unknown project type " + value );
+		}
+	}
+
+	@Subscribe
+	private void listen( InstallInstallablesEvent event ) {
+		logger.warn( "install requests from the browser need the GUI to pick a site; use the install command instead" );
+	}
+}
@@ -13,10 +13,60 @@
  */
 package com.tolstoy.drupal.sheephole.app;
 
+import java.util.List;
+
 import com.tolstoy.drupal.sheephole.api.installation.ISiteProfile;
+import com.tolstoy.drupal.sheephole.api.ssh.ISSHTransportSettings;
+import com.tolstoy.drupal.sheephole.app.composer.UpdateOperation;
+import com.tolstoy.drupal.sheephole.app.inventory.ComposerLock;
+import com.tolstoy.drupal.sheephole.app.jobs.OperationTimings;
+import com.tolstoy.drupal.sheephole.app.ssh.TransportMeasurement;
 
 public interface ISSHManager {
 	IInstallationInfo getInstallationInfo( String userName, String password, String uri, String directory ) throws Exception;
-	void composerInstall( ISiteProfile profile, String password, String composerNamespace ) throws Exception;
-	void composerUpdate( ISiteProfile profile, String password ) throws Exception;
+
+	/**
+	 * @param password null to authenticate with the default SSH keys
+	 * @param timings receives the phase times, may be null
+	 */
+	void composerInstall( ISiteProfile profile, String password, String composerNamespace, OperationTimings timings ) throws Exception;
+
+	/**
+	 * @param password null to authenticate with the default SSH keys
+	 * @param timings receives the phase times, may be null
+	 */
+	void composerUpdate( ISiteProfile profile, String password, OperationTimings timings ) throws Exception;
+
+	/**
+	 * Runs <code>composer update --dry-run</code>, which changes nothing on the site.
+	 * @param password null to authenticate with the default SSH keys
+	 * @return what a real update would do, empty if the site is up to date
+	 */
+	List<UpdateOperation> planComposerUpdate( ISiteProfile profile, String password ) throws Exception;
+
+	/**
+	 * @param password null to authenticate with the default SSH keys
+	 * @param knownHash the hash from the last read, or null
+	 * @return null if composer.lock still has the known hash
+	 */
+	ComposerLock readComposerLock( ISiteProfile profile, String password, String knownHash ) throws Exception;
+
+	/**
+	 * Connects to the site with the given settings instead of the profile's and times a read
+	 * of composer.lock.
+	 * @param password null to authenticate with the default SSH keys
+	 */
+	TransportMeasurement measureTransport( ISiteProfile profile, String password, ISSHTransportSettings settings ) throws Exception;
+
+	/**
+	 * Starts connecting to the site in the background so the next operation on it can skip
+	 * that; returns at once.
+	 * @param password null or empty to only connect, not log in
+	 */
+	void prewarm( ISiteProfile profile, String password );
+
+	/**
+	 * Closes pre-warmed connections and stops background work.
+	 */
+	void shutdown();
 }
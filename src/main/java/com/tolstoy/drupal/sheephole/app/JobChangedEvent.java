@@ -0,0 +1,33 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app;
+
+import com.tolstoy.drupal.sheephole.api.jobs.IJob;
+
+public class JobChangedEvent {
+	private final IJob job;
+
+	public JobChangedEvent( IJob job ) {
+		this.job = job;
+	}
+
+	public IJob getJob() {
+		return job;
+	}
+
+	@Override
+	public String toString() {
+		return "" + job;
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free, fixed size ring of log lines. Any number of threads may offer lines,
+ * exactly one thread may drain them. When producers lap the consumer the oldest
+ * lines are overwritten and reported as skipped on the next drain.
+ */
+class LogLineRingBuffer {
+	private final AtomicReferenceArray<Slot> slots;
+	private final int capacity;
+	private final int mask;
+	private final AtomicLong writeSequence;
+	private volatile long readSequence;
+
+	LogLineRingBuffer( int requestedCapacity ) {
+		int cap = 1;
+		while ( cap < requestedCapacity ) {
+			cap <<= 1;
+		}
+
+		this.capacity = cap;
+		this.mask = cap - 1;
+		this.slots = new AtomicReferenceArray<Slot>( cap );
+		this.writeSequence = new AtomicLong();
+		this.readSequence = 0;
+	}
+
+	void offer( String line ) {
+		long seq = writeSequence.getAndIncrement();
+		slots.lazySet( (int) ( seq & mask ), new Slot( seq, line ) );
+	}
+
+	boolean isEmpty() {
+		return readSequence >= writeSequence.get();
+	}
+
+	/**
+	 * Moves every published line into <code>out</code>, oldest first.
+	 * @return the number of lines that were overwritten before they could be drained
+	 */
+	long drainTo( List<String> out ) {
+		long end = writeSequence.get();
+		long seq = readSequence;
+		long skipped = 0;
+
+		if ( end - seq > capacity ) {
+			skipped = end - capacity - seq;
+			seq = end - capacity;
+		}
+
+		for ( ; seq < end; seq++ ) {
+			Slot slot = slots.get( (int) ( seq & mask ) );
+
+			if ( slot == null || slot.sequence < seq ) {
+				//	claimed by a producer but not published yet, pick it up next time
+				break;
+			}
+
+			if ( slot.sequence > seq ) {
+				skipped++;
+				continue;
+			}
+
+			out.add( slot.line );
+		}
+
+		readSequence = seq;
+
+		return skipped;
+	}
+
+	int getCapacity() {
+		return capacity;
+	}
+
+	private static final class Slot {
+		private final long sequence;
+		private final String line;
+
+		Slot( long sequence, String line ) {
+			this.sequence = sequence;
+			this.line = line;
+		}
+	}
+}
@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Properties;
+import java.nio.charset.StandardCharsets;
 import java.sql.Blob;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -32,6 +33,7 @@ import java.time.Instant;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.dizitart.jbus.JBus;
+import org.json.JSONObject;
 import org.semver4j.Semver;
 
 import com.tolstoy.basic.api.storage.IStorage;
@@ -39,6 +41,7 @@ import com.tolstoy.basic.app.utils.Utils;
 import com.tolstoy.drupal.sheephole.api.IProfileManager;
 import com.tolstoy.drupal.sheephole.api.installation.ISiteProfile;
 import com.tolstoy.drupal.sheephole.app.installation.SiteProfile;
+import com.tolstoy.drupal.sheephole.app.ssh.SSHTransportSettings;
 
 public class ProfileManager implements IProfileManager {
 	private static final Logger logger = LogManager.getLogger( ProfileManager.class );
@@ -154,11 +157,11 @@ public class ProfileManager implements IProfileManager {
 			connection = storage.getConnection();
 
 			if ( profile.getId() == 0 ) {
-				query = "INSERT INTO " + TABLE_NAME + "( uid, title, username, uri, directory, platform_type, version_string, created, modified ) VALUES( ?, ?, ?, ?, ?, ?, ?, ?, ? )";
+				query = "INSERT INTO " + TABLE_NAME + "( uid, title, username, uri, directory, platform_type, version_string, created, modified, extra ) VALUES( ?, ?, ?, ?, ?, ?, ?, ?, ?, ? )";
 				ps = connection.prepareStatement( query, Statement.RETURN_GENERATED_KEYS );
 			}
 			else {
-				query = "UPDATE " + TABLE_NAME + " SET uid = ?, title = ?, username = ?, uri = ?, directory = ?, platform_type = ?, version_string = ?, created = ?, modified = ? WHERE id = ?";
+				query = "UPDATE " + TABLE_NAME + " SET uid = ?, title = ?, username = ?, uri = ?, directory = ?, platform_type = ?, version_string = ?, created = ?, modified = ?, extra = ? WHERE id = ?";
 				ps = connection.prepareStatement( query );
 			}
 
@@ -172,9 +175,10 @@ public class ProfileManager implements IProfileManager {
 			ps.setString( ord++, "" + profile.getVersion() );
 			ps.setLong( ord++, profile.getCreated() );
 			ps.setLong( ord++, profile.getModified() );
+			ps.setBytes( ord++, writeExtra( profile ).toString().getBytes( StandardCharsets.UTF_8 ) );
 
 			if ( profile.getId() == 0 ) {
-				logger.info( "about to insert to " + TABLE_NAME );
+				logger.info( "about to insert to {}", TABLE_NAME );
 
 				ps.executeUpdate();
 
@@ -195,7 +199,7 @@ public class ProfileManager implements IProfileManager {
 			else {
 				ps.setLong( ord++, profile.getId() );
 
-				logger.info( "about to update " + profile.getId() + " in " + TABLE_NAME );
+				logger.info( "about to update {} in {}", profile.getId(), TABLE_NAME );
 
 				ps.executeUpdate();
 			}
@@ -235,7 +239,7 @@ public class ProfileManager implements IProfileManager {
 	}
 
 	protected ISiteProfile readProfile( ResultSet rs ) throws Exception {
-		return new SiteProfile(
+		ISiteProfile profile = new SiteProfile(
 					rs.getLong( "id" ),
 					rs.getString( "title" ),
 					rs.getString( "username" ),
@@ -245,6 +249,36 @@ public class ProfileManager implements IProfileManager {
 					rs.getLong( "created" ),
 					rs.getLong( "modified" ),
 					rs.getString( "version_string" ) );
+
+		JSONObject extra = readExtra( rs.getBytes( "extra" ) );
+		profile.setTransportSettings( SSHTransportSettings.fromJSON( extra.optJSONObject( "ssh_transport" ) ) );
+
+		return profile;
+	}
+
+	/**
+	 * Settings that don't need their own column, as a JSON object.
+	 */
+	protected JSONObject writeExtra( ISiteProfile profile ) {
+		JSONObject ret = new JSONObject();
+
+		ret.put( "ssh_transport", SSHTransportSettings.of( profile.getTransportSettings() ).toJSON() );
+
+		return ret;
+	}
+
+	protected JSONObject readExtra( byte[] bytes ) {
+		if ( bytes == null || bytes.length == 0 ) {
+			return new JSONObject();
+		}
+
+		try {
+			return new JSONObject( new String( bytes, StandardCharsets.UTF_8 ) );
+		}
+		catch ( Exception e ) {
+			logger.warn( "ignoring unreadable extra profile data", e );
+			return new JSONObject();
+		}
 	}
 
 	protected void createTableInternalIgnoreIfExists() throws Exception {
@@ -269,12 +303,12 @@ public class ProfileManager implements IProfileManager {
 			connection = storage.getConnection();
 			stmt = connection.createStatement();
 			stmt.executeUpdate( definition );
-			logger.info( "created table " + TABLE_NAME );
+			logger.info( "created table {}", TABLE_NAME );
 		}
 		catch ( final SQLException e ) {
 			final String s = e.toString();
 			if ( s.indexOf( "exists" ) < 0 ) {
-				logger.error( "while creating table " + TABLE_NAME, e );
+				logger.error( "while creating table {}", TABLE_NAME, e );
 				throw e;
 			}
 		}
@@ -13,336 +13,831 @@
  */
 package com.tolstoy.drupal.sheephole.app;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import net.schmizz.keepalive.KeepAliveProvider;
+import net.schmizz.sshj.Config;
+import net.schmizz.sshj.DefaultConfig;
 import net.schmizz.sshj.SSHClient;
-import net.schmizz.sshj.common.IOUtils;
-import net.schmizz.sshj.connection.channel.direct.Session;
-import net.schmizz.sshj.connection.channel.direct.Session.Command;
+import net.schmizz.sshj.common.Factory;
+import net.schmizz.sshj.transport.compression.DelayedZlibCompression;
+import net.schmizz.sshj.transport.compression.NoneCompression;
+import net.schmizz.sshj.transport.compression.ZlibCompression;
+import net.schmizz.sshj.userauth.UserAuthException;
 
 import com.tolstoy.drupal.sheephole.api.installation.ISiteProfile;
+import com.tolstoy.drupal.sheephole.api.jobs.OperationPhase;
+import com.tolstoy.drupal.sheephole.api.ssh.ISSHTransportSettings;
+import com.tolstoy.drupal.sheephole.app.composer.ComposerPreflight;
+import com.tolstoy.drupal.sheephole.app.composer.ComposerSummary;
+import com.tolstoy.drupal.sheephole.app.composer.InstallStrategy;
+import com.tolstoy.drupal.sheephole.app.composer.UpdateOperation;
+import com.tolstoy.drupal.sheephole.app.inventory.ComposerLock;
+import com.tolstoy.drupal.sheephole.app.inventory.ComposerLockReader;
+import com.tolstoy.drupal.sheephole.app.jobs.OperationTimings;
+import com.tolstoy.drupal.sheephole.app.ssh.CachedKnownHosts;
+import com.tolstoy.drupal.sheephole.app.ssh.CommandResult;
+import com.tolstoy.drupal.sheephole.app.ssh.CommandTimeoutException;
+import com.tolstoy.drupal.sheephole.app.ssh.ConnectionPool;
+import com.tolstoy.drupal.sheephole.app.ssh.Deadline;
+import com.tolstoy.drupal.sheephole.app.ssh.HostAddress;
+import com.tolstoy.drupal.sheephole.app.ssh.HostGovernor;
+import com.tolstoy.drupal.sheephole.app.ssh.OutputCapture;
+import com.tolstoy.drupal.sheephole.app.ssh.RemoteFileAccess;
+import com.tolstoy.drupal.sheephole.app.ssh.RemoteFileCache;
+import com.tolstoy.drupal.sheephole.app.ssh.RemoteCommand;
+import com.tolstoy.drupal.sheephole.app.ssh.RemoteHelper;
+import com.tolstoy.drupal.sheephole.app.ssh.SSHTransportSettings;
+import com.tolstoy.drupal.sheephole.app.ssh.TransportMeasurement;
 
 public class SSHManager implements ISSHManager {
 	private static final Logger logger = LogManager.getLogger( SSHManager.class );
 	private static final Pattern PATTERN = Pattern.compile( "\\sconst\\sVERSION\\s=\\s(.*);" );
+	private static final Duration DEFAULT_OPERATION_TIMEOUT = Duration.ofMinutes( 30 );
+	private static final Duration DEFAULT_PREWARM_IDLE_TIMEOUT = Duration.ofMinutes( 2 );
+	private static final CachedKnownHosts KNOWN_HOSTS = new CachedKnownHosts();
+
+	private final ComposerPreflight preflight;
+	private final RemoteFileCache fileCache;
+	private final RemoteHelper helper;
+	private final Duration operationTimeout;
+	private final HostGovernor governor;
+	private final Map<SSHClient,HostGovernor.Permit> connections;
+	private final ConnectionPool pool;
+	private final ExecutorService prewarmer;
 
 	public SSHManager() {
+		this( null );
 	}
 
-	@Override
-	public void composerInstall( ISiteProfile profile, String password, String composerNamespace ) throws Exception {
-		SSHClient ssh = null;
-		Session session = null;
+	/**
+	 * @param preflight decides how to run composer require before running it; null to try a
+	 * plain require and then one allowing dev versions
+	 */
+	public SSHManager( ComposerPreflight preflight ) {
+		this( preflight, null );
+	}
 
-		try {
-			ssh = new SSHClient();
+	/**
+	 * @param fileCache keeps copies of the remote files read, so unchanged ones aren't read again;
+	 * may be null
+	 */
+	public SSHManager( ComposerPreflight preflight, RemoteFileCache fileCache ) {
+		this( preflight, fileCache, DEFAULT_OPERATION_TIMEOUT );
+	}
 
-			ssh.loadKnownHosts();
-			ssh.connect( profile.getUri() );
-			String drupalPath = null;
+	/**
+	 * @param operationTimeout how long an install, update or dry run may take, connecting
+	 * included, before its remote command is killed
+	 */
+	public SSHManager( ComposerPreflight preflight, RemoteFileCache fileCache, Duration operationTimeout ) {
+		this( preflight, fileCache, operationTimeout, new HostGovernor() );
+	}
 
-			ssh.authPassword( profile.getUserName(), password );
-			ssh.setTimeout( 5 );
+	/**
+	 * @param governor limits connections and channels per host and stops contacting hosts that
+	 * keep failing; share one between everything that connects to the sites
+	 */
+	public SSHManager( ComposerPreflight preflight, RemoteFileCache fileCache, Duration operationTimeout, HostGovernor governor ) {
+		this( preflight, fileCache, operationTimeout, governor, DEFAULT_PREWARM_IDLE_TIMEOUT );
+	}
 
-			session = ssh.startSession();
+	/**
+	 * @param prewarmIdleTimeout how long a pre-warmed connection is kept if nothing uses it
+	 */
+	public SSHManager( ComposerPreflight preflight, RemoteFileCache fileCache, Duration operationTimeout, HostGovernor governor, Duration prewarmIdleTimeout ) {
+		this.preflight = preflight;
+		this.fileCache = fileCache;
+		this.helper = new RemoteHelper();
+		this.operationTimeout = operationTimeout;
+		this.governor = governor;
+		this.connections = new ConcurrentHashMap<SSHClient,HostGovernor.Permit>();
+		this.pool = new ConnectionPool( prewarmIdleTimeout, this::disconnect );
+
+		this.prewarmer = Executors.newSingleThreadExecutor( runnable -> {
+			Thread thread = new Thread( runnable, "ssh-prewarm" );
+			thread.setDaemon( true );
+			return thread;
+		});
+	}
 
-			if ( !pathExists( ssh, concatPaths( profile.getDirectory(), "composer.json" ), true ) ) {
-				throw new RuntimeException( "composer.json does not exist in " + profile.getDirectory() );
-			}
+	@Override
+	public void composerInstall( ISiteProfile profile, String password, String composerNamespace, OperationTimings timings ) throws Exception {
+		SSHClient ssh = null;
 
-			boolean bSuccess = false;
-			List<String> cmds = getComposerInstallCommands( profile, password, composerNamespace );
+		if ( timings == null ) {
+			timings = new OperationTimings();
+		}
 
-			logger.info( "about to try these composer commands:" + cmds );
+		Deadline deadline = Deadline.after( operationTimeout );
 
-			for ( String cmd : cmds ) {
-				try {
-					logger.info( "  about to try: " + cmd );
+		try {
+			ssh = open( profile, password, timings );
 
-					SSHResult res = runCommand( ssh, cmd );
+			InstallStrategy strategy = InstallStrategy.UNKNOWN;
 
-					if ( res != null && res.getResult() != null && res.getResult().contains( "flubr" ) ) {
-						logger.info( "    successful res from cmd: " + res );
+			if ( preflight != null ) {
+				long begun = timings.begin();
 
-						bSuccess = true;
+				try ( RemoteFileAccess files = openFileAccess( ssh, deadline ) ) {
+					ComposerPreflight.Decision decision = runPreflight( files, profile, composerNamespace );
+					logger.info( "preflight for {} on {}: {}", composerNamespace, profile.getUri(), decision );
 
-						break;
+					if ( decision.getStrategy() == InstallStrategy.ALREADY_INSTALLED ) {
+						return;
 					}
 
-					logger.info( "    unsuccessful res from cmd: " + res );
-				}
-				catch ( Exception e ) {
-					logger.info( "caught exception trying cmd: " + cmd + ", exc=" + e.getMessage() );
+					if ( decision.getStrategy() == InstallStrategy.UNRESOLVABLE ) {
+						throw new RuntimeException( decision.getReason() );
+					}
+
+					strategy = decision.getStrategy();
 				}
+
+				timings.end( OperationPhase.PROBE, begun );
 			}
 
-			if ( !bSuccess ) {
-				throw new RuntimeException( "No composer commands worked: " + cmds );
+			String mode = strategy == InstallStrategy.PLAIN ? "plain" : strategy == InstallStrategy.ALLOW_DEV ? "allow_dev" : "unknown";
+
+			RemoteHelper.Result res = runHelper( ssh, deadline, timings, null, "install", profile.getDirectory(), composerNamespace, mode );
+			if ( !res.isOk() ) {
+				throw new RuntimeException( "composer require failed at " + res.getStep() + ": " + res.getMessage() + "\n" + StringUtils.right( res.getOutput(), 500 ) );
 			}
 		}
 		finally {
-			try {
-				if ( ssh != null ) {
-					ssh.disconnect();
-				}
-			}
-			catch ( Exception e ) {
+			if ( ssh != null ) {
+				disconnect( ssh );
 			}
 		}
 	}
 
 	@Override
-	public void composerUpdate( ISiteProfile profile, String password ) throws Exception {
+	public void composerUpdate( ISiteProfile profile, String password, OperationTimings timings ) throws Exception {
 		SSHClient ssh = null;
-		Session session = null;
-
-		try {
-			ssh = new SSHClient();
 
-			ssh.loadKnownHosts();
-			ssh.connect( profile.getUri() );
-			String drupalPath = null;
+		if ( timings == null ) {
+			timings = new OperationTimings();
+		}
 
-			ssh.authPassword( profile.getUserName(), password );
-			ssh.setTimeout( 5 );
+		Deadline deadline = Deadline.after( operationTimeout );
 
-			session = ssh.startSession();
+		try {
+			ssh = open( profile, password, timings );
 
-			if ( !pathExists( ssh, concatPaths( profile.getDirectory(), "composer.json" ), true ) ) {
-				throw new RuntimeException( "composer.json does not exist in " + profile.getDirectory() );
+			RemoteHelper.Result res = runHelper( ssh, deadline, timings, null, "update", profile.getDirectory() );
+			if ( !res.isOk() ) {
+				throw new RuntimeException( "composer update failed at " + res.getStep() + ": " + res.getMessage() + "\n" + StringUtils.right( res.getOutput(), 500 ) );
+			}
+		}
+		finally {
+			if ( ssh != null ) {
+				disconnect( ssh );
 			}
+		}
+	}
 
-			boolean bSuccess = false;
-			List<String> cmds = getComposerUpdateCommands( profile, password );
+	@Override
+	public IInstallationInfo getInstallationInfo( String userName, String password, String uri, String directory ) throws Exception {
+		SSHClient ssh = null;
 
-			logger.info( "about to try these composer commands:" + cmds );
+		try {
+			Deadline deadline = Deadline.after( operationTimeout );
+			ssh = connect( uri, SSHTransportSettings.DEFAULTS );
+			String drupalPath = null;
 
-			for ( String cmd : cmds ) {
-				try {
-					logger.info( "  about to try: " + cmd );
+			authenticate( ssh, userName, password );
 
-					SSHResult res = runCommand( ssh, cmd );
+			String drupalContents = null;
 
-					if ( res != null && res.getResult() != null && res.getResult().contains( "flubr" ) ) {
-						logger.info( "    successful res from cmd: " + res );
+			try ( RemoteFileAccess files = openFileAccess( ssh, deadline ) ) {
+				if ( !files.isDirectory( directory ) ) {
+					throw new RuntimeException( "Root path does not exist: " + directory );
+				}
 
-						bSuccess = true;
+				if ( !files.isFile( concatPaths( directory, "composer.json" ) ) ) {
+					throw new RuntimeException( "composer.json does not exist in " + directory );
+				}
 
-						break;
+				drupalPath = concatPaths( directory, "web/core/lib/Drupal.php" );
+				drupalContents = files.readString( drupalPath );
+				if ( drupalContents == null ) {
+					drupalPath = concatPaths( directory, "core/lib/Drupal.php" );
+					drupalContents = files.readString( drupalPath );
+					if ( drupalContents == null ) {
+						throw new RuntimeException( "Drupal.php does not exist at " + drupalPath );
 					}
-
-					logger.info( "    unsuccessful res from cmd: " + res );
-				}
-				catch ( Exception e ) {
-					logger.info( "caught exception trying cmd: " + cmd + ", exc=" + e.getMessage() );
 				}
 			}
 
-			if ( !bSuccess ) {
-				throw new RuntimeException( "No composer commands worked: " + cmds );
+			Matcher matcher = PATTERN.matcher( drupalContents );
+			if ( !matcher.find() ) {
+				throw new RuntimeException( "Cannot get VERSION from Drupal.php at " + drupalPath );
 			}
+
+			String versionString = matcher.group( 1 );
+			versionString = versionString.replace( "\"", "" ).replace( "'", "" );
+
+			return new InstallationInfo( directory, drupalPath, versionString );
 		}
 		finally {
-			try {
-				if ( ssh != null ) {
-					ssh.disconnect();
-				}
-			}
-			catch ( Exception e ) {
+			if ( ssh != null ) {
+				disconnect( ssh );
 			}
 		}
 	}
 
 	@Override
-	public IInstallationInfo getInstallationInfo( String userName, String password, String uri, String directory ) throws Exception {
+	public List<UpdateOperation> planComposerUpdate( ISiteProfile profile, String password ) throws Exception {
 		SSHClient ssh = null;
 
 		try {
-			ssh = new SSHClient();
+			ssh = open( profile, password, null );
 
-			ssh.loadKnownHosts();
-			ssh.connect( uri );
-			String drupalPath = null;
-
-			ssh.authPassword( userName, password );
+			UpdateOperation.Parser parser = new UpdateOperation.Parser();
+			RemoteHelper.Result res = runHelper( ssh, Deadline.after( operationTimeout ), new OperationTimings(), parser, "plan", profile.getDirectory() );
 
-			if ( !pathExists( ssh, directory, false ) ) {
-				throw new RuntimeException( "Root path does not exist: " + directory );
+			if ( !res.isOk() ) {
+				logger.info( "dry run failed on {}: {}", profile.getTitle(), res );
+				throw new RuntimeException( "composer update --dry-run failed: " + res.getMessage() + "\n" + StringUtils.right( res.getOutput(), 500 ) );
 			}
 
-			if ( !pathExists( ssh, concatPaths( directory, "composer.json" ), true ) ) {
-				throw new RuntimeException( "composer.json does not exist in " + directory );
+			List<UpdateOperation> ret = parser.getOperations();
+			logger.debug( "dry run on {}: {}", profile.getTitle(), ret );
+
+			return ret;
+		}
+		finally {
+			if ( ssh != null ) {
+				disconnect( ssh );
 			}
+		}
+	}
 
-			drupalPath = concatPaths( directory, "web/core/lib/Drupal.php" );
-			if ( !pathExists( ssh, drupalPath, true ) ) {
-				drupalPath = concatPaths( directory, "core/lib/Drupal.php" );
-				if ( !pathExists( ssh, drupalPath, true ) ) {
-					throw new RuntimeException( "Drupal.php does not exist at " + drupalPath );
+	/**
+	 * With a file cache, the lock is only transferred if its mtime or size changed since the last
+	 * read, and then over SFTP into the cache. Without one, one exec: the lock's hash on the
+	 * first line, then the lock itself unless the hash is the known one, killed if it hasn't
+	 * finished by the operation timeout. Either way the lock is parsed from bytes rather than
+	 * decoded into a string first.
+	 */
+	@Override
+	public ComposerLock readComposerLock( ISiteProfile profile, String password, String knownHash ) throws Exception {
+		SSHClient ssh = null;
+		Deadline deadline = Deadline.after( operationTimeout );
+
+		try {
+			ssh = open( profile, password, null );
+
+			if ( fileCache != null ) {
+				try ( RemoteFileAccess files = openFileAccess( ssh, deadline ) ) {
+					RemoteFileAccess.Contents contents = files.read( concatPaths( profile.getDirectory(), "composer.lock" ) );
+					if ( contents == null ) {
+						throw new RuntimeException( "cannot read composer.lock in " + profile.getDirectory() );
+					}
+
+					if ( contents.getHash().equals( knownHash ) ) {
+						return null;
+					}
+
+					try ( InputStream in = contents.openStream() ) {
+						ComposerLock ret = new ComposerLock( contents.getHash(), ComposerLockReader.read( in ) );
+						logger.debug( "read {} packages from {}{}", ret.getPackages().size(), profile.getTitle(), contents.isFromCache() ? " (cached)" : "" );
+
+						return ret;
+					}
 				}
 			}
 
-			String drupalContents = readFile( ssh, drupalPath ).getResult();
+			String lock = escape( concatPaths( profile.getDirectory(), "composer.lock" ) );
+			String known = escape( knownHash != null ? knownHash : "" );
+			String s = "h=$( ( sha256sum " + lock + " || shasum -a 256 " + lock + " ) 2>/dev/null | cut -c1-64 ); " +
+						"echo \"$h\"; [ -z \"$h\" ] || [ \"$h\" = " + known + " ] || cat " + lock;
 
-			Matcher matcher = PATTERN.matcher( drupalContents );
-			if ( !matcher.find() ) {
-				throw new RuntimeException( "Cannot get VERSION from Drupal.php at " + drupalPath );
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			readCommandOutput( ssh, s, deadline, out );
+			byte[] bytes = out.toByteArray();
+
+			int eol = 0;
+			while ( eol < bytes.length && bytes[ eol ] != '\n' ) {
+				eol++;
 			}
 
-			String versionString = matcher.group( 1 );
-			versionString = versionString.replace( "\"", "" ).replace( "'", "" );
+			String hash = new String( bytes, 0, eol, StandardCharsets.UTF_8 ).trim();
+			if ( hash.isEmpty() ) {
+				throw new RuntimeException( "cannot read composer.lock in " + profile.getDirectory() );
+			}
 
-			return new InstallationInfo( directory, drupalPath, versionString );
+			if ( hash.equals( knownHash ) ) {
+				return null;
+			}
+
+			int begin = Math.min( eol + 1, bytes.length );
+			ComposerLock ret = new ComposerLock( hash, ComposerLockReader.read( new ByteArrayInputStream( bytes, begin, bytes.length - begin ) ) );
+
+			logger.debug( "read {} packages from {}", ret.getPackages().size(), profile.getTitle() );
+
+			return ret;
 		}
 		finally {
-			try {
-				if ( ssh != null ) {
-					ssh.disconnect();
-				}
-			}
-			catch ( Exception e ) {
+			if ( ssh != null ) {
+				disconnect( ssh );
 			}
 		}
 	}
 
-	protected SSHResult readFile( SSHClient ssh, String path ) throws Exception {
-		String escapedPath = escape( path );
-		Session session = null;
+	/**
+	 * Connects with the given settings and reads the site's composer.lock, timing each step.
+	 * Nothing on the site is changed.
+	 */
+	@Override
+	public TransportMeasurement measureTransport( ISiteProfile profile, String password, ISSHTransportSettings settings ) throws Exception {
+		SSHClient ssh = null;
+		Deadline deadline = Deadline.after( operationTimeout );
 
 		try {
-			session = ssh.startSession();
-			String s = "cat " + escapedPath;
-			Command cmd = session.exec( s );
-			String result = IOUtils.readFully( cmd.getInputStream() ).toString().trim();
-			cmd.join( 5, TimeUnit.SECONDS );
-			int status = cmd.getExitStatus();
+			long begun = System.nanoTime();
+			ssh = connect( profile.getUri(), settings );
+			long connected = System.nanoTime();
+
+			authenticate( ssh, profile.getUserName(), password );
+			long authenticated = System.nanoTime();
+
+			CountingOutputStream out = new CountingOutputStream( NullOutputStream.INSTANCE );
+			int status = readCommandOutput( ssh, "cat " + escape( concatPaths( profile.getDirectory(), "composer.lock" ) ), deadline, out );
+			long finished = System.nanoTime();
+			long bytes = out.getByteCount();
+
+			if ( status != 0 ) {
+				throw new RuntimeException( "cannot read composer.lock in " + profile.getDirectory() );
+			}
 
-			return new SSHResult( status, result.trim() );
+			return new TransportMeasurement( settings,
+												( connected - begun ) / 1_000_000,
+												( authenticated - connected ) / 1_000_000,
+												( finished - authenticated ) / 1_000_000,
+												bytes );
 		}
 		finally {
+			if ( ssh != null ) {
+				disconnect( ssh );
+			}
+		}
+	}
+
+	/**
+	 * Opens a connection to the site in the background and logs in, with the password if there
+	 * is one and otherwise the SSH keys, so the next install, update, dry run or lock read for it
+	 * can start straight away. Refused keys leave the connection unauthenticated. A connection
+	 * not used within the idle timeout is closed, and while it waits it doesn't count against the
+	 * host's connection limit. Failures are only logged.
+	 */
+	@Override
+	public void prewarm( ISiteProfile profile, String password ) {
+		String key = getPoolKey( profile );
+
+		prewarmer.execute( () -> {
+			SSHClient ssh = pool.take( key );
+
 			try {
-				if ( session != null ) {
-					session.close();
+				if ( ssh == null ) {
+					ssh = connect( profile.getUri(), profile.getTransportSettings() );
 				}
+
+				if ( !ssh.isAuthenticated() ) {
+					if ( password != null && password.length() > 0 ) {
+						authenticate( ssh, profile.getUserName(), password );
+					}
+					else {
+						//	not recorded against the host, the profile may log in with a password that wasn't given
+						try {
+							ssh.authPublickey( profile.getUserName() );
+						}
+						catch ( UserAuthException e ) {
+							logger.debug( "SSH keys refused by {}, leaving the pre-warmed connection unauthenticated", profile.getUri() );
+						}
+					}
+				}
+
+				releasePermit( ssh );
+				pool.put( key, ssh );
+				logger.debug( "pre-warmed connection to {}, authenticated: {}", profile.getUri(), ssh.isAuthenticated() );
 			}
-			catch ( IOException e ) {
+			catch ( Exception e ) {
+				logger.info( "cannot pre-warm a connection to {}: {}", profile.getUri(), e.getMessage() );
+				if ( ssh != null ) {
+					disconnect( ssh );
+				}
 			}
-		}
+		});
 	}
 
-	protected SSHResult runCommand( SSHClient ssh, String escapedCommand ) throws Exception {
-		Session session = null;
+	@Override
+	public void shutdown() {
+		prewarmer.shutdownNow();
+		pool.shutdown();
+	}
 
-		try {
-			session = ssh.startSession();
-			Command cmd = session.exec( escapedCommand );
-			String result = IOUtils.readFully( cmd.getInputStream() ).toString().trim();
-			cmd.join( 5, TimeUnit.SECONDS );
-			int status = cmd.getExitStatus();
+	/**
+	 * A pre-warmed connection for the profile if there is a live one, logging it in if it
+	 * isn't yet, otherwise a new one.
+	 *
+	 * @param timings may be null
+	 */
+	protected SSHClient open( ISiteProfile profile, String password, OperationTimings timings ) throws IOException {
+		if ( timings == null ) {
+			timings = new OperationTimings();
+		}
 
-			return new SSHResult( status, result.trim() );
+		SSHClient ssh = pool.take( getPoolKey( profile ) );
+
+		if ( ssh != null ) {
+			logger.debug( "using pre-warmed connection to {}", profile.getUri() );
+
+			try {
+				connections.put( ssh, governor.acquire( HostAddress.parse( profile.getUri() ).getKey() ) );
+			}
+			catch ( IOException e ) {
+				disconnect( ssh );
+				throw e;
+			}
 		}
-		finally {
+		else {
+			long begun = timings.begin();
+			ssh = connect( profile.getUri(), profile.getTransportSettings() );
+			timings.end( OperationPhase.CONNECT, begun );
+		}
+
+		if ( !ssh.isAuthenticated() ) {
 			try {
-				if ( session != null ) {
-					session.close();
-				}
+				long begun = timings.begin();
+				authenticate( ssh, profile.getUserName(), password );
+				timings.end( OperationPhase.AUTH, begun );
 			}
 			catch ( IOException e ) {
+				disconnect( ssh );
+				throw e;
 			}
 		}
+
+		return ssh;
 	}
 
-	protected boolean pathExists( SSHClient ssh, String path, boolean isFile ) throws Exception {
-		String escapedPath = escape( path );
-		Session session = null;
+	protected String getPoolKey( ISiteProfile profile ) {
+		return profile.getUri() + "|" + profile.getUserName() + "|" + profile.getTransportSettings();
+	}
+
+	/**
+	 * @param password null or empty to use the default SSH keys instead
+	 */
+	protected void authenticate( SSHClient ssh, String userName, String password ) throws IOException {
+		HostGovernor.Permit permit = connections.get( ssh );
 
 		try {
-			session = ssh.startSession();
-			String test = isFile ? "-f" : "-d";
-			String s = "[ " + test + " " + escapedPath + " ] && " + "echo 'flibbity' || echo 'zurbness'";
-			Command cmd = session.exec( s );
-			String result = IOUtils.readFully( cmd.getInputStream() ).toString().trim();
-			cmd.join( 5, TimeUnit.SECONDS );
-			int status = cmd.getExitStatus();
-			logger.info( "s=" + s + ", status=" + status + ", result=" + result + "#####" );
+			if ( password != null && password.length() > 0 ) {
+				ssh.authPassword( userName, password );
+			}
+			else {
+				ssh.authPublickey( userName );
+			}
+		}
+		catch ( IOException e ) {
+			if ( permit != null ) {
+				governor.recordFailure( permit.getHost(), e );
+			}
+			throw e;
+		}
 
-			return result.contains( "flibbity" );
+		if ( permit != null ) {
+			governor.recordSuccess( permit.getHost() );
 		}
-		finally {
-			try {
-				if ( session != null ) {
-					session.close();
+	}
+
+	protected SSHClient createClient( Config config ) throws IOException {
+		SSHClient ssh = new SSHClient( config );
+
+		ssh.addHostKeyVerifier( KNOWN_HOSTS );
+
+		return ssh;
+	}
+
+	/**
+	 * sshj's defaults, with the preferred ciphers and key exchanges moved to the front.
+	 */
+	protected Config createConfig( ISSHTransportSettings settings ) {
+		DefaultConfig config = new DefaultConfig();
+
+		config.setCipherFactories( preferFactories( config.getCipherFactories(), settings.getCiphers() ) );
+		config.setKeyExchangeFactories( preferFactories( config.getKeyExchangeFactories(), settings.getKeyExchanges() ) );
+
+		if ( settings.isCompression() ) {
+			config.setCompressionFactories( Arrays.asList( new DelayedZlibCompression.Factory(),
+															new ZlibCompression.Factory(),
+															new NoneCompression.Factory() ) );
+		}
+
+		if ( settings.getKeepAliveSeconds() > 0 ) {
+			config.setKeepAliveProvider( KeepAliveProvider.KEEP_ALIVE );
+		}
+
+		return config;
+	}
+
+	protected <T> List<Factory.Named<T>> preferFactories( List<Factory.Named<T>> factories, List<String> preferred ) {
+		List<Factory.Named<T>> ret = new ArrayList<Factory.Named<T>>( factories.size() );
+
+		for ( String name : preferred ) {
+			Factory.Named<T> found = null;
+			for ( Factory.Named<T> factory : factories ) {
+				if ( factory.getName().equals( name ) ) {
+					found = factory;
+					break;
 				}
 			}
-			catch ( IOException e ) {
+
+			if ( found == null ) {
+				logger.warn( "SSH algorithm {} is not supported, ignoring it", name );
+			}
+			else if ( !ret.contains( found ) ) {
+				ret.add( found );
 			}
 		}
+
+		for ( Factory.Named<T> factory : factories ) {
+			if ( !ret.contains( factory ) ) {
+				ret.add( factory );
+			}
+		}
+
+		return ret;
 	}
 
-	protected List<String> getComposerInstallCommands( ISiteProfile profile, String password, String composerNamespace ) {
-		List<String> ret = new ArrayList<String>( 2 );
+	protected SSHClient connect( String uri, ISSHTransportSettings settings ) throws IOException {
+		if ( settings == null ) {
+			settings = SSHTransportSettings.DEFAULTS;
+		}
 
-		String changeDir = "cd " + escape( profile.getDirectory() );
-		String composerRequire = "composer require " + escape( composerNamespace );
-		String successMarker = "echo 'flubr'";
-		String allowDev = "composer config minimum-stability dev && composer config prefer-stable true";
+		HostAddress address = HostAddress.parse( uri );
+		String host = address.getHost();
+		int port = address.getPort();
 
-		ret.add( StringUtils.joinWith( " && ", changeDir, composerRequire, successMarker ) );
-		ret.add( StringUtils.joinWith( " && ", changeDir, allowDev, composerRequire, successMarker ) );
+		SSHClient ssh = createClient( createConfig( settings ) );
+		ssh.setConnectTimeout( settings.getConnectTimeoutSeconds() * 1000 );
+		ssh.getConnection().setTimeoutMs( settings.getCommandTimeoutSeconds() * 1000 );
 
-		return ret;
+		//	sshj starts the keepalive thread while connecting, and only if the interval is set by then
+		ssh.getConnection().getKeepAlive().setKeepAliveInterval( settings.getKeepAliveSeconds() );
+
+		HostGovernor.Permit permit;
+		try {
+			permit = governor.acquire( address.getKey() );
+		}
+		catch ( IOException e ) {
+			ssh.close();
+			throw e;
+		}
+
+		try {
+			ssh.connect( host, port );
+		}
+		catch ( IOException e ) {
+			governor.recordFailure( permit.getHost(), e );
+			permit.close();
+			ssh.close();
+			throw e;
+		}
+
+		connections.put( ssh, permit );
+
+		return ssh;
 	}
 
-	protected List<String> getComposerUpdateCommands( ISiteProfile profile, String password ) {
-		List<String> ret = new ArrayList<String>( 2 );
+	/**
+	 * Never throws; frees the host's connection slot whether or not the disconnect went cleanly.
+	 */
+	protected void disconnect( SSHClient ssh ) {
+		HostGovernor.Permit permit = connections.remove( ssh );
+
+		try {
+			ssh.disconnect();
+		}
+		catch ( Exception e ) {
+		}
+		finally {
+			if ( permit != null ) {
+				permit.close();
+			}
+		}
+	}
 
-		String changeDir = "cd " + escape( profile.getDirectory() );
-		String composerUpdate = "composer update";
-		String successMarker = "echo 'flubr'";
+	/**
+	 * Frees the connection's slot with the governor while it sits in the pool; open() takes
+	 * one again when the connection is used.
+	 */
+	protected void releasePermit( SSHClient ssh ) {
+		HostGovernor.Permit permit = connections.remove( ssh );
+		if ( permit != null ) {
+			permit.close();
+		}
+	}
 
-		ret.add( StringUtils.joinWith( " && ", changeDir, composerUpdate, successMarker ) );
+	/**
+	 * The file access holds one of the connection's channels until it is closed.
+	 */
+	protected RemoteFileAccess openFileAccess( SSHClient ssh, Deadline deadline ) throws IOException {
+		HostGovernor.Permit channel = governor.acquireChannel( ssh, deadline.getRemainingMillis() );
 
-		return ret;
+		try {
+			return new RemoteFileAccess( ssh, fileCache, deadline ) {
+				@Override
+				public void close() {
+					try {
+						super.close();
+					}
+					finally {
+						channel.close();
+					}
+				}
+			};
+		}
+		catch ( RuntimeException e ) {
+			channel.close();
+			throw e;
+		}
 	}
 
-	protected String escape( String s ) {
-		return "'" + s.replace( "'", "'\\''" ) + "'";
+	/**
+	 * Runs a command that prints file contents, copying its stdout to the stream as it arrives.
+	 * @return the exit status, CommandResult.NO_EXIT_STATUS if the host didn't send one
+	 * @throws CommandTimeoutException if the command was still running at the deadline; it has
+	 * been killed
+	 */
+	protected int readCommandOutput( SSHClient ssh, String escapedCommand, Deadline deadline, OutputStream stdout ) throws Exception {
+		HostGovernor.Permit channel = governor.acquireChannel( ssh, deadline.getRemainingMillis() );
+
+		try {
+			Integer status = new RemoteCommand( ssh, escapedCommand, deadline ).run( stdout, line -> logger.debug( "{}: {}", ssh.getRemoteHostname(), line ) );
+
+			return status != null ? status : CommandResult.NO_EXIT_STATUS;
+		}
+		finally {
+			channel.close();
+		}
 	}
 
-	protected String concatPaths( String s1, String s2 ) {
-		return FilenameUtils.concat( s1, s2 );
+	protected CommandResult runCommand( SSHClient ssh, String escapedCommand ) throws Exception {
+		return runCommand( ssh, escapedCommand, Deadline.after( operationTimeout ), null, null );
 	}
 
-	private static class SSHResult {
-		private final String result;
-		private final int status;
+	/**
+	 * Runs a command and reads its output a line at a time as it arrives. Only the start and end
+	 * of stdout and stderr are kept, but listener, if given, sees every line of stdout. With
+	 * timings, the time up to composer writing the lock file counts as RESOLVE and the time from
+	 * there to the first package being installed as DOWNLOAD. Output without those markers
+	 * counts entirely as RESOLVE.
+	 *
+	 * @throws CommandTimeoutException if the command was still running at the deadline; it has
+	 * been killed
+	 */
+	protected CommandResult runCommand( SSHClient ssh, String escapedCommand, Deadline deadline, OperationTimings timings, Consumer<String> listener ) throws Exception {
+		long begun = System.nanoTime();
+		//	when composer finished resolving, and when it started applying packages
+		long[] marks = new long[] { -1, -1 };
+
+		OutputCapture stdout = new OutputCapture();
+		OutputCapture stderr = new OutputCapture();
+		ComposerSummary summary = new ComposerSummary();
+
+		RemoteCommand cmd = new RemoteCommand( ssh, escapedCommand, deadline );
+
+		HostGovernor.Permit channel = governor.acquireChannel( ssh, deadline.getRemainingMillis() );
+		Integer status;
 
-		SSHResult( int status, String result ) {
-			this.status = status;
-			this.result = result != null ? result : "";
+		try {
+			status = cmd.run( line -> {
+				stdout.add( line );
+				summary.accept( line );
+				if ( listener != null ) {
+					listener.accept( line );
+				}
+
+				String trimmed = line.trim();
+				if ( marks[ 0 ] < 0 ) {
+					if ( trimmed.startsWith( "Installing dependencies from lock file" ) || trimmed.startsWith( "Package operations:" ) || trimmed.startsWith( "Nothing to install" ) ) {
+						marks[ 0 ] = System.nanoTime();
+					}
+				}
+				else if ( marks[ 1 ] < 0 && isApplyingPackages( trimmed ) ) {
+					marks[ 1 ] = System.nanoTime();
+				}
+			}, line -> {
+				stderr.add( line );
+				summary.accept( line );
+			});
 		}
+		finally {
+			channel.close();
+		}
+
+		long finished = System.nanoTime();
 
-		int getStatus() {
-			return status;
+		if ( timings != null ) {
+			if ( marks[ 0 ] < 0 ) {
+				timings.add( OperationPhase.RESOLVE, finished - begun );
+			}
+			else {
+				timings.add( OperationPhase.RESOLVE, marks[ 0 ] - begun );
+				timings.add( OperationPhase.DOWNLOAD, ( marks[ 1 ] >= 0 ? marks[ 1 ] : finished ) - marks[ 0 ] );
+			}
 		}
 
-		String getResult() {
-			return result;
+		return new CommandResult( escapedCommand,
+									status != null ? status : CommandResult.NO_EXIT_STATUS,
+									( finished - begun ) / 1_000_000,
+									stdout,
+									stderr,
+									summary );
+	}
+
+	/**
+	 * Runs one of the helper's commands, deploying the helper first if the host doesn't have
+	 * this version of it yet. The deploy counts as PROBE.
+	 */
+	protected RemoteHelper.Result runHelper( SSHClient ssh, Deadline deadline, OperationTimings timings, Consumer<String> listener, String... args ) throws Exception {
+		String cmd = helper.getCommand( args );
+		logger.info( "running helper: {}", cmd );
+
+		CommandResult res = runCommand( ssh, cmd, deadline, timings, listener );
+
+		if ( helper.isMissing( res ) ) {
+			long begun = timings.begin();
+
+			CommandResult deployed = runCommand( ssh, helper.getDeployCommand(), deadline, null, null );
+			if ( !deployed.isSuccess() ) {
+				throw new RuntimeException( "cannot install the helper script on " + ssh.getRemoteHostname() + ": " + deployed.getOutput() );
+			}
+			logger.info( "installed helper {} on {}", helper.getChecksum(), ssh.getRemoteHostname() );
+
+			timings.end( OperationPhase.PROBE, begun );
+
+			res = runCommand( ssh, cmd, deadline, timings, listener );
 		}
 
-		@Override
-		public String toString() {
-			return "status=" + status + ", result=" + result;
+		RemoteHelper.Result ret = helper.parseResult( res );
+		if ( ret == null ) {
+			throw new RuntimeException( "no result from the helper script, exit status " + res.getExitStatus() + ": " + StringUtils.right( res.getOutput(), 500 ) );
 		}
+
+		if ( ret.getVersion() != RemoteHelper.VERSION ) {
+			throw new RuntimeException( "helper script version " + ret.getVersion() + " answered, expected " + RemoteHelper.VERSION );
+		}
+
+		logger.info( "helper result: {}", ret );
+
+		return ret;
+	}
+
+	protected static boolean isApplyingPackages( String line ) {
+		return line.startsWith( "- Installing " ) || line.startsWith( "- Upgrading " ) || line.startsWith( "- Downgrading " ) ||
+				line.startsWith( "- Removing " ) || line.startsWith( "Generating autoload files" );
+	}
+
+	/**
+	 * Reads composer.json and, if there is one, composer.lock, and lets the preflight decide.
+	 */
+	protected ComposerPreflight.Decision runPreflight( RemoteFileAccess files, ISiteProfile profile, String composerNamespace ) throws Exception {
+		return preflight.check( composerNamespace,
+								files.readString( concatPaths( profile.getDirectory(), "composer.json" ) ),
+								files.readString( concatPaths( profile.getDirectory(), "composer.lock" ) ),
+								profile.getVersion() );
+	}
+
+	protected String escape( String s ) {
+		return "'" + s.replace( "'", "'\\''" ) + "'";
+	}
+
+	protected String concatPaths( String s1, String s2 ) {
+		return FilenameUtils.concat( s1, s2 );
 	}
 }
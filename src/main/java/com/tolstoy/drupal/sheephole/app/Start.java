@@ -18,8 +18,12 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.stream.Collectors;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -42,8 +46,10 @@ import javafx.geometry.Pos;
 import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
 import javafx.scene.control.PasswordField;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
@@ -87,6 +93,7 @@ import com.tolstoy.drupal.sheephole.api.installation.IAppDirectories;
 import com.tolstoy.drupal.sheephole.api.installation.IInstallationInstruction;
 import com.tolstoy.drupal.sheephole.api.preferences.IPreferences;
 import com.tolstoy.drupal.sheephole.api.preferences.IPreferencesFactory;
+import com.tolstoy.drupal.sheephole.api.schedule.IUpdateSchedule;
 import com.tolstoy.drupal.sheephole.app.preferences.PreferencesFactory;
 import com.tolstoy.drupal.sheephole.api.installation.InstallationInstructionType;
 import com.tolstoy.drupal.sheephole.api.installation.IOperationResult;
@@ -94,16 +101,30 @@ import com.tolstoy.drupal.sheephole.api.installation.IInstallable;
 import com.tolstoy.drupal.sheephole.api.installation.OperationResultType;
 import com.tolstoy.drupal.sheephole.api.installation.ISiteProfile;
 import com.tolstoy.drupal.sheephole.api.installation.PlatformType;
+import com.tolstoy.drupal.sheephole.api.inventory.IFleetInventory;
+import com.tolstoy.drupal.sheephole.api.inventory.ISiteInventory;
+import com.tolstoy.drupal.sheephole.api.jobs.IJob;
+import com.tolstoy.drupal.sheephole.api.jobs.IOperationRecord;
+import com.tolstoy.drupal.sheephole.api.jobs.ITimingSummary;
+import com.tolstoy.drupal.sheephole.api.jobs.JobState;
+import com.tolstoy.drupal.sheephole.api.jobs.OperationPhase;
+import com.tolstoy.drupal.sheephole.api.ssh.ISSHTransportSettings;
 import com.tolstoy.drupal.sheephole.app.installation.BasicInstallableVersion;
 import com.tolstoy.drupal.sheephole.app.installation.Installable;
 import com.tolstoy.drupal.sheephole.app.installation.InstallationInstruction;
+import com.tolstoy.drupal.sheephole.app.installation.MajorVersionSet;
 import com.tolstoy.drupal.sheephole.app.installation.SiteProfile;
+import com.tolstoy.drupal.sheephole.app.ssh.SSHTransportSettings;
+import com.tolstoy.drupal.sheephole.app.ssh.TransportBenchmark;
+import com.tolstoy.drupal.sheephole.app.ssh.TransportMeasurement;
+import com.tolstoy.drupal.sheephole.app.inventory.FleetInventory;
+import com.tolstoy.drupal.sheephole.app.advisory.AdvisoryReport;
+import com.tolstoy.drupal.sheephole.app.composer.FleetUpdatePlan;
+import com.tolstoy.drupal.sheephole.app.composer.UpdatePlan;
 
 public class Start extends Application {
 	private static final Logger logger = LogManager.getLogger( Start.class );
 
-	private static final int SERVER_PORT = 41295;
-
 	private BusinessLogic businessLogic;
 	private BasicServer basicServer;
 	private JBus jbus;
@@ -160,7 +181,7 @@ public class Start extends Application {
 		this.businessLogic = new BusinessLogic( this.jbus );
 
 		try {
-			BasicServer basicServer = new BasicServer( SERVER_PORT, this.jbus );
+			BasicServer basicServer = new BasicServer( BasicServer.DEFAULT_PORT, this.jbus, this.businessLogic.getInventory(), this.businessLogic.getAdvisoryDatabase(), this.businessLogic.getJobQueue() );
 			basicServer.start();
 			logger.info( "Server started" );
 		}
@@ -547,9 +568,18 @@ public class Start extends Application {
 		grid.add( passwordTextField, 1, row++, colSpan, rowSpan );
 		passwordTextField.setPromptText( "This is not saved to the database." );
 		fillOutPassword( profiles, profileChoiceBox.getSelectionModel().getSelectedItem(), passwordTextField );
+		businessLogic.prewarmConnection( profileChoiceBox.getSelectionModel().getSelectedItem().getId(), passwordTextField.getText() );
 
 		profileChoiceBox.setOnAction( event -> {
 			fillOutPassword( profiles, profileChoiceBox.getSelectionModel().getSelectedItem(), passwordTextField );
+			businessLogic.prewarmConnection( profileChoiceBox.getSelectionModel().getSelectedItem().getId(), passwordTextField.getText() );
+		});
+
+		//	once the password has been typed the pre-warmed connection can be logged in too
+		passwordTextField.focusedProperty().addListener( ( observable, wasFocused, isFocused ) -> {
+			if ( !isFocused && passwordTextField.getText().length() > 0 ) {
+				businessLogic.prewarmConnection( profileChoiceBox.getSelectionModel().getSelectedItem().getId(), passwordTextField.getText() );
+			}
 		});
 
 		Button btnCancel = new Button( "Cancel" );
@@ -578,23 +608,18 @@ public class Start extends Application {
 	}
 
 	protected void onClickSetup() {
-		List<IInstallable> installables = new ArrayList<IInstallable>( 2 );
-
-		for ( int majorVersion = 10; majorVersion <= 11; majorVersion++ ) {
-			List<IInstallationInstruction> installationInstructions = new ArrayList<IInstallationInstruction>();
-			installationInstructions.add( new InstallationInstruction( InstallationInstructionType.COMPOSER_NAMESPACE, "drupal/sheephole_helper" ) );
-
-			IInstallable installable = new Installable( "Sheephole helper",
-														"https://www.drupal.org/project/sheephole_helper",
-														"sheephole_helper",
-														"This Project Browser add-on lets you install Drupal modules the right way (using composer) without having to learn SSH or the command line. And without creating an unsafe configuration.",
-														PlatformType.DRUPAL,
-														new BasicInstallableVersion( new Semver( majorVersion + ".0.0" ) ),
-														installationInstructions );
-			installables.add( installable );
-		}
-
-		onClickComposerInstall( installables );
+		List<IInstallationInstruction> installationInstructions = new ArrayList<IInstallationInstruction>();
+		installationInstructions.add( new InstallationInstruction( InstallationInstructionType.COMPOSER_NAMESPACE, "drupal/sheephole_helper" ) );
+
+		IInstallable installable = new Installable( "Sheephole helper",
+													"https://www.drupal.org/project/sheephole_helper",
+													"sheephole_helper",
+													"This Project Browser add-on lets you install Drupal modules the right way (using composer) without having to learn SSH or the command line. And without creating an unsafe configuration.",
+													PlatformType.DRUPAL,
+													new MajorVersionSet( 10, 11 ),
+													installationInstructions );
+
+		onClickComposerInstall( Arrays.asList( installable ) );
 	}
 
 	protected void onClickHelpAbout() {
@@ -682,7 +707,7 @@ public class Start extends Application {
 		profile.setPassword( password );
 
 		for ( IInstallable installable : installables ) {
-			System.out.println( "THEY ARE " + installable.getSummary() + ", it is " + profile );
+			logger.debug( "candidate {} for profile {}", () -> installable.getSummary(), () -> profile );
 		}
 
 		IInstallable matchingInstallable = null;
@@ -700,7 +725,7 @@ public class Start extends Application {
 
 		res = businessLogic.installInstallable( matchingInstallable, profile, password );
 
-		setStatus( "" + res );
+		setStatus( res.getType() == OperationResultType.SUCCESS ? "Queued: " + res.getData() : "" + res );
 	}
 
 	protected void handleUpdateEvent( String password, MenuOption selected ) {
@@ -727,7 +752,7 @@ public class Start extends Application {
 
 		res = businessLogic.composerUpdate( profile, password );
 
-		setStatus( "" + res );
+		setStatus( res.getType() == OperationResultType.SUCCESS ? "Queued: " + res.getData() : "" + res );
 	}
 
 	protected void fillOutPassword( List<SiteProfile> profiles, MenuOption selected, TextField textField ) {
@@ -742,6 +767,876 @@ public class Start extends Application {
 		}
 	}
 
+	protected void onClickRefreshCatalog() {
+		setStatus( "Refreshing module list..." );
+
+		new Thread( () -> {
+			IOperationResult res = businessLogic.refreshCatalog();
+
+			Platform.runLater( () -> {
+				if ( res.getType() == OperationResultType.SUCCESS ) {
+					setStatus( "Module list refreshed, " + res.getData() + " projects added or updated" );
+				}
+				else {
+					setStatus( "" + res );
+				}
+			});
+		}, "catalog-refresh" ).start();
+	}
+
+	protected void onClickPlanUpdates() {
+		setStatus( "" );
+
+		var lastPlan = new Object(){ FleetUpdatePlan value = null; };
+		int row = 0;
+		int colSpan = 2;
+		int rowSpan = 1;
+
+		GridPane grid = new GridPane();
+		grid.setAlignment( Pos.CENTER );
+		grid.setHgap( 10 );
+		grid.setVgap( 10 );
+		grid.setPadding( new Insets( 25, 25, 25, 25 ) );
+		Text title = new Text( "Update all sites" );
+		title.setFont( Font.font( "Tahoma", FontWeight.NORMAL, 20 ) );
+		grid.add( title, 0, row++, 2, 1 );
+
+		grid.add( new Label( "Password:" ), 0, row );
+		TextField passwordTextField = new PasswordField();
+		grid.add( passwordTextField, 1, row++, colSpan, rowSpan );
+		passwordTextField.setPromptText( "For profiles without one; leave empty to use SSH keys." );
+
+		ListView<String> changeListView = new ListView<String>();
+		changeListView.setPrefHeight( 250 );
+		changeListView.setPrefWidth( 600 );
+		grid.add( changeListView, 0, row++, colSpan + 1, rowSpan );
+
+		Button btnCancel = new Button( "Close" );
+		Button btnPlan = new Button( "Check for updates" );
+		Button btnApply = new Button( "Update" );
+		btnApply.setDisable( true );
+		HBox hbBtn = new HBox( 10 );
+		hbBtn.setAlignment( Pos.BOTTOM_RIGHT );
+		hbBtn.getChildren().add( btnCancel );
+		hbBtn.getChildren().add( btnPlan );
+		hbBtn.getChildren().add( btnApply );
+		grid.add( hbBtn, 1, row++ );
+
+		btnCancel.setOnAction( new EventHandler<ActionEvent>() {
+			@Override
+			public void handle( ActionEvent e ) {
+				clearContentPane();
+			}
+		});
+
+		btnPlan.setOnAction( new EventHandler<ActionEvent>() {
+			@Override
+			public void handle( ActionEvent e ) {
+				String password = passwordTextField.getText();
+				btnPlan.setDisable( true );
+				btnApply.setDisable( true );
+				setStatus( "Running composer update --dry-run on every site..." );
+
+				new Thread( () -> {
+					IOperationResult res = businessLogic.planComposerUpdates( password.length() > 0 ? password : null );
+
+					Platform.runLater( () -> {
+						btnPlan.setDisable( false );
+						changeListView.getItems().clear();
+
+						if ( res.getType() != OperationResultType.SUCCESS ) {
+							setStatus( "" + res );
+							return;
+						}
+
+						FleetUpdatePlan plan = (FleetUpdatePlan) res.getData();
+						lastPlan.value = plan;
+
+						for ( Map.Entry<String,List<String>> entry : plan.getChanges().entrySet() ) {
+							changeListView.getItems().add( entry.getKey() + " on " + entry.getValue().size() + " sites: " + String.join( ", ", entry.getValue() ) );
+						}
+						for ( UpdatePlan failed : plan.getFailed() ) {
+							changeListView.getItems().add( "Not checked: " + failed );
+						}
+
+						int pending = plan.getPending().size();
+						btnApply.setText( "Update " + pending + " sites" );
+						btnApply.setDisable( pending < 1 );
+						setStatus( "" + plan );
+					});
+				}, "update-plan" ).start();
+			}
+		});
+
+		btnApply.setOnAction( new EventHandler<ActionEvent>() {
+			@Override
+			public void handle( ActionEvent e ) {
+				FleetUpdatePlan plan = lastPlan.value;
+				if ( plan == null ) {
+					return;
+				}
+
+				String password = passwordTextField.getText();
+				btnPlan.setDisable( true );
+				btnApply.setDisable( true );
+				setStatus( "Queueing updates for " + plan.getPending().size() + " sites..." );
+
+				new Thread( () -> {
+					IOperationResult res = businessLogic.applyComposerUpdates( plan, password.length() > 0 ? password : null );
+
+					Platform.runLater( () -> {
+						btnPlan.setDisable( false );
+						lastPlan.value = null;
+						if ( res.getType() == OperationResultType.SUCCESS ) {
+							setStatus( "Queued updates for " + ( (List<?>) res.getData() ).size() + " sites; see Jobs for progress" );
+						}
+						else {
+							setStatus( "" + res );
+						}
+					});
+				}, "update-apply" ).start();
+			}
+		});
+
+		setContentPane( grid );
+	}
+
+	protected void onClickInstalledPackages() {
+		setStatus( "" );
+
+		IFleetInventory inventory = businessLogic.getInventory();
+		int row = 0;
+		int colSpan = 2;
+		int rowSpan = 1;
+
+		GridPane grid = new GridPane();
+		grid.setAlignment( Pos.CENTER );
+		grid.setHgap( 10 );
+		grid.setVgap( 10 );
+		grid.setPadding( new Insets( 25, 25, 25, 25 ) );
+		Text title = new Text( "Installed packages" );
+		title.setFont( Font.font( "Tahoma", FontWeight.NORMAL, 20 ) );
+		grid.add( title, 0, row++, 2, 1 );
+
+		grid.add( new Label( "Password:" ), 0, row );
+		TextField passwordTextField = new PasswordField();
+		grid.add( passwordTextField, 1, row++, colSpan, rowSpan );
+		passwordTextField.setPromptText( "For profiles without one; leave empty to use SSH keys." );
+
+		grid.add( new Label( "Package:" ), 0, row );
+		TextField searchTextField = new TextField();
+		grid.add( searchTextField, 1, row++, colSpan, rowSpan );
+		searchTextField.setPromptText( "e.g. drupal/token" );
+
+		ListView<String> packageListView = new ListView<String>();
+		packageListView.setPrefHeight( 200 );
+		grid.add( packageListView, 0, row, 1, rowSpan );
+
+		ListView<String> siteListView = new ListView<String>();
+		siteListView.setPrefHeight( 200 );
+		grid.add( siteListView, 1, row++, colSpan, rowSpan );
+
+		Button btnCancel = new Button( "Close" );
+		Button btnRefresh = new Button( "Read from sites" );
+		HBox hbBtn = new HBox( 10 );
+		hbBtn.setAlignment( Pos.BOTTOM_RIGHT );
+		hbBtn.getChildren().add( btnCancel );
+		hbBtn.getChildren().add( btnRefresh );
+		grid.add( hbBtn, 1, row++ );
+
+		Runnable showPackages = () -> {
+			packageListView.getItems().setAll( inventory.searchPackages( searchTextField.getText().trim() ) );
+			siteListView.getItems().clear();
+		};
+
+		searchTextField.textProperty().addListener( ( observable, oldValue, newValue ) -> showPackages.run() );
+
+		packageListView.getSelectionModel().selectedItemProperty().addListener( ( observable, oldValue, newValue ) -> {
+			siteListView.getItems().clear();
+			if ( newValue == null ) {
+				return;
+			}
+
+			for ( Map.Entry<Long,String> entry : inventory.findPackage( newValue ).entrySet() ) {
+				ISiteInventory site = inventory.getSite( entry.getKey() );
+				siteListView.getItems().add( ( site != null ? site.getTitle() : "" + entry.getKey() ) + ": " + entry.getValue() );
+			}
+		});
+
+		btnCancel.setOnAction( new EventHandler<ActionEvent>() {
+			@Override
+			public void handle( ActionEvent e ) {
+				clearContentPane();
+			}
+		});
+
+		btnRefresh.setOnAction( new EventHandler<ActionEvent>() {
+			@Override
+			public void handle( ActionEvent e ) {
+				String password = passwordTextField.getText();
+				btnRefresh.setDisable( true );
+				setStatus( "Reading composer.lock from every site..." );
+
+				new Thread( () -> {
+					IOperationResult res = businessLogic.refreshInventory( password.length() > 0 ? password : null );
+
+					Platform.runLater( () -> {
+						btnRefresh.setDisable( false );
+						if ( res.getType() == OperationResultType.SUCCESS ) {
+							FleetInventory.Refresh refresh = (FleetInventory.Refresh) res.getData();
+							String msg = "Installed packages: " + refresh;
+							if ( !refresh.getFailures().isEmpty() ) {
+								msg += " (" + String.join( ", ", refresh.getFailures().keySet() ) + ")";
+							}
+							setStatus( msg );
+							showPackages.run();
+						}
+						else {
+							setStatus( "" + res );
+						}
+					});
+				}, "inventory-refresh" ).start();
+			}
+		});
+
+		showPackages.run();
+		setStatus( inventory.getSites().size() + " sites in the inventory" );
+
+		setContentPane( grid );
+	}
+
+	protected void onClickSecurityAdvisories() {
+		setStatus( "" );
+
+		int row = 0;
+		int colSpan = 2;
+		int rowSpan = 1;
+
+		GridPane grid = new GridPane();
+		grid.setAlignment( Pos.CENTER );
+		grid.setHgap( 10 );
+		grid.setVgap( 10 );
+		grid.setPadding( new Insets( 25, 25, 25, 25 ) );
+		Text title = new Text( "Security advisories" );
+		title.setFont( Font.font( "Tahoma", FontWeight.NORMAL, 20 ) );
+		grid.add( title, 0, row++, 2, 1 );
+
+		grid.add( new Label( "Password:" ), 0, row );
+		TextField passwordTextField = new PasswordField();
+		grid.add( passwordTextField, 1, row++, colSpan, rowSpan );
+		passwordTextField.setPromptText( "For profiles without one; leave empty to use SSH keys." );
+
+		ListView<AdvisoryReport.Finding> findingListView = new ListView<AdvisoryReport.Finding>();
+		findingListView.setPrefHeight( 250 );
+		findingListView.setPrefWidth( 600 );
+		grid.add( findingListView, 0, row++, colSpan + 1, rowSpan );
+
+		Button btnCancel = new Button( "Close" );
+		Button btnCheck = new Button( "Read sites and check" );
+		HBox hbBtn = new HBox( 10 );
+		hbBtn.setAlignment( Pos.BOTTOM_RIGHT );
+		hbBtn.getChildren().add( btnCancel );
+		hbBtn.getChildren().add( btnCheck );
+		grid.add( hbBtn, 1, row++ );
+
+		btnCancel.setOnAction( new EventHandler<ActionEvent>() {
+			@Override
+			public void handle( ActionEvent e ) {
+				clearContentPane();
+			}
+		});
+
+		btnCheck.setOnAction( new EventHandler<ActionEvent>() {
+			@Override
+			public void handle( ActionEvent e ) {
+				String password = passwordTextField.getText();
+				btnCheck.setDisable( true );
+				setStatus( "Checking every site against the security advisories..." );
+
+				new Thread( () -> {
+					IOperationResult res = businessLogic.checkAdvisories( true, password.length() > 0 ? password : null );
+
+					Platform.runLater( () -> {
+						btnCheck.setDisable( false );
+						if ( res.getType() == OperationResultType.SUCCESS ) {
+							AdvisoryReport report = (AdvisoryReport) res.getData();
+							findingListView.getItems().setAll( report.getFindings() );
+							setStatus( "" + report );
+						}
+						else {
+							setStatus( "" + res );
+						}
+					});
+				}, "advisory-check" ).start();
+			}
+		});
+
+		//	what the last collection and the stored advisories already say, without touching the network
+		AdvisoryReport cached = AdvisoryReport.check( businessLogic.getInventory(), businessLogic.getAdvisoryDatabase(), -1 );
+		findingListView.getItems().setAll( cached.getFindings() );
+		setStatus( "" + cached );
+
+		setContentPane( grid );
+	}
+
+	protected void onClickJobs() {
+		setStatus( "" );
+
+		int row = 0;
+		int colSpan = 2;
+		int rowSpan = 1;
+
+		GridPane grid = new GridPane();
+		grid.setAlignment( Pos.CENTER );
+		grid.setHgap( 10 );
+		grid.setVgap( 10 );
+		grid.setPadding( new Insets( 25, 25, 25, 25 ) );
+		Text title = new Text( "Jobs" );
+		title.setFont( Font.font( "Tahoma", FontWeight.NORMAL, 20 ) );
+		grid.add( title, 0, row++, 2, 1 );
+
+		grid.add( new Label( "Password:" ), 0, row );
+		TextField passwordTextField = new PasswordField();
+		grid.add( passwordTextField, 1, row++, colSpan, rowSpan );
+		passwordTextField.setPromptText( "For retrying; leave empty to use the profile's or SSH keys." );
+
+		ListView<IJob> jobListView = new ListView<IJob>();
+		jobListView.setPrefHeight( 250 );
+		jobListView.setPrefWidth( 600 );
+		grid.add( jobListView, 0, row++, colSpan + 1, rowSpan );
+
+		Button btnCancel = new Button( "Close" );
+		Button btnRefresh = new Button( "Refresh" );
+		Button btnRetry = new Button( "Retry selected" );
+		btnRetry.setDisable( true );
+		HBox hbBtn = new HBox( 10 );
+		hbBtn.setAlignment( Pos.BOTTOM_RIGHT );
+		hbBtn.getChildren().add( btnCancel );
+		hbBtn.getChildren().add( btnRefresh );
+		hbBtn.getChildren().add( btnRetry );
+		grid.add( hbBtn, 1, row++ );
+
+		Runnable showJobs = () -> {
+			IOperationResult res = businessLogic.getJobs( 200 );
+			if ( res.getType() != OperationResultType.SUCCESS ) {
+				setStatus( "" + res );
+				return;
+			}
+
+			List<IJob> jobs = (List<IJob>) res.getData();
+			jobListView.getItems().setAll( jobs );
+			setStatus( jobs.size() + " recent jobs" );
+		};
+
+		jobListView.getSelectionModel().selectedItemProperty().addListener( ( observable, oldValue, newValue ) -> {
+			btnRetry.setDisable( newValue == null || newValue.getState() != JobState.FAILED );
+		});
+
+		btnCancel.setOnAction( new EventHandler<ActionEvent>() {
+			@Override
+			public void handle( ActionEvent e ) {
+				clearContentPane();
+			}
+		});
+
+		btnRefresh.setOnAction( new EventHandler<ActionEvent>() {
+			@Override
+			public void handle( ActionEvent e ) {
+				showJobs.run();
+			}
+		});
+
+		btnRetry.setOnAction( new EventHandler<ActionEvent>() {
+			@Override
+			public void handle( ActionEvent e ) {
+				IJob selected = jobListView.getSelectionModel().getSelectedItem();
+				if ( selected == null ) {
+					return;
+				}
+
+				String password = passwordTextField.getText();
+				IOperationResult res = businessLogic.retryJob( selected.getId(), password.length() > 0 ? password : null );
+
+				showJobs.run();
+				setStatus( res.getType() == OperationResultType.SUCCESS ? "Queued: " + res.getData() : "" + res );
+			}
+		});
+
+		showJobs.run();
+
+		setContentPane( grid );
+	}
+
+	/**
+	 * Phase times per site and per host. A host is marked slow when its p95 total is more than
+	 * twice the median of all the hosts' p95 totals.
+	 */
+	protected void onClickOperationTimings() {
+		setStatus( "" );
+
+		int row = 0;
+		int colSpan = 2;
+		int rowSpan = 1;
+
+		GridPane grid = new GridPane();
+		grid.setAlignment( Pos.CENTER );
+		grid.setHgap( 10 );
+		grid.setVgap( 10 );
+		grid.setPadding( new Insets( 25, 25, 25, 25 ) );
+		Text title = new Text( "Operation timings" );
+		title.setFont( Font.font( "Tahoma", FontWeight.NORMAL, 20 ) );
+		grid.add( title, 0, row++, 2, 1 );
+
+		final ChoiceBox<Integer> daysChoiceBox = new ChoiceBox<>( FXCollections.observableArrayList( 1, 7, 30, 90 ) );
+		daysChoiceBox.setValue( 30 );
+		grid.add( new Label( "Days:" ), 0, row );
+		grid.add( daysChoiceBox, 1, row++, colSpan, rowSpan );
+
+		grid.add( new Label( "Sites (p50/p95 ms):" ), 0, row++, colSpan + 1, rowSpan );
+		ListView<String> siteListView = new ListView<String>();
+		siteListView.setPrefHeight( 200 );
+		siteListView.setPrefWidth( 700 );
+		grid.add( siteListView, 0, row++, colSpan + 1, rowSpan );
+
+		grid.add( new Label( "Hosts (p50/p95 ms):" ), 0, row++, colSpan + 1, rowSpan );
+		ListView<String> hostListView = new ListView<String>();
+		hostListView.setPrefHeight( 150 );
+		hostListView.setPrefWidth( 700 );
+		grid.add( hostListView, 0, row++, colSpan + 1, rowSpan );
+
+		Button btnCancel = new Button( "Close" );
+		Button btnRefresh = new Button( "Refresh" );
+		HBox hbBtn = new HBox( 10 );
+		hbBtn.setAlignment( Pos.BOTTOM_RIGHT );
+		hbBtn.getChildren().add( btnCancel );
+		hbBtn.getChildren().add( btnRefresh );
+		grid.add( hbBtn, 1, row++ );
+
+		Runnable showTimings = () -> {
+			int days = daysChoiceBox.getValue();
+
+			IOperationResult siteRes = businessLogic.getTimingSummaries( false, days );
+			IOperationResult hostRes = businessLogic.getTimingSummaries( true, days );
+			if ( siteRes.getType() != OperationResultType.SUCCESS || hostRes.getType() != OperationResultType.SUCCESS ) {
+				setStatus( "" + ( siteRes.getType() != OperationResultType.SUCCESS ? siteRes : hostRes ) );
+				return;
+			}
+
+			Map<Long,String> titles = new HashMap<Long,String>();
+			IOperationResult profileRes = businessLogic.getProfiles();
+			if ( profileRes.getType() == OperationResultType.SUCCESS ) {
+				for ( SiteProfile profile : (List<SiteProfile>) profileRes.getData() ) {
+					titles.put( profile.getId(), profile.getTitle() );
+				}
+			}
+
+			List<String> siteLines = new ArrayList<String>();
+			for ( ITimingSummary summary : (List<ITimingSummary>) siteRes.getData() ) {
+				String name = titles.getOrDefault( summary.getProfileId(), "profile " + summary.getProfileId() );
+				siteLines.add( formatTimingSummary( name + " (" + summary.getHost() + ")", summary ) );
+			}
+
+			List<ITimingSummary> hostSummaries = (List<ITimingSummary>) hostRes.getData();
+			long[] totals = hostSummaries.stream().mapToLong( summary -> summary.getP95( OperationPhase.TOTAL ) ).sorted().toArray();
+			long median = totals.length > 0 ? totals[ totals.length / 2 ] : 0;
+
+			List<String> hostLines = new ArrayList<String>();
+			int slow = 0;
+			for ( ITimingSummary summary : hostSummaries ) {
+				boolean isSlow = totals.length > 1 && summary.getCount() >= 3 && summary.getP95( OperationPhase.TOTAL ) > 2 * median;
+				if ( isSlow ) {
+					slow++;
+				}
+
+				hostLines.add( ( isSlow ? "SLOW " : "" ) + formatTimingSummary( summary.getHost(), summary ) );
+			}
+
+			siteListView.getItems().setAll( siteLines );
+			hostListView.getItems().setAll( hostLines );
+			setStatus( siteLines.size() + " sites, " + hostLines.size() + " hosts, " + slow + " slow" );
+		};
+
+		daysChoiceBox.setOnAction( e -> showTimings.run() );
+
+		btnCancel.setOnAction( new EventHandler<ActionEvent>() {
+			@Override
+			public void handle( ActionEvent e ) {
+				clearContentPane();
+			}
+		});
+
+		btnRefresh.setOnAction( new EventHandler<ActionEvent>() {
+			@Override
+			public void handle( ActionEvent e ) {
+				showTimings.run();
+			}
+		});
+
+		showTimings.run();
+
+		setContentPane( grid );
+	}
+
+	protected String formatTimingSummary( String name, ITimingSummary summary ) {
+		StringBuilder sb = new StringBuilder( name );
+
+		sb.append( ", " ).append( summary.getCount() ).append( " runs:" );
+		for ( OperationPhase phase : OperationPhase.values() ) {
+			if ( summary.getP50( phase ) >= 0 ) {
+				sb.append( "  " ).append( phase.name().toLowerCase() ).append( ' ' ).append( summary.getP50( phase ) ).append( '/' ).append( summary.getP95( phase ) );
+			}
+		}
+
+		return sb.toString();
+	}
+
+	protected void onClickMaintenanceWindows() {
+		IOperationResult res;
+		int row = 0;
+		int colSpan = 2;
+		int rowSpan = 1;
+
+		res = businessLogic.getProfiles();
+		if ( res.getType() != OperationResultType.SUCCESS ) {
+			clearContentPane();
+			setStatus( "" + res );
+			return;
+		}
+
+		List<SiteProfile> profiles = (List<SiteProfile>) res.getData();
+		if ( profiles.size() < 1 ) {
+			clearContentPane();
+			setStatus( "You need to create a profile first" );
+			return;
+		}
+
+		GridPane grid = new GridPane();
+		grid.setAlignment( Pos.CENTER );
+		grid.setHgap( 10 );
+		grid.setVgap( 10 );
+		grid.setPadding( new Insets( 25, 25, 25, 25 ) );
+		Text title = new Text( "Maintenance windows" );
+		title.setFont( Font.font( "Tahoma", FontWeight.NORMAL, 20 ) );
+		grid.add( title, 0, row++, 2, 1 );
+
+		final ChoiceBox<MenuOption> profileChoiceBox = new ChoiceBox<>( profilesToMenuOptions( profiles ) );
+		grid.add( new Label( "Profile:" ), 0, row );
+		grid.add( profileChoiceBox, 1, row++, colSpan, rowSpan );
+
+		grid.add( new Label( "Starts at (cron):" ), 0, row );
+		TextField cronTextField = new TextField();
+		grid.add( cronTextField, 1, row++, colSpan, rowSpan );
+		cronTextField.setPromptText( "minute hour day month weekday, e.g. 0 3 * * *" );
+
+		grid.add( new Label( "Time zone:" ), 0, row );
+		TextField zoneTextField = new TextField();
+		grid.add( zoneTextField, 1, row++, colSpan, rowSpan );
+		zoneTextField.setPromptText( "e.g. America/New_York; leave empty for this computer's" );
+
+		grid.add( new Label( "Spread over (minutes):" ), 0, row );
+		TextField jitterTextField = new TextField();
+		grid.add( jitterTextField, 1, row++, colSpan, rowSpan );
+
+		CheckBox enabledCheckBox = new CheckBox( "Run composer update in this window" );
+		grid.add( enabledCheckBox, 1, row++, colSpan, rowSpan );
+
+		ListView<String> historyListView = new ListView<String>();
+		historyListView.setPrefHeight( 200 );
+		historyListView.setPrefWidth( 600 );
+		grid.add( historyListView, 0, row++, colSpan + 1, rowSpan );
+
+		Button btnCancel = new Button( "Close" );
+		Button btnRemove = new Button( "Remove" );
+		Button btnSave = new Button( "Save" );
+		HBox hbBtn = new HBox( 10 );
+		hbBtn.setAlignment( Pos.BOTTOM_RIGHT );
+		hbBtn.getChildren().add( btnCancel );
+		hbBtn.getChildren().add( btnRemove );
+		hbBtn.getChildren().add( btnSave );
+		grid.add( hbBtn, 1, row++ );
+
+		Runnable showSelected = () -> {
+			MenuOption selected = profileChoiceBox.getSelectionModel().getSelectedItem();
+			if ( selected == null ) {
+				return;
+			}
+
+			IUpdateSchedule schedule = null;
+			try {
+				schedule = businessLogic.getScheduler().getSchedule( selected.getId() );
+			}
+			catch ( Exception e ) {
+				logger.catching( e );
+			}
+
+			cronTextField.setText( schedule != null ? schedule.getCron() : businessLogic.getPreferences().getValue( "schedule.default_cron" ) );
+			zoneTextField.setText( schedule != null ? schedule.getTimeZone() : "" );
+			jitterTextField.setText( "" + ( schedule != null ? schedule.getJitterMinutes() : businessLogic.getPreferences().getValue( "schedule.default_jitter_minutes" ) ) );
+			enabledCheckBox.setSelected( schedule == null || schedule.isEnabled() );
+			btnRemove.setDisable( schedule == null );
+
+			historyListView.getItems().clear();
+			if ( schedule != null ) {
+				historyListView.getItems().add( "Schedule: " + schedule );
+			}
+
+			IOperationResult historyRes = businessLogic.getOperationHistory( selected.getId(), 100 );
+			if ( historyRes.getType() == OperationResultType.SUCCESS ) {
+				for ( IOperationRecord record : (List<IOperationRecord>) historyRes.getData() ) {
+					historyListView.getItems().add( "" + record );
+				}
+			}
+		};
+
+		profileChoiceBox.getSelectionModel().selectedItemProperty().addListener( ( observable, oldValue, newValue ) -> showSelected.run() );
+
+		btnCancel.setOnAction( new EventHandler<ActionEvent>() {
+			@Override
+			public void handle( ActionEvent e ) {
+				clearContentPane();
+			}
+		});
+
+		btnRemove.setOnAction( new EventHandler<ActionEvent>() {
+			@Override
+			public void handle( ActionEvent e ) {
+				IOperationResult res = businessLogic.loadProfileById( profileChoiceBox.getSelectionModel().getSelectedItem().getId() );
+				if ( res.getType() != OperationResultType.SUCCESS ) {
+					setStatus( "No such profile found" );
+					return;
+				}
+
+				res = businessLogic.removeUpdateSchedule( (ISiteProfile) res.getData() );
+				setStatus( res.getType() == OperationResultType.SUCCESS ? "Schedule removed" : "" + res );
+				showSelected.run();
+			}
+		});
+
+		btnSave.setOnAction( new EventHandler<ActionEvent>() {
+			@Override
+			public void handle( ActionEvent e ) {
+				int jitter;
+				try {
+					jitter = Integer.parseInt( jitterTextField.getText().trim() );
+				}
+				catch ( NumberFormatException ex ) {
+					setStatus( "The spread must be a number of minutes" );
+					return;
+				}
+
+				IOperationResult res = businessLogic.loadProfileById( profileChoiceBox.getSelectionModel().getSelectedItem().getId() );
+				if ( res.getType() != OperationResultType.SUCCESS ) {
+					setStatus( "No such profile found" );
+					return;
+				}
+
+				res = businessLogic.setUpdateSchedule( (ISiteProfile) res.getData(), cronTextField.getText(), zoneTextField.getText(), jitter, enabledCheckBox.isSelected() );
+				setStatus( res.getType() == OperationResultType.SUCCESS ? "Saved: " + res.getData() : "" + res );
+				showSelected.run();
+			}
+		});
+
+		profileChoiceBox.getSelectionModel().select( 0 );
+
+		setContentPane( grid );
+	}
+
+	protected void onClickSSHTransport() {
+		IOperationResult res;
+		int row = 0;
+		int colSpan = 2;
+		int rowSpan = 1;
+
+		res = businessLogic.getProfiles();
+		if ( res.getType() != OperationResultType.SUCCESS ) {
+			clearContentPane();
+			setStatus( "" + res );
+			return;
+		}
+
+		List<SiteProfile> profiles = (List<SiteProfile>) res.getData();
+		if ( profiles.size() < 1 ) {
+			clearContentPane();
+			setStatus( "You need to create a profile first" );
+			return;
+		}
+
+		GridPane grid = new GridPane();
+		grid.setAlignment( Pos.CENTER );
+		grid.setHgap( 10 );
+		grid.setVgap( 10 );
+		grid.setPadding( new Insets( 25, 25, 25, 25 ) );
+		Text title = new Text( "SSH transport" );
+		title.setFont( Font.font( "Tahoma", FontWeight.NORMAL, 20 ) );
+		grid.add( title, 0, row++, 2, 1 );
+
+		final ChoiceBox<MenuOption> profileChoiceBox = new ChoiceBox<>( profilesToMenuOptions( profiles ) );
+		grid.add( new Label( "Profile:" ), 0, row );
+		grid.add( profileChoiceBox, 1, row++, colSpan, rowSpan );
+
+		CheckBox compressionCheckBox = new CheckBox( "Compress traffic (helps on slow links)" );
+		grid.add( compressionCheckBox, 1, row++, colSpan, rowSpan );
+
+		grid.add( new Label( "Preferred ciphers:" ), 0, row );
+		TextField ciphersTextField = new TextField();
+		grid.add( ciphersTextField, 1, row++, colSpan, rowSpan );
+		ciphersTextField.setPromptText( "e.g. " + TransportBenchmark.CHACHA20 + "; leave empty for the defaults" );
+
+		grid.add( new Label( "Preferred key exchange:" ), 0, row );
+		TextField kexTextField = new TextField();
+		grid.add( kexTextField, 1, row++, colSpan, rowSpan );
+		kexTextField.setPromptText( "e.g. curve25519-sha256; leave empty for the defaults" );
+
+		grid.add( new Label( "Keepalive (seconds):" ), 0, row );
+		TextField keepAliveTextField = new TextField();
+		grid.add( keepAliveTextField, 1, row++, colSpan, rowSpan );
+
+		grid.add( new Label( "Connect timeout (seconds):" ), 0, row );
+		TextField connectTimeoutTextField = new TextField();
+		grid.add( connectTimeoutTextField, 1, row++, colSpan, rowSpan );
+
+		grid.add( new Label( "Command timeout (seconds):" ), 0, row );
+		TextField commandTimeoutTextField = new TextField();
+		grid.add( commandTimeoutTextField, 1, row++, colSpan, rowSpan );
+
+		grid.add( new Label( "Password:" ), 0, row );
+		TextField passwordTextField = new PasswordField();
+		grid.add( passwordTextField, 1, row++, colSpan, rowSpan );
+		passwordTextField.setPromptText( "For the benchmark; leave empty to use the profile's or SSH keys." );
+
+		ListView<TransportMeasurement> measurementListView = new ListView<TransportMeasurement>();
+		measurementListView.setPrefHeight( 200 );
+		measurementListView.setPrefWidth( 700 );
+		grid.add( measurementListView, 0, row++, colSpan + 1, rowSpan );
+
+		Button btnCancel = new Button( "Close" );
+		Button btnBenchmark = new Button( "Benchmark" );
+		Button btnUse = new Button( "Use selected" );
+		Button btnSave = new Button( "Save" );
+		btnUse.setDisable( true );
+		HBox hbBtn = new HBox( 10 );
+		hbBtn.setAlignment( Pos.BOTTOM_RIGHT );
+		hbBtn.getChildren().add( btnCancel );
+		hbBtn.getChildren().add( btnBenchmark );
+		hbBtn.getChildren().add( btnUse );
+		hbBtn.getChildren().add( btnSave );
+		grid.add( hbBtn, 1, row++ );
+
+		Consumer<ISSHTransportSettings> showSettings = ( settings ) -> {
+			compressionCheckBox.setSelected( settings.isCompression() );
+			ciphersTextField.setText( String.join( ", ", settings.getCiphers() ) );
+			kexTextField.setText( String.join( ", ", settings.getKeyExchanges() ) );
+			keepAliveTextField.setText( "" + settings.getKeepAliveSeconds() );
+			connectTimeoutTextField.setText( "" + settings.getConnectTimeoutSeconds() );
+			commandTimeoutTextField.setText( "" + settings.getCommandTimeoutSeconds() );
+		};
+
+		Supplier<ISiteProfile> selectedProfile = () -> {
+			MenuOption selected = profileChoiceBox.getSelectionModel().getSelectedItem();
+			if ( selected == null ) {
+				return null;
+			}
+
+			IOperationResult profileRes = businessLogic.loadProfileById( selected.getId() );
+			if ( profileRes.getType() != OperationResultType.SUCCESS ) {
+				setStatus( "No such profile found" );
+				return null;
+			}
+
+			return (ISiteProfile) profileRes.getData();
+		};
+
+		profileChoiceBox.getSelectionModel().selectedItemProperty().addListener( ( observable, oldValue, newValue ) -> {
+			ISiteProfile profile = selectedProfile.get();
+			if ( profile != null ) {
+				showSettings.accept( profile.getTransportSettings() );
+			}
+			measurementListView.getItems().clear();
+		});
+
+		measurementListView.getSelectionModel().selectedItemProperty().addListener( ( observable, oldValue, newValue ) -> {
+			btnUse.setDisable( newValue == null || newValue.getError() != null );
+		});
+
+		btnCancel.setOnAction( new EventHandler<ActionEvent>() {
+			@Override
+			public void handle( ActionEvent e ) {
+				clearContentPane();
+			}
+		});
+
+		btnUse.setOnAction( new EventHandler<ActionEvent>() {
+			@Override
+			public void handle( ActionEvent e ) {
+				TransportMeasurement selected = measurementListView.getSelectionModel().getSelectedItem();
+				if ( selected != null ) {
+					showSettings.accept( selected.getSettings() );
+					setStatus( "Save to keep these settings" );
+				}
+			}
+		});
+
+		btnBenchmark.setOnAction( new EventHandler<ActionEvent>() {
+			@Override
+			public void handle( ActionEvent e ) {
+				ISiteProfile profile = selectedProfile.get();
+				if ( profile == null ) {
+					return;
+				}
+
+				String password = passwordTextField.getText();
+				btnBenchmark.setDisable( true );
+				setStatus( "Timing the transport settings against " + profile.getTitle() + "..." );
+
+				new Thread( () -> {
+					IOperationResult benchmarkRes = businessLogic.benchmarkTransport( profile, password.length() > 0 ? password : null );
+
+					Platform.runLater( () -> {
+						btnBenchmark.setDisable( false );
+						if ( benchmarkRes.getType() == OperationResultType.SUCCESS ) {
+							measurementListView.getItems().setAll( (List<TransportMeasurement>) benchmarkRes.getData() );
+							setStatus( "Fastest first; select one and click 'Use selected' to copy its settings" );
+						}
+						else {
+							setStatus( "" + benchmarkRes );
+						}
+					});
+				}, "transport-benchmark" ).start();
+			}
+		});
+
+		btnSave.setOnAction( new EventHandler<ActionEvent>() {
+			@Override
+			public void handle( ActionEvent e ) {
+				ISiteProfile profile = selectedProfile.get();
+				if ( profile == null ) {
+					return;
+				}
+
+				SSHTransportSettings settings;
+				try {
+					settings = new SSHTransportSettings( compressionCheckBox.isSelected(),
+															SSHTransportSettings.parseNames( ciphersTextField.getText() ),
+															SSHTransportSettings.parseNames( kexTextField.getText() ),
+															Integer.parseInt( keepAliveTextField.getText().trim() ),
+															Integer.parseInt( connectTimeoutTextField.getText().trim() ),
+															Integer.parseInt( commandTimeoutTextField.getText().trim() ) );
+				}
+				catch ( NumberFormatException ex ) {
+					setStatus( "The keepalive and timeouts must be numbers of seconds" );
+					return;
+				}
+
+				IOperationResult saveRes = businessLogic.saveTransportSettings( profile, settings );
+				setStatus( saveRes.getType() == OperationResultType.SUCCESS ? "Saved: " + settings : "" + saveRes );
+			}
+		});
+
+		profileChoiceBox.getSelectionModel().select( 0 );
+
+		setContentPane( grid );
+	}
+
 	protected MenuBar createMenuBar() {
 		MenuBar menuBar = new MenuBar();
 
@@ -764,6 +1659,10 @@ public class Start extends Application {
 		menuItemListProfiles.setOnAction( e -> onClickListProfiles() );
 		menuProfile.getItems().add( menuItemListProfiles );
 
+		MenuItem menuItemSSHTransport = new MenuItem( "SSH transport" );
+		menuItemSSHTransport.setOnAction( e -> onClickSSHTransport() );
+		menuProfile.getItems().add( menuItemSSHTransport );
+
 
 		Menu menuCommands = new Menu( "Commands" );
 		menuBar.getMenus().add( menuCommands );
@@ -776,10 +1675,38 @@ public class Start extends Application {
 		menuItemComposerUpdate.setOnAction( e -> onClickComposerUpdate() );
 		menuCommands.getItems().add( menuItemComposerUpdate );
 
+		MenuItem menuItemPlanUpdates = new MenuItem( "Update all sites" );
+		menuItemPlanUpdates.setOnAction( e -> onClickPlanUpdates() );
+		menuCommands.getItems().add( menuItemPlanUpdates );
+
 		MenuItem menuItemSetup = new MenuItem( "Setup" );
 		menuItemSetup.setOnAction( e -> onClickSetup() );
 		menuCommands.getItems().add( menuItemSetup );
 
+		MenuItem menuItemRefreshCatalog = new MenuItem( "Refresh module list" );
+		menuItemRefreshCatalog.setOnAction( e -> onClickRefreshCatalog() );
+		menuCommands.getItems().add( menuItemRefreshCatalog );
+
+		MenuItem menuItemInstalledPackages = new MenuItem( "Installed packages" );
+		menuItemInstalledPackages.setOnAction( e -> onClickInstalledPackages() );
+		menuCommands.getItems().add( menuItemInstalledPackages );
+
+		MenuItem menuItemSecurityAdvisories = new MenuItem( "Security advisories" );
+		menuItemSecurityAdvisories.setOnAction( e -> onClickSecurityAdvisories() );
+		menuCommands.getItems().add( menuItemSecurityAdvisories );
+
+		MenuItem menuItemJobs = new MenuItem( "Jobs" );
+		menuItemJobs.setOnAction( e -> onClickJobs() );
+		menuCommands.getItems().add( menuItemJobs );
+
+		MenuItem menuItemMaintenanceWindows = new MenuItem( "Maintenance windows" );
+		menuItemMaintenanceWindows.setOnAction( e -> onClickMaintenanceWindows() );
+		menuCommands.getItems().add( menuItemMaintenanceWindows );
+
+		MenuItem menuItemOperationTimings = new MenuItem( "Operation timings" );
+		menuItemOperationTimings.setOnAction( e -> onClickOperationTimings() );
+		menuCommands.getItems().add( menuItemOperationTimings );
+
 
 		Menu menuHelp = new Menu( "Help" );
 		menuBar.getMenus().add( menuHelp );
@@ -901,6 +1828,14 @@ public class Start extends Application {
 		});
 	}
 
+	@Subscribe
+	private void listen( JobChangedEvent event ) {
+		IJob job = event.getJob();
+		if ( job.getState() != JobState.QUEUED || job.getAttempts() > 0 ) {
+			Platform.runLater( () -> setStatus( "Job " + job ) );
+		}
+	}
+
 	public Start() throws Exception {
 		this.loggingTextArea = new TextArea();
 		TextAreaLogAppender.setTextArea( this.loggingTextArea );
@@ -13,6 +13,14 @@
  */
 package com.tolstoy.drupal.sheephole.app;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import javafx.application.Platform;
 import javafx.scene.control.TextArea;
 import org.apache.logging.log4j.core.*;
@@ -25,11 +33,27 @@ import org.apache.logging.log4j.core.layout.PatternLayout;
 
 @Plugin(name = "TextAreaLogAppender", category = Core.CATEGORY_NAME, elementType = Appender.ELEMENT_TYPE)
 public class TextAreaLogAppender extends AbstractAppender {
-	private static TextArea textArea;
+	private static final int DEFAULT_MAX_LINES = 1000;
+	private static final int DEFAULT_DRAIN_INTERVAL_MILLIS = 50;
+	private static final int RING_CAPACITY = 8192;
+
+	private static volatile TextArea textArea;
+
+	private final LogLineRingBuffer ring;
+	private final int maxLines;
+	private final int drainIntervalMillis;
+	private final AtomicBoolean drainPending;
+	private final ArrayDeque<Integer> visibleLineLengths;
+	private ScheduledExecutorService drainer;
 	private String lastMessage = null;
 
-	protected TextAreaLogAppender( String name, Filter filter ) {
+	protected TextAreaLogAppender( String name, Filter filter, int maxLines, int drainIntervalMillis ) {
 		super( name, filter, null );
+		this.maxLines = maxLines;
+		this.drainIntervalMillis = drainIntervalMillis;
+		this.ring = new LogLineRingBuffer( Math.max( RING_CAPACITY, maxLines ) );
+		this.drainPending = new AtomicBoolean( false );
+		this.visibleLineLengths = new ArrayDeque<Integer>( maxLines + 1 );
 	}
 
 	public static void setTextArea( TextArea textArea ) {
@@ -37,8 +61,40 @@ public class TextAreaLogAppender extends AbstractAppender {
 	}
 
 	@PluginFactory
-	public static TextAreaLogAppender createAppender( @PluginAttribute("name") String name, @PluginElement("Filter") Filter filter ) {
-		return new TextAreaLogAppender( name, filter );
+	public static TextAreaLogAppender createAppender( @PluginAttribute("name") String name,
+														@PluginAttribute(value = "maxLines", defaultInt = DEFAULT_MAX_LINES) int maxLines,
+														@PluginAttribute(value = "drainIntervalMillis", defaultInt = DEFAULT_DRAIN_INTERVAL_MILLIS) int drainIntervalMillis,
+														@PluginElement("Filter") Filter filter ) {
+		return new TextAreaLogAppender( name, filter, Math.max( 1, maxLines ), Math.max( 1, drainIntervalMillis ) );
+	}
+
+	@Override
+	public void start() {
+		drainer = Executors.newSingleThreadScheduledExecutor( r -> {
+			Thread thread = new Thread( r, "TextAreaLogAppender-drainer" );
+			thread.setDaemon( true );
+			return thread;
+		});
+
+		drainer.scheduleWithFixedDelay( this::scheduleDrain, drainIntervalMillis, drainIntervalMillis, TimeUnit.MILLISECONDS );
+
+		super.start();
+	}
+
+	@Override
+	public boolean stop( long timeout, TimeUnit timeUnit ) {
+		setStopping();
+
+		boolean stopped = super.stop( timeout, timeUnit, false );
+
+		if ( drainer != null ) {
+			drainer.shutdownNow();
+			drainer = null;
+		}
+
+		setStopped();
+
+		return stopped;
 	}
 
 	@Override
@@ -55,6 +111,75 @@ public class TextAreaLogAppender extends AbstractAppender {
 
 		lastMessage = msg;
 
-		Platform.runLater( () -> textArea.appendText( msg + "\n" ) );
+		ring.offer( msg );
+	}
+
+	private void scheduleDrain() {
+		if ( textArea == null || ring.isEmpty() ) {
+			return;
+		}
+
+		if ( drainPending.compareAndSet( false, true ) ) {
+			Platform.runLater( this::drainToTextArea );
+		}
+	}
+
+	private void drainToTextArea() {
+		try {
+			TextArea target = textArea;
+			if ( target == null ) {
+				return;
+			}
+
+			List<String> messages = new ArrayList<String>();
+			long skipped = ring.drainTo( messages );
+
+			//	maxLines counts lines, and one message, say a command's output, may hold many
+			List<String> lines = new ArrayList<String>( messages.size() + 1 );
+			if ( skipped > 0 ) {
+				lines.add( "... " + skipped + " log lines skipped ..." );
+			}
+
+			for ( String message : messages ) {
+				if ( message.indexOf( '\n' ) < 0 ) {
+					lines.add( message );
+				}
+				else {
+					for ( String line : message.split( "\\r?\\n", -1 ) ) {
+						lines.add( line );
+					}
+				}
+			}
+
+			//	no point appending lines that would be trimmed straight away
+			int first = Math.max( 0, lines.size() - maxLines );
+			if ( first > 0 ) {
+				target.clear();
+				visibleLineLengths.clear();
+			}
+
+			StringBuilder sb = new StringBuilder();
+			for ( int i = first; i < lines.size(); i++ ) {
+				String line = lines.get( i );
+				sb.append( line ).append( '\n' );
+				visibleLineLengths.addLast( line.length() + 1 );
+			}
+
+			if ( sb.length() > 0 ) {
+				target.appendText( sb.toString() );
+			}
+
+			int charsToTrim = 0;
+			while ( visibleLineLengths.size() > maxLines ) {
+				charsToTrim += visibleLineLengths.removeFirst();
+			}
+
+			if ( charsToTrim > 0 ) {
+				target.deleteText( 0, Math.min( charsToTrim, target.getLength() ) );
+			}
+		}
+		finally {
+			drainPending.set( false );
+		}
 	}
 }
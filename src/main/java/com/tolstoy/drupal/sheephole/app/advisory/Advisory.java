@@ -0,0 +1,144 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.advisory;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import org.json.JSONObject;
+
+import com.tolstoy.drupal.sheephole.api.advisory.IAdvisory;
+
+/**
+ * An advisory in the Packagist security advisories format.
+ */
+public class Advisory implements IAdvisory {
+	private static final DateTimeFormatter PACKAGIST_DATE = DateTimeFormatter.ofPattern( "yyyy-MM-dd HH:mm:ss" );
+
+	private final String id;
+	private final String packageName;
+	private final String title;
+	private final String link;
+	private final String cve;
+	private final String severity;
+	private final String affectedVersions;
+	private final long reportedAt;
+
+	public Advisory( String id, String packageName, String title, String link, String cve, String severity, String affectedVersions, long reportedAt ) {
+		this.id = id;
+		this.packageName = packageName;
+		this.title = title;
+		this.link = link;
+		this.cve = cve;
+		this.severity = severity;
+		this.affectedVersions = affectedVersions;
+		this.reportedAt = reportedAt;
+	}
+
+	/**
+	 * @throws org.json.JSONException if the advisory has no id, package or affected versions
+	 */
+	public static Advisory fromJSON( JSONObject obj ) {
+		return new Advisory( obj.getString( "advisoryId" ),
+							obj.getString( "packageName" ),
+							obj.optString( "title", "" ),
+							obj.optString( "link", "" ),
+							obj.optString( "cve", "" ),
+							obj.optString( "severity", "" ),
+							obj.getString( "affectedVersions" ),
+							parseDate( obj.optString( "reportedAt", "" ) ) );
+	}
+
+	public JSONObject toJSON() {
+		JSONObject ret = new JSONObject();
+
+		ret.put( "advisoryId", id );
+		ret.put( "packageName", packageName );
+		ret.put( "title", title );
+		ret.put( "link", link );
+		ret.put( "cve", cve );
+		ret.put( "severity", severity );
+		ret.put( "affectedVersions", affectedVersions );
+		ret.put( "reportedAt", LocalDateTime.ofEpochSecond( reportedAt, 0, ZoneOffset.UTC ).format( PACKAGIST_DATE ) );
+
+		return ret;
+	}
+
+	@Override
+	public String getId() {
+		return id;
+	}
+
+	@Override
+	public String getPackageName() {
+		return packageName;
+	}
+
+	@Override
+	public String getTitle() {
+		return title;
+	}
+
+	@Override
+	public String getLink() {
+		return link;
+	}
+
+	@Override
+	public String getCve() {
+		return cve;
+	}
+
+	@Override
+	public String getSeverity() {
+		return severity;
+	}
+
+	@Override
+	public String getAffectedVersions() {
+		return affectedVersions;
+	}
+
+	@Override
+	public long getReportedAt() {
+		return reportedAt;
+	}
+
+	/**
+	 * Packagist sends UTC "yyyy-MM-dd HH:mm:ss"; other feeds may use RFC 3339.
+	 */
+	protected static long parseDate( String s ) {
+		try {
+			return LocalDateTime.parse( s, PACKAGIST_DATE ).toEpochSecond( ZoneOffset.UTC );
+		}
+		catch ( DateTimeParseException e ) {
+		}
+
+		try {
+			return OffsetDateTime.parse( s ).toEpochSecond();
+		}
+		catch ( DateTimeParseException e ) {
+		}
+
+		return 0;
+	}
+
+	@Override
+	public String toString() {
+		return id + " " + packageName + " " + affectedVersions + ": " + title;
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.advisory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.tolstoy.drupal.sheephole.api.advisory.IAdvisory;
+import com.tolstoy.drupal.sheephole.api.advisory.IAdvisoryDatabase;
+import com.tolstoy.drupal.sheephole.app.storage.AtomicFiles;
+
+/**
+ * Security advisories kept in a local file in the Packagist advisories format and refreshed from
+ * a feed in that format. A refresh asks only for advisories updated since the previous one;
+ * lookups only use the local copy, so once it has been fetched everything works offline.
+ */
+public class AdvisoryDatabase implements IAdvisoryDatabase {
+	private static final Logger logger = LogManager.getLogger( AdvisoryDatabase.class );
+	private static final String DATA_FILE_NAME = "advisories.json";
+	private static final String STATE_FILE_NAME = "advisories-state.json";
+
+	//	a refresh asks for a little more than it has to, in case the feed's clock is behind ours
+	private static final long OVERLAP_SECONDS = 300;
+
+	private final File directory;
+	private final String url;
+	private final Duration timeout;
+	private final HttpClient client;
+	private final Map<String,Advisory> advisories;
+	private volatile AdvisoryIndex index;
+
+	/**
+	 * @param url the feed, which must accept <code>updatedSince</code> in epoch seconds
+	 */
+	public AdvisoryDatabase( File directory, String url, Duration timeout ) throws IOException {
+		this.directory = directory;
+		this.url = url;
+		this.timeout = timeout;
+		this.client = HttpClient.newBuilder()
+						.connectTimeout( timeout )
+						.followRedirects( HttpClient.Redirect.NORMAL )
+						.build();
+
+		Files.createDirectories( directory.toPath() );
+
+		this.advisories = load();
+		this.index = new AdvisoryIndex( advisories.values() );
+
+		logger.info( "{} security advisories loaded", advisories.size() );
+	}
+
+	@Override
+	public List<IAdvisory> getAdvisories( String packageName, String version ) {
+		return index.getAdvisories( packageName, ComposerVersion.parse( version ) );
+	}
+
+	@Override
+	public List<IAdvisory> getAdvisories( String packageName ) {
+		return index.getAdvisories( packageName );
+	}
+
+	@Override
+	public int size() {
+		return index.size();
+	}
+
+	@Override
+	public synchronized int refresh() throws Exception {
+		JSONObject state = readState();
+		long since = state.optLong( "updated_since", 0 );
+		long started = System.currentTimeMillis() / 1000;
+
+		String requestUrl = url + ( url.indexOf( '?' ) < 0 ? '?' : '&' ) + "updatedSince=" + since;
+		HttpRequest request = HttpRequest.newBuilder( URI.create( requestUrl ) )
+								.timeout( timeout )
+								.header( "Accept", "application/json" )
+								.GET()
+								.build();
+
+		HttpResponse<String> response = client.send( request, HttpResponse.BodyHandlers.ofString( StandardCharsets.UTF_8 ) );
+		if ( response.statusCode() != 200 ) {
+			throw new IOException( "advisory feed returned HTTP " + response.statusCode() + " for " + requestUrl );
+		}
+
+		int merged = 0;
+		JSONObject byPackage = new JSONObject( response.body() ).optJSONObject( "advisories" );
+
+		if ( byPackage != null ) {
+			for ( String packageName : byPackage.keySet() ) {
+				JSONArray list = byPackage.optJSONArray( packageName );
+				if ( list == null ) {
+					continue;
+				}
+
+				for ( Object tempObj : list ) {
+					Advisory advisory;
+					try {
+						advisory = Advisory.fromJSON( (JSONObject) tempObj );
+					}
+					catch ( Exception e ) {
+						logger.debug( "skipping malformed advisory for {}: {}", packageName, e.getMessage() );
+						continue;
+					}
+
+					Advisory existing = advisories.get( advisory.getId() );
+					if ( existing == null || !existing.toJSON().similar( advisory.toJSON() ) ) {
+						advisories.put( advisory.getId(), advisory );
+						merged++;
+					}
+				}
+			}
+		}
+
+		if ( merged > 0 ) {
+			writeData();
+			index = new AdvisoryIndex( advisories.values() );
+		}
+
+		state.put( "updated_since", Math.max( 0, started - OVERLAP_SECONDS ) );
+		AtomicFiles.write( new File( directory, STATE_FILE_NAME ), state.toString( 2 ) );
+
+		logger.info( "advisory refresh since {}: {} added or updated, {} in total", since, merged, advisories.size() );
+
+		return merged;
+	}
+
+	protected Map<String,Advisory> load() {
+		Map<String,Advisory> ret = new LinkedHashMap<String,Advisory>();
+		File file = new File( directory, DATA_FILE_NAME );
+
+		if ( !file.isFile() ) {
+			return ret;
+		}
+
+		try {
+			JSONObject byPackage = new JSONObject( Files.readString( file.toPath(), StandardCharsets.UTF_8 ) ).getJSONObject( "advisories" );
+
+			for ( String packageName : byPackage.keySet() ) {
+				for ( Object tempObj : byPackage.getJSONArray( packageName ) ) {
+					Advisory advisory = Advisory.fromJSON( (JSONObject) tempObj );
+					ret.put( advisory.getId(), advisory );
+				}
+			}
+		}
+		catch ( Exception e ) {
+			//	start over with a full download rather than check against a partial list
+			logger.warn( "cannot read {}, the next refresh downloads all advisories: {}", file, e.getMessage() );
+			ret.clear();
+			new File( directory, STATE_FILE_NAME ).delete();
+		}
+
+		return ret;
+	}
+
+	protected void writeData() throws IOException {
+		JSONObject byPackage = new JSONObject();
+		for ( Advisory advisory : advisories.values() ) {
+			JSONArray list = byPackage.optJSONArray( advisory.getPackageName() );
+			if ( list == null ) {
+				list = new JSONArray();
+				byPackage.put( advisory.getPackageName(), list );
+			}
+			list.put( advisory.toJSON() );
+		}
+
+		JSONObject root = new JSONObject();
+		root.put( "advisories", byPackage );
+
+		AtomicFiles.write( new File( directory, DATA_FILE_NAME ), root.toString() );
+	}
+
+	protected JSONObject readState() throws IOException {
+		File file = new File( directory, STATE_FILE_NAME );
+
+		return file.isFile() ? new JSONObject( Files.readString( file.toPath(), StandardCharsets.UTF_8 ) ) : new JSONObject();
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.advisory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.tolstoy.drupal.sheephole.api.advisory.IAdvisory;
+
+/**
+ * Per package, the affected ranges of all its advisories sorted by lower bound, with the highest
+ * upper bound seen so far alongside each. A lookup binary searches for the last range starting
+ * at or below the version and walks back only while an earlier range could still reach it.
+ */
+final class AdvisoryIndex {
+	private static final Logger logger = LogManager.getLogger( AdvisoryIndex.class );
+
+	private static final Comparator<ComposerVersion> LOWER_ORDER = Comparator.nullsFirst( Comparator.naturalOrder() );
+
+	private final Map<String,PackageRanges> packages;
+	private final Map<String,List<IAdvisory>> advisoriesByPackage;
+	private final int size;
+
+	AdvisoryIndex( Collection<? extends IAdvisory> advisories ) {
+		Map<String,List<IAdvisory>> byPackage = new HashMap<String,List<IAdvisory>>();
+		for ( IAdvisory advisory : advisories ) {
+			byPackage.computeIfAbsent( advisory.getPackageName(), k -> new ArrayList<IAdvisory>( 2 ) ).add( advisory );
+		}
+
+		Map<String,PackageRanges> tempPackages = new HashMap<String,PackageRanges>( byPackage.size() * 2 );
+		int unparsed = 0;
+
+		for ( Map.Entry<String,List<IAdvisory>> entry : byPackage.entrySet() ) {
+			List<Range> ranges = new ArrayList<Range>();
+
+			for ( IAdvisory advisory : entry.getValue() ) {
+				List<VersionRange> parsed = VersionRange.parse( advisory.getAffectedVersions() );
+				if ( parsed == null ) {
+					logger.debug( "cannot parse affected versions of {}: {}", advisory.getId(), advisory.getAffectedVersions() );
+					unparsed++;
+					continue;
+				}
+
+				for ( VersionRange range : parsed ) {
+					ranges.add( new Range( range, advisory ) );
+				}
+			}
+
+			if ( !ranges.isEmpty() ) {
+				tempPackages.put( entry.getKey(), new PackageRanges( ranges ) );
+			}
+
+			entry.setValue( Collections.unmodifiableList( entry.getValue() ) );
+		}
+
+		if ( unparsed > 0 ) {
+			logger.warn( "{} advisories have affected versions that can't be parsed, they are never matched", unparsed );
+		}
+
+		this.packages = tempPackages;
+		this.advisoriesByPackage = byPackage;
+		this.size = advisories.size();
+	}
+
+	List<IAdvisory> getAdvisories( String packageName, ComposerVersion version ) {
+		PackageRanges ranges = packages.get( packageName );
+
+		return ranges != null && version != null ? ranges.find( version ) : Collections.emptyList();
+	}
+
+	List<IAdvisory> getAdvisories( String packageName ) {
+		return advisoriesByPackage.getOrDefault( packageName, Collections.emptyList() );
+	}
+
+	int size() {
+		return size;
+	}
+
+	private static final class Range {
+		private final VersionRange range;
+		private final IAdvisory advisory;
+
+		Range( VersionRange range, IAdvisory advisory ) {
+			this.range = range;
+			this.advisory = advisory;
+		}
+	}
+
+	private static final class PackageRanges {
+		private final Range[] ranges;
+		//	the highest upper bound among ranges[ 0..i ], null if any of them is open ended
+		private final ComposerVersion[] maxUpper;
+
+		PackageRanges( List<Range> list ) {
+			list.sort( ( a, b ) -> LOWER_ORDER.compare( a.range.getLower(), b.range.getLower() ) );
+
+			this.ranges = list.toArray( new Range[ 0 ] );
+			this.maxUpper = new ComposerVersion[ ranges.length ];
+
+			ComposerVersion max = null;
+			boolean open = false;
+			for ( int i = 0; i < ranges.length; i++ ) {
+				ComposerVersion upper = ranges[ i ].range.getUpper();
+				if ( upper == null ) {
+					open = true;
+				}
+				else if ( max == null || upper.compareTo( max ) > 0 ) {
+					max = upper;
+				}
+				maxUpper[ i ] = open ? null : max;
+			}
+		}
+
+		List<IAdvisory> find( ComposerVersion version ) {
+			//	the number of ranges whose lower bound is at or below the version
+			int lo = 0;
+			int hi = ranges.length;
+			while ( lo < hi ) {
+				int mid = ( lo + hi ) >>> 1;
+				if ( LOWER_ORDER.compare( ranges[ mid ].range.getLower(), version ) <= 0 ) {
+					lo = mid + 1;
+				}
+				else {
+					hi = mid;
+				}
+			}
+
+			List<IAdvisory> ret = null;
+			for ( int i = lo - 1; i >= 0; i-- ) {
+				if ( maxUpper[ i ] != null && maxUpper[ i ].compareTo( version ) < 0 ) {
+					break;
+				}
+
+				Range range = ranges[ i ];
+				if ( range.range.contains( version ) ) {
+					if ( ret == null ) {
+						ret = new ArrayList<IAdvisory>( 2 );
+					}
+					if ( !ret.contains( range.advisory ) ) {
+						ret.add( range.advisory );
+					}
+				}
+			}
+
+			return ret != null ? ret : Collections.emptyList();
+		}
+	}
+}
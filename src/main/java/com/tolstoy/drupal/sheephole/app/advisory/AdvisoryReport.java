@@ -0,0 +1,248 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.advisory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.tolstoy.drupal.sheephole.api.advisory.IAdvisory;
+import com.tolstoy.drupal.sheephole.api.advisory.IAdvisoryDatabase;
+import com.tolstoy.drupal.sheephole.api.inventory.IFleetInventory;
+import com.tolstoy.drupal.sheephole.api.inventory.ISiteInventory;
+
+/**
+ * Every installed package on every site in the inventory, checked against the advisory database.
+ * Nothing is fetched: the check uses what the inventory and the database already hold.
+ */
+public class AdvisoryReport {
+	private static final DateTimeFormatter FILE_NAME_DATE = DateTimeFormatter.ofPattern( "yyyyMMdd-HHmmss" );
+
+	private final List<Finding> findings;
+	private final int siteCount;
+	private final int packageCount;
+	private final int uncheckedCount;
+	private final int advisoryCount;
+	private final LocalDateTime created;
+	private final long elapsedMicros;
+
+	protected AdvisoryReport( List<Finding> findings, int siteCount, int packageCount, int uncheckedCount, int advisoryCount, long elapsedMicros ) {
+		this.findings = Collections.unmodifiableList( findings );
+		this.siteCount = siteCount;
+		this.packageCount = packageCount;
+		this.uncheckedCount = uncheckedCount;
+		this.advisoryCount = advisoryCount;
+		this.created = LocalDateTime.now();
+		this.elapsedMicros = elapsedMicros;
+	}
+
+	/**
+	 * @param profileId only check this site, or -1 for all of them
+	 */
+	public static AdvisoryReport check( IFleetInventory inventory, IAdvisoryDatabase database, long profileId ) {
+		long start = System.nanoTime();
+		List<Finding> findings = new ArrayList<Finding>();
+		int siteCount = 0;
+		int packageCount = 0;
+		int uncheckedCount = 0;
+
+		//	most sites run the same package versions, look each pair up once
+		Map<String,List<IAdvisory>> seen = new HashMap<String,List<IAdvisory>>();
+
+		for ( ISiteInventory site : inventory.getSites() ) {
+			if ( profileId >= 0 && site.getProfileId() != profileId ) {
+				continue;
+			}
+
+			siteCount++;
+
+			for ( String packageName : site.getPackageNames() ) {
+				String version = site.getVersion( packageName );
+				packageCount++;
+
+				List<IAdvisory> matches = seen.computeIfAbsent( packageName + '@' + version, k -> database.getAdvisories( packageName, version ) );
+
+				if ( matches.isEmpty() && ComposerVersion.parse( version ) == null && !database.getAdvisories( packageName ).isEmpty() ) {
+					//	a dev branch of a package that has advisories, someone has to look at it
+					uncheckedCount++;
+				}
+
+				for ( IAdvisory advisory : matches ) {
+					findings.add( new Finding( site.getProfileId(), site.getTitle(), packageName, version, advisory ) );
+				}
+			}
+		}
+
+		return new AdvisoryReport( findings, siteCount, packageCount, uncheckedCount, database.size(), ( System.nanoTime() - start ) / 1000 );
+	}
+
+	public List<Finding> getFindings() {
+		return findings;
+	}
+
+	public int getSiteCount() {
+		return siteCount;
+	}
+
+	public int getPackageCount() {
+		return packageCount;
+	}
+
+	/**
+	 * @return installed packages that have advisories but whose version, e.g. a dev branch, can't be checked
+	 */
+	public int getUncheckedCount() {
+		return uncheckedCount;
+	}
+
+	public JSONObject toJSON() {
+		JSONArray list = new JSONArray();
+		for ( Finding finding : findings ) {
+			list.put( finding.toJSON() );
+		}
+
+		JSONObject ret = new JSONObject();
+		ret.put( "created", created.toString() );
+		ret.put( "sites", siteCount );
+		ret.put( "packages", packageCount );
+		ret.put( "unchecked", uncheckedCount );
+		ret.put( "advisories", advisoryCount );
+		ret.put( "elapsed_micros", elapsedMicros );
+		ret.put( "findings", list );
+
+		return ret;
+	}
+
+	/**
+	 * Writes the report as JSON and as plain text.
+	 * @return the text file
+	 */
+	public File write( File reportsDirectory ) throws IOException {
+		String baseName = "security-advisories-" + created.format( FILE_NAME_DATE );
+
+		Files.writeString( new File( reportsDirectory, baseName + ".json" ).toPath(), toJSON().toString( 2 ), StandardCharsets.UTF_8 );
+
+		File ret = new File( reportsDirectory, baseName + ".txt" );
+		Files.writeString( ret.toPath(), toText(), StandardCharsets.UTF_8 );
+
+		return ret;
+	}
+
+	public String toText() {
+		StringBuilder sb = new StringBuilder( 256 + findings.size() * 160 );
+
+		sb.append( "Security advisories, " ).append( created.withNano( 0 ) ).append( '\n' );
+		sb.append( toString() ).append( "\n\n" );
+
+		String lastSite = null;
+		for ( Finding finding : findings ) {
+			if ( !finding.getSiteTitle().equals( lastSite ) ) {
+				lastSite = finding.getSiteTitle();
+				sb.append( lastSite ).append( '\n' );
+			}
+
+			IAdvisory advisory = finding.getAdvisory();
+			sb.append( "  " ).append( finding.getPackageName() ).append( ' ' ).append( finding.getVersion() );
+			sb.append( ": " ).append( advisory.getTitle() );
+			if ( !advisory.getCve().isEmpty() ) {
+				sb.append( " (" ).append( advisory.getCve() ).append( ')' );
+			}
+			sb.append( "\n    affected: " ).append( advisory.getAffectedVersions() );
+			if ( !advisory.getLink().isEmpty() ) {
+				sb.append( "\n    " ).append( advisory.getLink() );
+			}
+			sb.append( '\n' );
+		}
+
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return findings.size() + " findings on " + siteCount + " sites, " + packageCount + " packages checked against " +
+				advisoryCount + " advisories, " + uncheckedCount + " dev versions not checked";
+	}
+
+	/**
+	 * An installed package version that an advisory says is affected.
+	 */
+	public static final class Finding {
+		private final long profileId;
+		private final String siteTitle;
+		private final String packageName;
+		private final String version;
+		private final IAdvisory advisory;
+
+		Finding( long profileId, String siteTitle, String packageName, String version, IAdvisory advisory ) {
+			this.profileId = profileId;
+			this.siteTitle = siteTitle;
+			this.packageName = packageName;
+			this.version = version;
+			this.advisory = advisory;
+		}
+
+		public long getProfileId() {
+			return profileId;
+		}
+
+		public String getSiteTitle() {
+			return siteTitle;
+		}
+
+		public String getPackageName() {
+			return packageName;
+		}
+
+		public String getVersion() {
+			return version;
+		}
+
+		public IAdvisory getAdvisory() {
+			return advisory;
+		}
+
+		public JSONObject toJSON() {
+			JSONObject ret = new JSONObject();
+
+			ret.put( "site_id", profileId );
+			ret.put( "site", siteTitle );
+			ret.put( "package", packageName );
+			ret.put( "version", version );
+			ret.put( "advisory_id", advisory.getId() );
+			ret.put( "title", advisory.getTitle() );
+			ret.put( "cve", advisory.getCve() );
+			ret.put( "severity", advisory.getSeverity() );
+			ret.put( "affected_versions", advisory.getAffectedVersions() );
+			ret.put( "link", advisory.getLink() );
+
+			return ret;
+		}
+
+		@Override
+		public String toString() {
+			return siteTitle + ": " + packageName + " " + version + ", " + advisory.getTitle();
+		}
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.advisory;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A composer release version, ordered the way composer orders them: up to four numeric parts,
+ * then alpha &lt; beta &lt; RC &lt; stable &lt; patch. Branches such as <code>dev-main</code> or
+ * <code>2.x-dev</code> have no place in that order and don't parse.
+ */
+public final class ComposerVersion implements Comparable<ComposerVersion> {
+	static final int DEV = 0;
+	static final int ALPHA = 1;
+	static final int BETA = 2;
+	static final int RC = 3;
+	static final int STABLE = 4;
+	static final int PATCH = 5;
+
+	private static final Pattern PATTERN = Pattern.compile( "(\\d+)(?:\\.(\\d+))?(?:\\.(\\d+))?(?:\\.(\\d+))?" +
+															"(?:[-._]?(stable|beta|b|rc|alpha|a|patch|pl|p)[._-]?(\\d+)?)?(?:\\+.*)?",
+															Pattern.CASE_INSENSITIVE );
+
+	//	drupal.org's pre-composer release names, e.g. 8.x-1.15
+	private static final Pattern LEGACY_DRUPAL = Pattern.compile( "\\d+\\.x-(.+)" );
+
+	private final int[] parts;
+	private final int precision;
+	private final int stability;
+	private final int stabilityNumber;
+
+	ComposerVersion( int[] parts, int precision, int stability, int stabilityNumber ) {
+		this.parts = parts;
+		this.precision = precision;
+		this.stability = stability;
+		this.stabilityNumber = stabilityNumber;
+	}
+
+	/**
+	 * @return null for branches and anything else that isn't a release version
+	 */
+	public static ComposerVersion parse( String s ) {
+		if ( s == null ) {
+			return null;
+		}
+
+		String version = s.trim();
+		if ( version.startsWith( "v" ) || version.startsWith( "V" ) ) {
+			version = version.substring( 1 );
+		}
+
+		Matcher legacy = LEGACY_DRUPAL.matcher( version );
+		if ( legacy.matches() ) {
+			version = legacy.group( 1 );
+		}
+
+		Matcher matcher = PATTERN.matcher( version );
+		if ( !matcher.matches() ) {
+			return null;
+		}
+
+		int[] parts = new int[ 4 ];
+		int precision = 0;
+		try {
+			for ( int i = 0; i < 4; i++ ) {
+				String part = matcher.group( i + 1 );
+				if ( part != null ) {
+					parts[ i ] = Integer.parseInt( part );
+					precision = i + 1;
+				}
+			}
+		}
+		catch ( NumberFormatException e ) {
+			return null;
+		}
+
+		int stability = STABLE;
+		String marker = matcher.group( 5 );
+		if ( marker != null ) {
+			switch ( marker.toLowerCase( Locale.ROOT ) ) {
+				case "alpha":
+				case "a":
+					stability = ALPHA;
+					break;
+				case "beta":
+				case "b":
+					stability = BETA;
+					break;
+				case "rc":
+					stability = RC;
+					break;
+				case "patch":
+				case "pl":
+				case "p":
+					stability = PATCH;
+					break;
+				default:
+					stability = STABLE;
+					break;
+			}
+		}
+
+		String number = matcher.group( 6 );
+
+		return new ComposerVersion( parts, precision, stability, number != null ? Integer.parseInt( number ) : 0 );
+	}
+
+	/**
+	 * @return the lowest version with the same leading parts as this one, and the part at
+	 * <code>index</code> one higher; 1.2.3 with index 0 gives 2.0.0-dev
+	 */
+	ComposerVersion bump( int index ) {
+		int[] bumped = new int[ 4 ];
+		System.arraycopy( parts, 0, bumped, 0, index );
+		bumped[ index ] = parts[ index ] + 1;
+
+		return new ComposerVersion( bumped, index + 1, DEV, 0 );
+	}
+
+	int getPart( int index ) {
+		return parts[ index ];
+	}
+
+	/**
+	 * @return how many numeric parts were given
+	 */
+	int getPrecision() {
+		return precision;
+	}
+
+	@Override
+	public int compareTo( ComposerVersion other ) {
+		for ( int i = 0; i < 4; i++ ) {
+			if ( parts[ i ] != other.parts[ i ] ) {
+				return Integer.compare( parts[ i ], other.parts[ i ] );
+			}
+		}
+
+		if ( stability != other.stability ) {
+			return Integer.compare( stability, other.stability );
+		}
+
+		return Integer.compare( stabilityNumber, other.stabilityNumber );
+	}
+
+	@Override
+	public boolean equals( Object obj ) {
+		return obj instanceof ComposerVersion && compareTo( (ComposerVersion) obj ) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * ( 31 * Arrays.hashCode( parts ) + stability ) + stabilityNumber;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for ( int i = 0; i < Math.max( precision, 1 ); i++ ) {
+			sb.append( i > 0 ? "." : "" ).append( parts[ i ] );
+		}
+
+		switch ( stability ) {
+			case DEV:
+				return sb.append( "-dev" ).toString();
+			case ALPHA:
+				return sb.append( "-alpha" ).append( stabilityNumber ).toString();
+			case BETA:
+				return sb.append( "-beta" ).append( stabilityNumber ).toString();
+			case RC:
+				return sb.append( "-RC" ).append( stabilityNumber ).toString();
+			case PATCH:
+				return sb.append( "-p" ).append( stabilityNumber ).toString();
+			default:
+				return sb.toString();
+		}
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.advisory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A contiguous run of versions; a null bound is open. Advisory feeds describe affected versions
+ * with composer constraints, which {@link #parse(String)} turns into a list of these.
+ */
+final class VersionRange {
+	private final ComposerVersion lower;
+	private final boolean lowerInclusive;
+	private final ComposerVersion upper;
+	private final boolean upperInclusive;
+
+	VersionRange( ComposerVersion lower, boolean lowerInclusive, ComposerVersion upper, boolean upperInclusive ) {
+		this.lower = lower;
+		this.lowerInclusive = lowerInclusive;
+		this.upper = upper;
+		this.upperInclusive = upperInclusive;
+	}
+
+	ComposerVersion getLower() {
+		return lower;
+	}
+
+	ComposerVersion getUpper() {
+		return upper;
+	}
+
+	boolean isUpperInclusive() {
+		return upperInclusive;
+	}
+
+	boolean contains( ComposerVersion version ) {
+		if ( lower != null ) {
+			int cmp = version.compareTo( lower );
+			if ( cmp < 0 || ( cmp == 0 && !lowerInclusive ) ) {
+				return false;
+			}
+		}
+
+		if ( upper != null ) {
+			int cmp = version.compareTo( upper );
+			if ( cmp > 0 || ( cmp == 0 && !upperInclusive ) ) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	boolean isEmpty() {
+		if ( lower == null || upper == null ) {
+			return false;
+		}
+
+		int cmp = lower.compareTo( upper );
+
+		return cmp > 0 || ( cmp == 0 && !( lowerInclusive && upperInclusive ) );
+	}
+
+	/**
+	 * Understands <code>|</code>/<code>||</code> between alternatives, <code>,</code> or spaces
+	 * between the terms of one alternative, the comparison operators, <code>^</code>,
+	 * <code>~</code> and <code>*</code>.
+	 *
+	 * @return null if any term can't be understood
+	 */
+	static List<VersionRange> parse( String constraint ) {
+		List<VersionRange> ret = new ArrayList<VersionRange>( 2 );
+
+		if ( constraint == null || constraint.trim().isEmpty() ) {
+			return null;
+		}
+
+		for ( String alternative : constraint.split( "\\|+" ) ) {
+			String normalized = alternative.trim().replaceAll( "(>=|<=|==|>|<|=|\\^|~)\\s+", "$1" );
+			if ( normalized.isEmpty() ) {
+				return null;
+			}
+
+			ComposerVersion lower = null;
+			boolean lowerInclusive = true;
+			ComposerVersion upper = null;
+			boolean upperInclusive = true;
+
+			for ( String term : normalized.split( "\\s*,\\s*|\\s+" ) ) {
+				if ( "*".equals( term ) ) {
+					continue;
+				}
+
+				String op = getOperator( term );
+				ComposerVersion version = ComposerVersion.parse( term.substring( op.length() ) );
+				if ( version == null ) {
+					return null;
+				}
+
+				ComposerVersion newLower = null;
+				boolean newLowerInclusive = true;
+				ComposerVersion newUpper = null;
+				boolean newUpperInclusive = true;
+
+				switch ( op ) {
+					case ">=":
+						newLower = version;
+						break;
+					case ">":
+						newLower = version;
+						newLowerInclusive = false;
+						break;
+					case "<=":
+						newUpper = version;
+						break;
+					case "<":
+						newUpper = version;
+						newUpperInclusive = false;
+						break;
+					case "^":
+						newLower = version;
+						newUpper = version.bump( getCaretIndex( version ) );
+						newUpperInclusive = false;
+						break;
+					case "~":
+						newLower = version;
+						newUpper = version.bump( Math.max( version.getPrecision() - 2, 0 ) );
+						newUpperInclusive = false;
+						break;
+					default:
+						newLower = version;
+						newUpper = version;
+						break;
+				}
+
+				if ( newLower != null && ( lower == null || newLower.compareTo( lower ) > 0 || ( newLower.equals( lower ) && !newLowerInclusive ) ) ) {
+					lower = newLower;
+					lowerInclusive = newLowerInclusive;
+				}
+
+				if ( newUpper != null && ( upper == null || newUpper.compareTo( upper ) < 0 || ( newUpper.equals( upper ) && !newUpperInclusive ) ) ) {
+					upper = newUpper;
+					upperInclusive = newUpperInclusive;
+				}
+			}
+
+			VersionRange range = new VersionRange( lower, lowerInclusive, upper, upperInclusive );
+			if ( !range.isEmpty() ) {
+				ret.add( range );
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Composer bumps the first non-zero part, or the last one given if all are zero: ^1.2 is below
+	 * 2.0, ^0.3 below 0.4, ^0.0.3 below 0.0.4 and ^0.0 below 0.1.
+	 */
+	private static int getCaretIndex( ComposerVersion version ) {
+		int last = Math.max( version.getPrecision(), 1 ) - 1;
+
+		for ( int i = 0; i < last; i++ ) {
+			if ( version.getPart( i ) > 0 ) {
+				return i;
+			}
+		}
+
+		return last;
+	}
+
+	private static String getOperator( String term ) {
+		for ( String op : new String[] { ">=", "<=", "==", ">", "<", "=", "^", "~" } ) {
+			if ( term.startsWith( op ) ) {
+				return op;
+			}
+		}
+
+		return "";
+	}
+
+	@Override
+	public String toString() {
+		return ( lower == null ? "(*" : ( lowerInclusive ? "[" : "(" ) + lower ) + ", " + ( upper == null ? "*)" : upper + ( upperInclusive ? "]" : ")" ) );
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.catalog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.tolstoy.drupal.sheephole.app.storage.AtomicFiles;
+
+/**
+ * The local copy of the catalog: one JSON:API style file per major version plus the sync state.
+ * Every write goes to a temporary file that is then moved over the old one, so readers never
+ * see a half written file.
+ */
+public class CatalogStore {
+	private static final Logger logger = LogManager.getLogger( CatalogStore.class );
+	private static final String STATE_FILE_NAME = "sync-state";
+
+	private final File directory;
+	private final String prefix;
+
+	public CatalogStore( File directory ) throws IOException {
+		this( directory, "" );
+	}
+
+	/**
+	 * @param prefix keeps several stores apart in one directory, e.g. one per project type
+	 */
+	public CatalogStore( File directory, String prefix ) throws IOException {
+		this.directory = directory;
+		this.prefix = prefix;
+
+		Files.createDirectories( directory.toPath() );
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public boolean has( int majorVersion ) {
+		return getCatalogFile( majorVersion ).isFile();
+	}
+
+	/**
+	 * @return when the major's catalog file was last written, 0 if there isn't one
+	 */
+	public long getLastModified( int majorVersion ) {
+		return getCatalogFile( majorVersion ).lastModified();
+	}
+
+	public String readJson( int majorVersion ) throws IOException {
+		File file = getCatalogFile( majorVersion );
+
+		return file.isFile() ? Files.readString( file.toPath(), StandardCharsets.UTF_8 ) : null;
+	}
+
+	/**
+	 * @return the stored records keyed by machine name, in file order
+	 */
+	public Map<String,JSONObject> readRecords( int majorVersion ) throws IOException {
+		Map<String,JSONObject> ret = new LinkedHashMap<String,JSONObject>( 16384 );
+
+		String json = readJson( majorVersion );
+		if ( json == null ) {
+			return ret;
+		}
+
+		for ( Object tempObj : new JSONObject( json ).getJSONArray( "data" ) ) {
+			JSONObject item = (JSONObject) tempObj;
+			String machineName = getMachineName( item );
+			if ( machineName != null ) {
+				ret.put( machineName, item );
+			}
+		}
+
+		return ret;
+	}
+
+	public void writeJson( int majorVersion, String json ) throws IOException {
+		AtomicFiles.write( getCatalogFile( majorVersion ), json );
+	}
+
+	public void writeRecords( int majorVersion, Collection<JSONObject> records ) throws IOException {
+		JSONObject root = new JSONObject();
+		root.put( "data", new JSONArray( records ) );
+
+		writeJson( majorVersion, root.toString() );
+
+		logger.info( "stored {} records for Drupal {}", records.size(), majorVersion );
+	}
+
+	public JSONObject readState() throws IOException {
+		File file = getStateFile();
+
+		return file.isFile() ? new JSONObject( Files.readString( file.toPath(), StandardCharsets.UTF_8 ) ) : new JSONObject();
+	}
+
+	public void writeState( JSONObject state ) throws IOException {
+		AtomicFiles.write( getStateFile(), state.toString( 2 ) );
+	}
+
+	public static String getMachineName( JSONObject item ) {
+		JSONObject attributes = item.optJSONObject( "attributes" );
+
+		return attributes != null ? attributes.optString( "field_project_machine_name", null ) : null;
+	}
+
+	protected File getCatalogFile( int majorVersion ) {
+		return new File( directory, "catalog-" + ( prefix.isEmpty() ? "" : prefix + "-" ) + "d" + majorVersion + ".json" );
+	}
+
+	protected File getStateFile() {
+		return new File( directory, STATE_FILE_NAME + ( prefix.isEmpty() ? "" : "-" + prefix ) + ".json" );
+	}
+}
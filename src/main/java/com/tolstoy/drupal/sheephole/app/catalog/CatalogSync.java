@@ -0,0 +1,270 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.catalog;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.tolstoy.drupal.sheephole.api.catalog.ICatalogSync;
+
+/**
+ * Pages through the drupal.org JSON:API project listing, oldest change first, starting at the
+ * newest <code>changed</code> value already in the store. Only records whose <code>changed</code>
+ * value differs from the stored copy are merged. Without a filter for the major the listing says
+ * nothing about compatibility, so only projects already stored for that major are updated and new
+ * ones are left until a filtered listing or a newer bundled catalog names them. The first page is
+ * requested with the validators from the previous sync, so when nothing has changed the server
+ * answers 304 and that is the whole refresh.
+ */
+public class CatalogSync implements ICatalogSync {
+	private static final Logger logger = LogManager.getLogger( CatalogSync.class );
+	private static final String ACCEPT = "application/vnd.api+json";
+
+	private final CatalogStore store;
+	private final HttpClient client;
+	private final String baseUrl;
+	private final Map<Integer,String> filters;
+	private final int pageLimit;
+	private final int maxPages;
+	private final long initialSince;
+	private final Duration timeout;
+
+	/**
+	 * @param filters extra, already encoded, query parameters per major version that restrict the
+	 * listing to projects supporting it; a major without one gets the unfiltered listing, which
+	 * only updates projects already stored for that major
+	 * @param initialSince the cursor to use when the store has no <code>changed</code> values at all
+	 */
+	public CatalogSync( CatalogStore store, String baseUrl, Map<Integer,String> filters, int pageLimit, int maxPages, long initialSince, Duration timeout ) {
+		this.store = store;
+		this.baseUrl = baseUrl;
+		this.filters = filters;
+		this.pageLimit = pageLimit;
+		this.maxPages = maxPages;
+		this.initialSince = initialSince;
+		this.timeout = timeout;
+		this.client = HttpClient.newBuilder()
+						.connectTimeout( timeout )
+						.followRedirects( HttpClient.Redirect.NORMAL )
+						.build();
+	}
+
+	@Override
+	public synchronized int sync( int majorVersion, Consumer<JSONObject> mergedItems ) throws Exception {
+		JSONObject state = store.readState();
+		JSONObject majorState = state.optJSONObject( "" + majorVersion );
+		if ( majorState == null ) {
+			majorState = new JSONObject();
+		}
+
+		//	only loaded once there is something to merge, a 304 never touches the catalog file
+		Map<String,JSONObject> records = null;
+
+		long since = majorState.optLong( "since", -1 );
+		if ( since < 0 ) {
+			records = store.readRecords( majorVersion );
+			since = getNewestChange( records.values() );
+		}
+		if ( since < 0 ) {
+			since = initialSince;
+		}
+
+		String filter = filters.get( majorVersion );
+		boolean filtered = filter != null && filter.length() > 0;
+
+		String firstUrl = getFirstPageUrl( majorVersion, since );
+		boolean sameRequest = firstUrl.equals( majorState.optString( "url", null ) );
+
+		String url = firstUrl;
+		long newest = since;
+		int merged = 0;
+		int unconfirmed = 0;
+		int pages = 0;
+		String etag = null;
+		String lastModified = null;
+
+		while ( url != null ) {
+			if ( pages >= maxPages ) {
+				logger.warn( "stopping Drupal {} sync after {} pages, the rest is picked up next time", majorVersion, pages );
+				break;
+			}
+
+			HttpRequest.Builder builder = HttpRequest.newBuilder( URI.create( url ) )
+											.timeout( timeout )
+											.header( "Accept", ACCEPT )
+											.GET();
+
+			if ( pages == 0 && sameRequest ) {
+				if ( majorState.has( "etag" ) ) {
+					builder.header( "If-None-Match", majorState.getString( "etag" ) );
+				}
+				if ( majorState.has( "last_modified" ) ) {
+					builder.header( "If-Modified-Since", majorState.getString( "last_modified" ) );
+				}
+			}
+
+			HttpResponse<String> response = client.send( builder.build(), HttpResponse.BodyHandlers.ofString( StandardCharsets.UTF_8 ) );
+
+			if ( pages == 0 && response.statusCode() == 304 ) {
+				logger.info( "Drupal {} catalog unchanged since {}", majorVersion, since );
+				return 0;
+			}
+
+			if ( response.statusCode() != 200 ) {
+				throw new IOException( "catalog sync got HTTP " + response.statusCode() + " from " + url );
+			}
+
+			if ( pages == 0 ) {
+				etag = response.headers().firstValue( "ETag" ).orElse( null );
+				lastModified = response.headers().firstValue( "Last-Modified" ).orElse( null );
+			}
+
+			JSONObject page = new JSONObject( response.body() );
+			JSONArray data = page.optJSONArray( "data" );
+
+			if ( data != null ) {
+				for ( Object tempObj : data ) {
+					JSONObject item = (JSONObject) tempObj;
+					String machineName = CatalogStore.getMachineName( item );
+					if ( machineName == null ) {
+						continue;
+					}
+
+					if ( records == null ) {
+						records = store.readRecords( majorVersion );
+					}
+
+					long changed = getChanged( item );
+					JSONObject existing = records.get( machineName );
+
+					if ( existing == null && !filtered ) {
+						unconfirmed++;
+					}
+					else if ( existing == null || getChanged( existing ) != changed ) {
+						records.put( machineName, item );
+						mergedItems.accept( item );
+						merged++;
+					}
+
+					newest = Math.max( newest, changed );
+				}
+			}
+
+			url = getNextPageUrl( page );
+			pages++;
+		}
+
+		if ( merged > 0 ) {
+			store.writeRecords( majorVersion, records.values() );
+		}
+
+		majorState = new JSONObject();
+		majorState.put( "since", newest );
+		majorState.put( "url", firstUrl );
+		if ( etag != null ) {
+			majorState.put( "etag", etag );
+		}
+		if ( lastModified != null ) {
+			majorState.put( "last_modified", lastModified );
+		}
+
+		state.put( "" + majorVersion, majorState );
+		store.writeState( state );
+
+		logger.info( "Drupal {} catalog sync: {} pages, {} records merged, {} new projects skipped without a compatibility filter, cursor now {}",
+						majorVersion, pages, merged, unconfirmed, newest );
+
+		return merged;
+	}
+
+	/**
+	 * The cursor is inclusive so projects changed in the same second as the last one seen are
+	 * not lost; they come back unchanged and are not merged again.
+	 */
+	protected String getFirstPageUrl( int majorVersion, long since ) {
+		StringBuilder sb = new StringBuilder( baseUrl );
+
+		sb.append( baseUrl.indexOf( '?' ) < 0 ? '?' : '&' );
+		sb.append( encode( "filter[changed][value]" ) ).append( '=' ).append( since );
+		sb.append( '&' ).append( encode( "filter[changed][operator]" ) ).append( '=' ).append( encode( ">=" ) );
+		sb.append( "&sort=changed" );
+		sb.append( '&' ).append( encode( "page[limit]" ) ).append( '=' ).append( pageLimit );
+
+		String filter = filters.get( majorVersion );
+		if ( filter != null && filter.length() > 0 ) {
+			sb.append( '&' ).append( filter );
+		}
+
+		return sb.toString();
+	}
+
+	protected String getNextPageUrl( JSONObject page ) {
+		JSONObject links = page.optJSONObject( "links" );
+		JSONObject next = links != null ? links.optJSONObject( "next" ) : null;
+
+		return next != null ? next.optString( "href", null ) : null;
+	}
+
+	/**
+	 * @return seconds since the epoch; drupal.org sends RFC 3339 strings, older dumps may hold numbers
+	 */
+	public static long getChanged( JSONObject item ) {
+		JSONObject attributes = item.optJSONObject( "attributes" );
+		Object value = attributes != null ? attributes.opt( "changed" ) : null;
+
+		if ( value instanceof Number ) {
+			return ( (Number) value ).longValue();
+		}
+
+		if ( value instanceof String ) {
+			try {
+				return OffsetDateTime.parse( (String) value ).toEpochSecond();
+			}
+			catch ( DateTimeParseException e ) {
+				logger.debug( "unparseable changed value {}", value );
+			}
+		}
+
+		return -1;
+	}
+
+	protected long getNewestChange( Iterable<JSONObject> records ) {
+		long ret = -1;
+
+		for ( JSONObject item : records ) {
+			ret = Math.max( ret, getChanged( item ) );
+		}
+
+		return ret;
+	}
+
+	private static String encode( String s ) {
+		return URLEncoder.encode( s, StandardCharsets.UTF_8 );
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.semver4j.Semver;
+
+import com.tolstoy.drupal.sheephole.api.installation.IInstallable;
+import com.tolstoy.drupal.sheephole.app.installation.VersionConstraint;
+
+/**
+ * Answers "which installables work with platform version X" without looking at each one.
+ * <p>
+ * The boundaries of every distinct constraint split the version line into segments: each
+ * boundary on its own, and the gaps between them. No constraint changes its answer inside a
+ * segment, so each one is evaluated once per segment, at a representative version, and a
+ * lookup is a binary search for the segment. The list for a segment is built the first time
+ * it is asked for and then shared.
+ */
+final class CompatibilityIndex {
+	private final List<IInstallable> installables;
+	private final List<BitSet> members;
+	private final Semver[] boundaries;
+	private final BitSet[] segments;
+	private final AtomicReferenceArray<List<IInstallable>> results;
+
+	/**
+	 * Installables whose constraint can't be parsed are never returned.
+	 */
+	CompatibilityIndex( List<IInstallable> installables ) {
+		this.installables = installables;
+
+		Map<VersionConstraint,BitSet> tempMembers = new LinkedHashMap<VersionConstraint,BitSet>();
+		for ( int i = 0; i < installables.size(); i++ ) {
+			VersionConstraint constraint = VersionConstraint.of( installables.get( i ).getInstallableVersion().getConstraint() );
+			if ( constraint != null ) {
+				tempMembers.computeIfAbsent( constraint, k -> new BitSet( installables.size() ) ).set( i );
+			}
+		}
+
+		List<VersionConstraint> constraints = new ArrayList<VersionConstraint>( tempMembers.keySet() );
+		this.members = new ArrayList<BitSet>( tempMembers.values() );
+
+		TreeSet<Semver> tempBoundaries = new TreeSet<Semver>();
+		for ( VersionConstraint constraint : constraints ) {
+			tempBoundaries.addAll( constraint.getBoundaries() );
+		}
+		this.boundaries = tempBoundaries.toArray( new Semver[ tempBoundaries.size() ] );
+
+		this.segments = new BitSet[ 2 * boundaries.length + 1 ];
+		for ( int segment = 0; segment < segments.length; segment++ ) {
+			BitSet matching = new BitSet( constraints.size() );
+
+			Semver representative = getRepresentative( segment );
+			if ( representative != null ) {
+				for ( int c = 0; c < constraints.size(); c++ ) {
+					if ( constraints.get( c ).isSatisfiedBy( representative ) ) {
+						matching.set( c );
+					}
+				}
+			}
+
+			segments[ segment ] = matching;
+		}
+
+		this.results = new AtomicReferenceArray<List<IInstallable>>( segments.length );
+	}
+
+	/**
+	 * @return the compatible installables in catalog order
+	 */
+	List<IInstallable> getCompatible( Semver version ) {
+		int segment = findSegment( VersionConstraint.toRelease( version ) );
+
+		List<IInstallable> ret = results.get( segment );
+		if ( ret != null ) {
+			return ret;
+		}
+
+		BitSet positions = new BitSet( installables.size() );
+		BitSet matching = segments[ segment ];
+		for ( int c = matching.nextSetBit( 0 ); c >= 0; c = matching.nextSetBit( c + 1 ) ) {
+			positions.or( members.get( c ) );
+		}
+
+		List<IInstallable> list = new ArrayList<IInstallable>( positions.cardinality() );
+		for ( int i = positions.nextSetBit( 0 ); i >= 0; i = positions.nextSetBit( i + 1 ) ) {
+			list.add( installables.get( i ) );
+		}
+
+		ret = Collections.unmodifiableList( list );
+		results.compareAndSet( segment, null, ret );
+
+		return results.get( segment );
+	}
+
+	int getSegmentCount() {
+		return segments.length;
+	}
+
+	/**
+	 * Segment 2i+1 is boundary i, segment 2i is the gap just below it, and the last segment is
+	 * everything above the highest boundary.
+	 */
+	private int findSegment( Semver release ) {
+		int pos = Arrays.binarySearch( boundaries, release );
+
+		return pos >= 0 ? 2 * pos + 1 : 2 * ( -pos - 1 );
+	}
+
+	/**
+	 * @return a release inside the segment, or null if no release falls in it, as with the gap
+	 * between 10.3.0 and 10.3.1
+	 */
+	private Semver getRepresentative( int segment ) {
+		if ( segment % 2 == 1 ) {
+			return boundaries[ segment / 2 ];
+		}
+
+		int above = segment / 2;
+
+		if ( above == 0 ) {
+			Semver lowest = new Semver( "0.0.0" );
+			return boundaries.length == 0 || lowest.compareTo( boundaries[ 0 ] ) < 0 ? lowest : null;
+		}
+
+		Semver below = boundaries[ above - 1 ];
+		Semver next = new Semver( below.getMajor() + "." + below.getMinor() + "." + ( below.getPatch() + 1 ) );
+
+		return above == boundaries.length || next.compareTo( boundaries[ above ] ) < 0 ? next : null;
+	}
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.catalog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.semver4j.Semver;
+
+import com.tolstoy.drupal.sheephole.api.catalog.IInstallableCatalog;
+import com.tolstoy.drupal.sheephole.api.installation.IInstallable;
+import com.tolstoy.drupal.sheephole.api.installation.IJsonUtils;
+import com.tolstoy.drupal.sheephole.api.installation.PlatformType;
+import com.tolstoy.drupal.sheephole.api.installation.ProjectType;
+import com.tolstoy.drupal.sheephole.app.installation.Installable;
+import com.tolstoy.drupal.sheephole.app.installation.MajorVersionSet;
+import com.tolstoy.drupal.sheephole.app.installation.VersionConstraint;
+
+/**
+ * One record per project, shared by every major version it supports. The per-major lists are
+ * views over the same Installable objects. A catalog is either built from JSON, fully
+ * materialized, or opened over a MappedCatalogFile, in which case records are decoded on demand.
+ */
+public class InstallableCatalog implements IInstallableCatalog {
+	private static final Logger logger = LogManager.getLogger( InstallableCatalog.class );
+	private static final int MAX_RECENTLY_DECODED = 512;
+	private static final String KEY_CORE_VERSION_REQUIREMENT = "core_version_requirement";
+
+	private final List<IInstallable> installables;
+	private final Index all;
+	private final Map<ProjectType,Index> byProjectType;
+
+	/**
+	 * Every installable's version must be a MajorVersionSet.
+	 */
+	private InstallableCatalog( List<IInstallable> installables ) {
+		this.installables = Collections.unmodifiableList( installables );
+
+		Map<ProjectType,List<IInstallable>> tempByType = new EnumMap<ProjectType,List<IInstallable>>( ProjectType.class );
+		for ( IInstallable installable : installables ) {
+			tempByType.computeIfAbsent( installable.getProjectType(), k -> new ArrayList<IInstallable>() ).add( installable );
+		}
+
+		this.all = new Index( installables );
+		this.byProjectType = new EnumMap<ProjectType,Index>( ProjectType.class );
+		for ( Map.Entry<ProjectType,List<IInstallable>> entry : tempByType.entrySet() ) {
+			this.byProjectType.put( entry.getKey(), new Index( entry.getValue() ) );
+		}
+	}
+
+	public static InstallableCatalog open( MappedCatalogFile.Snapshot snapshot, PlatformType platformType, IJsonUtils jsonUtils ) {
+		LazyInstallable.Decoder decoder = new LazyInstallable.Decoder( snapshot, platformType, jsonUtils, MAX_RECENTLY_DECODED );
+
+		List<IInstallable> installables = new ArrayList<IInstallable>( snapshot.getEntries().size() );
+		for ( MappedCatalogFile.Entry entry : snapshot.getEntries() ) {
+			installables.add( new LazyInstallable( entry, decoder ) );
+		}
+
+		InstallableCatalog catalog = new InstallableCatalog( installables );
+
+		logger.info( "opened mapped catalog of {} projects for majors {}, types {}", catalog.size(), catalog.getMajorVersions(), catalog.byProjectType.keySet() );
+
+		return catalog;
+	}
+
+	/**
+	 * Turns JSON:API dumps of one project type, one per major version, into one record per project
+	 * for a MappedCatalogFile.
+	 */
+	public static List<MappedCatalogFile.Record> toRecords( ProjectType projectType, Map<Integer,String> jsonByMajorVersion ) {
+		Map<String,JSONObject> items = new LinkedHashMap<String,JSONObject>( 16384 );
+		Map<String,MajorVersionSet> majors = new HashMap<String,MajorVersionSet>( 16384 );
+
+		for ( Map.Entry<Integer,String> entry : jsonByMajorVersion.entrySet() ) {
+			for ( Object tempObj : new JSONObject( entry.getValue() ).getJSONArray( "data" ) ) {
+				JSONObject item = (JSONObject) tempObj;
+				String machineName = CatalogStore.getMachineName( item );
+				if ( machineName == null ) {
+					continue;
+				}
+
+				items.putIfAbsent( machineName, item );
+				majors.computeIfAbsent( machineName, k -> new MajorVersionSet() ).add( entry.getKey() );
+			}
+		}
+
+		List<MappedCatalogFile.Record> ret = new ArrayList<MappedCatalogFile.Record>( items.size() );
+		for ( Map.Entry<String,JSONObject> entry : items.entrySet() ) {
+			ret.add( toRecord( projectType, entry.getValue(), majors.get( entry.getKey() ).getBits() ) );
+		}
+
+		return ret;
+	}
+
+	public static MappedCatalogFile.Record toRecord( ProjectType projectType, JSONObject item, long majorVersionBits ) {
+		JSONObject attributes = item.getJSONObject( "attributes" );
+
+		return new MappedCatalogFile.Record( projectType,
+												attributes.getString( "field_project_machine_name" ),
+												attributes.optString( "title", "" ),
+												getCoreVersionRequirement( item ),
+												majorVersionBits,
+												item.toString() );
+	}
+
+	/**
+	 * @return the project's own constraint on the platform version, null if the item has none
+	 */
+	public static String getCoreVersionRequirement( JSONObject item ) {
+		JSONObject attributes = item.optJSONObject( "attributes" );
+		String ret = attributes != null ? attributes.optString( KEY_CORE_VERSION_REQUIREMENT, "" ) : "";
+
+		return ret.isBlank() ? null : ret;
+	}
+
+	@Override
+	public List<IInstallable> getInstallables() {
+		return installables;
+	}
+
+	@Override
+	public List<IInstallable> getInstallables( int majorVersion ) {
+		return all.getInstallables( majorVersion );
+	}
+
+	@Override
+	public List<IInstallable> getInstallables( ProjectType projectType ) {
+		Index index = byProjectType.get( projectType );
+
+		return index != null ? index.installables : Collections.emptyList();
+	}
+
+	@Override
+	public List<IInstallable> getInstallables( ProjectType projectType, int majorVersion ) {
+		Index index = byProjectType.get( projectType );
+
+		return index != null ? index.getInstallables( majorVersion ) : Collections.emptyList();
+	}
+
+	@Override
+	public List<IInstallable> getCompatibleInstallables( Semver platformVersion ) {
+		return all.getCompatibility().getCompatible( platformVersion );
+	}
+
+	@Override
+	public List<IInstallable> getCompatibleInstallables( ProjectType projectType, Semver platformVersion ) {
+		Index index = byProjectType.get( projectType );
+
+		return index != null ? index.getCompatibility().getCompatible( platformVersion ) : Collections.emptyList();
+	}
+
+	@Override
+	public IInstallable getInstallable( String machineName ) {
+		return all.byMachineName.get( machineName );
+	}
+
+	@Override
+	public IInstallable getInstallable( ProjectType projectType, String machineName ) {
+		Index index = byProjectType.get( projectType );
+
+		return index != null ? index.byMachineName.get( machineName ) : null;
+	}
+
+	@Override
+	public List<Integer> getMajorVersions() {
+		return all.majorVersions;
+	}
+
+	@Override
+	public int size() {
+		return installables.size();
+	}
+
+	/**
+	 * Lookup by machine name, per-major lists and, once asked for, the compatibility index over
+	 * one group of installables.
+	 */
+	private static final class Index {
+		private final List<IInstallable> installables;
+		private final Map<String,IInstallable> byMachineName;
+		private final Map<Integer,List<IInstallable>> byMajorVersion;
+		private final List<Integer> majorVersions;
+		private volatile CompatibilityIndex compatibility;
+
+		Index( List<IInstallable> installables ) {
+			this.installables = Collections.unmodifiableList( installables );
+			this.byMachineName = new HashMap<String,IInstallable>( installables.size() * 2 );
+
+			Map<Integer,List<IInstallable>> tempByMajor = new TreeMap<Integer,List<IInstallable>>();
+
+			for ( IInstallable installable : installables ) {
+				byMachineName.putIfAbsent( installable.getMachineName(), installable );
+
+				long bits = ( (MajorVersionSet) installable.getInstallableVersion() ).getBits();
+				while ( bits != 0 ) {
+					int major = Long.numberOfTrailingZeros( bits );
+					bits &= bits - 1;
+
+					tempByMajor.computeIfAbsent( major, k -> new ArrayList<IInstallable>( installables.size() ) ).add( installable );
+				}
+			}
+
+			this.byMajorVersion = new HashMap<Integer,List<IInstallable>>();
+			for ( Map.Entry<Integer,List<IInstallable>> entry : tempByMajor.entrySet() ) {
+				ArrayList<IInstallable> list = (ArrayList<IInstallable>) entry.getValue();
+				list.trimToSize();
+				this.byMajorVersion.put( entry.getKey(), Collections.unmodifiableList( list ) );
+			}
+
+			this.majorVersions = Collections.unmodifiableList( new ArrayList<Integer>( tempByMajor.keySet() ) );
+		}
+
+		List<IInstallable> getInstallables( int majorVersion ) {
+			List<IInstallable> ret = byMajorVersion.get( majorVersion );
+
+			return ret != null ? ret : Collections.emptyList();
+		}
+
+		/**
+		 * Built on first use; a catalog that is only searched by name never pays for it.
+		 */
+		CompatibilityIndex getCompatibility() {
+			CompatibilityIndex ret = compatibility;
+
+			if ( ret == null ) {
+				synchronized ( this ) {
+					ret = compatibility;
+					if ( ret == null ) {
+						ret = new CompatibilityIndex( installables );
+						compatibility = ret;
+
+						logger.info( "built compatibility index over {} installables, {} version segments", installables.size(), ret.getSegmentCount() );
+					}
+				}
+			}
+
+			return ret;
+		}
+	}
+
+	public static class Builder {
+		private final PlatformType platformType;
+		private final IJsonUtils jsonUtils;
+		private final StringPool stringPool;
+		private final Map<String,Installable> installables;
+		private final Map<String,MajorVersionSet> majors;
+
+		public Builder( PlatformType platformType, IJsonUtils jsonUtils ) {
+			this.platformType = platformType;
+			this.jsonUtils = jsonUtils;
+			this.stringPool = new StringPool();
+			this.installables = new LinkedHashMap<String,Installable>( 16384 );
+			this.majors = new HashMap<String,MajorVersionSet>( 16384 );
+		}
+
+		public Builder addJson( String json, int majorVersion ) throws Exception {
+			return addJson( json, majorVersion, ProjectType.EXTENSION );
+		}
+
+		public Builder addJson( String json, int majorVersion, ProjectType projectType ) throws Exception {
+			JSONArray data = new JSONObject( json ).getJSONArray( "data" );
+
+			for ( Object tempObj : data ) {
+				add( (JSONObject) tempObj, majorVersion, projectType );
+			}
+
+			return this;
+		}
+
+		public Builder add( JSONObject obj, int majorVersion, ProjectType projectType ) throws Exception {
+			String machineName = CatalogStore.getMachineName( obj );
+			String key = projectType.ordinal() + ":" + machineName;
+
+			String constraint = getCoreVersionRequirement( obj );
+
+			MajorVersionSet existing = machineName != null ? majors.get( key ) : null;
+			if ( existing != null ) {
+				existing.add( majorVersion );
+				if ( !existing.hasConstraint() ) {
+					existing.setConstraint( VersionConstraint.of( constraint ) );
+				}
+				return this;
+			}
+
+			MajorVersionSet set = new MajorVersionSet( majorVersion );
+			set.setConstraint( VersionConstraint.of( constraint ) );
+			Installable installable = new Installable( obj, platformType, projectType, set, jsonUtils, stringPool );
+
+			installables.put( key, installable );
+			majors.put( key, set );
+
+			return this;
+		}
+
+		public InstallableCatalog build() {
+			InstallableCatalog catalog = new InstallableCatalog( new ArrayList<IInstallable>( installables.values() ) );
+
+			logger.info( "built catalog of {} projects for majors {}, {} pooled strings", catalog.size(), catalog.getMajorVersions(), stringPool.size() );
+
+			return catalog;
+		}
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.catalog;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONObject;
+
+import com.tolstoy.drupal.sheephole.api.installation.IInstallable;
+import com.tolstoy.drupal.sheephole.api.installation.IInstallableVersion;
+import com.tolstoy.drupal.sheephole.api.installation.IInstallationInstruction;
+import com.tolstoy.drupal.sheephole.api.installation.IJsonUtils;
+import com.tolstoy.drupal.sheephole.api.installation.PlatformType;
+import com.tolstoy.drupal.sheephole.api.installation.ProjectType;
+import com.tolstoy.drupal.sheephole.app.installation.Installable;
+import com.tolstoy.drupal.sheephole.app.installation.MajorVersionSet;
+import com.tolstoy.drupal.sheephole.app.installation.VersionConstraint;
+
+/**
+ * An installable backed by a record in a MappedCatalogFile. Title, machine name and versions
+ * come from the index, so searching never decodes anything; everything else decodes the
+ * record into an Installable, and the most recently used ones are kept. Extra data set here is
+ * kept here, since the decoded record may be evicted, and is copied onto each fresh decode.
+ */
+final class LazyInstallable implements IInstallable {
+	private final MappedCatalogFile.Entry entry;
+	private final MajorVersionSet installableVersion;
+	private final Decoder decoder;
+	private Map<String,String> extraData;
+
+	LazyInstallable( MappedCatalogFile.Entry entry, Decoder decoder ) {
+		this.entry = entry;
+		this.installableVersion = MajorVersionSet.ofBits( entry.getMajorVersionBits() );
+		this.installableVersion.setConstraint( VersionConstraint.of( entry.getConstraint() ) );
+		this.decoder = decoder;
+	}
+
+	@Override
+	public String getTitle() {
+		return entry.getTitle();
+	}
+
+	@Override
+	public String getMachineName() {
+		return entry.getMachineName();
+	}
+
+	@Override
+	public String getDescription() {
+		return decode().getDescription();
+	}
+
+	@Override
+	public String getPlainDescription( int maxLen ) {
+		return decode().getPlainDescription( maxLen );
+	}
+
+	@Override
+	public PlatformType getType() {
+		return decoder.platformType;
+	}
+
+	@Override
+	public ProjectType getProjectType() {
+		return entry.getProjectType();
+	}
+
+	@Override
+	public IInstallableVersion getInstallableVersion() {
+		return installableVersion;
+	}
+
+	@Override
+	public List<IInstallationInstruction> getInstallationInstructions() {
+		return decode().getInstallationInstructions();
+	}
+
+	@Override
+	public boolean isMatchFor( String substring ) {
+		return entry.getTitle().toLowerCase().contains( substring ) || entry.getMachineName().toLowerCase().contains( substring );
+	}
+
+	@Override
+	public String getExtraValue( String key ) {
+		synchronized ( this ) {
+			if ( extraData != null && extraData.containsKey( key ) ) {
+				return extraData.get( key );
+			}
+		}
+
+		return decode().getExtraValue( key );
+	}
+
+	@Override
+	public void setExtraData( String key, String value ) {
+		synchronized ( this ) {
+			if ( extraData == null ) {
+				extraData = new LinkedHashMap<String,String>( 4 );
+			}
+
+			extraData.put( key, value );
+		}
+
+		decode().setExtraData( key, value );
+	}
+
+	@Override
+	public String getSummary() {
+		return decode().getSummary();
+	}
+
+	@Override
+	public String toString() {
+		return entry.getTitle();
+	}
+
+	MajorVersionSet getMajorVersionSet() {
+		return installableVersion;
+	}
+
+	private Installable decode() {
+		return decoder.decode( this );
+	}
+
+	static final class Decoder {
+		private final MappedCatalogFile.Snapshot snapshot;
+		private final PlatformType platformType;
+		private final IJsonUtils jsonUtils;
+		private final Map<LazyInstallable,Installable> recent;
+
+		Decoder( MappedCatalogFile.Snapshot snapshot, PlatformType platformType, IJsonUtils jsonUtils, int maxRecent ) {
+			this.snapshot = snapshot;
+			this.platformType = platformType;
+			this.jsonUtils = jsonUtils;
+			this.recent = new LinkedHashMap<LazyInstallable,Installable>( 16, 0.75f, true ) {
+				@Override
+				protected boolean removeEldestEntry( Map.Entry<LazyInstallable,Installable> eldest ) {
+					return size() > maxRecent;
+				}
+			};
+		}
+
+		Installable decode( LazyInstallable installable ) {
+			synchronized ( recent ) {
+				Installable ret = recent.get( installable );
+				if ( ret != null ) {
+					return ret;
+				}
+			}
+
+			Installable ret;
+			try {
+				ret = new Installable( new JSONObject( snapshot.readJson( installable.entry ) ),
+										platformType,
+										installable.entry.getProjectType(),
+										installable.installableVersion,
+										jsonUtils,
+										new StringPool() );
+			}
+			catch ( Exception e ) {
+				throw new IllegalStateException( "cannot decode catalog record for " + installable.getMachineName(), e );
+			}
+
+			synchronized ( installable ) {
+				if ( installable.extraData != null ) {
+					for ( Map.Entry<String,String> entry : installable.extraData.entrySet() ) {
+						ret.setExtraData( entry.getKey(), entry.getValue() );
+					}
+				}
+			}
+
+			synchronized ( recent ) {
+				Installable existing = recent.putIfAbsent( installable, ret );
+				return existing != null ? existing : ret;
+			}
+		}
+	}
+}
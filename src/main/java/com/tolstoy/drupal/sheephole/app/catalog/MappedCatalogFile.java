@@ -0,0 +1,551 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.catalog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.tolstoy.drupal.sheephole.api.installation.ProjectType;
+import com.tolstoy.drupal.sheephole.app.storage.AtomicFiles;
+
+/**
+ * Append-only file of catalog records, read through a memory mapping. Each record is
+ * <pre>
+ * int   length of the rest of the record
+ * long  major version bits
+ * byte  project type
+ * short machine name length, UTF-8 machine name
+ * short title length, UTF-8 title
+ * short version constraint length, UTF-8 constraint, empty if the project has none
+ * int   JSON length, UTF-8 JSON:API item
+ * </pre>
+ * A later record for the same project type and machine name replaces an earlier one, so updates
+ * are appends.
+ * Scanning reads only the headers; the JSON is decoded when someone asks for it.
+ * Superseded records are dropped by {@link #compact()}.
+ * <p>
+ * Snapshots keep the file mapped for as long as anyone holds them, and Windows won't truncate,
+ * replace or delete a mapped file. So the file is never truncated, and a rewrite goes to a new
+ * generation, <code>catalog.dat.1</code>, <code>catalog.dat.2</code> and so on, with older ones
+ * deleted once nothing maps them, at the latest on the next start.
+ */
+public class MappedCatalogFile implements AutoCloseable {
+	private static final Logger logger = LogManager.getLogger( MappedCatalogFile.class );
+	private static final long MAGIC = 0x5348454550434154L;		//	"SHEEPCAT"
+	private static final int VERSION = 3;
+	private static final ProjectType[] PROJECT_TYPES = ProjectType.values();
+	private static final int HEADER_LENGTH = 16;
+	private static final int MIN_RECORD_LENGTH = 8 + 1 + 2 + 2 + 2 + 4;
+
+	private final File file;
+	private volatile int generation;
+	private FileChannel channel;
+	private volatile Snapshot snapshot;
+
+	/**
+	 * @param file the first generation's name; later ones add a number
+	 */
+	public MappedCatalogFile( File file ) throws IOException {
+		this.file = file;
+		this.generation = findGeneration( file );
+		this.channel = open( getGenerationFile( generation ) );
+
+		if ( channel.size() == 0 ) {
+			channel.write( createHeader(), 0 );
+		}
+
+		try {
+			snapshot = scan();
+
+			if ( snapshot.end < channel.size() ) {
+				logger.warn( "ignoring incomplete record at {} in {}", snapshot.end, getFile() );
+				replaceWith( getRecordBuffers( snapshot ) );
+			}
+		}
+		catch ( IOException | RuntimeException e ) {
+			//	it's only a cache of the JSON catalogs, so start over
+			logger.warn( "{}, starting a new one", e.toString() );
+			replaceWith( Collections.emptyList() );
+		}
+
+		deleteOldGenerations();
+	}
+
+	/**
+	 * @return the current generation's file
+	 */
+	public File getFile() {
+		return getGenerationFile( generation );
+	}
+
+	/**
+	 * @return the current records, one per project, in the order they were first appended
+	 */
+	public Snapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Appends one record per entry in a single write and remaps. Snapshots taken before keep
+	 * working; they simply don't see the new records.
+	 */
+	public synchronized Snapshot append( List<Record> records ) throws IOException {
+		if ( records.isEmpty() ) {
+			return snapshot;
+		}
+
+		Snapshot current = snapshot;
+
+		//	an earlier append failed part way; the file can't be truncated, so copy what is good
+		if ( channel.size() > current.end ) {
+			List<ByteBuffer> buffers = getRecordBuffers( current );
+			for ( Record record : records ) {
+				buffers.add( ByteBuffer.wrap( encode( record ) ) );
+			}
+
+			replaceWith( buffers );
+
+			return snapshot;
+		}
+
+		List<byte[]> encoded = new ArrayList<byte[]>( records.size() );
+		int total = 0;
+		for ( Record record : records ) {
+			byte[] bytes = encode( record );
+			encoded.add( bytes );
+			total += bytes.length;
+		}
+
+		ByteBuffer buf = ByteBuffer.allocate( total );
+		for ( byte[] bytes : encoded ) {
+			buf.put( bytes );
+		}
+		buf.flip();
+
+		long position = current.end;
+		while ( buf.hasRemaining() ) {
+			position += channel.write( buf, position );
+		}
+
+		snapshot = scan();
+
+		return snapshot;
+	}
+
+	/**
+	 * Rewrites the file with only the current record for each project, then swaps it in.
+	 */
+	public synchronized Snapshot compact() throws IOException {
+		Snapshot current = snapshot;
+
+		if ( current.getSupersededCount() == 0 ) {
+			return current;
+		}
+
+		replaceWith( getRecordBuffers( current ) );
+
+		logger.info( "compacted {}: dropped {} superseded records", getFile(), current.getSupersededCount() );
+
+		return snapshot;
+	}
+
+	/**
+	 * Replaces the whole file with the given records.
+	 */
+	public synchronized Snapshot rewrite( List<Record> records ) throws IOException {
+		List<ByteBuffer> encoded = new ArrayList<ByteBuffer>( records.size() );
+		for ( Record record : records ) {
+			encoded.add( ByteBuffer.wrap( encode( record ) ) );
+		}
+
+		replaceWith( encoded );
+
+		return snapshot;
+	}
+
+	/**
+	 * Writes the records to the next generation and switches to it. The current file stays as
+	 * it is, since snapshots may still map it.
+	 */
+	private synchronized void replaceWith( List<ByteBuffer> records ) throws IOException {
+		int next = generation + 1;
+		File target = getGenerationFile( next );
+
+		AtomicFiles.write( target, temp -> {
+			try ( FileChannel out = FileChannel.open( temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING ) ) {
+				out.write( createHeader() );
+
+				for ( ByteBuffer record : records ) {
+					while ( record.hasRemaining() ) {
+						out.write( record );
+					}
+				}
+
+				out.force( true );
+			}
+		});
+
+		//	mappings outlive the channel, so old snapshots stay readable
+		FileChannel old = channel;
+		channel = open( target );
+		generation = next;
+		old.close();
+
+		snapshot = scan();
+
+		deleteOldGenerations();
+	}
+
+	/**
+	 * Best effort: a generation some snapshot still maps can't be deleted on Windows, and is
+	 * tried again after the next rewrite or start.
+	 */
+	private void deleteOldGenerations() {
+		File[] files = file.getParentFile().listFiles();
+		if ( files == null ) {
+			return;
+		}
+
+		for ( File other : files ) {
+			int otherGeneration = getGeneration( file, other );
+			if ( otherGeneration < 0 || otherGeneration == generation ) {
+				continue;
+			}
+
+			try {
+				Files.deleteIfExists( other.toPath() );
+			}
+			catch ( IOException e ) {
+				logger.debug( "cannot delete {} yet: {}", other, e.getMessage() );
+			}
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Stops at a torn append, leaving the snapshot's end short of the file's size.
+	 * @throws IOException if a complete record doesn't hold together
+	 */
+	protected Snapshot scan() throws IOException {
+		File current = getFile();
+		long size = channel.size();
+		if ( size > Integer.MAX_VALUE ) {
+			throw new IOException( current + " is too large to map: " + size );
+		}
+
+		MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, size );
+
+		if ( size < HEADER_LENGTH || buffer.getLong( 0 ) != MAGIC || buffer.getInt( 8 ) != VERSION ) {
+			throw new IOException( current + " is not a version " + VERSION + " catalog file" );
+		}
+
+		Map<String,Entry> entries = new LinkedHashMap<String,Entry>( 16384 );
+		int count = 0;
+		int position = HEADER_LENGTH;
+
+		while ( position + 4 <= size ) {
+			int length = buffer.getInt( position );
+			if ( length <= 0 || position + 4L + length > size ) {
+				//	torn append
+				break;
+			}
+
+			if ( length < MIN_RECORD_LENGTH ) {
+				throw corrupt( current, position );
+			}
+
+			int end = position + 4 + length;
+			int p = position + 4;
+			long bits = buffer.getLong( p );
+			p += 8;
+			int typeIndex = buffer.get( p );
+			if ( typeIndex < 0 || typeIndex >= PROJECT_TYPES.length ) {
+				throw corrupt( current, position );
+			}
+			ProjectType projectType = PROJECT_TYPES[ typeIndex ];
+			p += 1;
+			int machineNameLength = buffer.getShort( p ) & 0xFFFF;
+			p += 2;
+			if ( p + machineNameLength + 2 > end ) {
+				throw corrupt( current, position );
+			}
+			String machineName = decodeString( buffer, p, machineNameLength );
+			p += machineNameLength;
+			int titleLength = buffer.getShort( p ) & 0xFFFF;
+			p += 2;
+			if ( p + titleLength + 2 > end ) {
+				throw corrupt( current, position );
+			}
+			String title = decodeString( buffer, p, titleLength );
+			p += titleLength;
+			int constraintLength = buffer.getShort( p ) & 0xFFFF;
+			p += 2;
+			if ( p + constraintLength + 4 > end ) {
+				throw corrupt( current, position );
+			}
+			String constraint = constraintLength > 0 ? decodeString( buffer, p, constraintLength ) : null;
+			p += constraintLength;
+			if ( p + 4L + buffer.getInt( p ) != end ) {
+				throw corrupt( current, position );
+			}
+
+			entries.put( projectType.ordinal() + ":" + machineName, new Entry( position, length, projectType, machineName, title, constraint, bits ) );
+			count++;
+
+			position += 4 + length;
+		}
+
+		return new Snapshot( buffer, new ArrayList<Entry>( entries.values() ), count - entries.size(), position );
+	}
+
+	private static IOException corrupt( File file, int position ) {
+		return new IOException( "corrupt record at " + position + " in " + file );
+	}
+
+	/**
+	 * @return a buffer over each current record of the snapshot, in order
+	 */
+	private static List<ByteBuffer> getRecordBuffers( Snapshot snapshot ) {
+		List<ByteBuffer> ret = new ArrayList<ByteBuffer>( snapshot.getEntries().size() );
+		for ( Entry entry : snapshot.getEntries() ) {
+			ByteBuffer record = snapshot.buffer.duplicate();
+			record.position( (int) entry.offset ).limit( (int) ( entry.offset + 4 + entry.length ) );
+			ret.add( record );
+		}
+
+		return ret;
+	}
+
+	private File getGenerationFile( int gen ) {
+		return gen == 0 ? file : new File( file.getParentFile(), file.getName() + "." + gen );
+	}
+
+	/**
+	 * @return the newest generation on disk, 0 if there are none
+	 */
+	private static int findGeneration( File file ) {
+		int ret = 0;
+
+		File[] files = file.getParentFile().listFiles();
+		if ( files != null ) {
+			for ( File other : files ) {
+				ret = Math.max( ret, getGeneration( file, other ) );
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * @return which generation of <code>file</code> <code>other</code> is, -1 if it isn't one
+	 */
+	private static int getGeneration( File file, File other ) {
+		String name = other.getName();
+
+		if ( name.equals( file.getName() ) ) {
+			return 0;
+		}
+
+		String prefix = file.getName() + ".";
+		if ( !name.startsWith( prefix ) || name.length() == prefix.length() || name.length() > prefix.length() + 9 ) {
+			return -1;
+		}
+
+		for ( int i = prefix.length(); i < name.length(); i++ ) {
+			if ( name.charAt( i ) < '0' || name.charAt( i ) > '9' ) {
+				return -1;
+			}
+		}
+
+		return Integer.parseInt( name.substring( prefix.length() ) );
+	}
+
+	private static ByteBuffer createHeader() {
+		ByteBuffer header = ByteBuffer.allocate( HEADER_LENGTH );
+		header.putLong( MAGIC ).putInt( VERSION ).putInt( 0 ).flip();
+
+		return header;
+	}
+
+	private static FileChannel open( File file ) throws IOException {
+		return FileChannel.open( file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE );
+	}
+
+	protected byte[] encode( Record record ) {
+		byte[] machineName = record.machineName.getBytes( StandardCharsets.UTF_8 );
+		byte[] title = truncate( record.title.getBytes( StandardCharsets.UTF_8 ) );
+		byte[] constraint = truncate( record.constraint.getBytes( StandardCharsets.UTF_8 ) );
+		byte[] json = record.json.getBytes( StandardCharsets.UTF_8 );
+
+		if ( machineName.length > 0xFFFF ) {
+			throw new IllegalArgumentException( "machine name too long: " + record.machineName );
+		}
+
+		int length = 8 + 1 + 2 + machineName.length + 2 + title.length + 2 + constraint.length + 4 + json.length;
+
+		ByteBuffer buf = ByteBuffer.allocate( 4 + length );
+		buf.putInt( length );
+		buf.putLong( record.majorVersionBits );
+		buf.put( (byte) record.projectType.ordinal() );
+		buf.putShort( (short) machineName.length ).put( machineName );
+		buf.putShort( (short) title.length ).put( title );
+		buf.putShort( (short) constraint.length ).put( constraint );
+		buf.putInt( json.length ).put( json );
+
+		return buf.array();
+	}
+
+	private static byte[] truncate( byte[] bytes ) {
+		if ( bytes.length <= 0xFFFF ) {
+			return bytes;
+		}
+
+		//	back up to a character boundary
+		int len = 0xFFFF;
+		while ( len > 0 && ( bytes[ len ] & 0xC0 ) == 0x80 ) {
+			len--;
+		}
+
+		byte[] ret = new byte[ len ];
+		System.arraycopy( bytes, 0, ret, 0, len );
+
+		return ret;
+	}
+
+	private static String decodeString( ByteBuffer buffer, int position, int length ) {
+		byte[] bytes = new byte[ length ];
+		buffer.get( position, bytes );
+
+		return new String( bytes, StandardCharsets.UTF_8 );
+	}
+
+	public static final class Record {
+		private final ProjectType projectType;
+		private final String machineName;
+		private final String title;
+		private final String constraint;
+		private final long majorVersionBits;
+		private final String json;
+
+		public Record( ProjectType projectType, String machineName, String title, String constraint, long majorVersionBits, String json ) {
+			this.projectType = projectType;
+			this.machineName = machineName;
+			this.title = title != null ? title : "";
+			this.constraint = constraint != null ? constraint : "";
+			this.majorVersionBits = majorVersionBits;
+			this.json = json;
+		}
+	}
+
+	/**
+	 * What the index keeps in memory for each project: enough to search and filter by version
+	 * without touching the JSON.
+	 */
+	public static final class Entry {
+		private final long offset;
+		private final int length;
+		private final ProjectType projectType;
+		private final String machineName;
+		private final String title;
+		private final String constraint;
+		private final long majorVersionBits;
+
+		Entry( long offset, int length, ProjectType projectType, String machineName, String title, String constraint, long majorVersionBits ) {
+			this.offset = offset;
+			this.length = length;
+			this.projectType = projectType;
+			this.machineName = machineName;
+			this.title = title;
+			this.constraint = constraint;
+			this.majorVersionBits = majorVersionBits;
+		}
+
+		public ProjectType getProjectType() {
+			return projectType;
+		}
+
+		public String getMachineName() {
+			return machineName;
+		}
+
+		public String getTitle() {
+			return title;
+		}
+
+		/**
+		 * @return the project's version constraint, null if it has none
+		 */
+		public String getConstraint() {
+			return constraint;
+		}
+
+		public long getMajorVersionBits() {
+			return majorVersionBits;
+		}
+	}
+
+	/**
+	 * An immutable view of the file as of one scan. Reads are absolute, so any number of
+	 * threads can share it.
+	 */
+	public static final class Snapshot {
+		private final MappedByteBuffer buffer;
+		private final List<Entry> entries;
+		private final int supersededCount;
+		private final long end;
+
+		Snapshot( MappedByteBuffer buffer, List<Entry> entries, int supersededCount, long end ) {
+			this.buffer = buffer;
+			this.entries = Collections.unmodifiableList( entries );
+			this.supersededCount = supersededCount;
+			this.end = end;
+		}
+
+		public List<Entry> getEntries() {
+			return entries;
+		}
+
+		public int getSupersededCount() {
+			return supersededCount;
+		}
+
+		public String readJson( Entry entry ) {
+			int p = (int) entry.offset + 4 + 8 + 1;
+			p += 2 + ( buffer.getShort( p ) & 0xFFFF );
+			p += 2 + ( buffer.getShort( p ) & 0xFFFF );
+			p += 2 + ( buffer.getShort( p ) & 0xFFFF );
+			int jsonLength = buffer.getInt( p );
+
+			return decodeString( buffer, p + 4, jsonLength );
+		}
+	}
+}
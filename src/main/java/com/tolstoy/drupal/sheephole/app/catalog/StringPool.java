@@ -0,0 +1,43 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.catalog;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Canonicalizes repeated strings while a catalog is being built. Unlike String.intern the
+ * pool is dropped with the builder, so nothing is pinned once the catalog is done.
+ */
+public class StringPool {
+	private final Map<String,String> pool;
+
+	public StringPool() {
+		this.pool = new HashMap<String,String>( 1024 );
+	}
+
+	public String get( String s ) {
+		if ( s == null ) {
+			return null;
+		}
+
+		String existing = pool.putIfAbsent( s, s );
+
+		return existing != null ? existing : s;
+	}
+
+	public int size() {
+		return pool.size();
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.composer;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.semver4j.Semver;
+
+import com.tolstoy.drupal.sheephole.app.installation.VersionConstraint;
+
+/**
+ * Decides locally, from the site's composer.json and composer.lock and the package's release
+ * metadata, whether a plain <code>composer require</code> can work or minimum-stability has to be
+ * lowered first, so the remote composer only runs once. Whether the package is already there is
+ * up to composer.json; the lock file is only read for the installed core version.
+ * <p>
+ * It only looks at the requirement on the platform package (drupal/core), which is what decides
+ * between the two in practice. Anything else is left to composer.
+ */
+public class ComposerPreflight {
+	private static final Logger logger = LogManager.getLogger( ComposerPreflight.class );
+	private static final String CORE_PACKAGE = "drupal/core";
+	private static final String[] STABILITIES = { "dev", "alpha", "beta", "RC", "stable" };
+	private static final Pattern PRE_RELEASE_PATTERN = Pattern.compile( ".*[._\\-\\d](alpha|a|beta|b|rc)[._\\-]?\\d*" );
+
+	private final PackageMetadataCache metadataCache;
+
+	public ComposerPreflight( PackageMetadataCache metadataCache ) {
+		this.metadataCache = metadataCache;
+	}
+
+	/**
+	 * @param composerLock null if the site has none
+	 * @param platformVersion used when the lock file doesn't say which core is installed
+	 */
+	public Decision check( String packageName, String composerJson, String composerLock, Semver platformVersion ) {
+		JSONObject json = parse( composerJson );
+		JSONObject lock = parse( composerLock );
+
+		//	a package that is only in the lock is some other package's dependency, and still needs requiring
+		String requiredVersion = json != null ? findRequiredVersion( json, packageName ) : null;
+		if ( requiredVersion != null ) {
+			return new Decision( InstallStrategy.ALREADY_INSTALLED, packageName + " " + requiredVersion + " is already required" );
+		}
+
+		int minimumStability = getStabilityRank( json != null ? json.optString( "minimum-stability", "stable" ) : "stable" );
+
+		Semver coreVersion = platformVersion;
+		String lockedCore = lock != null ? findLockedVersion( lock, CORE_PACKAGE ) : null;
+		if ( lockedCore != null ) {
+			try {
+				coreVersion = new Semver( lockedCore.startsWith( "v" ) ? lockedCore.substring( 1 ) : lockedCore );
+			}
+			catch ( RuntimeException e ) {
+				logger.debug( "cannot parse locked core version {}", lockedCore );
+			}
+		}
+
+		if ( coreVersion == null ) {
+			return new Decision( InstallStrategy.UNKNOWN, "the site's core version is not known" );
+		}
+
+		try {
+			List<JSONObject> releases = metadataCache.getReleases( packageName );
+			int best = getBestCompatibleStability( releases, coreVersion );
+
+			if ( best >= minimumStability ) {
+				return new Decision( InstallStrategy.PLAIN, "a " + STABILITIES[ best ] + " release supports core " + coreVersion );
+			}
+
+			if ( best < 0 ) {
+				best = getBestCompatibleStability( metadataCache.getDevReleases( packageName ), coreVersion );
+			}
+
+			if ( best >= 0 ) {
+				return new Decision( InstallStrategy.ALLOW_DEV, "only " + STABILITIES[ best ] + " versions support core " + coreVersion );
+			}
+
+			if ( releases.isEmpty() ) {
+				return new Decision( InstallStrategy.UNKNOWN, "no metadata for " + packageName );
+			}
+
+			return new Decision( InstallStrategy.UNRESOLVABLE, "no version of " + packageName + " supports core " + coreVersion );
+		}
+		catch ( Exception e ) {
+			logger.warn( "cannot get metadata for {}: {}", packageName, e.getMessage() );
+			return new Decision( InstallStrategy.UNKNOWN, "metadata unavailable: " + e.getMessage() );
+		}
+	}
+
+	/**
+	 * @return the rank of the most stable version whose core requirement the core version
+	 * satisfies, -1 if there is none
+	 */
+	protected int getBestCompatibleStability( List<JSONObject> releases, Semver coreVersion ) {
+		int ret = -1;
+
+		for ( JSONObject release : releases ) {
+			int stability = getStabilityRank( getStability( release.optString( "version", "" ) ) );
+			if ( stability <= ret ) {
+				continue;
+			}
+
+			JSONObject require = release.optJSONObject( "require" );
+			String coreConstraint = require != null ? require.optString( CORE_PACKAGE, null ) : null;
+			VersionConstraint constraint = VersionConstraint.of( coreConstraint );
+
+			//	no or unparseable core requirement: composer might well take it
+			if ( constraint == null || constraint.isSatisfiedBy( coreVersion ) ) {
+				ret = stability;
+				if ( ret == STABILITIES.length - 1 ) {
+					break;
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Composer's reading of a version string: a -dev suffix or dev- prefix is dev, a trailing
+	 * alpha/beta/RC marker is that, anything else is stable.
+	 */
+	public static String getStability( String version ) {
+		String lower = version.toLowerCase();
+
+		if ( lower.startsWith( "dev-" ) || lower.endsWith( "-dev" ) ) {
+			return "dev";
+		}
+		Matcher matcher = PRE_RELEASE_PATTERN.matcher( lower );
+		if ( matcher.matches() ) {
+			String marker = matcher.group( 1 );
+			return marker.startsWith( "a" ) ? "alpha" : marker.startsWith( "b" ) ? "beta" : "RC";
+		}
+
+		return "stable";
+	}
+
+	protected static int getStabilityRank( String stability ) {
+		for ( int i = 0; i < STABILITIES.length; i++ ) {
+			if ( STABILITIES[ i ].equalsIgnoreCase( stability ) ) {
+				return i;
+			}
+		}
+
+		return STABILITIES.length - 1;
+	}
+
+	/**
+	 * @return the constraint composer.json gives the package, null if it doesn't require it
+	 */
+	protected static String findRequiredVersion( JSONObject json, String packageName ) {
+		for ( String section : new String[] { "require", "require-dev" } ) {
+			JSONObject require = json.optJSONObject( section );
+			if ( require != null && require.has( packageName ) ) {
+				return require.optString( packageName, "" );
+			}
+		}
+
+		return null;
+	}
+
+	protected static String findLockedVersion( JSONObject lock, String packageName ) {
+		for ( String section : new String[] { "packages", "packages-dev" } ) {
+			JSONArray packages = lock.optJSONArray( section );
+			if ( packages == null ) {
+				continue;
+			}
+
+			for ( Object tempObj : packages ) {
+				JSONObject pkg = (JSONObject) tempObj;
+				if ( packageName.equals( pkg.optString( "name" ) ) ) {
+					return pkg.optString( "version", "" );
+				}
+			}
+		}
+
+		return null;
+	}
+
+	private static JSONObject parse( String json ) {
+		if ( json == null || json.isBlank() ) {
+			return null;
+		}
+
+		try {
+			return new JSONObject( json );
+		}
+		catch ( JSONException e ) {
+			logger.debug( "unparseable composer file: {}", e.getMessage() );
+			return null;
+		}
+	}
+
+	public static final class Decision {
+		private final InstallStrategy strategy;
+		private final String reason;
+
+		Decision( InstallStrategy strategy, String reason ) {
+			this.strategy = strategy;
+			this.reason = reason;
+		}
+
+		public InstallStrategy getStrategy() {
+			return strategy;
+		}
+
+		public String getReason() {
+			return reason;
+		}
+
+		@Override
+		public String toString() {
+			return strategy + ": " + reason;
+		}
+	}
+}
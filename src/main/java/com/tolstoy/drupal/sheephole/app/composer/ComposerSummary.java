@@ -0,0 +1,97 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.composer;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * What a composer run said it did, read from its output a line at a time, e.g.
+ * "Package operations: 2 installs, 1 update, 0 removals".
+ */
+public class ComposerSummary {
+	private static final Pattern OPERATIONS = Pattern.compile( "^\\s*Package operations:\\s+(\\d+)\\s+installs?,\\s+(\\d+)\\s+updates?,\\s+(\\d+)\\s+removals?" );
+
+	private int installs = -1;
+	private int updates = -1;
+	private int removals = -1;
+	private boolean nothingToDo;
+	private boolean lockFileWritten;
+	private int problems;
+
+	public synchronized void accept( String line ) {
+		Matcher matcher = OPERATIONS.matcher( line );
+		if ( matcher.find() ) {
+			installs = Integer.parseInt( matcher.group( 1 ) );
+			updates = Integer.parseInt( matcher.group( 2 ) );
+			removals = Integer.parseInt( matcher.group( 3 ) );
+			return;
+		}
+
+		String trimmed = line.trim();
+
+		if ( trimmed.startsWith( "Nothing to install, update or remove" ) ) {
+			nothingToDo = true;
+		}
+		else if ( trimmed.startsWith( "Writing lock file" ) ) {
+			lockFileWritten = true;
+		}
+		else if ( trimmed.startsWith( "Problem " ) ) {
+			problems++;
+		}
+	}
+
+	/**
+	 * @return -1 if composer didn't list its package operations
+	 */
+	public synchronized int getInstalls() {
+		return installs;
+	}
+
+	public synchronized int getUpdates() {
+		return updates;
+	}
+
+	public synchronized int getRemovals() {
+		return removals;
+	}
+
+	public synchronized boolean isNothingToDo() {
+		return nothingToDo;
+	}
+
+	public synchronized boolean isLockFileWritten() {
+		return lockFileWritten;
+	}
+
+	/**
+	 * @return how many "Problem N" entries the dependency solver reported
+	 */
+	public synchronized int getProblems() {
+		return problems;
+	}
+
+	@Override
+	public synchronized String toString() {
+		if ( nothingToDo ) {
+			return "nothing to do";
+		}
+
+		if ( installs < 0 ) {
+			return problems > 0 ? problems + " problems" : "no operations listed";
+		}
+
+		return installs + " installs, " + updates + " updates, " + removals + " removals" + ( problems > 0 ? ", " + problems + " problems" : "" );
+	}
+}
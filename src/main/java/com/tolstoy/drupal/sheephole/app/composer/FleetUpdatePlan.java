@@ -0,0 +1,84 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.composer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The dry-run results for a set of sites, and the same changes grouped by package.
+ */
+public class FleetUpdatePlan {
+	private final List<UpdatePlan> plans;
+
+	public FleetUpdatePlan( List<UpdatePlan> plans ) {
+		this.plans = Collections.unmodifiableList( plans );
+	}
+
+	public List<UpdatePlan> getPlans() {
+		return plans;
+	}
+
+	/**
+	 * @return the sites that have something to update
+	 */
+	public List<UpdatePlan> getPending() {
+		List<UpdatePlan> ret = new ArrayList<UpdatePlan>();
+		for ( UpdatePlan plan : plans ) {
+			if ( plan.hasChanges() ) {
+				ret.add( plan );
+			}
+		}
+
+		return ret;
+	}
+
+	public List<UpdatePlan> getFailed() {
+		List<UpdatePlan> ret = new ArrayList<UpdatePlan>();
+		for ( UpdatePlan plan : plans ) {
+			if ( plan.isFailed() ) {
+				ret.add( plan );
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * @return "package change" to the titles of the sites it would happen on, sorted by package,
+	 * e.g. "drupal/core 10.3.6 =&gt; 10.3.9" to three sites
+	 */
+	public Map<String,List<String>> getChanges() {
+		Map<String,List<String>> ret = new TreeMap<String,List<String>>();
+
+		for ( UpdatePlan plan : plans ) {
+			for ( UpdateOperation op : plan.getOperations() ) {
+				ret.computeIfAbsent( op.toString(), k -> new ArrayList<String>() ).add( plan.getProfile().getTitle() );
+			}
+		}
+
+		return ret;
+	}
+
+	@Override
+	public String toString() {
+		int failed = getFailed().size();
+		int pending = getPending().size();
+
+		return pending + " of " + plans.size() + " sites have updates, " + ( plans.size() - pending - failed ) + " up to date, " + failed + " could not be checked";
+	}
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.composer;
+
+/**
+ * How a <code>composer require</code> should be run, as decided before connecting composer to
+ * anything.
+ */
+public enum InstallStrategy {
+	/** composer.json already requires the package */
+	ALREADY_INSTALLED,
+	/** a release compatible with the site is allowed by its minimum-stability */
+	PLAIN,
+	/** only pre-release or dev versions are compatible, so minimum-stability has to be lowered */
+	ALLOW_DEV,
+	/** nothing the repository has works with the site */
+	UNRESOLVABLE,
+	/** no metadata to go on; try plain, then allow-dev */
+	UNKNOWN;
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.composer;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.tolstoy.drupal.sheephole.app.storage.AtomicFiles;
+
+/**
+ * Release metadata for composer packages, in the composer 2 "p2" format that packagist.org and
+ * packages.drupal.org serve, kept on disk so a fleet of installs costs one download per package.
+ * A cached copy younger than maxAge is used as is; an older one is revalidated with
+ * If-Modified-Since.
+ */
+public class PackageMetadataCache {
+	private static final Logger logger = LogManager.getLogger( PackageMetadataCache.class );
+	private static final String PACKAGE_PLACEHOLDER = "%package%";
+	private static final String DEV_SUFFIX = "~dev";
+
+	private final File directory;
+	private final Map<String,String> urlTemplates;
+	private final Duration maxAge;
+	private final Duration timeout;
+	private final HttpClient client;
+	private final Map<String,List<JSONObject>> recent;
+
+	/**
+	 * @param urlTemplates metadata URL per vendor, with %package% standing for "vendor/name";
+	 * the "" entry is used for vendors without one of their own
+	 */
+	public PackageMetadataCache( File directory, Map<String,String> urlTemplates, Duration maxAge, Duration timeout ) throws IOException {
+		this.directory = directory;
+		this.urlTemplates = urlTemplates;
+		this.maxAge = maxAge;
+		this.timeout = timeout;
+		this.client = HttpClient.newBuilder()
+						.connectTimeout( timeout )
+						.followRedirects( HttpClient.Redirect.NORMAL )
+						.build();
+		this.recent = new ConcurrentHashMap<String,List<JSONObject>>();
+
+		Files.createDirectories( directory.toPath() );
+	}
+
+	/**
+	 * @return the tagged releases, newest first; empty if the repository doesn't know the package
+	 */
+	public List<JSONObject> getReleases( String packageName ) throws Exception {
+		return get( packageName, "" );
+	}
+
+	/**
+	 * @return the branch (dev) versions, which repositories keep in a separate file
+	 */
+	public List<JSONObject> getDevReleases( String packageName ) throws Exception {
+		return get( packageName, DEV_SUFFIX );
+	}
+
+	protected List<JSONObject> get( String packageName, String suffix ) throws Exception {
+		String key = packageName + suffix;
+		File file = getCacheFile( key );
+
+		List<JSONObject> ret = recent.get( key );
+		if ( ret != null && isFresh( file ) ) {
+			return ret;
+		}
+
+		String json = fetch( packageName, suffix, file );
+		ret = json != null ? expand( new JSONObject( json ), packageName ) : Collections.emptyList();
+
+		recent.put( key, ret );
+
+		return ret;
+	}
+
+	/**
+	 * @return the metadata, from the cache when it is fresh or the server says it still is,
+	 * null if the server doesn't have the package
+	 */
+	protected String fetch( String packageName, String suffix, File file ) throws Exception {
+		if ( isFresh( file ) ) {
+			return Files.readString( file.toPath(), StandardCharsets.UTF_8 );
+		}
+
+		String url = getUrlTemplate( packageName ).replace( PACKAGE_PLACEHOLDER, packageName + suffix );
+
+		HttpRequest.Builder builder = HttpRequest.newBuilder( URI.create( url ) )
+										.timeout( timeout )
+										.header( "Accept", "application/json" )
+										.GET();
+
+		if ( file.isFile() ) {
+			builder.header( "If-Modified-Since", DateTimeFormatter.RFC_1123_DATE_TIME.format( Instant.ofEpochMilli( file.lastModified() ).atOffset( ZoneOffset.UTC ) ) );
+		}
+
+		HttpResponse<String> response = client.send( builder.build(), HttpResponse.BodyHandlers.ofString( StandardCharsets.UTF_8 ) );
+
+		if ( response.statusCode() == 304 ) {
+			logger.debug( "{} unchanged", url );
+			file.setLastModified( System.currentTimeMillis() );
+			return Files.readString( file.toPath(), StandardCharsets.UTF_8 );
+		}
+
+		if ( response.statusCode() == 404 ) {
+			logger.debug( "{} not found", url );
+			return null;
+		}
+
+		if ( response.statusCode() != 200 ) {
+			throw new IOException( "package metadata request got HTTP " + response.statusCode() + " from " + url );
+		}
+
+		AtomicFiles.write( file, response.body() );
+
+		return response.body();
+	}
+
+	/**
+	 * The p2 format lists each version's fields only where they differ from the version before
+	 * it, with "__unset" removing one; this undoes that.
+	 */
+	public static List<JSONObject> expand( JSONObject root, String packageName ) {
+		JSONObject packages = root.optJSONObject( "packages" );
+		JSONArray versions = packages != null ? packages.optJSONArray( packageName ) : null;
+
+		if ( versions == null ) {
+			return Collections.emptyList();
+		}
+
+		boolean minified = "composer/2.0".equals( root.optString( "minified", null ) );
+
+		List<JSONObject> ret = new ArrayList<JSONObject>( versions.length() );
+		JSONObject previous = null;
+
+		for ( Object tempObj : versions ) {
+			JSONObject version = (JSONObject) tempObj;
+
+			if ( minified && previous != null ) {
+				JSONObject expanded = new JSONObject( previous.toMap() );
+				for ( String key : version.keySet() ) {
+					Object value = version.get( key );
+					if ( "__unset".equals( value ) ) {
+						expanded.remove( key );
+					}
+					else {
+						expanded.put( key, value );
+					}
+				}
+				version = expanded;
+			}
+
+			ret.add( version );
+			previous = version;
+		}
+
+		return Collections.unmodifiableList( ret );
+	}
+
+	protected String getUrlTemplate( String packageName ) {
+		int slash = packageName.indexOf( '/' );
+		String template = slash > 0 ? urlTemplates.get( packageName.substring( 0, slash ) ) : null;
+
+		return template != null && template.length() > 0 ? template : urlTemplates.get( "" );
+	}
+
+	protected boolean isFresh( File file ) {
+		return file.isFile() && System.currentTimeMillis() - file.lastModified() < maxAge.toMillis();
+	}
+
+	protected File getCacheFile( String key ) {
+		return new File( directory, key.replace( '/', '~' ) + ".json" );
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.composer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One package change that <code>composer update</code> would make.
+ */
+public class UpdateOperation {
+	public enum Type {
+		INSTALL,
+		UPDATE,
+		DOWNGRADE,
+		REMOVE;
+	}
+
+	private static final Pattern CHANGE = Pattern.compile( "^\\s*-\\s+(Upgrading|Downgrading|Updating)\\s+(\\S+)\\s+\\(([^)]*?)\\s+=>\\s+([^)]*?)\\)" );
+	//	composer 1: "Updating drupal/core (8.9.1) to drupal/core (8.9.2)"
+	private static final Pattern LEGACY_CHANGE = Pattern.compile( "^\\s*-\\s+Updating\\s+(\\S+)\\s+\\(([^)]*)\\)\\s+to\\s+\\S+\\s+\\(([^)]*)\\)" );
+	private static final Pattern INSTALL = Pattern.compile( "^\\s*-\\s+(Installing|Locking)\\s+(\\S+)\\s+\\(([^)]*)\\)" );
+	private static final Pattern REMOVE = Pattern.compile( "^\\s*-\\s+Removing\\s+(\\S+)\\s+\\(([^)]*)\\)" );
+
+	private final Type type;
+	private final String packageName;
+	private final String fromVersion;
+	private final String toVersion;
+
+	/**
+	 * @param fromVersion null for an install
+	 * @param toVersion null for a removal
+	 */
+	public UpdateOperation( Type type, String packageName, String fromVersion, String toVersion ) {
+		this.type = type;
+		this.packageName = packageName;
+		this.fromVersion = fromVersion;
+		this.toVersion = toVersion;
+	}
+
+	/**
+	 * Reads the operations out of <code>composer update --dry-run</code> output. Composer lists
+	 * a change once for the lock file and again for the vendor directory; each package is
+	 * returned once.
+	 */
+	public static List<UpdateOperation> parse( String output ) {
+		Parser parser = new Parser();
+
+		for ( String line : output.split( "\\R" ) ) {
+			parser.accept( line );
+		}
+
+		return parser.getOperations();
+	}
+
+	protected static UpdateOperation parseLine( String line ) {
+		Matcher matcher = LEGACY_CHANGE.matcher( line );
+		if ( matcher.find() ) {
+			return new UpdateOperation( Type.UPDATE, matcher.group( 1 ), matcher.group( 2 ).trim(), matcher.group( 3 ).trim() );
+		}
+
+		matcher = CHANGE.matcher( line );
+		if ( matcher.find() ) {
+			Type type = "Downgrading".equals( matcher.group( 1 ) ) ? Type.DOWNGRADE : Type.UPDATE;
+			return new UpdateOperation( type, matcher.group( 2 ), matcher.group( 3 ).trim(), matcher.group( 4 ).trim() );
+		}
+
+		matcher = INSTALL.matcher( line );
+		if ( matcher.find() ) {
+			return new UpdateOperation( Type.INSTALL, matcher.group( 2 ), null, matcher.group( 3 ).trim() );
+		}
+
+		matcher = REMOVE.matcher( line );
+		if ( matcher.find() ) {
+			return new UpdateOperation( Type.REMOVE, matcher.group( 1 ), matcher.group( 2 ).trim(), null );
+		}
+
+		return null;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public String getPackageName() {
+		return packageName;
+	}
+
+	public String getFromVersion() {
+		return fromVersion;
+	}
+
+	public String getToVersion() {
+		return toVersion;
+	}
+
+	/**
+	 * @return the change without the package, e.g. "10.3.6 =&gt; 10.3.9", "+ 1.2.0" or "- 2.1.0"
+	 */
+	public String getChange() {
+		switch ( type ) {
+			case INSTALL:
+				return "+ " + toVersion;
+			case REMOVE:
+				return "- " + fromVersion;
+			default:
+				return fromVersion + " => " + toVersion;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return packageName + " " + getChange();
+	}
+
+	/**
+	 * Like parse, but fed a line at a time as the output arrives.
+	 */
+	public static class Parser implements Consumer<String> {
+		private final Map<String,UpdateOperation> operations = new LinkedHashMap<String,UpdateOperation>();
+
+		@Override
+		public synchronized void accept( String line ) {
+			UpdateOperation op = parseLine( line );
+			if ( op != null ) {
+				operations.put( op.packageName, op );
+			}
+		}
+
+		public synchronized List<UpdateOperation> getOperations() {
+			return new ArrayList<UpdateOperation>( operations.values() );
+		}
+	}
+}
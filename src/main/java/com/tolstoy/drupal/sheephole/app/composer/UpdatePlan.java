@@ -0,0 +1,72 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.composer;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.tolstoy.drupal.sheephole.api.installation.ISiteProfile;
+
+/**
+ * What <code>composer update</code> would do on one site, or why that couldn't be found out.
+ */
+public class UpdatePlan {
+	private final ISiteProfile profile;
+	private final List<UpdateOperation> operations;
+	private final String error;
+
+	public UpdatePlan( ISiteProfile profile, List<UpdateOperation> operations ) {
+		this.profile = profile;
+		this.operations = Collections.unmodifiableList( operations );
+		this.error = null;
+	}
+
+	public UpdatePlan( ISiteProfile profile, String error ) {
+		this.profile = profile;
+		this.operations = Collections.emptyList();
+		this.error = error;
+	}
+
+	public ISiteProfile getProfile() {
+		return profile;
+	}
+
+	public List<UpdateOperation> getOperations() {
+		return operations;
+	}
+
+	/**
+	 * @return null if the dry run worked
+	 */
+	public String getError() {
+		return error;
+	}
+
+	public boolean isFailed() {
+		return error != null;
+	}
+
+	public boolean hasChanges() {
+		return !operations.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		if ( error != null ) {
+			return profile.getTitle() + ": " + error;
+		}
+
+		return profile.getTitle() + ": " + ( operations.isEmpty() ? "up to date" : operations.size() + " changes" );
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.composer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.tolstoy.drupal.sheephole.api.installation.ISiteProfile;
+import com.tolstoy.drupal.sheephole.app.ISSHManager;
+
+/**
+ * Updates a fleet in two steps: a <code>composer update --dry-run</code> on every site at once,
+ * then a real update only on the sites where the dry run found something to do.
+ */
+public class UpdatePlanner {
+	private static final Logger logger = LogManager.getLogger( UpdatePlanner.class );
+
+	private final ISSHManager sshManager;
+	private final int parallelism;
+
+	public UpdatePlanner( ISSHManager sshManager, int parallelism ) {
+		this.sshManager = sshManager;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * @param fallbackPassword for profiles without a password of their own; with neither, the
+	 * default SSH keys are tried
+	 */
+	public FleetUpdatePlan plan( List<ISiteProfile> profiles, String fallbackPassword ) throws InterruptedException {
+		List<Callable<UpdatePlan>> tasks = new ArrayList<Callable<UpdatePlan>>( profiles.size() );
+
+		for ( ISiteProfile profile : profiles ) {
+			tasks.add( () -> new UpdatePlan( profile, sshManager.planComposerUpdate( profile, getPassword( profile, fallbackPassword ) ) ) );
+		}
+
+		List<UpdatePlan> plans = new ArrayList<UpdatePlan>( profiles.size() );
+		Map<ISiteProfile,String> failures = runAll( profiles, tasks, "update-plan", plans );
+		for ( Map.Entry<ISiteProfile,String> entry : failures.entrySet() ) {
+			plans.add( profiles.indexOf( entry.getKey() ), new UpdatePlan( entry.getKey(), entry.getValue() ) );
+		}
+
+		FleetUpdatePlan ret = new FleetUpdatePlan( plans );
+		logger.info( "update plan: {}", ret );
+
+		return ret;
+	}
+
+	/**
+	 * Runs composer update on the sites the plan has changes for and leaves the others alone.
+	 * @return site title to error message for the updates that failed
+	 */
+	public Map<String,String> apply( FleetUpdatePlan plan, String fallbackPassword ) throws InterruptedException {
+		List<ISiteProfile> profiles = new ArrayList<ISiteProfile>();
+		List<Callable<UpdatePlan>> tasks = new ArrayList<Callable<UpdatePlan>>();
+
+		for ( UpdatePlan sitePlan : plan.getPending() ) {
+			ISiteProfile profile = sitePlan.getProfile();
+			profiles.add( profile );
+			tasks.add( () -> {
+				sshManager.composerUpdate( profile, getPassword( profile, fallbackPassword ), null );
+				return sitePlan;
+			});
+		}
+
+		logger.info( "updating {} of {} sites, the rest have nothing to update", profiles.size(), plan.getPlans().size() );
+
+		Map<String,String> ret = new LinkedHashMap<String,String>();
+		for ( Map.Entry<ISiteProfile,String> entry : runAll( profiles, tasks, "update", new ArrayList<UpdatePlan>() ).entrySet() ) {
+			ret.put( entry.getKey().getTitle(), entry.getValue() );
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Runs one task per profile, adding the results in profile order.
+	 * @return the profiles whose task failed, with the error message
+	 */
+	protected Map<ISiteProfile,String> runAll( List<ISiteProfile> profiles, List<Callable<UpdatePlan>> tasks, String threadName, List<UpdatePlan> results ) throws InterruptedException {
+		Map<ISiteProfile,String> failures = new LinkedHashMap<ISiteProfile,String>();
+
+		if ( tasks.isEmpty() ) {
+			return failures;
+		}
+
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool( Math.min( parallelism, tasks.size() ), runnable -> {
+			Thread thread = new Thread( runnable, threadName + "-" + threadCount.incrementAndGet() );
+			thread.setDaemon( true );
+			return thread;
+		});
+
+		try {
+			List<Future<UpdatePlan>> futures = executor.invokeAll( tasks );
+
+			for ( int i = 0; i < futures.size(); i++ ) {
+				try {
+					results.add( futures.get( i ).get() );
+				}
+				catch ( ExecutionException e ) {
+					Throwable cause = e.getCause() != null ? e.getCause() : e;
+					logger.warn( "{} failed on {}: {}", threadName, profiles.get( i ).getTitle(), cause.getMessage() );
+					failures.put( profiles.get( i ), "" + cause.getMessage() );
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		return failures;
+	}
+
+	private static String getPassword( ISiteProfile profile, String fallbackPassword ) {
+		return profile.getPassword() != null && profile.getPassword().length() > 0 ? profile.getPassword() : fallbackPassword;
+	}
+}
@@ -20,18 +20,40 @@ import org.semver4j.Semver;
 import com.tolstoy.drupal.sheephole.api.installation.IInstallableVersion;
 
 public class BasicInstallableVersion implements IInstallableVersion {
-	private final Semver semver;
+	private final VersionConstraint constraint;
 
+	/**
+	 * Compatible with every release of the same major.
+	 */
 	public BasicInstallableVersion( Semver semver ) {
-		this.semver = semver;
+		this.constraint = parse( "^" + semver.getMajor() );
 	}
 
+	public BasicInstallableVersion( String constraint ) {
+		this.constraint = parse( constraint );
+	}
+
+	private static VersionConstraint parse( String constraint ) {
+		VersionConstraint ret = VersionConstraint.of( constraint );
+		if ( ret == null ) {
+			throw new IllegalArgumentException( "Unparseable version constraint: " + constraint );
+		}
+
+		return ret;
+	}
+
+	@Override
 	public boolean isCompatible( Semver other ) {
-		return other.getMajor() == semver.getMajor();
+		return constraint.isSatisfiedBy( other );
+	}
+
+	@Override
+	public String getConstraint() {
+		return constraint.getConstraint();
 	}
 
 	@Override
 	public String toString() {
-		return "" + semver;
+		return constraint.getConstraint();
 	}
 }
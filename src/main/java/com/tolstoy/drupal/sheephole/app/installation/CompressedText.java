@@ -0,0 +1,101 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.installation;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Packs text into a byte array, deflated when that actually saves space.
+ * The first byte records which form was used.
+ */
+final class CompressedText {
+	private static final byte RAW = 0;
+	private static final byte DEFLATED = 1;
+	private static final byte[] EMPTY = new byte[] { RAW };
+
+	private CompressedText() {
+	}
+
+	static byte[] compress( String s ) {
+		if ( s == null || s.isEmpty() ) {
+			return EMPTY;
+		}
+
+		byte[] input = s.getBytes( StandardCharsets.UTF_8 );
+
+		Deflater deflater = new Deflater( Deflater.BEST_COMPRESSION );
+		try {
+			deflater.setInput( input );
+			deflater.finish();
+
+			byte[] buf = new byte[ input.length + 1 ];
+			int len = 1;
+			while ( !deflater.finished() && len < buf.length ) {
+				len += deflater.deflate( buf, len, buf.length - len );
+			}
+
+			if ( deflater.finished() && len < buf.length ) {
+				buf[ 0 ] = DEFLATED;
+				return Arrays.copyOf( buf, len );
+			}
+		}
+		finally {
+			deflater.end();
+		}
+
+		byte[] ret = new byte[ input.length + 1 ];
+		ret[ 0 ] = RAW;
+		System.arraycopy( input, 0, ret, 1, input.length );
+
+		return ret;
+	}
+
+	static String decompress( byte[] packed ) {
+		if ( packed == null || packed.length < 2 ) {
+			return "";
+		}
+
+		if ( packed[ 0 ] == RAW ) {
+			return new String( packed, 1, packed.length - 1, StandardCharsets.UTF_8 );
+		}
+
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput( packed, 1, packed.length - 1 );
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream( packed.length * 3 );
+			byte[] buf = new byte[ 4096 ];
+			while ( !inflater.finished() ) {
+				int n = inflater.inflate( buf );
+				if ( n == 0 && ( inflater.needsInput() || inflater.needsDictionary() ) ) {
+					throw new IllegalStateException( "truncated compressed text" );
+				}
+				out.write( buf, 0, n );
+			}
+
+			return new String( out.toByteArray(), StandardCharsets.UTF_8 );
+		}
+		catch ( DataFormatException e ) {
+			throw new IllegalStateException( "corrupt compressed text", e );
+		}
+		finally {
+			inflater.end();
+		}
+	}
+}
@@ -13,10 +13,9 @@
  */
 package com.tolstoy.drupal.sheephole.app.installation;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -34,23 +33,39 @@ import com.tolstoy.drupal.sheephole.api.installation.IInstallationInstruction;
 import com.tolstoy.drupal.sheephole.api.installation.InstallationInstructionType;
 import com.tolstoy.drupal.sheephole.api.installation.IJsonUtils;
 import com.tolstoy.drupal.sheephole.api.installation.PlatformType;
+import com.tolstoy.drupal.sheephole.api.installation.ProjectType;
+import com.tolstoy.drupal.sheephole.app.catalog.StringPool;
 
 public class Installable implements IInstallable {
 	private static final Logger logger = LogManager.getLogger( Installable.class );
 	private static final List<String> REQUIRED_JSON_KEYS = Arrays.asList( "body", "title",
 																			"drupal_internal__nid", "field_project_machine_name",
 																			"field_active_installs_total", "field_security_advisory_coverage" );
+	private static final String NODE_LINK_PREFIX = "https://www.drupal.org/node/";
+	private static final String DEFAULT_COMPOSER_VENDOR = "drupal/";
+	private static final String KEY_INSTALLS_TOTAL = "installs_total";
+	private static final String KEY_SECURITY_COVERAGE = "security_coverage";
 
 	private final String title;
 	private final String machineName;
-	private final String description;
+	private final byte[] description;
+	private volatile String plainDescription;
+	private final int nid;
 	private final String link;
 	private final PlatformType type;
+	private final ProjectType projectType;
 	private final IInstallableVersion installableVersion;
+	private final String composerNamespace;
 	private final List<IInstallationInstruction> installationInstructions;
-	private final Map<String,String> extraData;
+	private int installsTotal;
+	private String securityCoverage;
+	private Map<String,String> extraData;
 
 	public Installable( JSONObject obj, PlatformType type, IInstallableVersion installableVersion, IJsonUtils jsonUtils ) throws Exception {
+		this( obj, type, ProjectType.EXTENSION, installableVersion, jsonUtils, new StringPool() );
+	}
+
+	public Installable( JSONObject obj, PlatformType type, ProjectType projectType, IInstallableVersion installableVersion, IJsonUtils jsonUtils, StringPool stringPool ) throws Exception {
 		JSONObject attributes = (JSONObject) obj.getJSONObject( "attributes" );
 
 		for ( String key : REQUIRED_JSON_KEYS ) {
@@ -73,17 +88,26 @@ public class Installable implements IInstallable {
 		}
 
 		this.title = jsonUtils.getJSONValue( attributes, "title", String.class );
-		this.link = "https://www.drupal.org/node/" + jsonUtils.getJSONValue( attributes, "drupal_internal__nid", Integer.class );
+		this.nid = jsonUtils.getJSONValue( attributes, "drupal_internal__nid", Integer.class );
+		this.link = null;
 		this.machineName = jsonUtils.getJSONValue( attributes, "field_project_machine_name", String.class );
-		this.description = tempDesc;
+		this.description = CompressedText.compress( tempDesc );
+		this.plainDescription = null;
 		this.type = type;
+		this.projectType = projectType;
 		this.installableVersion = installableVersion;
-		this.installationInstructions = new ArrayList<IInstallationInstruction>();
-		this.installationInstructions.add( new InstallationInstruction( InstallationInstructionType.COMPOSER_NAMESPACE, jsonUtils.getJSONValue( attributes, "field_composer_namespace", String.class ) ) );
 
-		this.extraData = new HashMap<String,String>();
-		this.extraData.put( "installs_total", "" + jsonUtils.getJSONValue( attributes, "field_active_installs_total", Integer.class, 0 ) );
-		this.extraData.put( "security_coverage", jsonUtils.getJSONValue( attributes, "field_security_advisory_coverage", String.class, "" ) );
+		//	almost every namespace is drupal/<machine name>, only keep the ones that aren't
+		String namespace = jsonUtils.getJSONValue( attributes, "field_composer_namespace", String.class );
+		this.composerNamespace = namespace.equals( DEFAULT_COMPOSER_VENDOR + machineName ) ? null : namespace;
+		this.installationInstructions = null;
+
+		this.installsTotal = jsonUtils.getJSONValue( attributes, "field_active_installs_total", Integer.class, 0 );
+		//	coverage is the only string field with a handful of distinct values; title, machine name,
+		//	description and namespace are unique per project, and a project listed for both majors
+		//	is already a single shared record, so pooling them would only grow the pool
+		this.securityCoverage = stringPool.get( jsonUtils.getJSONValue( attributes, "field_security_advisory_coverage", String.class, "" ) );
+		this.extraData = null;
 	}
 
 	public Installable( String title,
@@ -95,12 +119,18 @@ public class Installable implements IInstallable {
 						List<IInstallationInstruction> installationInstructions ) {
 		this.title = title;
 		this.link = link;
+		this.nid = 0;
 		this.machineName = machineName;
-		this.description = description;
+		this.description = CompressedText.compress( description );
+		this.plainDescription = null;
 		this.type = type;
+		this.projectType = ProjectType.EXTENSION;
 		this.installableVersion = installableVersion;
+		this.composerNamespace = null;
 		this.installationInstructions = installationInstructions;
-		this.extraData = new HashMap<String,String>();
+		this.installsTotal = 0;
+		this.securityCoverage = "";
+		this.extraData = null;
 	}
 
 	@Override
@@ -115,26 +145,37 @@ public class Installable implements IInstallable {
 
 	@Override
 	public String getDescription() {
-		return description;
+		return CompressedText.decompress( description );
 	}
 
 	@Override
 	public String getPlainDescription( int maxLen ) {
-		if ( description == null || description.length() < 2 ) {
-			return description;
-		}
+		String ret = plainDescription;
 
-		String ret = Jsoup.parse( description ).text();
-		ret = Utils.replaceAllEmojis( ret );
+		//	racing threads may both convert, but they get the same answer
+		if ( ret == null ) {
+			String html = getDescription();
+			ret = html.length() < 2 ? html : Utils.replaceAllEmojis( Jsoup.parse( html ).text() );
+			plainDescription = ret;
+		}
 
 		return ret.length() > maxLen ? ret.substring( 0, maxLen ) : ret;
 	}
 
+	public String getLink() {
+		return link != null ? link : NODE_LINK_PREFIX + nid;
+	}
+
 	@Override
 	public PlatformType getType() {
 		return type;
 	}
 
+	@Override
+	public ProjectType getProjectType() {
+		return projectType;
+	}
+
 	@Override
 	public IInstallableVersion getInstallableVersion() {
 		return installableVersion;
@@ -142,7 +183,13 @@ public class Installable implements IInstallable {
 
 	@Override
 	public List<IInstallationInstruction> getInstallationInstructions() {
-		return installationInstructions;
+		if ( installationInstructions != null ) {
+			return installationInstructions;
+		}
+
+		String namespace = composerNamespace != null ? composerNamespace : DEFAULT_COMPOSER_VENDOR + machineName;
+
+		return Collections.singletonList( new InstallationInstruction( InstallationInstructionType.COMPOSER_NAMESPACE, namespace ) );
 	}
 
 	@Override
@@ -150,13 +197,43 @@ public class Installable implements IInstallable {
 		return title.toLowerCase().contains( substring ) || machineName.toLowerCase().contains( substring );
 	}
 
+	public int getInstallsTotal() {
+		return installsTotal;
+	}
+
+	public String getSecurityCoverage() {
+		return securityCoverage;
+	}
+
 	@Override
-	public String getExtraValue( String key ) {
-		return extraData.get( key );
+	public synchronized String getExtraValue( String key ) {
+		if ( KEY_INSTALLS_TOTAL.equals( key ) ) {
+			return "" + installsTotal;
+		}
+
+		if ( KEY_SECURITY_COVERAGE.equals( key ) ) {
+			return securityCoverage;
+		}
+
+		return extraData != null ? extraData.get( key ) : null;
 	}
 
 	@Override
-	public void setExtraData( String key, String value ) {
+	public synchronized void setExtraData( String key, String value ) {
+		if ( KEY_INSTALLS_TOTAL.equals( key ) ) {
+			installsTotal = Integer.parseInt( value );
+			return;
+		}
+
+		if ( KEY_SECURITY_COVERAGE.equals( key ) ) {
+			securityCoverage = value;
+			return;
+		}
+
+		if ( extraData == null ) {
+			extraData = new LinkedHashMap<String,String>( 4 );
+		}
+
 		extraData.put( key, value );
 	}
 
@@ -166,10 +243,13 @@ public class Installable implements IInstallable {
 		.append( "title", title )
 		.append( "machineName", machineName )
 		.append( "description", getPlainDescription( 40 ) )
-		.append( "link", link )
+		.append( "link", getLink() )
 		.append( "type", type )
+		.append( "projectType", projectType )
 		.append( "installableVersion", installableVersion )
-		.append( "installationInstructions", installationInstructions )
+		.append( "installationInstructions", getInstallationInstructions() )
+		.append( "installsTotal", installsTotal )
+		.append( "securityCoverage", securityCoverage )
 		.append( "extraData", extraData )
 		.toString();
 	}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.installation;
+
+import org.semver4j.Semver;
+
+import com.tolstoy.drupal.sheephole.api.installation.IInstallableVersion;
+
+/**
+ * The set of platform major versions an installable supports, as a bitset. The project's own
+ * version constraint, when it has one, decides compatibility within those majors and beyond.
+ */
+public class MajorVersionSet implements IInstallableVersion {
+	private static final int MAX_MAJOR = 63;
+
+	private volatile long bits;
+	private volatile VersionConstraint constraint;
+
+	public MajorVersionSet() {
+		this.bits = 0;
+	}
+
+	public MajorVersionSet( int... majors ) {
+		this.bits = 0;
+		for ( int major : majors ) {
+			add( major );
+		}
+	}
+
+	public static MajorVersionSet ofBits( long bits ) {
+		MajorVersionSet ret = new MajorVersionSet();
+		ret.bits = bits;
+
+		return ret;
+	}
+
+	public synchronized void add( int major ) {
+		if ( major < 0 || major > MAX_MAJOR ) {
+			throw new IllegalArgumentException( "Unsupported major version: " + major );
+		}
+
+		bits |= ( 1L << major );
+	}
+
+	public boolean contains( int major ) {
+		return major >= 0 && major <= MAX_MAJOR && ( bits & ( 1L << major ) ) != 0;
+	}
+
+	public long getBits() {
+		return bits;
+	}
+
+	/**
+	 * @param constraint null to go by the majors alone
+	 */
+	public void setConstraint( VersionConstraint constraint ) {
+		this.constraint = constraint;
+	}
+
+	public boolean hasConstraint() {
+		return constraint != null;
+	}
+
+	@Override
+	public boolean isCompatible( Semver other ) {
+		VersionConstraint temp = constraint;
+
+		return temp != null ? temp.isSatisfiedBy( other ) : contains( other.getMajor() );
+	}
+
+	/**
+	 * @return the project's constraint, or "^10 || ^11" style for the majors when it has none
+	 */
+	@Override
+	public String getConstraint() {
+		VersionConstraint temp = constraint;
+		if ( temp != null ) {
+			return temp.getConstraint();
+		}
+
+		temp = VersionConstraint.forMajors( bits );
+
+		return temp != null ? temp.getConstraint() : null;
+	}
+
+	@Override
+	public String toString() {
+		VersionConstraint explicit = constraint;
+		if ( explicit != null ) {
+			return explicit.getConstraint();
+		}
+
+		StringBuilder sb = new StringBuilder();
+		long temp = bits;
+
+		while ( temp != 0 ) {
+			int major = Long.numberOfTrailingZeros( temp );
+			temp &= temp - 1;
+
+			if ( sb.length() > 0 ) {
+				sb.append( ", " );
+			}
+			sb.append( major ).append( ".x" );
+		}
+
+		return sb.toString();
+	}
+}
@@ -29,6 +29,8 @@ import org.semver4j.Semver;
 
 import com.tolstoy.drupal.sheephole.api.installation.ISiteProfile;
 import com.tolstoy.drupal.sheephole.api.installation.PlatformType;
+import com.tolstoy.drupal.sheephole.api.ssh.ISSHTransportSettings;
+import com.tolstoy.drupal.sheephole.app.ssh.SSHTransportSettings;
 
 public class SiteProfile implements ISiteProfile {
 	private static final Logger logger = LogManager.getLogger( SiteProfile.class );
@@ -45,6 +47,7 @@ public class SiteProfile implements ISiteProfile {
 	private final PlatformType platformType;
 	private Semver platformVersion;
 	private String password;
+	private ISSHTransportSettings transportSettings = SSHTransportSettings.DEFAULTS;
 
 	public SiteProfile( String title, String userName, String uri, String directory ) {
 		this.id = new SimpleLongProperty( 0 );
@@ -267,6 +270,16 @@ public class SiteProfile implements ISiteProfile {
 		this.password = password;
 	}
 
+	@Override
+	public ISSHTransportSettings getTransportSettings() {
+		return transportSettings;
+	}
+
+	@Override
+	public void setTransportSettings( ISSHTransportSettings transportSettings ) {
+		this.transportSettings = transportSettings != null ? transportSettings : SSHTransportSettings.DEFAULTS;
+	}
+
 	@Override
 	public String toString() {
 		return "{ id: " + getId() + ", title: " + getTitle() + ", userName: " + getUserName() + ", URI: " + getUri() + ", version: " + getVersion() + ", toBeDeleted: " + getToBeDeleted() + " }";
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.installation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.semver4j.Range;
+import org.semver4j.RangesList;
+import org.semver4j.RangesListFactory;
+import org.semver4j.Semver;
+
+/**
+ * A composer constraint on the platform version, such as a module's
+ * <code>core_version_requirement</code> of "^10.3 || ^11". Constraints are parsed once and
+ * shared, since a whole catalog uses only a few hundred distinct ones.
+ */
+public final class VersionConstraint {
+	private static final Logger logger = LogManager.getLogger( VersionConstraint.class );
+	private static final Map<String,VersionConstraint> PARSED = new ConcurrentHashMap<String,VersionConstraint>();
+
+	//	composer accepts a single pipe as "or", semver4j only the double one
+	private static final Pattern SINGLE_PIPE = Pattern.compile( "(?<!\\|)\\|(?!\\|)" );
+
+	private final String constraint;
+	private final RangesList ranges;
+	private final List<Semver> boundaries;
+
+	private VersionConstraint( String constraint, RangesList ranges ) {
+		this.constraint = constraint;
+		this.ranges = ranges;
+
+		TreeSet<Semver> tempBoundaries = new TreeSet<Semver>();
+		for ( List<Range> group : ranges.get() ) {
+			for ( Range range : group ) {
+				tempBoundaries.add( toRelease( range.getRangeVersion() ) );
+			}
+		}
+
+		this.boundaries = Collections.unmodifiableList( new ArrayList<Semver>( tempBoundaries ) );
+	}
+
+	/**
+	 * @return the parsed constraint, or null if it is blank or not something semver4j understands
+	 */
+	public static VersionConstraint of( String constraint ) {
+		if ( constraint == null || constraint.isBlank() ) {
+			return null;
+		}
+
+		VersionConstraint ret = PARSED.get( constraint );
+		if ( ret != null ) {
+			return ret;
+		}
+
+		try {
+			RangesList ranges = RangesListFactory.create( SINGLE_PIPE.matcher( constraint.trim() ).replaceAll( "||" ) );
+			if ( ranges.get().isEmpty() ) {
+				logger.debug( "empty version constraint '{}'", constraint );
+				return null;
+			}
+
+			ret = new VersionConstraint( constraint, ranges );
+		}
+		catch ( RuntimeException e ) {
+			logger.debug( "unparseable version constraint '{}': {}", constraint, e.getMessage() );
+			return null;
+		}
+
+		VersionConstraint existing = PARSED.putIfAbsent( constraint, ret );
+
+		return existing != null ? existing : ret;
+	}
+
+	/**
+	 * @return "^10 || ^11" for the majors in the bits, which is what a catalog listing implies
+	 * when the project doesn't say more; null if there are none
+	 */
+	public static VersionConstraint forMajors( long bits ) {
+		StringBuilder sb = new StringBuilder();
+
+		while ( bits != 0 ) {
+			int major = Long.numberOfTrailingZeros( bits );
+			bits &= bits - 1;
+
+			if ( sb.length() > 0 ) {
+				sb.append( " || " );
+			}
+			sb.append( '^' ).append( major );
+		}
+
+		return of( sb.toString() );
+	}
+
+	/**
+	 * Pre-release and dev builds of the platform count as the release they lead up to.
+	 */
+	public boolean isSatisfiedBy( Semver version ) {
+		return ranges.isSatisfiedBy( toRelease( version ) );
+	}
+
+	/**
+	 * @return every version at which this constraint can change from satisfied to not, as
+	 * releases, in ascending order
+	 */
+	public List<Semver> getBoundaries() {
+		return boundaries;
+	}
+
+	public String getConstraint() {
+		return constraint;
+	}
+
+	public static Semver toRelease( Semver version ) {
+		if ( version.getPreRelease().isEmpty() && version.getBuild().isEmpty() ) {
+			return version;
+		}
+
+		return new Semver( version.getMajor() + "." + version.getMinor() + "." + version.getPatch() );
+	}
+
+	@Override
+	public String toString() {
+		return constraint;
+	}
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.inventory;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A composer.lock as read from a site: its hash and what it says is installed.
+ */
+public class ComposerLock {
+	private final String hash;
+	private final Map<String,String> packages;
+
+	public ComposerLock( String hash, Map<String,String> packages ) {
+		this.hash = hash;
+		this.packages = Collections.unmodifiableMap( packages );
+	}
+
+	public String getHash() {
+		return hash;
+	}
+
+	/**
+	 * @return package name to version, sorted by name
+	 */
+	public Map<String,String> getPackages() {
+		return packages;
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.inventory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Pulls name and version out of every entry in a composer.lock while it streams in. A lock file
+ * is mostly autoload maps, dist URLs and descriptions; they are skipped without being built.
+ */
+public final class ComposerLockReader {
+	private static final JsonFactory FACTORY = new JsonFactory();
+
+	private ComposerLockReader() {
+	}
+
+	/**
+	 * @return package name to version, sorted by name; packages-dev entries included
+	 */
+	public static Map<String,String> read( InputStream in ) throws IOException {
+		Map<String,String> ret = new TreeMap<String,String>();
+
+		try ( JsonParser parser = FACTORY.createParser( in ) ) {
+			if ( parser.nextToken() != JsonToken.START_OBJECT ) {
+				throw new IOException( "composer.lock is not a JSON object" );
+			}
+
+			while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+				String field = parser.currentName();
+				JsonToken value = parser.nextToken();
+
+				if ( value == JsonToken.START_ARRAY && ( "packages".equals( field ) || "packages-dev".equals( field ) ) ) {
+					readPackages( parser, ret );
+				}
+				else {
+					parser.skipChildren();
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	private static void readPackages( JsonParser parser, Map<String,String> packages ) throws IOException {
+		while ( parser.nextToken() == JsonToken.START_OBJECT ) {
+			String name = null;
+			String version = null;
+
+			while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+				String field = parser.currentName();
+				JsonToken value = parser.nextToken();
+
+				if ( value == JsonToken.VALUE_STRING && "name".equals( field ) ) {
+					name = parser.getText();
+				}
+				else if ( value == JsonToken.VALUE_STRING && "version".equals( field ) ) {
+					version = parser.getText();
+				}
+				else {
+					parser.skipChildren();
+				}
+			}
+
+			if ( name != null ) {
+				packages.put( name, version != null ? version : "" );
+			}
+		}
+	}
+}
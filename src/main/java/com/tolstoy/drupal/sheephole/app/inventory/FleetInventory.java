@@ -0,0 +1,354 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.inventory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.tolstoy.drupal.sheephole.api.installation.ISiteProfile;
+import com.tolstoy.drupal.sheephole.api.inventory.IFleetInventory;
+import com.tolstoy.drupal.sheephole.api.inventory.ISiteInventory;
+import com.tolstoy.drupal.sheephole.app.ISSHManager;
+import com.tolstoy.drupal.sheephole.app.storage.AtomicFiles;
+
+/**
+ * Collects composer.lock from every site in parallel and keeps, besides each site's packages,
+ * an index from package name to the sites that have it. A site whose composer.lock hash hasn't
+ * changed since the last collection is not read again. The inventory is saved to a JSON file
+ * after each refresh and read back on start.
+ */
+public class FleetInventory implements IFleetInventory {
+	private static final Logger logger = LogManager.getLogger( FleetInventory.class );
+	private static final int FILE_VERSION = 1;
+
+	private final ISSHManager sshManager;
+	private final File file;
+	private final int parallelism;
+	private final Map<String,String> pool;
+	private volatile Snapshot snapshot;
+
+	public FleetInventory( ISSHManager sshManager, File file, int parallelism ) throws IOException {
+		this.sshManager = sshManager;
+		this.file = file;
+		this.parallelism = parallelism;
+		this.pool = new ConcurrentHashMap<String,String>( 4096 );
+
+		Files.createDirectories( file.getParentFile().toPath() );
+
+		this.snapshot = new Snapshot( load() );
+	}
+
+	/**
+	 * Collects from every profile; profiles not in the list are dropped from the inventory. A site
+	 * that can't be reached keeps what was collected from it before.
+	 *
+	 * @param fallbackPassword for profiles without a password of their own; with neither, the
+	 * default SSH keys are tried
+	 */
+	public synchronized Refresh refresh( List<ISiteProfile> profiles, String fallbackPassword ) throws Exception {
+		Snapshot current = snapshot;
+		Map<Long,SiteInventory> sites = new LinkedHashMap<Long,SiteInventory>();
+		Map<String,String> failures = new LinkedHashMap<String,String>();
+		int collected = 0;
+		int unchanged = 0;
+
+		if ( profiles.isEmpty() ) {
+			snapshot = new Snapshot( sites );
+			save( sites );
+			return new Refresh( 0, 0, failures );
+		}
+
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool( Math.min( parallelism, profiles.size() ), runnable -> {
+			Thread thread = new Thread( runnable, "inventory-" + threadCount.incrementAndGet() );
+			thread.setDaemon( true );
+			return thread;
+		});
+
+		try {
+			List<Future<SiteInventory>> futures = new ArrayList<Future<SiteInventory>>( profiles.size() );
+			for ( ISiteProfile profile : profiles ) {
+				SiteInventory previous = current.sites.get( profile.getId() );
+				String password = profile.getPassword() != null && profile.getPassword().length() > 0 ? profile.getPassword() : fallbackPassword;
+
+				futures.add( executor.submit( () -> collect( profile, previous, password ) ) );
+			}
+
+			for ( int i = 0; i < profiles.size(); i++ ) {
+				ISiteProfile profile = profiles.get( i );
+				SiteInventory previous = current.sites.get( profile.getId() );
+
+				try {
+					SiteInventory site = futures.get( i ).get();
+					if ( site == previous ) {
+						unchanged++;
+					}
+					else {
+						collected++;
+					}
+					sites.put( profile.getId(), site );
+				}
+				catch ( ExecutionException e ) {
+					Throwable cause = e.getCause() != null ? e.getCause() : e;
+					logger.warn( "cannot collect packages from {}: {}", profile.getTitle(), cause.getMessage() );
+					failures.put( profile.getTitle(), "" + cause.getMessage() );
+
+					if ( previous != null ) {
+						sites.put( profile.getId(), previous );
+					}
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		snapshot = new Snapshot( sites );
+		save( sites );
+
+		Refresh ret = new Refresh( collected, unchanged, failures );
+		logger.info( "inventory refresh: {}", ret );
+
+		return ret;
+	}
+
+	/**
+	 * @return the previous inventory if composer.lock hasn't changed
+	 */
+	protected SiteInventory collect( ISiteProfile profile, SiteInventory previous, String password ) throws Exception {
+		ComposerLock lock = sshManager.readComposerLock( profile, password, previous != null ? previous.getLockHash() : null );
+
+		if ( lock == null && previous != null && previous.getTitle().equals( profile.getTitle() ) ) {
+			return previous;
+		}
+
+		if ( lock == null ) {
+			//	unchanged, but the profile was renamed
+			return new SiteInventory( profile.getId(), profile.getTitle(), previous.getLockHash(), previous.getCollected(), toMap( previous ), this::intern );
+		}
+
+		return new SiteInventory( profile.getId(), profile.getTitle(), lock.getHash(), System.currentTimeMillis() / 1000, lock.getPackages(), this::intern );
+	}
+
+	@Override
+	public List<ISiteInventory> getSites() {
+		return Collections.unmodifiableList( new ArrayList<ISiteInventory>( snapshot.sites.values() ) );
+	}
+
+	@Override
+	public ISiteInventory getSite( long profileId ) {
+		return snapshot.sites.get( profileId );
+	}
+
+	@Override
+	public Map<Long,String> findPackage( String packageName ) {
+		Posting posting = snapshot.index.get( packageName );
+		if ( posting == null ) {
+			return Collections.emptyMap();
+		}
+
+		Map<Long,String> ret = new LinkedHashMap<Long,String>( posting.profileIds.length * 2 );
+		for ( int i = 0; i < posting.profileIds.length; i++ ) {
+			ret.put( posting.profileIds[ i ], posting.versions[ i ] );
+		}
+
+		return ret;
+	}
+
+	@Override
+	public List<String> searchPackages( String substring ) {
+		String match = substring.toLowerCase();
+		List<String> ret = new ArrayList<String>();
+
+		for ( String name : snapshot.index.keySet() ) {
+			if ( name.contains( match ) ) {
+				ret.add( name );
+			}
+		}
+
+		return ret;
+	}
+
+	protected String intern( String s ) {
+		String existing = pool.putIfAbsent( s, s );
+
+		return existing != null ? existing : s;
+	}
+
+	protected Map<Long,SiteInventory> load() {
+		Map<Long,SiteInventory> ret = new LinkedHashMap<Long,SiteInventory>();
+
+		if ( !file.isFile() ) {
+			return ret;
+		}
+
+		try {
+			JSONObject root = new JSONObject( Files.readString( file.toPath(), StandardCharsets.UTF_8 ) );
+			if ( root.optInt( "version" ) != FILE_VERSION ) {
+				logger.warn( "ignoring {}, it is not a version {} inventory", file, FILE_VERSION );
+				return ret;
+			}
+
+			for ( Object tempObj : root.getJSONArray( "sites" ) ) {
+				JSONObject site = (JSONObject) tempObj;
+				JSONObject packages = site.getJSONObject( "packages" );
+
+				Map<String,String> sorted = new TreeMap<String,String>();
+				for ( String name : packages.keySet() ) {
+					sorted.put( name, packages.getString( name ) );
+				}
+
+				long id = site.getLong( "id" );
+				ret.put( id, new SiteInventory( id, site.getString( "title" ), site.getString( "lock_hash" ), site.getLong( "collected" ), sorted, this::intern ) );
+			}
+		}
+		catch ( Exception e ) {
+			//	it's only a cache of what is on the sites
+			logger.warn( "cannot read {}, starting with an empty inventory: {}", file, e.getMessage() );
+			ret.clear();
+		}
+
+		return ret;
+	}
+
+	protected void save( Map<Long,SiteInventory> sites ) throws IOException {
+		JSONArray list = new JSONArray();
+		for ( SiteInventory site : sites.values() ) {
+			JSONObject obj = new JSONObject();
+			obj.put( "id", site.getProfileId() );
+			obj.put( "title", site.getTitle() );
+			obj.put( "lock_hash", site.getLockHash() );
+			obj.put( "collected", site.getCollected() );
+			obj.put( "packages", new JSONObject( toMap( site ) ) );
+			list.put( obj );
+		}
+
+		JSONObject root = new JSONObject();
+		root.put( "version", FILE_VERSION );
+		root.put( "sites", list );
+
+		AtomicFiles.write( file, root.toString() );
+	}
+
+	private static Map<String,String> toMap( SiteInventory site ) {
+		Map<String,String> ret = new TreeMap<String,String>();
+		for ( int i = 0; i < site.size(); i++ ) {
+			ret.put( site.getName( i ), site.getVersion( i ) );
+		}
+
+		return ret;
+	}
+
+	/**
+	 * The sites with one package, in site order, and their versions.
+	 */
+	private static final class Posting {
+		private final long[] profileIds;
+		private final String[] versions;
+
+		Posting( long[] profileIds, String[] versions ) {
+			this.profileIds = profileIds;
+			this.versions = versions;
+		}
+	}
+
+	/**
+	 * The sites and the package index built over them, replaced as a whole by each refresh.
+	 */
+	private static final class Snapshot {
+		private final Map<Long,SiteInventory> sites;
+		private final Map<String,Posting> index;
+
+		Snapshot( Map<Long,SiteInventory> sites ) {
+			this.sites = Collections.unmodifiableMap( new LinkedHashMap<Long,SiteInventory>( sites ) );
+
+			Map<String,List<SiteInventory>> tempSites = new TreeMap<String,List<SiteInventory>>();
+			for ( SiteInventory site : sites.values() ) {
+				for ( int i = 0; i < site.size(); i++ ) {
+					tempSites.computeIfAbsent( site.getName( i ), k -> new ArrayList<SiteInventory>() ).add( site );
+				}
+			}
+
+			Map<String,Posting> tempIndex = new TreeMap<String,Posting>();
+			for ( Map.Entry<String,List<SiteInventory>> entry : tempSites.entrySet() ) {
+				List<SiteInventory> list = entry.getValue();
+				long[] ids = new long[ list.size() ];
+				String[] versions = new String[ list.size() ];
+
+				for ( int i = 0; i < list.size(); i++ ) {
+					ids[ i ] = list.get( i ).getProfileId();
+					versions[ i ] = list.get( i ).getVersion( entry.getKey() );
+				}
+
+				tempIndex.put( entry.getKey(), new Posting( ids, versions ) );
+			}
+
+			this.index = Collections.unmodifiableMap( tempIndex );
+		}
+	}
+
+	/**
+	 * What one refresh did.
+	 */
+	public static final class Refresh {
+		private final int collected;
+		private final int unchanged;
+		private final Map<String,String> failures;
+
+		Refresh( int collected, int unchanged, Map<String,String> failures ) {
+			this.collected = collected;
+			this.unchanged = unchanged;
+			this.failures = Collections.unmodifiableMap( failures );
+		}
+
+		public int getCollected() {
+			return collected;
+		}
+
+		public int getUnchanged() {
+			return unchanged;
+		}
+
+		/**
+		 * @return site title to error message
+		 */
+		public Map<String,String> getFailures() {
+			return failures;
+		}
+
+		@Override
+		public String toString() {
+			return collected + " sites read, " + unchanged + " unchanged, " + failures.size() + " failed";
+		}
+	}
+}
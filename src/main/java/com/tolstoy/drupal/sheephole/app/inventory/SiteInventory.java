@@ -0,0 +1,106 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.inventory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import com.tolstoy.drupal.sheephole.api.inventory.ISiteInventory;
+
+/**
+ * Package names and versions as two parallel arrays sorted by name. The strings are shared with
+ * every other site through the inventory's pool, so a fleet running the same modules costs
+ * little more than one site.
+ */
+public class SiteInventory implements ISiteInventory {
+	private final long profileId;
+	private final String title;
+	private final String lockHash;
+	private final long collected;
+	private final String[] names;
+	private final String[] versions;
+
+	/**
+	 * @param packages name to version, sorted by name
+	 * @param pool canonicalizes names and versions
+	 */
+	public SiteInventory( long profileId, String title, String lockHash, long collected, Map<String,String> packages, UnaryOperator<String> pool ) {
+		this.profileId = profileId;
+		this.title = title;
+		this.lockHash = lockHash;
+		this.collected = collected;
+		this.names = new String[ packages.size() ];
+		this.versions = new String[ packages.size() ];
+
+		int i = 0;
+		for ( Map.Entry<String,String> entry : packages.entrySet() ) {
+			names[ i ] = pool.apply( entry.getKey() );
+			versions[ i ] = pool.apply( entry.getValue() );
+			i++;
+		}
+	}
+
+	@Override
+	public long getProfileId() {
+		return profileId;
+	}
+
+	@Override
+	public String getTitle() {
+		return title;
+	}
+
+	@Override
+	public String getLockHash() {
+		return lockHash;
+	}
+
+	@Override
+	public long getCollected() {
+		return collected;
+	}
+
+	@Override
+	public String getVersion( String packageName ) {
+		int pos = Arrays.binarySearch( names, packageName );
+
+		return pos >= 0 ? versions[ pos ] : null;
+	}
+
+	@Override
+	public List<String> getPackageNames() {
+		return Collections.unmodifiableList( Arrays.asList( names ) );
+	}
+
+	@Override
+	public int size() {
+		return names.length;
+	}
+
+	String getName( int i ) {
+		return names[ i ];
+	}
+
+	String getVersion( int i ) {
+		return versions[ i ];
+	}
+
+	@Override
+	public String toString() {
+		return title + ": " + names.length + " packages";
+	}
+}
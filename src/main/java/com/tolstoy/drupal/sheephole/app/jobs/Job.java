@@ -0,0 +1,117 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.jobs;
+
+import com.tolstoy.drupal.sheephole.api.jobs.IJob;
+import com.tolstoy.drupal.sheephole.api.jobs.JobState;
+import com.tolstoy.drupal.sheephole.api.jobs.JobType;
+
+public class Job implements IJob {
+	private final long id;
+	private final JobType type;
+	private final long profileId;
+	private final String target;
+	private final JobState state;
+	private final int attempts;
+	private final int maxAttempts;
+	private final long nextRunAt;
+	private final long created;
+	private final long modified;
+	private final String message;
+
+	public Job( long id, JobType type, long profileId, String target, JobState state, int attempts, int maxAttempts, long nextRunAt, long created, long modified, String message ) {
+		this.id = id;
+		this.type = type;
+		this.profileId = profileId;
+		this.target = target != null ? target : "";
+		this.state = state;
+		this.attempts = attempts;
+		this.maxAttempts = maxAttempts;
+		this.nextRunAt = nextRunAt;
+		this.created = created;
+		this.modified = modified;
+		this.message = message != null ? message : "";
+	}
+
+	@Override
+	public long getId() {
+		return id;
+	}
+
+	@Override
+	public JobType getType() {
+		return type;
+	}
+
+	@Override
+	public long getProfileId() {
+		return profileId;
+	}
+
+	@Override
+	public String getTarget() {
+		return target;
+	}
+
+	@Override
+	public JobState getState() {
+		return state;
+	}
+
+	@Override
+	public int getAttempts() {
+		return attempts;
+	}
+
+	@Override
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	@Override
+	public long getNextRunAt() {
+		return nextRunAt;
+	}
+
+	@Override
+	public long getCreated() {
+		return created;
+	}
+
+	@Override
+	public long getModified() {
+		return modified;
+	}
+
+	@Override
+	public String getMessage() {
+		return message;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+
+		sb.append( '#' ).append( id ).append( ' ' ).append( type == JobType.COMPOSER_INSTALL ? "install " + target : "update" );
+		sb.append( " on profile " ).append( profileId ).append( ": " ).append( state );
+		if ( attempts > 0 ) {
+			sb.append( ", attempt " ).append( attempts ).append( " of " ).append( maxAttempts );
+		}
+		if ( !message.isEmpty() ) {
+			sb.append( ", " ).append( message );
+		}
+
+		return sb.toString();
+	}
+}
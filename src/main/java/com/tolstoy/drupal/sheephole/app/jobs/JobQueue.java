@@ -0,0 +1,366 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.jobs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.dizitart.jbus.JBus;
+
+import net.schmizz.sshj.userauth.UserAuthException;
+
+import com.tolstoy.drupal.sheephole.api.IProfileManager;
+import com.tolstoy.drupal.sheephole.api.installation.ISiteProfile;
+import com.tolstoy.drupal.sheephole.api.jobs.IJob;
+import com.tolstoy.drupal.sheephole.api.jobs.IJobQueue;
+import com.tolstoy.drupal.sheephole.api.jobs.IOperationRecord;
+import com.tolstoy.drupal.sheephole.api.jobs.ITimingSummary;
+import com.tolstoy.drupal.sheephole.api.jobs.JobState;
+import com.tolstoy.drupal.sheephole.api.jobs.JobType;
+import com.tolstoy.drupal.sheephole.app.ISSHManager;
+import com.tolstoy.drupal.sheephole.app.JobChangedEvent;
+
+/**
+ * Runs queued jobs on a fixed pool of workers. One dispatcher thread hands due jobs to idle
+ * workers; it wakes when a job is queued or finishes, and otherwise when the next retry is due.
+ * A failed attempt is retried after a delay that doubles each time, up to the job's maximum
+ * number of attempts. A job with no password whose SSH keys are refused fails at once, since
+ * retrying can't help; it has to be retried with a password. Every attempt is recorded in the
+ * operation history along with how long each of its phases took, and every change of state is
+ * posted on the bus as a JobChangedEvent. Shutting down lets running jobs finish for a while,
+ * then interrupts them and queues them again without counting the attempt.
+ */
+public class JobQueue implements IJobQueue {
+	private static final Logger logger = LogManager.getLogger( JobQueue.class );
+
+	//	look at the table now and then even when nothing should be due, it costs one query
+	private static final long MAX_IDLE_SECONDS = 300;
+	private static final long SHUTDOWN_WAIT_SECONDS = 30;
+
+	private final JobStore store;
+	private final OperationHistory history;
+	private final IProfileManager profileManager;
+	private final ISSHManager sshManager;
+	private final JBus jbus;
+	private final int workerCount;
+	private final int maxAttempts;
+	private final long retryBaseSeconds;
+	private final long retryMaxSeconds;
+	private final ScheduledExecutorService dispatcher;
+	private final ExecutorService workers;
+	private final AtomicInteger busy;
+	private final Map<Long,String> passwords;
+	private ScheduledFuture<?> nextWake;
+	private volatile boolean interrupting;
+
+	public JobQueue( JobStore store, OperationHistory history, IProfileManager profileManager, ISSHManager sshManager, JBus jbus, int workerCount, int maxAttempts, long retryBaseSeconds, long retryMaxSeconds ) {
+		this.store = store;
+		this.history = history;
+		this.profileManager = profileManager;
+		this.sshManager = sshManager;
+		this.jbus = jbus;
+		this.workerCount = workerCount;
+		this.maxAttempts = maxAttempts;
+		this.retryBaseSeconds = retryBaseSeconds;
+		this.retryMaxSeconds = retryMaxSeconds;
+		this.busy = new AtomicInteger();
+		this.passwords = new ConcurrentHashMap<Long,String>();
+
+		this.dispatcher = Executors.newSingleThreadScheduledExecutor( runnable -> {
+			Thread thread = new Thread( runnable, "job-dispatcher" );
+			thread.setDaemon( true );
+			return thread;
+		});
+
+		AtomicInteger threadCount = new AtomicInteger();
+		this.workers = Executors.newFixedThreadPool( workerCount, runnable -> {
+			Thread thread = new Thread( runnable, "job-worker-" + threadCount.incrementAndGet() );
+			thread.setDaemon( true );
+			return thread;
+		});
+	}
+
+	/**
+	 * Requeues the jobs a previous run left unfinished and starts dispatching.
+	 */
+	public void start() throws Exception {
+		int interrupted = store.requeueInterrupted();
+		if ( interrupted > 0 ) {
+			logger.info( "resuming {} jobs interrupted by the last shutdown", interrupted );
+		}
+
+		wake();
+	}
+
+	/**
+	 * Stops dispatching and waits for the running jobs, interrupting them if they take longer
+	 * than SHUTDOWN_WAIT_SECONDS. Interrupted jobs are queued again and resume at the next start.
+	 */
+	public void shutdown() {
+		dispatcher.shutdownNow();
+		workers.shutdown();
+
+		try {
+			if ( !workers.awaitTermination( SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS ) ) {
+				logger.info( "interrupting {} running jobs, they resume at the next start", busy.get() );
+				interrupting = true;
+				workers.shutdownNow();
+				workers.awaitTermination( SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS );
+			}
+		}
+		catch ( InterruptedException e ) {
+			interrupting = true;
+			workers.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+
+		history.close();
+	}
+
+	@Override
+	public IJob enqueue( JobType type, ISiteProfile profile, String target, String password ) throws Exception {
+		Job job = store.insert( type, profile.getId(), target != null ? target : "", maxAttempts );
+
+		if ( password != null && password.length() > 0 ) {
+			passwords.put( job.getId(), password );
+		}
+
+		logger.info( "queued {}", job );
+		post( job );
+		wake();
+
+		return job;
+	}
+
+	@Override
+	public IJob retry( long id, String password ) throws Exception {
+		Job job = store.requeueFailed( id );
+		if ( job == null ) {
+			return null;
+		}
+
+		if ( password != null && password.length() > 0 ) {
+			passwords.put( job.getId(), password );
+		}
+
+		post( job );
+		wake();
+
+		return job;
+	}
+
+	@Override
+	public IJob getJob( long id ) throws Exception {
+		return store.getJob( id );
+	}
+
+	@Override
+	public List<IJob> getJobs( int limit ) throws Exception {
+		return new ArrayList<IJob>( store.getJobs( limit ) );
+	}
+
+	@Override
+	public List<IOperationRecord> getHistory( long profileId, int limit ) throws Exception {
+		return new ArrayList<IOperationRecord>( history.getRecords( profileId, limit ) );
+	}
+
+	@Override
+	public List<ITimingSummary> getTimingSummaries( boolean byHost, long sinceSeconds ) throws Exception {
+		return new ArrayList<ITimingSummary>( history.getTimingSummaries( byHost, sinceSeconds ) );
+	}
+
+	/**
+	 * @return the delay before attempt <code>attempts + 1</code>: the base doubled for every
+	 * attempt after the first, capped, with up to a quarter taken off at random so jobs that
+	 * failed together don't retry together
+	 */
+	public long getRetryDelaySeconds( int attempts ) {
+		long delay = retryBaseSeconds << Math.min( Math.max( attempts - 1, 0 ), 30 );
+		delay = Math.min( delay, retryMaxSeconds );
+
+		return delay - ThreadLocalRandom.current().nextLong( delay / 4 + 1 );
+	}
+
+	protected void wake() {
+		try {
+			dispatcher.execute( this::dispatch );
+		}
+		catch ( Exception e ) {
+			logger.debug( "job dispatcher is shut down" );
+		}
+	}
+
+	/**
+	 * Only ever runs on the dispatcher thread.
+	 */
+	protected void dispatch() {
+		try {
+			long now = System.currentTimeMillis() / 1000;
+
+			while ( busy.get() < workerCount ) {
+				Job job = store.claimNext( now );
+				if ( job == null ) {
+					break;
+				}
+
+				busy.incrementAndGet();
+				post( job );
+				workers.execute( () -> run( job ) );
+			}
+
+			if ( nextWake != null ) {
+				nextWake.cancel( false );
+			}
+
+			long nextRunAt = store.getNextRunAt();
+			long delay = nextRunAt < 0 ? MAX_IDLE_SECONDS : Math.min( Math.max( nextRunAt - now, 1 ), MAX_IDLE_SECONDS );
+			nextWake = dispatcher.schedule( this::dispatch, delay, TimeUnit.SECONDS );
+		}
+		catch ( Exception e ) {
+			logger.error( "job dispatch failed, trying again in a minute", e );
+			nextWake = dispatcher.schedule( this::dispatch, 60, TimeUnit.SECONDS );
+		}
+	}
+
+	protected void run( Job job ) {
+		Job result = job;
+		OperationTimings timings = new OperationTimings();
+		String host = "";
+
+		try {
+			ISiteProfile profile = profileManager.loadProfileById( job.getProfileId() );
+			if ( profile == null ) {
+				throw new NoSuchProfileException( "profile " + job.getProfileId() + " no longer exists" );
+			}
+
+			host = profile.getUri() != null ? profile.getUri() : "";
+
+			execute( job, profile, timings );
+
+			result = store.update( job, JobState.SUCCEEDED, job.getNextRunAt(), "" );
+			passwords.remove( job.getId() );
+		}
+		catch ( Exception e ) {
+			String message = e.getMessage() != null ? e.getMessage() : e.toString();
+
+			try {
+				if ( interrupting ) {
+					//	clear the interrupt so the database write isn't refused
+					Thread.interrupted();
+					logger.info( "job {} interrupted by shutdown, it resumes at the next start", job.getId() );
+					result = store.requeueUncounted( job, "interrupted by shutdown" );
+				}
+				else if ( job.getAttempts() < job.getMaxAttempts() && !( e instanceof NoSuchProfileException ) && !( e instanceof PasswordRequiredException ) ) {
+					long delay = getRetryDelaySeconds( job.getAttempts() );
+					logger.warn( "job {} failed, retrying in {} seconds: {}", job.getId(), delay, message );
+					result = store.update( job, JobState.QUEUED, System.currentTimeMillis() / 1000 + delay, message );
+				}
+				else {
+					logger.warn( "job {} failed for good: {}", job.getId(), message );
+					result = store.update( job, JobState.FAILED, job.getNextRunAt(), message );
+					passwords.remove( job.getId() );
+				}
+			}
+			catch ( Exception storeException ) {
+				//	the row stays RUNNING and is picked up again at the next start
+				logger.error( "cannot record the result of job {}", job.getId(), storeException );
+			}
+		}
+		finally {
+			busy.decrementAndGet();
+		}
+
+		timings.finish();
+		logger.debug( "job {} timings: {}", job.getId(), timings );
+
+		if ( result != job ) {
+			history.record( result, job.getModified(), host, timings );
+		}
+
+		post( result );
+		wake();
+	}
+
+	protected void execute( Job job, ISiteProfile profile, OperationTimings timings ) throws Exception {
+		String password = passwords.get( job.getId() );
+		if ( password == null ) {
+			password = profile.getPassword();
+		}
+
+		logger.info( "running {}", job );
+
+		try {
+			switch ( job.getType() ) {
+				case COMPOSER_INSTALL:
+					sshManager.composerInstall( profile, password, job.getTarget(), timings );
+					break;
+				case COMPOSER_UPDATE:
+					sshManager.composerUpdate( profile, password, timings );
+					break;
+				default:
+					throw new IllegalStateException( "unknown job type " + job.getType() );
+			}
+		}
+		catch ( Exception e ) {
+			if ( ( password == null || password.isEmpty() ) && isAuthenticationFailure( e ) ) {
+				throw new PasswordRequiredException( "the SSH keys were refused and no password is known; retry the job with the password", e );
+			}
+
+			throw e;
+		}
+	}
+
+	protected static boolean isAuthenticationFailure( Throwable e ) {
+		for ( Throwable cause = e; cause != null; cause = cause.getCause() ) {
+			if ( cause instanceof UserAuthException ) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	protected void post( IJob job ) {
+		if ( jbus != null ) {
+			jbus.post( new JobChangedEvent( job ) );
+		}
+	}
+
+	private static final class NoSuchProfileException extends Exception {
+		private static final long serialVersionUID = 5318246907712390451L;
+
+		NoSuchProfileException( String message ) {
+			super( message );
+		}
+	}
+
+	private static final class PasswordRequiredException extends Exception {
+		private static final long serialVersionUID = -7742019638451207116L;
+
+		PasswordRequiredException( String message, Throwable cause ) {
+			super( message, cause );
+		}
+	}
+}
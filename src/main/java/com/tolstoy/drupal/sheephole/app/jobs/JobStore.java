@@ -0,0 +1,297 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.jobs;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.tolstoy.basic.api.storage.IStorage;
+import com.tolstoy.drupal.sheephole.api.jobs.JobState;
+import com.tolstoy.drupal.sheephole.api.jobs.JobType;
+
+/**
+ * The job_queue table. A job moves QUEUED to RUNNING through {@link #claimNext(long)}, whose
+ * update only succeeds while the row is still QUEUED, so a job is never started twice.
+ */
+public class JobStore {
+	private static final Logger logger = LogManager.getLogger( JobStore.class );
+
+	private static final String TABLE_NAME = "job_queue";
+	private static final int MAX_MESSAGE_LENGTH = 2000;
+
+	private final IStorage storage;
+
+	public JobStore( IStorage storage ) throws Exception {
+		this.storage = storage;
+
+		createTableInternalIgnoreIfExists();
+	}
+
+	public Job insert( JobType type, long profileId, String target, int maxAttempts ) throws Exception {
+		long now = System.currentTimeMillis() / 1000;
+		String query = "INSERT INTO " + TABLE_NAME + "( job_type, profile_id, target, state, attempts, max_attempts, next_run_at, created, modified, message ) VALUES( ?, ?, ?, ?, 0, ?, ?, ?, ?, '' )";
+
+		try ( Connection connection = storage.getConnection();
+				PreparedStatement ps = connection.prepareStatement( query, Statement.RETURN_GENERATED_KEYS ) ) {
+			int ord = 1;
+			ps.setString( ord++, type.name() );
+			ps.setLong( ord++, profileId );
+			ps.setString( ord++, target );
+			ps.setString( ord++, JobState.QUEUED.name() );
+			ps.setInt( ord++, maxAttempts );
+			ps.setLong( ord++, now );
+			ps.setLong( ord++, now );
+			ps.setLong( ord++, now );
+
+			ps.executeUpdate();
+
+			try ( ResultSet rs = ps.getGeneratedKeys() ) {
+				if ( !rs.next() ) {
+					throw new RuntimeException( "cannot save job " + type + " for profile " + profileId );
+				}
+
+				return new Job( rs.getLong( 1 ), type, profileId, target, JobState.QUEUED, 0, maxAttempts, now, now, now, "" );
+			}
+		}
+	}
+
+	/**
+	 * Marks the oldest due job RUNNING and counts the attempt.
+	 * @return the claimed job, null if none is due
+	 */
+	public Job claimNext( long now ) throws Exception {
+		try ( Connection connection = storage.getConnection() ) {
+			while ( true ) {
+				Job candidate = null;
+
+				try ( PreparedStatement ps = connection.prepareStatement( "SELECT * FROM " + TABLE_NAME + " WHERE state = ? AND next_run_at <= ? ORDER BY next_run_at, id FETCH FIRST ROW ONLY" ) ) {
+					ps.setString( 1, JobState.QUEUED.name() );
+					ps.setLong( 2, now );
+
+					try ( ResultSet rs = ps.executeQuery() ) {
+						if ( rs.next() ) {
+							candidate = readJob( rs );
+						}
+					}
+				}
+
+				if ( candidate == null ) {
+					return null;
+				}
+
+				try ( PreparedStatement ps = connection.prepareStatement( "UPDATE " + TABLE_NAME + " SET state = ?, attempts = attempts + 1, modified = ? WHERE id = ? AND state = ?" ) ) {
+					ps.setString( 1, JobState.RUNNING.name() );
+					ps.setLong( 2, now );
+					ps.setLong( 3, candidate.getId() );
+					ps.setString( 4, JobState.QUEUED.name() );
+
+					if ( ps.executeUpdate() == 1 ) {
+						return new Job( candidate.getId(), candidate.getType(), candidate.getProfileId(), candidate.getTarget(), JobState.RUNNING,
+										candidate.getAttempts() + 1, candidate.getMaxAttempts(), candidate.getNextRunAt(),
+										candidate.getCreated(), now, candidate.getMessage() );
+					}
+				}
+
+				//	someone else took it, look again
+			}
+		}
+	}
+
+	/**
+	 * @param nextRunAt only used when the job goes back to QUEUED
+	 */
+	public Job update( Job job, JobState state, long nextRunAt, String message ) throws Exception {
+		long now = System.currentTimeMillis() / 1000;
+		String trimmed = StringUtils.left( message != null ? message : "", MAX_MESSAGE_LENGTH );
+
+		try ( Connection connection = storage.getConnection();
+				PreparedStatement ps = connection.prepareStatement( "UPDATE " + TABLE_NAME + " SET state = ?, next_run_at = ?, modified = ?, message = ? WHERE id = ?" ) ) {
+			int ord = 1;
+			ps.setString( ord++, state.name() );
+			ps.setLong( ord++, nextRunAt );
+			ps.setLong( ord++, now );
+			ps.setString( ord++, trimmed );
+			ps.setLong( ord++, job.getId() );
+
+			ps.executeUpdate();
+		}
+
+		return new Job( job.getId(), job.getType(), job.getProfileId(), job.getTarget(), state, job.getAttempts(), job.getMaxAttempts(), nextRunAt, job.getCreated(), now, trimmed );
+	}
+
+	/**
+	 * Puts a failed job back in the queue with its attempts reset.
+	 * @return null unless the job exists and had failed
+	 */
+	public Job requeueFailed( long id ) throws Exception {
+		long now = System.currentTimeMillis() / 1000;
+
+		try ( Connection connection = storage.getConnection();
+				PreparedStatement ps = connection.prepareStatement( "UPDATE " + TABLE_NAME + " SET state = ?, attempts = 0, next_run_at = ?, modified = ?, message = '' WHERE id = ? AND state = ?" ) ) {
+			ps.setString( 1, JobState.QUEUED.name() );
+			ps.setLong( 2, now );
+			ps.setLong( 3, now );
+			ps.setLong( 4, id );
+			ps.setString( 5, JobState.FAILED.name() );
+
+			if ( ps.executeUpdate() != 1 ) {
+				return null;
+			}
+		}
+
+		return getJob( id );
+	}
+
+	/**
+	 * Jobs left RUNNING by a previous run of the application were interrupted; they go back to
+	 * the front of the queue. The interrupted attempt still counts.
+	 * @return how many were requeued
+	 */
+	public int requeueInterrupted() throws Exception {
+		long now = System.currentTimeMillis() / 1000;
+
+		try ( Connection connection = storage.getConnection();
+				PreparedStatement ps = connection.prepareStatement( "UPDATE " + TABLE_NAME + " SET state = ?, next_run_at = ?, modified = ?, message = ? WHERE state = ?" ) ) {
+			ps.setString( 1, JobState.QUEUED.name() );
+			ps.setLong( 2, now );
+			ps.setLong( 3, now );
+			ps.setString( 4, "interrupted by a restart" );
+			ps.setString( 5, JobState.RUNNING.name() );
+
+			return ps.executeUpdate();
+		}
+	}
+
+	/**
+	 * Puts a running job back at the front of the queue without counting the attempt, for one
+	 * stopped by a shutdown.
+	 */
+	public Job requeueUncounted( Job job, String message ) throws Exception {
+		long now = System.currentTimeMillis() / 1000;
+		String trimmed = StringUtils.left( message != null ? message : "", MAX_MESSAGE_LENGTH );
+
+		try ( Connection connection = storage.getConnection();
+				PreparedStatement ps = connection.prepareStatement( "UPDATE " + TABLE_NAME + " SET state = ?, attempts = attempts - 1, next_run_at = ?, modified = ?, message = ? WHERE id = ? AND state = ?" ) ) {
+			int ord = 1;
+			ps.setString( ord++, JobState.QUEUED.name() );
+			ps.setLong( ord++, now );
+			ps.setLong( ord++, now );
+			ps.setString( ord++, trimmed );
+			ps.setLong( ord++, job.getId() );
+			ps.setString( ord++, JobState.RUNNING.name() );
+
+			ps.executeUpdate();
+		}
+
+		return new Job( job.getId(), job.getType(), job.getProfileId(), job.getTarget(), JobState.QUEUED, job.getAttempts() - 1, job.getMaxAttempts(), now, job.getCreated(), now, trimmed );
+	}
+
+	/**
+	 * @return the earliest next_run_at of the queued jobs, -1 if there are none
+	 */
+	public long getNextRunAt() throws Exception {
+		try ( Connection connection = storage.getConnection();
+				PreparedStatement ps = connection.prepareStatement( "SELECT MIN(next_run_at) FROM " + TABLE_NAME + " WHERE state = ?" ) ) {
+			ps.setString( 1, JobState.QUEUED.name() );
+
+			try ( ResultSet rs = ps.executeQuery() ) {
+				if ( rs.next() ) {
+					long ret = rs.getLong( 1 );
+					return rs.wasNull() ? -1 : ret;
+				}
+			}
+		}
+
+		return -1;
+	}
+
+	public Job getJob( long id ) throws Exception {
+		try ( Connection connection = storage.getConnection();
+				PreparedStatement ps = connection.prepareStatement( "SELECT * FROM " + TABLE_NAME + " WHERE id = ?" ) ) {
+			ps.setLong( 1, id );
+
+			try ( ResultSet rs = ps.executeQuery() ) {
+				return rs.next() ? readJob( rs ) : null;
+			}
+		}
+	}
+
+	public List<Job> getJobs( int limit ) throws Exception {
+		List<Job> ret = new ArrayList<Job>();
+
+		try ( Connection connection = storage.getConnection();
+				PreparedStatement ps = connection.prepareStatement( "SELECT * FROM " + TABLE_NAME + " ORDER BY id DESC FETCH FIRST " + Math.max( 1, limit ) + " ROWS ONLY" ) ) {
+			try ( ResultSet rs = ps.executeQuery() ) {
+				while ( rs.next() ) {
+					ret.add( readJob( rs ) );
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	protected Job readJob( ResultSet rs ) throws Exception {
+		return new Job( rs.getLong( "id" ),
+						JobType.valueOf( rs.getString( "job_type" ) ),
+						rs.getLong( "profile_id" ),
+						rs.getString( "target" ),
+						JobState.valueOf( rs.getString( "state" ) ),
+						rs.getInt( "attempts" ),
+						rs.getInt( "max_attempts" ),
+						rs.getLong( "next_run_at" ),
+						rs.getLong( "created" ),
+						rs.getLong( "modified" ),
+						rs.getString( "message" ) );
+	}
+
+	protected void createTableInternalIgnoreIfExists() throws Exception {
+		final String definition = "CREATE TABLE " + TABLE_NAME + "( " +
+							" id BIGINT NOT NULL GENERATED ALWAYS AS IDENTITY (START WITH 1, INCREMENT BY 1)," +
+							" job_type VARCHAR(32) NOT NULL," +
+							" profile_id BIGINT NOT NULL," +
+							" target VARCHAR(255)," +
+							" state VARCHAR(32) NOT NULL," +
+							" attempts INT NOT NULL DEFAULT 0," +
+							" max_attempts INT NOT NULL DEFAULT 1," +
+							" next_run_at BIGINT NOT NULL," +
+							" created BIGINT," +
+							" modified BIGINT," +
+							" message VARCHAR(" + MAX_MESSAGE_LENGTH + ")," +
+							" CONSTRAINT pk" + TABLE_NAME + " PRIMARY KEY (id) )";
+
+		try ( Connection connection = storage.getConnection();
+				Statement stmt = connection.createStatement() ) {
+			stmt.executeUpdate( definition );
+			stmt.executeUpdate( "CREATE INDEX " + TABLE_NAME + "_due ON " + TABLE_NAME + "( state, next_run_at )" );
+			logger.info( "created table {}", TABLE_NAME );
+		}
+		catch ( final SQLException e ) {
+			final String s = e.toString();
+			if ( s.indexOf( "exists" ) < 0 ) {
+				logger.error( "while creating table {}", TABLE_NAME, e );
+				throw e;
+			}
+		}
+	}
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.jobs;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.tolstoy.basic.api.storage.IStorage;
+import com.tolstoy.drupal.sheephole.api.jobs.IJob;
+import com.tolstoy.drupal.sheephole.api.jobs.JobState;
+import com.tolstoy.drupal.sheephole.api.jobs.JobType;
+import com.tolstoy.drupal.sheephole.api.jobs.OperationPhase;
+
+/**
+ * The operation_history table: one row per job attempt with its phase times, never updated.
+ * Recording only queues the row; a writer thread inserts whatever has queued up in one batch,
+ * so a slow database never holds up an install. Reads write out anything still queued first.
+ * If the queue fills up, new rows are dropped rather than waited for.
+ */
+public class OperationHistory {
+	private static final Logger logger = LogManager.getLogger( OperationHistory.class );
+
+	private static final String TABLE_NAME = "operation_history";
+	private static final int MAX_MESSAGE_LENGTH = 2000;
+	private static final int QUEUE_CAPACITY = 4096;
+	private static final int BATCH_SIZE = 256;
+	private static final long FLUSH_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis( 10 );
+
+	private final IStorage storage;
+	private final BlockingQueue<OperationRecord> queue;
+	private final Thread writer;
+	private final String insertQuery;
+	private final AtomicInteger unwritten;
+	private final Object written;
+
+	public OperationHistory( IStorage storage ) throws Exception {
+		this.storage = storage;
+		this.queue = new ArrayBlockingQueue<OperationRecord>( QUEUE_CAPACITY );
+		this.unwritten = new AtomicInteger();
+		this.written = new Object();
+
+		StringBuilder columns = new StringBuilder( "job_id, profile_id, job_type, target, host, outcome, attempt, started, finished, message" );
+		StringBuilder values = new StringBuilder( "?, ?, ?, ?, ?, ?, ?, ?, ?, ?" );
+		for ( OperationPhase phase : OperationPhase.values() ) {
+			columns.append( ", " ).append( phase.getColumnName() );
+			values.append( ", ?" );
+		}
+		this.insertQuery = "INSERT INTO " + TABLE_NAME + "( " + columns + " ) VALUES( " + values + " )";
+
+		createTableInternalIgnoreIfExists();
+
+		this.writer = new Thread( this::writeLoop, "history-writer" );
+		this.writer.setDaemon( true );
+		this.writer.start();
+	}
+
+	/**
+	 * Queues the attempt for writing and returns straight away.
+	 * @param job the job as it was left by the attempt
+	 * @param started when the attempt began, seconds since the epoch
+	 * @param timings may be null
+	 */
+	public void record( IJob job, long started, String host, OperationTimings timings ) {
+		long[] millis = new long[ OperationPhase.values().length ];
+		for ( OperationPhase phase : OperationPhase.values() ) {
+			millis[ phase.ordinal() ] = timings != null ? timings.getMillis( phase ) : -1;
+		}
+
+		OperationRecord record = new OperationRecord( 0, job.getId(), job.getProfileId(), job.getType(), job.getTarget(), host,
+														job.getState(), job.getAttempts(), started, System.currentTimeMillis() / 1000,
+														StringUtils.left( job.getMessage(), MAX_MESSAGE_LENGTH ), millis );
+
+		unwritten.incrementAndGet();
+
+		if ( !queue.offer( record ) ) {
+			unwritten.decrementAndGet();
+			logger.warn( "operation history is backed up, not recording attempt {} of job {}", job.getAttempts(), job.getId() );
+		}
+	}
+
+	/**
+	 * @param profileId only that profile's records, or -1 for all
+	 * @return the most recent records, newest first
+	 */
+	public List<OperationRecord> getRecords( long profileId, int limit ) throws Exception {
+		String query = "SELECT * FROM " + TABLE_NAME + ( profileId >= 0 ? " WHERE profile_id = ?" : "" ) + " ORDER BY id DESC FETCH FIRST " + Math.max( 1, limit ) + " ROWS ONLY";
+
+		flush();
+
+		try ( Connection connection = storage.getConnection();
+				PreparedStatement ps = connection.prepareStatement( query ) ) {
+			if ( profileId >= 0 ) {
+				ps.setLong( 1, profileId );
+			}
+
+			return readRecords( ps );
+		}
+	}
+
+	/**
+	 * Percentiles over the successful attempts that finished after <code>since</code>.
+	 * @param byHost one summary per host if true, per site otherwise
+	 * @return ordered by p95 of the total time, slowest first
+	 */
+	public List<TimingSummary> getTimingSummaries( boolean byHost, long since ) throws Exception {
+		Map<String,List<OperationRecord>> groups = new LinkedHashMap<String,List<OperationRecord>>();
+
+		flush();
+
+		try ( Connection connection = storage.getConnection();
+				PreparedStatement ps = connection.prepareStatement( "SELECT * FROM " + TABLE_NAME + " WHERE outcome = ? AND finished >= ?" ) ) {
+			ps.setString( 1, JobState.SUCCEEDED.name() );
+			ps.setLong( 2, since );
+
+			for ( OperationRecord record : readRecords( ps ) ) {
+				String key = byHost ? record.getHost() : "" + record.getProfileId();
+				groups.computeIfAbsent( key, k -> new ArrayList<OperationRecord>() ).add( record );
+			}
+		}
+
+		List<TimingSummary> ret = new ArrayList<TimingSummary>( groups.size() );
+		for ( List<OperationRecord> records : groups.values() ) {
+			OperationRecord first = records.get( 0 );
+			ret.add( new TimingSummary( first.getHost(), byHost ? -1 : first.getProfileId(), records ) );
+		}
+
+		ret.sort( ( a, b ) -> Long.compare( b.getP95( OperationPhase.TOTAL ), a.getP95( OperationPhase.TOTAL ) ) );
+
+		return ret;
+	}
+
+	/**
+	 * Writes out everything queued so far, and waits for the batch the writer thread may
+	 * already have taken, for at most FLUSH_TIMEOUT_MILLIS.
+	 */
+	public void flush() throws Exception {
+		List<OperationRecord> batch = new ArrayList<OperationRecord>();
+
+		while ( queue.drainTo( batch, BATCH_SIZE ) > 0 ) {
+			try {
+				write( batch );
+			}
+			finally {
+				markWritten( batch );
+			}
+		}
+
+		long deadline = System.currentTimeMillis() + FLUSH_TIMEOUT_MILLIS;
+
+		synchronized ( written ) {
+			long remaining;
+			while ( unwritten.get() > 0 && ( remaining = deadline - System.currentTimeMillis() ) > 0 ) {
+				written.wait( remaining );
+			}
+		}
+	}
+
+	/**
+	 * Stops the writer after writing out what is queued.
+	 */
+	public void close() {
+		writer.interrupt();
+
+		try {
+			flush();
+		}
+		catch ( Exception e ) {
+			logger.error( "cannot write the last operation history records", e );
+		}
+	}
+
+	protected void writeLoop() {
+		List<OperationRecord> batch = new ArrayList<OperationRecord>( BATCH_SIZE );
+
+		while ( !Thread.currentThread().isInterrupted() ) {
+			try {
+				batch.add( queue.take() );
+				queue.drainTo( batch, BATCH_SIZE - 1 );
+
+				write( batch );
+			}
+			catch ( InterruptedException e ) {
+				break;
+			}
+			catch ( Exception e ) {
+				logger.error( "cannot write {} operation history records", batch.size(), e );
+			}
+			finally {
+				markWritten( batch );
+			}
+		}
+	}
+
+	/**
+	 * Counts the batch as done, whether or not it could be written, and clears it.
+	 */
+	protected void markWritten( List<OperationRecord> batch ) {
+		if ( !batch.isEmpty() ) {
+			unwritten.addAndGet( -batch.size() );
+			batch.clear();
+
+			synchronized ( written ) {
+				written.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * One transaction per batch; the writer thread and flush() may both be writing.
+	 */
+	protected synchronized void write( List<OperationRecord> batch ) throws Exception {
+		if ( batch.isEmpty() ) {
+			return;
+		}
+
+		try ( Connection connection = storage.getConnection() ) {
+			boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit( false );
+
+			try ( PreparedStatement ps = connection.prepareStatement( insertQuery ) ) {
+				for ( OperationRecord record : batch ) {
+					int ord = 1;
+					ps.setLong( ord++, record.getJobId() );
+					ps.setLong( ord++, record.getProfileId() );
+					ps.setString( ord++, record.getType().name() );
+					ps.setString( ord++, record.getTarget() );
+					ps.setString( ord++, record.getHost() );
+					ps.setString( ord++, record.getOutcome().name() );
+					ps.setInt( ord++, record.getAttempt() );
+					ps.setLong( ord++, record.getStarted() );
+					ps.setLong( ord++, record.getFinished() );
+					ps.setString( ord++, record.getMessage() );
+					for ( OperationPhase phase : OperationPhase.values() ) {
+						ps.setLong( ord++, record.getMillis( phase ) );
+					}
+
+					ps.addBatch();
+				}
+
+				ps.executeBatch();
+				connection.commit();
+			}
+			catch ( SQLException e ) {
+				connection.rollback();
+				throw e;
+			}
+			finally {
+				connection.setAutoCommit( autoCommit );
+			}
+		}
+	}
+
+	protected List<OperationRecord> readRecords( PreparedStatement ps ) throws SQLException {
+		List<OperationRecord> ret = new ArrayList<OperationRecord>();
+
+		try ( ResultSet rs = ps.executeQuery() ) {
+			while ( rs.next() ) {
+				long[] millis = new long[ OperationPhase.values().length ];
+				for ( OperationPhase phase : OperationPhase.values() ) {
+					millis[ phase.ordinal() ] = rs.getLong( phase.getColumnName() );
+				}
+
+				ret.add( new OperationRecord( rs.getLong( "id" ),
+												rs.getLong( "job_id" ),
+												rs.getLong( "profile_id" ),
+												JobType.valueOf( rs.getString( "job_type" ) ),
+												rs.getString( "target" ),
+												rs.getString( "host" ),
+												JobState.valueOf( rs.getString( "outcome" ) ),
+												rs.getInt( "attempt" ),
+												rs.getLong( "started" ),
+												rs.getLong( "finished" ),
+												rs.getString( "message" ),
+												millis ) );
+			}
+		}
+
+		return ret;
+	}
+
+	protected void createTableInternalIgnoreIfExists() throws Exception {
+		StringBuilder phaseColumns = new StringBuilder();
+		for ( OperationPhase phase : OperationPhase.values() ) {
+			phaseColumns.append( " " ).append( phase.getColumnName() ).append( " BIGINT DEFAULT -1," );
+		}
+
+		final String definition = "CREATE TABLE " + TABLE_NAME + "( " +
+							" id BIGINT NOT NULL GENERATED ALWAYS AS IDENTITY (START WITH 1, INCREMENT BY 1)," +
+							" job_id BIGINT NOT NULL," +
+							" profile_id BIGINT NOT NULL," +
+							" job_type VARCHAR(32) NOT NULL," +
+							" target VARCHAR(255)," +
+							" host VARCHAR(255) DEFAULT ''," +
+							" outcome VARCHAR(32) NOT NULL," +
+							" attempt INT NOT NULL," +
+							" started BIGINT NOT NULL," +
+							" finished BIGINT NOT NULL," +
+							" message VARCHAR(" + MAX_MESSAGE_LENGTH + ")," +
+							phaseColumns +
+							" CONSTRAINT pk" + TABLE_NAME + " PRIMARY KEY (id) )";
+
+		try ( Connection connection = storage.getConnection();
+				Statement stmt = connection.createStatement() ) {
+			stmt.executeUpdate( definition );
+			stmt.executeUpdate( "CREATE INDEX " + TABLE_NAME + "_profile ON " + TABLE_NAME + "( profile_id, id )" );
+			stmt.executeUpdate( "CREATE INDEX " + TABLE_NAME + "_finished ON " + TABLE_NAME + "( finished )" );
+			logger.info( "created table {}", TABLE_NAME );
+		}
+		catch ( final SQLException e ) {
+			final String s = e.toString();
+			if ( s.indexOf( "exists" ) < 0 ) {
+				logger.error( "while creating table {}", TABLE_NAME, e );
+				throw e;
+			}
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.jobs;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+import com.tolstoy.drupal.sheephole.api.jobs.IOperationRecord;
+import com.tolstoy.drupal.sheephole.api.jobs.JobState;
+import com.tolstoy.drupal.sheephole.api.jobs.OperationPhase;
+import com.tolstoy.drupal.sheephole.api.jobs.JobType;
+
+public class OperationRecord implements IOperationRecord {
+	private final long id;
+	private final long jobId;
+	private final long profileId;
+	private final JobType type;
+	private final String target;
+	private final String host;
+	private final JobState outcome;
+	private final int attempt;
+	private final long started;
+	private final long finished;
+	private final String message;
+	private final long[] millis;
+
+	/**
+	 * @param millis per OperationPhase, in ordinal order
+	 */
+	public OperationRecord( long id, long jobId, long profileId, JobType type, String target, String host, JobState outcome, int attempt, long started, long finished, String message, long[] millis ) {
+		this.id = id;
+		this.jobId = jobId;
+		this.profileId = profileId;
+		this.type = type;
+		this.target = target != null ? target : "";
+		this.host = host != null ? host : "";
+		this.outcome = outcome;
+		this.attempt = attempt;
+		this.started = started;
+		this.finished = finished;
+		this.message = message != null ? message : "";
+		this.millis = Arrays.copyOf( millis, OperationPhase.values().length );
+	}
+
+	@Override
+	public long getId() {
+		return id;
+	}
+
+	@Override
+	public long getJobId() {
+		return jobId;
+	}
+
+	@Override
+	public long getProfileId() {
+		return profileId;
+	}
+
+	@Override
+	public JobType getType() {
+		return type;
+	}
+
+	@Override
+	public String getTarget() {
+		return target;
+	}
+
+	@Override
+	public String getHost() {
+		return host;
+	}
+
+	@Override
+	public JobState getOutcome() {
+		return outcome;
+	}
+
+	@Override
+	public int getAttempt() {
+		return attempt;
+	}
+
+	@Override
+	public long getStarted() {
+		return started;
+	}
+
+	@Override
+	public long getFinished() {
+		return finished;
+	}
+
+	@Override
+	public String getMessage() {
+		return message;
+	}
+
+	@Override
+	public long getMillis( OperationPhase phase ) {
+		return millis[ phase.ordinal() ];
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+
+		sb.append( Instant.ofEpochSecond( started ) ).append( ' ' );
+		sb.append( type == JobType.COMPOSER_INSTALL ? "install " + target : "update" );
+		sb.append( " on profile " ).append( profileId ).append( ": " ).append( outcome == JobState.QUEUED ? "FAILED, will retry" : outcome.name() );
+		if ( getMillis( OperationPhase.TOTAL ) >= 0 ) {
+			sb.append( " in " ).append( getMillis( OperationPhase.TOTAL ) ).append( "ms (" );
+			for ( OperationPhase phase : OperationPhase.values() ) {
+				if ( phase != OperationPhase.TOTAL && getMillis( phase ) >= 0 ) {
+					sb.append( sb.charAt( sb.length() - 1 ) == '(' ? "" : ", " ).append( phase.name().toLowerCase() ).append( ' ' ).append( getMillis( phase ) );
+				}
+			}
+			sb.append( ')' );
+		}
+		else {
+			sb.append( " in " ).append( finished - started ).append( "s" );
+		}
+		if ( !message.isEmpty() ) {
+			sb.append( ", " ).append( message );
+		}
+
+		return sb.toString();
+	}
+}
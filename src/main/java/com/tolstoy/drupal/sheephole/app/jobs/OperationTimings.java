@@ -0,0 +1,80 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.jobs;
+
+import java.util.Arrays;
+
+import com.tolstoy.drupal.sheephole.api.jobs.OperationPhase;
+
+/**
+ * Phase times for one attempt. Belongs to the thread running the attempt, so nothing here is
+ * synchronized. A phase that is timed more than once, e.g. because a second composer command
+ * was tried, adds up.
+ */
+public class OperationTimings {
+	private final long started;
+	private final long[] nanos;
+
+	public OperationTimings() {
+		this.started = System.nanoTime();
+		this.nanos = new long[ OperationPhase.values().length ];
+
+		Arrays.fill( nanos, -1 );
+	}
+
+	/**
+	 * @return the value to pass to {@link #end(OperationPhase, long)}
+	 */
+	public long begin() {
+		return System.nanoTime();
+	}
+
+	public void end( OperationPhase phase, long begun ) {
+		add( phase, System.nanoTime() - begun );
+	}
+
+	public void add( OperationPhase phase, long elapsedNanos ) {
+		int i = phase.ordinal();
+		nanos[ i ] = Math.max( nanos[ i ], 0 ) + Math.max( elapsedNanos, 0 );
+	}
+
+	/**
+	 * Sets TOTAL to the time since this was created.
+	 */
+	public void finish() {
+		nanos[ OperationPhase.TOTAL.ordinal() ] = System.nanoTime() - started;
+	}
+
+	/**
+	 * @return -1 if the phase wasn't reached
+	 */
+	public long getMillis( OperationPhase phase ) {
+		long value = nanos[ phase.ordinal() ];
+
+		return value < 0 ? -1 : value / 1_000_000;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+
+		for ( OperationPhase phase : OperationPhase.values() ) {
+			if ( getMillis( phase ) >= 0 ) {
+				sb.append( sb.length() > 0 ? ", " : "" ).append( phase.name().toLowerCase() ).append( ' ' ).append( getMillis( phase ) ).append( "ms" );
+			}
+		}
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.jobs;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.tolstoy.drupal.sheephole.api.jobs.IOperationRecord;
+import com.tolstoy.drupal.sheephole.api.jobs.ITimingSummary;
+import com.tolstoy.drupal.sheephole.api.jobs.OperationPhase;
+
+public class TimingSummary implements ITimingSummary {
+	private final String host;
+	private final long profileId;
+	private final int count;
+	private final long[] p50;
+	private final long[] p95;
+
+	/**
+	 * @param records all for the same site or host
+	 */
+	public TimingSummary( String host, long profileId, List<? extends IOperationRecord> records ) {
+		this.host = host;
+		this.profileId = profileId;
+		this.count = records.size();
+		this.p50 = new long[ OperationPhase.values().length ];
+		this.p95 = new long[ OperationPhase.values().length ];
+
+		long[] values = new long[ records.size() ];
+
+		for ( OperationPhase phase : OperationPhase.values() ) {
+			int n = 0;
+			for ( IOperationRecord record : records ) {
+				long value = record.getMillis( phase );
+				if ( value >= 0 ) {
+					values[ n++ ] = value;
+				}
+			}
+
+			Arrays.sort( values, 0, n );
+
+			p50[ phase.ordinal() ] = percentile( values, n, 50 );
+			p95[ phase.ordinal() ] = percentile( values, n, 95 );
+		}
+	}
+
+	@Override
+	public String getHost() {
+		return host;
+	}
+
+	@Override
+	public long getProfileId() {
+		return profileId;
+	}
+
+	@Override
+	public int getCount() {
+		return count;
+	}
+
+	@Override
+	public long getP50( OperationPhase phase ) {
+		return p50[ phase.ordinal() ];
+	}
+
+	@Override
+	public long getP95( OperationPhase phase ) {
+		return p95[ phase.ordinal() ];
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+
+		sb.append( profileId >= 0 ? "profile " + profileId + " on " + host : host ).append( ", " ).append( count ).append( " runs:" );
+		for ( OperationPhase phase : OperationPhase.values() ) {
+			if ( getP50( phase ) >= 0 ) {
+				sb.append( ' ' ).append( phase.name().toLowerCase() ).append( ' ' ).append( getP50( phase ) ).append( '/' ).append( getP95( phase ) );
+			}
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Nearest rank.
+	 * @param sorted the first n entries are used
+	 */
+	static long percentile( long[] sorted, int n, int percent ) {
+		if ( n < 1 ) {
+			return -1;
+		}
+
+		int rank = (int) Math.ceil( percent / 100.0 * n );
+
+		return sorted[ Math.max( rank, 1 ) - 1 ];
+	}
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.schedule;
+
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+import java.util.Locale;
+
+/**
+ * A standard five field cron expression: minute, hour, day of month, month, day of week. Fields
+ * take <code>*</code>, numbers, ranges, lists and steps, e.g. <code>0,30 1-4 * * mon-fri</code>;
+ * month and weekday names, Sunday as 0 or 7, and the <code>@daily</code>-style shortcuts are
+ * accepted too. As in cron, when both day fields are restricted a day matching either one counts.
+ */
+public final class CronExpression {
+	private static final String[] MONTHS = { "jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep", "oct", "nov", "dec" };
+	private static final String[] DAYS = { "sun", "mon", "tue", "wed", "thu", "fri", "sat" };
+
+	//	a day that can't match, like Feb 30, shouldn't spin forever
+	private static final int MAX_YEARS = 5;
+
+	private final String expression;
+	private final BitSet minutes;
+	private final BitSet hours;
+	private final BitSet daysOfMonth;
+	private final BitSet months;
+	private final BitSet daysOfWeek;
+	private final boolean anyDayOfMonth;
+	private final boolean anyDayOfWeek;
+
+	private CronExpression( String expression, String[] fields ) {
+		this.expression = expression;
+		this.minutes = parseField( fields[ 0 ], 0, 59, null );
+		this.hours = parseField( fields[ 1 ], 0, 23, null );
+		this.daysOfMonth = parseField( fields[ 2 ], 1, 31, null );
+		this.months = parseField( fields[ 3 ], 1, 12, MONTHS );
+		this.daysOfWeek = parseField( fields[ 4 ], 0, 7, DAYS );
+		this.anyDayOfMonth = fields[ 2 ].equals( "*" ) || fields[ 2 ].equals( "?" );
+		this.anyDayOfWeek = fields[ 4 ].equals( "*" ) || fields[ 4 ].equals( "?" );
+
+		if ( daysOfWeek.get( 7 ) ) {
+			daysOfWeek.set( 0 );
+		}
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the expression can't be parsed
+	 */
+	public static CronExpression parse( String expression ) {
+		if ( expression == null ) {
+			throw new IllegalArgumentException( "no cron expression" );
+		}
+
+		String trimmed = expression.trim().toLowerCase( Locale.ROOT );
+
+		switch ( trimmed ) {
+			case "@yearly":
+			case "@annually":
+				trimmed = "0 0 1 1 *";
+				break;
+			case "@monthly":
+				trimmed = "0 0 1 * *";
+				break;
+			case "@weekly":
+				trimmed = "0 0 * * 0";
+				break;
+			case "@daily":
+			case "@midnight":
+				trimmed = "0 0 * * *";
+				break;
+			case "@hourly":
+				trimmed = "0 * * * *";
+				break;
+			default:
+				break;
+		}
+
+		String[] fields = trimmed.split( "\\s+" );
+		if ( fields.length != 5 ) {
+			throw new IllegalArgumentException( "cron expression needs 5 fields: " + expression );
+		}
+
+		return new CronExpression( expression.trim(), fields );
+	}
+
+	/**
+	 * Works in local time: a time skipped by a daylight saving change runs shifted by the length
+	 * of the gap, e.g. 02:30 at 03:30, and a time repeated by one runs only the first time.
+	 *
+	 * @return the first matching minute strictly after <code>after</code>, in its zone; null if
+	 * there is none in the next few years
+	 */
+	public ZonedDateTime next( ZonedDateTime after ) {
+		LocalDateTime t = after.toLocalDateTime().truncatedTo( ChronoUnit.MINUTES ).plusMinutes( 1 );
+		int lastYear = t.getYear() + MAX_YEARS;
+
+		while ( t.getYear() <= lastYear ) {
+			if ( !months.get( t.getMonthValue() ) ) {
+				t = t.withDayOfMonth( 1 ).truncatedTo( ChronoUnit.DAYS ).plusMonths( 1 );
+				continue;
+			}
+
+			if ( !matchesDay( t ) ) {
+				t = t.truncatedTo( ChronoUnit.DAYS ).plusDays( 1 );
+				continue;
+			}
+
+			if ( !hours.get( t.getHour() ) ) {
+				t = t.truncatedTo( ChronoUnit.HOURS ).plusHours( 1 );
+				continue;
+			}
+
+			int minute = minutes.nextSetBit( t.getMinute() );
+			if ( minute < 0 ) {
+				t = t.truncatedTo( ChronoUnit.HOURS ).plusHours( 1 );
+				continue;
+			}
+
+			t = t.withMinute( minute );
+
+			ZonedDateTime ret = t.atZone( after.getZone() );
+			if ( ret.isAfter( after ) ) {
+				return ret;
+			}
+
+			//	after is in the second pass through a repeated hour, which has already run
+			t = t.plusMinutes( 1 );
+		}
+
+		return null;
+	}
+
+	public String getExpression() {
+		return expression;
+	}
+
+	@Override
+	public String toString() {
+		return expression;
+	}
+
+	private boolean matchesDay( LocalDateTime t ) {
+		boolean dom = daysOfMonth.get( t.getDayOfMonth() );
+		boolean dow = daysOfWeek.get( t.getDayOfWeek().getValue() % 7 );
+
+		if ( anyDayOfMonth && anyDayOfWeek ) {
+			return true;
+		}
+		if ( anyDayOfMonth ) {
+			return dow;
+		}
+		if ( anyDayOfWeek ) {
+			return dom;
+		}
+
+		return dom || dow;
+	}
+
+	private static BitSet parseField( String field, int min, int max, String[] names ) {
+		BitSet ret = new BitSet( max + 1 );
+
+		for ( String part : field.split( "," ) ) {
+			int step = 1;
+			int slash = part.indexOf( '/' );
+			if ( slash >= 0 ) {
+				step = parseNumber( part.substring( slash + 1 ), 1, max, null, field );
+				part = part.substring( 0, slash );
+			}
+
+			int from;
+			int to;
+			if ( part.equals( "*" ) || part.equals( "?" ) ) {
+				from = min;
+				to = max;
+			}
+			else {
+				int dash = part.indexOf( '-' );
+				if ( dash > 0 ) {
+					from = parseNumber( part.substring( 0, dash ), min, max, names, field );
+					to = parseNumber( part.substring( dash + 1 ), min, max, names, field );
+				}
+				else {
+					from = parseNumber( part, min, max, names, field );
+					to = slash >= 0 ? max : from;
+				}
+			}
+
+			if ( from > to ) {
+				throw new IllegalArgumentException( "backwards range in cron field " + field );
+			}
+
+			for ( int i = from; i <= to; i += step ) {
+				ret.set( i );
+			}
+		}
+
+		return ret;
+	}
+
+	private static int parseNumber( String s, int min, int max, String[] names, String field ) {
+		if ( names != null ) {
+			for ( int i = 0; i < names.length; i++ ) {
+				if ( names[ i ].equals( s ) ) {
+					//	month names start at 1, day names at 0
+					return i + ( min == 1 ? 1 : 0 );
+				}
+			}
+		}
+
+		int ret;
+		try {
+			ret = Integer.parseInt( s );
+		}
+		catch ( NumberFormatException e ) {
+			throw new IllegalArgumentException( "bad value " + s + " in cron field " + field );
+		}
+
+		if ( ret < min || ret > max ) {
+			throw new IllegalArgumentException( "value " + s + " out of range in cron field " + field );
+		}
+
+		return ret;
+	}
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.schedule;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.tolstoy.drupal.sheephole.api.IProfileManager;
+import com.tolstoy.drupal.sheephole.api.installation.ISiteProfile;
+import com.tolstoy.drupal.sheephole.api.jobs.IJob;
+import com.tolstoy.drupal.sheephole.api.jobs.IJobQueue;
+import com.tolstoy.drupal.sheephole.api.jobs.JobType;
+import com.tolstoy.drupal.sheephole.api.schedule.IMaintenanceScheduler;
+import com.tolstoy.drupal.sheephole.api.schedule.IUpdateSchedule;
+import com.tolstoy.drupal.sheephole.app.ssh.HostAddress;
+
+/**
+ * Checks the schedules once a tick and queues composer update for each site whose window has
+ * opened. Each run is pushed back by a random jitter so sites sharing a schedule don't all start
+ * at once, and no more than one scheduled update per host, and maxConcurrent in all, is queued
+ * or running at a time; a site held back waits for a later tick, however long that takes. A window
+ * that opened while the scheduler wasn't ticking, e.g. because the application wasn't running or
+ * the machine was asleep, is skipped if it is older than the grace period. Jobs log in with the
+ * password given to setPassword, or the SSH keys without one. Results are in the job queue's
+ * operation history. Nothing here depends on the GUI.
+ */
+public class MaintenanceScheduler implements IMaintenanceScheduler {
+	private static final Logger logger = LogManager.getLogger( MaintenanceScheduler.class );
+
+	private final ScheduleStore store;
+	private final IProfileManager profileManager;
+	private final IJobQueue jobQueue;
+	private final int maxConcurrent;
+	private final long graceSeconds;
+	private final long tickSeconds;
+	private final ScheduledExecutorService executor;
+	private volatile String password;
+
+	//	when the previous tick ran, -1 before the first; a window open by then has been seen before
+	private long lastTickAt;
+
+	//	scheduled jobs not yet finished, by job id, with their HostAddress keys; only touched under the lock
+	private final Map<Long,String> outstanding;
+
+	public MaintenanceScheduler( ScheduleStore store, IProfileManager profileManager, IJobQueue jobQueue, int maxConcurrent, long graceSeconds, long tickSeconds ) {
+		this.store = store;
+		this.profileManager = profileManager;
+		this.jobQueue = jobQueue;
+		this.maxConcurrent = maxConcurrent;
+		this.graceSeconds = graceSeconds;
+		this.tickSeconds = tickSeconds;
+		this.outstanding = new HashMap<Long,String>();
+		this.lastTickAt = -1;
+		this.executor = Executors.newSingleThreadScheduledExecutor( runnable -> {
+			Thread thread = new Thread( runnable, "maintenance-scheduler" );
+			thread.setDaemon( true );
+			return thread;
+		});
+	}
+
+	/**
+	 * Picks up the jobs earlier runs queued that haven't finished and starts ticking.
+	 */
+	public synchronized void start() throws Exception {
+		for ( UpdateSchedule schedule : store.getAll() ) {
+			if ( schedule.getLastJobId() < 0 ) {
+				continue;
+			}
+
+			IJob job = jobQueue.getJob( schedule.getLastJobId() );
+			if ( job != null && !job.getState().isFinished() ) {
+				ISiteProfile profile = profileManager.loadProfileById( schedule.getProfileId() );
+				outstanding.put( job.getId(), profile != null ? HostAddress.getKey( profile.getUri() ) : "" );
+			}
+		}
+
+		executor.scheduleWithFixedDelay( this::tick, Math.min( tickSeconds, 10 ), tickSeconds, TimeUnit.SECONDS );
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Override
+	public synchronized IUpdateSchedule setSchedule( long profileId, String cron, String timeZone, int jitterMinutes, boolean enabled ) throws Exception {
+		CronExpression expression = CronExpression.parse( cron );
+		String zone = timeZone != null ? timeZone.trim() : "";
+		getZone( zone );
+
+		UpdateSchedule existing = store.get( profileId );
+		UpdateSchedule schedule = new UpdateSchedule( profileId,
+														expression.getExpression(),
+														zone,
+														Math.max( 0, jitterMinutes ),
+														enabled,
+														-1,
+														existing != null ? existing.getLastRunAt() : -1,
+														existing != null ? existing.getLastJobId() : -1 );
+
+		schedule = schedule.withNextRun( enabled ? getNextRunAt( schedule, System.currentTimeMillis() / 1000 ) : -1 );
+		store.save( schedule );
+
+		logger.info( "update schedule set for {}", schedule );
+
+		return schedule;
+	}
+
+	@Override
+	public synchronized void removeSchedule( long profileId ) throws Exception {
+		store.delete( profileId );
+	}
+
+	@Override
+	public void setPassword( String password ) {
+		this.password = password;
+	}
+
+	@Override
+	public IUpdateSchedule getSchedule( long profileId ) throws Exception {
+		return store.get( profileId );
+	}
+
+	@Override
+	public List<IUpdateSchedule> getSchedules() throws Exception {
+		return new ArrayList<IUpdateSchedule>( store.getAll() );
+	}
+
+	/**
+	 * Runs on the scheduler thread; an exception would cancel the periodic task, so none escape.
+	 */
+	protected synchronized void tick() {
+		try {
+			long now = System.currentTimeMillis() / 1000;
+
+			pruneOutstanding();
+
+			List<UpdateSchedule> due = new ArrayList<UpdateSchedule>();
+			for ( UpdateSchedule schedule : store.getAll() ) {
+				if ( schedule.isEnabled() && schedule.getNextRunAt() >= 0 && schedule.getNextRunAt() <= now ) {
+					due.add( schedule );
+				}
+			}
+
+			due.sort( Comparator.comparingLong( UpdateSchedule::getNextRunAt ) );
+
+			for ( UpdateSchedule schedule : due ) {
+				runIfPossible( schedule, now );
+			}
+
+			lastTickAt = now;
+		}
+		catch ( Exception e ) {
+			logger.error( "maintenance scheduler tick failed", e );
+		}
+	}
+
+	protected void runIfPossible( UpdateSchedule schedule, long now ) throws Exception {
+		//	a window an earlier tick already saw was held back on purpose and still runs
+		boolean missed = lastTickAt < 0 || schedule.getNextRunAt() > lastTickAt;
+
+		if ( missed && now - schedule.getNextRunAt() > graceSeconds ) {
+			UpdateSchedule next = schedule.withNextRun( getNextRunAt( schedule, now ) );
+			store.save( next );
+			logger.warn( "missed the maintenance window at {} for profile {}, next is {}", Instant.ofEpochSecond( schedule.getNextRunAt() ), schedule.getProfileId(), next );
+			return;
+		}
+
+		ISiteProfile profile = profileManager.loadProfileById( schedule.getProfileId() );
+		if ( profile == null ) {
+			logger.warn( "removing the update schedule of deleted profile {}", schedule.getProfileId() );
+			store.delete( schedule.getProfileId() );
+			return;
+		}
+
+		if ( outstanding.containsKey( schedule.getLastJobId() ) ) {
+			logger.debug( "profile {} is still updating from its last window", schedule.getProfileId() );
+			return;
+		}
+
+		String host = HostAddress.getKey( profile.getUri() );
+
+		if ( outstanding.size() >= maxConcurrent || outstanding.containsValue( host ) ) {
+			logger.debug( "holding back the update of profile {}, {} scheduled updates outstanding", schedule.getProfileId(), outstanding.size() );
+			return;
+		}
+
+		IJob job = jobQueue.enqueue( JobType.COMPOSER_UPDATE, profile, null, password );
+		outstanding.put( job.getId(), host );
+
+		UpdateSchedule next = schedule.withRun( getNextRunAt( schedule, now ), now, job.getId() );
+		store.save( next );
+
+		logger.info( "maintenance window for {}: queued job {}, next {}", profile.getTitle(), job.getId(), Instant.ofEpochSecond( next.getNextRunAt() ) );
+	}
+
+	protected void pruneOutstanding() throws Exception {
+		for ( Iterator<Long> it = outstanding.keySet().iterator(); it.hasNext(); ) {
+			IJob job = jobQueue.getJob( it.next() );
+			if ( job == null || job.getState().isFinished() ) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * @return the next window after <code>after</code> plus a fresh jitter, -1 if there is none
+	 */
+	protected long getNextRunAt( UpdateSchedule schedule, long after ) {
+		ZoneId zone = getZone( schedule.getTimeZone() );
+		ZonedDateTime next = CronExpression.parse( schedule.getCron() ).next( Instant.ofEpochSecond( after ).atZone( zone ) );
+		if ( next == null ) {
+			return -1;
+		}
+
+		long jitter = schedule.getJitterMinutes() > 0 ? ThreadLocalRandom.current().nextLong( schedule.getJitterMinutes() * 60L ) : 0;
+
+		return next.toEpochSecond() + jitter;
+	}
+
+	/**
+	 * @throws IllegalArgumentException for an unknown zone id
+	 */
+	protected static ZoneId getZone( String timeZone ) {
+		if ( timeZone == null || timeZone.isEmpty() ) {
+			return ZoneId.systemDefault();
+		}
+
+		try {
+			return ZoneId.of( timeZone );
+		}
+		catch ( Exception e ) {
+			throw new IllegalArgumentException( "unknown time zone " + timeZone );
+		}
+	}
+}
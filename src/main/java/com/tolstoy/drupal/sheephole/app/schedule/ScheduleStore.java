@@ -0,0 +1,146 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.schedule;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.tolstoy.basic.api.storage.IStorage;
+
+/**
+ * The update_schedule table, one row per scheduled profile.
+ */
+public class ScheduleStore {
+	private static final Logger logger = LogManager.getLogger( ScheduleStore.class );
+
+	private static final String TABLE_NAME = "update_schedule";
+
+	private final IStorage storage;
+
+	public ScheduleStore( IStorage storage ) throws Exception {
+		this.storage = storage;
+
+		createTableInternalIgnoreIfExists();
+	}
+
+	public void save( UpdateSchedule schedule ) throws Exception {
+		try ( Connection connection = storage.getConnection() ) {
+			int updated;
+
+			try ( PreparedStatement ps = connection.prepareStatement( "UPDATE " + TABLE_NAME + " SET cron = ?, time_zone = ?, jitter_minutes = ?, enabled = ?, next_run_at = ?, last_run_at = ?, last_job_id = ? WHERE profile_id = ?" ) ) {
+				setValues( ps, schedule );
+				updated = ps.executeUpdate();
+			}
+
+			if ( updated == 0 ) {
+				try ( PreparedStatement ps = connection.prepareStatement( "INSERT INTO " + TABLE_NAME + "( cron, time_zone, jitter_minutes, enabled, next_run_at, last_run_at, last_job_id, profile_id ) VALUES( ?, ?, ?, ?, ?, ?, ?, ? )" ) ) {
+					setValues( ps, schedule );
+					ps.executeUpdate();
+				}
+			}
+		}
+	}
+
+	public void delete( long profileId ) throws Exception {
+		try ( Connection connection = storage.getConnection();
+				PreparedStatement ps = connection.prepareStatement( "DELETE FROM " + TABLE_NAME + " WHERE profile_id = ?" ) ) {
+			ps.setLong( 1, profileId );
+
+			ps.executeUpdate();
+		}
+	}
+
+	public UpdateSchedule get( long profileId ) throws Exception {
+		try ( Connection connection = storage.getConnection();
+				PreparedStatement ps = connection.prepareStatement( "SELECT * FROM " + TABLE_NAME + " WHERE profile_id = ?" ) ) {
+			ps.setLong( 1, profileId );
+
+			try ( ResultSet rs = ps.executeQuery() ) {
+				return rs.next() ? readSchedule( rs ) : null;
+			}
+		}
+	}
+
+	public List<UpdateSchedule> getAll() throws Exception {
+		List<UpdateSchedule> ret = new ArrayList<UpdateSchedule>();
+
+		try ( Connection connection = storage.getConnection();
+				PreparedStatement ps = connection.prepareStatement( "SELECT * FROM " + TABLE_NAME + " ORDER BY profile_id" ) ) {
+			try ( ResultSet rs = ps.executeQuery() ) {
+				while ( rs.next() ) {
+					ret.add( readSchedule( rs ) );
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	protected void setValues( PreparedStatement ps, UpdateSchedule schedule ) throws SQLException {
+		int ord = 1;
+		ps.setString( ord++, schedule.getCron() );
+		ps.setString( ord++, schedule.getTimeZone() );
+		ps.setInt( ord++, schedule.getJitterMinutes() );
+		ps.setInt( ord++, schedule.isEnabled() ? 1 : 0 );
+		ps.setLong( ord++, schedule.getNextRunAt() );
+		ps.setLong( ord++, schedule.getLastRunAt() );
+		ps.setLong( ord++, schedule.getLastJobId() );
+		ps.setLong( ord++, schedule.getProfileId() );
+	}
+
+	protected UpdateSchedule readSchedule( ResultSet rs ) throws SQLException {
+		return new UpdateSchedule( rs.getLong( "profile_id" ),
+									rs.getString( "cron" ),
+									rs.getString( "time_zone" ),
+									rs.getInt( "jitter_minutes" ),
+									rs.getInt( "enabled" ) != 0,
+									rs.getLong( "next_run_at" ),
+									rs.getLong( "last_run_at" ),
+									rs.getLong( "last_job_id" ) );
+	}
+
+	protected void createTableInternalIgnoreIfExists() throws Exception {
+		final String definition = "CREATE TABLE " + TABLE_NAME + "( " +
+							" profile_id BIGINT NOT NULL," +
+							" cron VARCHAR(255) NOT NULL," +
+							" time_zone VARCHAR(64)," +
+							" jitter_minutes INT NOT NULL DEFAULT 0," +
+							" enabled SMALLINT NOT NULL DEFAULT 1," +
+							" next_run_at BIGINT NOT NULL," +
+							" last_run_at BIGINT NOT NULL DEFAULT -1," +
+							" last_job_id BIGINT NOT NULL DEFAULT -1," +
+							" CONSTRAINT pk" + TABLE_NAME + " PRIMARY KEY (profile_id) )";
+
+		try ( Connection connection = storage.getConnection();
+				Statement stmt = connection.createStatement() ) {
+			stmt.executeUpdate( definition );
+			logger.info( "created table {}", TABLE_NAME );
+		}
+		catch ( final SQLException e ) {
+			final String s = e.toString();
+			if ( s.indexOf( "exists" ) < 0 ) {
+				logger.error( "while creating table {}", TABLE_NAME, e );
+				throw e;
+			}
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.schedule;
+
+import java.time.Instant;
+
+import com.tolstoy.drupal.sheephole.api.schedule.IUpdateSchedule;
+
+public class UpdateSchedule implements IUpdateSchedule {
+	private final long profileId;
+	private final String cron;
+	private final String timeZone;
+	private final int jitterMinutes;
+	private final boolean enabled;
+	private final long nextRunAt;
+	private final long lastRunAt;
+	private final long lastJobId;
+
+	public UpdateSchedule( long profileId, String cron, String timeZone, int jitterMinutes, boolean enabled, long nextRunAt, long lastRunAt, long lastJobId ) {
+		this.profileId = profileId;
+		this.cron = cron;
+		this.timeZone = timeZone != null ? timeZone : "";
+		this.jitterMinutes = jitterMinutes;
+		this.enabled = enabled;
+		this.nextRunAt = nextRunAt;
+		this.lastRunAt = lastRunAt;
+		this.lastJobId = lastJobId;
+	}
+
+	@Override
+	public long getProfileId() {
+		return profileId;
+	}
+
+	@Override
+	public String getCron() {
+		return cron;
+	}
+
+	@Override
+	public String getTimeZone() {
+		return timeZone;
+	}
+
+	@Override
+	public int getJitterMinutes() {
+		return jitterMinutes;
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public long getNextRunAt() {
+		return nextRunAt;
+	}
+
+	@Override
+	public long getLastRunAt() {
+		return lastRunAt;
+	}
+
+	@Override
+	public long getLastJobId() {
+		return lastJobId;
+	}
+
+	UpdateSchedule withNextRun( long next ) {
+		return new UpdateSchedule( profileId, cron, timeZone, jitterMinutes, enabled, next, lastRunAt, lastJobId );
+	}
+
+	UpdateSchedule withRun( long next, long ranAt, long jobId ) {
+		return new UpdateSchedule( profileId, cron, timeZone, jitterMinutes, enabled, next, ranAt, jobId );
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+
+		sb.append( "profile " ).append( profileId ).append( ": " ).append( cron );
+		if ( !timeZone.isEmpty() ) {
+			sb.append( ' ' ).append( timeZone );
+		}
+		if ( jitterMinutes > 0 ) {
+			sb.append( " +" ).append( jitterMinutes ).append( "m" );
+		}
+		if ( !enabled ) {
+			sb.append( ", disabled" );
+		}
+		else if ( nextRunAt > 0 ) {
+			sb.append( ", next " ).append( Instant.ofEpochSecond( nextRunAt ) );
+		}
+
+		return sb.toString();
+	}
+}
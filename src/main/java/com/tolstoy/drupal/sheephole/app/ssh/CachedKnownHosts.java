@@ -0,0 +1,138 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.ssh;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import net.schmizz.sshj.transport.verification.HostKeyVerifier;
+import net.schmizz.sshj.transport.verification.OpenSSHKnownHosts;
+
+/**
+ * The user's known_hosts files, shared by every connection. They are parsed once, and parsed
+ * again only when one of them changes, rather than by each SSHClient as it connects. A change
+ * is noticed by the files' modification times and sizes, looked at no more than once a second.
+ */
+public class CachedKnownHosts implements HostKeyVerifier {
+	private static final Logger logger = LogManager.getLogger( CachedKnownHosts.class );
+	private static final long CHECK_INTERVAL_MILLIS = 1000;
+
+	private final List<File> files;
+	private volatile Snapshot snapshot;
+	private volatile long checkedAt;
+
+	/**
+	 * The same files SSHClient.loadKnownHosts() reads.
+	 */
+	public CachedKnownHosts() {
+		this( Arrays.asList( new File( System.getProperty( "user.home" ), ".ssh/known_hosts" ),
+								new File( System.getProperty( "user.home" ), ".ssh/known_hosts2" ) ) );
+	}
+
+	public CachedKnownHosts( List<File> files ) {
+		this.files = files;
+	}
+
+	@Override
+	public boolean verify( String hostname, int port, PublicKey key ) {
+		for ( OpenSSHKnownHosts verifier : current().verifiers ) {
+			if ( verifier.verify( hostname, port, key ) ) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public List<String> findExistingAlgorithms( String hostname, int port ) {
+		Set<String> ret = new LinkedHashSet<String>();
+
+		for ( OpenSSHKnownHosts verifier : current().verifiers ) {
+			ret.addAll( verifier.findExistingAlgorithms( hostname, port ) );
+		}
+
+		return new ArrayList<String>( ret );
+	}
+
+	protected Snapshot current() {
+		Snapshot ret = snapshot;
+		long now = System.currentTimeMillis();
+
+		if ( ret != null && now - checkedAt < CHECK_INTERVAL_MILLIS ) {
+			return ret;
+		}
+
+		synchronized ( this ) {
+			String stamp = getStamp();
+
+			if ( snapshot == null || !snapshot.stamp.equals( stamp ) ) {
+				snapshot = load( stamp );
+			}
+
+			checkedAt = now;
+
+			return snapshot;
+		}
+	}
+
+	protected Snapshot load( String stamp ) {
+		List<OpenSSHKnownHosts> verifiers = new ArrayList<OpenSSHKnownHosts>( files.size() );
+
+		for ( File file : files ) {
+			if ( !file.isFile() ) {
+				continue;
+			}
+
+			try {
+				verifiers.add( new OpenSSHKnownHosts( file ) );
+			}
+			catch ( IOException e ) {
+				logger.warn( "cannot read {}", file, e );
+			}
+		}
+
+		logger.info( "loaded {} known_hosts files", verifiers.size() );
+
+		return new Snapshot( stamp, verifiers );
+	}
+
+	protected String getStamp() {
+		StringBuilder sb = new StringBuilder( 64 );
+
+		for ( File file : files ) {
+			sb.append( file.lastModified() ).append( ':' ).append( file.length() ).append( ';' );
+		}
+
+		return sb.toString();
+	}
+
+	protected static final class Snapshot {
+		private final String stamp;
+		private final List<OpenSSHKnownHosts> verifiers;
+
+		Snapshot( String stamp, List<OpenSSHKnownHosts> verifiers ) {
+			this.stamp = stamp;
+			this.verifiers = verifiers;
+		}
+	}
+}
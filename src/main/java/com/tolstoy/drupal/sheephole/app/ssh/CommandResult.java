@@ -0,0 +1,91 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.ssh;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.tolstoy.drupal.sheephole.app.composer.ComposerSummary;
+
+/**
+ * How a remote command ended: its exit status, how long it took, the start and end of what it
+ * wrote to stdout and stderr, and what composer reported if it ran composer.
+ */
+public class CommandResult {
+	public static final int NO_EXIT_STATUS = -1;
+
+	private final String command;
+	private final int exitStatus;
+	private final long durationMillis;
+	private final OutputCapture stdout;
+	private final OutputCapture stderr;
+	private final ComposerSummary composerSummary;
+
+	/**
+	 * @param exitStatus NO_EXIT_STATUS if the host didn't send one
+	 */
+	public CommandResult( String command, int exitStatus, long durationMillis, OutputCapture stdout, OutputCapture stderr, ComposerSummary composerSummary ) {
+		this.command = command;
+		this.exitStatus = exitStatus;
+		this.durationMillis = durationMillis;
+		this.stdout = stdout;
+		this.stderr = stderr;
+		this.composerSummary = composerSummary;
+	}
+
+	public String getCommand() {
+		return command;
+	}
+
+	public int getExitStatus() {
+		return exitStatus;
+	}
+
+	public boolean isSuccess() {
+		return exitStatus == 0;
+	}
+
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+
+	public OutputCapture getStdout() {
+		return stdout;
+	}
+
+	public OutputCapture getStderr() {
+		return stderr;
+	}
+
+	public ComposerSummary getComposerSummary() {
+		return composerSummary;
+	}
+
+	/**
+	 * @return the kept stdout followed by the kept stderr, for messages and logs
+	 */
+	public String getOutput() {
+		if ( stderr.isEmpty() ) {
+			return stdout.toString();
+		}
+
+		return ( stdout.toString() + "\n" + stderr.toString() ).trim();
+	}
+
+	@Override
+	public String toString() {
+		return "exit=" + exitStatus + ", ms=" + durationMillis + ", composer=" + composerSummary +
+				", lines=" + stdout.getLineCount() + "/" + stderr.getLineCount() +
+				", last=" + StringUtils.abbreviate( stdout.getLastLine(), 200 );
+	}
+}
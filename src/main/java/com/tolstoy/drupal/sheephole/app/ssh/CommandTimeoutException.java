@@ -0,0 +1,27 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.ssh;
+
+import java.io.IOException;
+
+/**
+ * A remote command was still running when its deadline passed. It has been killed by then.
+ */
+public class CommandTimeoutException extends IOException {
+	private static final long serialVersionUID = -2716458937721634915L;
+
+	public CommandTimeoutException( String message ) {
+		super( message );
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.ssh;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import net.schmizz.sshj.SSHClient;
+
+/**
+ * Connections opened ahead of need, one per key. Each is kept until it is taken or it has
+ * been idle for idleTimeout, and handed out once. One that has dropped in the meantime is
+ * closed instead of handed out.
+ */
+public class ConnectionPool {
+	private final Duration idleTimeout;
+	private final Consumer<SSHClient> closer;
+	private final Map<String,Entry> entries;
+	private final ScheduledExecutorService expirer;
+
+	/**
+	 * @param closer disconnects a connection that is dropped from the pool
+	 */
+	public ConnectionPool( Duration idleTimeout, Consumer<SSHClient> closer ) {
+		this.idleTimeout = idleTimeout;
+		this.closer = closer;
+		this.entries = new HashMap<String,Entry>();
+
+		this.expirer = Executors.newSingleThreadScheduledExecutor( runnable -> {
+			Thread thread = new Thread( runnable, "ssh-pool-expiry" );
+			thread.setDaemon( true );
+			return thread;
+		});
+
+		long period = Math.max( idleTimeout.toMillis() / 2, 1000 );
+		this.expirer.scheduleWithFixedDelay( this::expire, period, period, TimeUnit.MILLISECONDS );
+	}
+
+	/**
+	 * Replaces, and closes, any connection already kept under the key.
+	 */
+	public void put( String key, SSHClient ssh ) {
+		Entry old;
+
+		synchronized ( entries ) {
+			old = entries.put( key, new Entry( ssh ) );
+		}
+
+		if ( old != null && old.ssh != ssh ) {
+			closer.accept( old.ssh );
+		}
+	}
+
+	/**
+	 * @return null if there is no live connection for the key
+	 */
+	public SSHClient take( String key ) {
+		Entry entry;
+
+		synchronized ( entries ) {
+			entry = entries.remove( key );
+		}
+
+		if ( entry == null ) {
+			return null;
+		}
+
+		if ( entry.isExpired() || !entry.ssh.isConnected() ) {
+			closer.accept( entry.ssh );
+			return null;
+		}
+
+		return entry.ssh;
+	}
+
+	public void expire() {
+		List<SSHClient> expired = new ArrayList<SSHClient>();
+
+		synchronized ( entries ) {
+			Iterator<Entry> it = entries.values().iterator();
+			while ( it.hasNext() ) {
+				Entry entry = it.next();
+				if ( entry.isExpired() || !entry.ssh.isConnected() ) {
+					expired.add( entry.ssh );
+					it.remove();
+				}
+			}
+		}
+
+		for ( SSHClient ssh : expired ) {
+			closer.accept( ssh );
+		}
+	}
+
+	public void shutdown() {
+		expirer.shutdownNow();
+
+		List<SSHClient> all = new ArrayList<SSHClient>();
+
+		synchronized ( entries ) {
+			for ( Entry entry : entries.values() ) {
+				all.add( entry.ssh );
+			}
+			entries.clear();
+		}
+
+		for ( SSHClient ssh : all ) {
+			closer.accept( ssh );
+		}
+	}
+
+	private final class Entry {
+		private final SSHClient ssh;
+		private final long added;
+
+		Entry( SSHClient ssh ) {
+			this.ssh = ssh;
+			this.added = System.nanoTime();
+		}
+
+		boolean isExpired() {
+			return System.nanoTime() - added > idleTimeout.toNanos();
+		}
+	}
+}
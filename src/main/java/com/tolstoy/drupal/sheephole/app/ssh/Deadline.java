@@ -0,0 +1,53 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.ssh;
+
+import java.time.Duration;
+
+/**
+ * A point in time an operation has to finish by, on the monotonic clock.
+ */
+public final class Deadline {
+	private final Duration timeout;
+	private final long expiresAt;
+
+	private Deadline( Duration timeout ) {
+		this.timeout = timeout;
+		this.expiresAt = System.nanoTime() + timeout.toNanos();
+	}
+
+	public static Deadline after( Duration timeout ) {
+		return new Deadline( timeout );
+	}
+
+	public Duration getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * @return 0 once the deadline has passed
+	 */
+	public long getRemainingMillis() {
+		return Math.max( ( expiresAt - System.nanoTime() ) / 1_000_000, 0 );
+	}
+
+	public boolean isExpired() {
+		return expiresAt - System.nanoTime() <= 0;
+	}
+
+	@Override
+	public String toString() {
+		return getRemainingMillis() + " ms of " + timeout.toSeconds() + " s left";
+	}
+}
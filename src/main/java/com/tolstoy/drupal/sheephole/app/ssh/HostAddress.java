@@ -0,0 +1,87 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.ssh;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import net.schmizz.sshj.SSHClient;
+
+/**
+ * The host and port a profile's URI names: "host" or "host:port", with bare IPv6 addresses left
+ * alone. Two URIs naming the same server have the same key.
+ */
+public final class HostAddress {
+	private final String host;
+	private final int port;
+
+	private HostAddress( String host, int port ) {
+		this.host = host;
+		this.port = port;
+	}
+
+	public static HostAddress parse( String uri ) throws IOException {
+		String host = uri;
+		int port = SSHClient.DEFAULT_PORT;
+
+		int colon = uri.lastIndexOf( ':' );
+		if ( colon > 0 && colon == uri.indexOf( ':' ) ) {
+			host = uri.substring( 0, colon );
+			try {
+				port = Integer.parseInt( uri.substring( colon + 1 ) );
+			}
+			catch ( NumberFormatException e ) {
+				throw new IOException( "bad port in " + uri, e );
+			}
+		}
+
+		return new HostAddress( host, port );
+	}
+
+	/**
+	 * @return the key of the server the URI names, or if it can't be parsed the URI lower cased
+	 */
+	public static String getKey( String uri ) {
+		if ( uri == null ) {
+			return "";
+		}
+
+		try {
+			return parse( uri ).getKey();
+		}
+		catch ( IOException e ) {
+			return uri.toLowerCase( Locale.ROOT );
+		}
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	/**
+	 * @return "host:port" with the host lower cased, the same for every spelling of the address
+	 */
+	public String getKey() {
+		return host.toLowerCase( Locale.ROOT ) + ":" + port;
+	}
+
+	@Override
+	public String toString() {
+		return host + ":" + port;
+	}
+}
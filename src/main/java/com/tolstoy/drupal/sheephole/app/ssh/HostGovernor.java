@@ -0,0 +1,240 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.ssh;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import net.schmizz.sshj.SSHClient;
+
+/**
+ * Keeps Sheephole from overloading any one host, typically a shared hosting server with many
+ * sites, or from tripping its sshd's MaxStartups. Each host, by name and port, allows only so
+ * many connections at once, and each connection only so many channels. After
+ * <code>failureThreshold</code> connect or authentication failures in a row the host's circuit
+ * opens and it is not contacted for <code>cooldown</code>. After that one connection is let
+ * through as a trial: if it succeeds the circuit closes, if it fails it opens again.
+ */
+public class HostGovernor {
+	private static final Logger logger = LogManager.getLogger( HostGovernor.class );
+
+	private final int maxConnections;
+	private final int maxChannels;
+	private final Duration maxWait;
+	private final int failureThreshold;
+	private final Duration cooldown;
+	private final Map<String,HostState> hosts;
+	private final Map<SSHClient,Semaphore> channels;
+
+	public HostGovernor() {
+		this( 3, 2, Duration.ofMinutes( 5 ), 3, Duration.ofMinutes( 5 ) );
+	}
+
+	/**
+	 * @param maxWait how long a caller waits for a free connection or channel before giving up
+	 */
+	public HostGovernor( int maxConnections, int maxChannels, Duration maxWait, int failureThreshold, Duration cooldown ) {
+		this.maxConnections = maxConnections;
+		this.maxChannels = maxChannels;
+		this.maxWait = maxWait;
+		this.failureThreshold = failureThreshold;
+		this.cooldown = cooldown;
+		this.hosts = new ConcurrentHashMap<String,HostState>();
+		this.channels = Collections.synchronizedMap( new WeakHashMap<SSHClient,Semaphore>() );
+	}
+
+	/**
+	 * Waits for one of the host's connection slots.
+	 *
+	 * @param host "name:port"
+	 * @throws HostUnavailableException if the circuit is open or no slot came free in time
+	 */
+	public Permit acquire( String host ) throws HostUnavailableException, InterruptedIOException {
+		HostState state = hosts.computeIfAbsent( host, key -> new HostState( maxConnections ) );
+
+		boolean trial = state.admit( host );
+
+		try {
+			if ( !state.slots.tryAcquire( maxWait.toMillis(), TimeUnit.MILLISECONDS ) ) {
+				throw new HostUnavailableException( host + " still has " + maxConnections + " connections open after waiting " + maxWait.toSeconds() + " seconds" );
+			}
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			if ( trial ) {
+				state.endTrial();
+			}
+			throw new InterruptedIOException( "interrupted waiting for a connection to " + host );
+		}
+		catch ( HostUnavailableException e ) {
+			if ( trial ) {
+				state.endTrial();
+			}
+			throw e;
+		}
+
+		return new Permit( host, state.slots, trial ? state : null );
+	}
+
+	/**
+	 * Waits for one of the connection's channel slots.
+	 */
+	public Permit acquireChannel( SSHClient ssh, long waitMillis ) throws HostUnavailableException, InterruptedIOException {
+		Semaphore semaphore = channels.computeIfAbsent( ssh, key -> new Semaphore( maxChannels, true ) );
+		String host = ssh.getRemoteHostname() + ":" + ssh.getRemotePort();
+
+		try {
+			if ( !semaphore.tryAcquire( Math.max( waitMillis, 0 ), TimeUnit.MILLISECONDS ) ) {
+				throw new HostUnavailableException( "no free channel on the connection to " + host + " after " + waitMillis + " ms" );
+			}
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException( "interrupted waiting for a channel to " + host );
+		}
+
+		return new Permit( host, semaphore, null );
+	}
+
+	public Permit acquireChannel( SSHClient ssh ) throws HostUnavailableException, InterruptedIOException {
+		return acquireChannel( ssh, maxWait.toMillis() );
+	}
+
+	public void recordSuccess( String host ) {
+		HostState state = hosts.get( host );
+		if ( state != null ) {
+			state.succeeded( host );
+		}
+	}
+
+	/**
+	 * Only for failures to connect or authenticate; a composer run that fails says nothing
+	 * about the host.
+	 */
+	public void recordFailure( String host, Exception e ) {
+		hosts.computeIfAbsent( host, key -> new HostState( maxConnections ) ).failed( host, e );
+	}
+
+	public boolean isOpen( String host ) {
+		HostState state = hosts.get( host );
+
+		return state != null && state.isOpen();
+	}
+
+	/**
+	 * A connection or channel slot; closing it frees the slot. Closing it more than once is harmless.
+	 */
+	public static final class Permit implements AutoCloseable {
+		private final String host;
+		private final Semaphore semaphore;
+		private HostState trialState;
+		private boolean closed;
+
+		Permit( String host, Semaphore semaphore, HostState trialState ) {
+			this.host = host;
+			this.semaphore = semaphore;
+			this.trialState = trialState;
+		}
+
+		public String getHost() {
+			return host;
+		}
+
+		@Override
+		public synchronized void close() {
+			if ( closed ) {
+				return;
+			}
+
+			closed = true;
+			semaphore.release();
+
+			//	a trial that ended without a verdict lets the next caller try instead
+			if ( trialState != null ) {
+				trialState.endTrial();
+				trialState = null;
+			}
+		}
+	}
+
+	private final class HostState {
+		private final Semaphore slots;
+		private int consecutiveFailures;
+		private long openUntil;
+		private boolean trialInFlight;
+
+		HostState( int maxConnections ) {
+			this.slots = new Semaphore( maxConnections, true );
+		}
+
+		/**
+		 * @return whether the caller is the trial after a cooldown
+		 */
+		synchronized boolean admit( String host ) throws HostUnavailableException {
+			if ( openUntil == 0 ) {
+				return false;
+			}
+
+			long now = System.currentTimeMillis();
+			if ( now < openUntil ) {
+				throw new HostUnavailableException( "not contacting " + host + " for another " + ( openUntil - now + 999 ) / 1000 +
+													" seconds after " + consecutiveFailures + " failures in a row" );
+			}
+
+			if ( trialInFlight ) {
+				throw new HostUnavailableException( "not contacting " + host + " until the trial connection after its cooldown finishes" );
+			}
+
+			trialInFlight = true;
+
+			return true;
+		}
+
+		synchronized void succeeded( String host ) {
+			if ( openUntil != 0 ) {
+				logger.info( "{} is reachable again, closing its circuit", host );
+			}
+
+			consecutiveFailures = 0;
+			openUntil = 0;
+			trialInFlight = false;
+		}
+
+		synchronized void failed( String host, Exception e ) {
+			consecutiveFailures++;
+			trialInFlight = false;
+
+			if ( consecutiveFailures >= failureThreshold ) {
+				openUntil = System.currentTimeMillis() + cooldown.toMillis();
+				logger.warn( "{} failed {} times in a row, leaving it alone for {} seconds: {}", host, consecutiveFailures, cooldown.toSeconds(), e.getMessage() );
+			}
+		}
+
+		synchronized void endTrial() {
+			trialInFlight = false;
+		}
+
+		synchronized boolean isOpen() {
+			return openUntil != 0 && ( System.currentTimeMillis() < openUntil || trialInFlight );
+		}
+	}
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.ssh;
+
+import java.io.IOException;
+
+/**
+ * A host was not contacted: its circuit is open after repeated failures, or it stayed at its
+ * connection limit for longer than a caller may wait.
+ */
+public class HostUnavailableException extends IOException {
+	private static final long serialVersionUID = 4632915087436170268L;
+
+	public HostUnavailableException( String message ) {
+		super( message );
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.ssh;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the first and last lines of a command's output and counts the rest, so a long composer
+ * run costs a fixed amount of memory. Overlong lines are cut.
+ */
+public class OutputCapture {
+	public static final int DEFAULT_HEAD_LINES = 40;
+	public static final int DEFAULT_TAIL_LINES = 200;
+	public static final int DEFAULT_MAX_LINE_LENGTH = 2000;
+
+	private final int headLines;
+	private final int tailLines;
+	private final int maxLineLength;
+	private final List<String> head;
+	private final ArrayDeque<String> tail;
+	private long lineCount;
+
+	public OutputCapture() {
+		this( DEFAULT_HEAD_LINES, DEFAULT_TAIL_LINES, DEFAULT_MAX_LINE_LENGTH );
+	}
+
+	public OutputCapture( int headLines, int tailLines, int maxLineLength ) {
+		this.headLines = headLines;
+		this.tailLines = tailLines;
+		this.maxLineLength = maxLineLength;
+		this.head = new ArrayList<String>( headLines );
+		this.tail = new ArrayDeque<String>( tailLines );
+	}
+
+	public synchronized void add( String line ) {
+		if ( line.length() > maxLineLength ) {
+			line = line.substring( 0, maxLineLength ) + "...";
+		}
+
+		lineCount++;
+
+		if ( head.size() < headLines ) {
+			head.add( line );
+			return;
+		}
+
+		if ( tailLines < 1 ) {
+			return;
+		}
+
+		if ( tail.size() >= tailLines ) {
+			tail.removeFirst();
+		}
+		tail.addLast( line );
+	}
+
+	public synchronized List<String> getHead() {
+		return Collections.unmodifiableList( new ArrayList<String>( head ) );
+	}
+
+	public synchronized List<String> getTail() {
+		return Collections.unmodifiableList( new ArrayList<String>( tail ) );
+	}
+
+	/**
+	 * @return null if there was no output
+	 */
+	public synchronized String getLastLine() {
+		if ( !tail.isEmpty() ) {
+			return tail.getLast();
+		}
+
+		return head.isEmpty() ? null : head.get( head.size() - 1 );
+	}
+
+	public synchronized long getLineCount() {
+		return lineCount;
+	}
+
+	public synchronized boolean isEmpty() {
+		return lineCount == 0;
+	}
+
+	/**
+	 * @return whether lines were dropped between the head and the tail
+	 */
+	public synchronized boolean isTruncated() {
+		return lineCount > head.size() + tail.size();
+	}
+
+	/**
+	 * @return the kept lines, with a marker where lines were dropped
+	 */
+	@Override
+	public synchronized String toString() {
+		StringBuilder sb = new StringBuilder( 4096 );
+
+		for ( String line : head ) {
+			sb.append( line ).append( '\n' );
+		}
+
+		if ( isTruncated() ) {
+			sb.append( "... " ).append( lineCount - head.size() - tail.size() ).append( " lines omitted ...\n" );
+		}
+
+		for ( String line : tail ) {
+			sb.append( line ).append( '\n' );
+		}
+
+		return sb.toString().trim();
+	}
+}
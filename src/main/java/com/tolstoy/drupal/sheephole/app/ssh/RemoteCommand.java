@@ -0,0 +1,328 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.ssh;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import net.schmizz.sshj.SSHClient;
+import net.schmizz.sshj.connection.channel.direct.Session;
+import net.schmizz.sshj.connection.channel.direct.Session.Command;
+
+/**
+ * One exec that has to finish by a deadline. The command runs in a process group of its own
+ * (through <code>setsid</code> where the host has it), which reports its id on stderr before
+ * anything else runs. Output is polled rather than read with blocking calls, so when the
+ * deadline passes or the calling thread is interrupted the group is sent SIGTERM, then SIGKILL
+ * if it hasn't gone after a grace period, and the channel is closed.
+ */
+public class RemoteCommand {
+	private static final Logger logger = LogManager.getLogger( RemoteCommand.class );
+
+	private static final String GROUP_PREFIX = "SHEEPHOLE_PGID ";
+	private static final String PROCESS_PREFIX = "SHEEPHOLE_PID ";
+	private static final long MIN_POLL_MILLIS = 5;
+	private static final long MAX_POLL_MILLIS = 200;
+	private static final long KILL_GRACE_MILLIS = 5000;
+	private static final long SIGNAL_TIMEOUT_MILLIS = 10000;
+	private static final int MAX_LINE_BYTES = 65536;
+
+	private final SSHClient ssh;
+	private final String command;
+	private final Deadline deadline;
+
+	//	"-<pgid>" or "<pid>", whichever the host reported
+	private volatile String killTarget;
+
+	public RemoteCommand( SSHClient ssh, String command, Deadline deadline ) {
+		this.ssh = ssh;
+		this.command = command;
+		this.deadline = deadline;
+	}
+
+	/**
+	 * @return the exit status, null if the host didn't send one
+	 * @throws CommandTimeoutException if the deadline passed first; the command has been killed
+	 * @throws InterruptedException if the thread was interrupted; the command has been killed
+	 */
+	public Integer run( Consumer<String> stdoutLines, Consumer<String> stderrLines ) throws IOException, InterruptedException {
+		return run( new LineSplitter( stdoutLines ), stderrLines );
+	}
+
+	/**
+	 * Like run( Consumer, Consumer ), with stdout copied to the stream as it arrives rather than
+	 * split into lines, for file contents.
+	 */
+	public Integer run( OutputStream stdout, Consumer<String> stderrLines ) throws IOException, InterruptedException {
+		return run( new StreamSink( stdout ), stderrLines );
+	}
+
+	protected Integer run( Sink out, Consumer<String> stderrLines ) throws IOException, InterruptedException {
+		Session session = null;
+
+		try {
+			session = ssh.startSession();
+			Command cmd = session.exec( wrap( command ) );
+
+			LineSplitter err = new LineSplitter( line -> {
+				if ( killTarget == null && line.startsWith( GROUP_PREFIX ) ) {
+					killTarget = "-" + line.substring( GROUP_PREFIX.length() ).trim();
+				}
+				else if ( killTarget == null && line.startsWith( PROCESS_PREFIX ) ) {
+					killTarget = line.substring( PROCESS_PREFIX.length() ).trim();
+				}
+				else {
+					stderrLines.accept( line );
+				}
+			});
+
+			try {
+				poll( cmd, out, err );
+			}
+			catch ( CommandTimeoutException | InterruptedException e ) {
+				logger.warn( "cancelling remote command on {}: {}", ssh.getRemoteHostname(), e.getMessage() != null ? e.getMessage() : "interrupted" );
+				kill( cmd );
+				throw e;
+			}
+
+			out.finish();
+			err.finish();
+
+			//	the exit status follows EOF closely, but not necessarily before it
+			cmd.join( Math.max( deadline.getRemainingMillis(), 1000 ), TimeUnit.MILLISECONDS );
+
+			return cmd.getExitStatus();
+		}
+		finally {
+			try {
+				if ( session != null ) {
+					session.close();
+				}
+			}
+			catch ( IOException e ) {
+			}
+		}
+	}
+
+	protected void poll( Command cmd, Sink out, LineSplitter err ) throws IOException, InterruptedException {
+		byte[] buf = new byte[ 8192 ];
+		long pause = MIN_POLL_MILLIS;
+
+		while ( true ) {
+			if ( Thread.interrupted() ) {
+				throw new InterruptedException();
+			}
+
+			//	checked before draining, so nothing that arrived ahead of EOF is left behind
+			boolean finished = cmd.isEOF() || !cmd.isOpen();
+
+			boolean progressed = drain( cmd.getInputStream(), out, buf );
+			progressed |= drain( cmd.getErrorStream(), err, buf );
+
+			if ( progressed ) {
+				pause = MIN_POLL_MILLIS;
+				continue;
+			}
+
+			if ( finished ) {
+				return;
+			}
+
+			if ( deadline.isExpired() ) {
+				throw new CommandTimeoutException( "command did not finish within " + deadline.getTimeout().toSeconds() + " seconds" );
+			}
+
+			Thread.sleep( Math.max( Math.min( pause, deadline.getRemainingMillis() ), 1 ) );
+			pause = Math.min( pause * 2, MAX_POLL_MILLIS );
+		}
+	}
+
+	/**
+	 * Never throws; by the time it returns the channel is closed whether or not the host
+	 * acknowledged the signals.
+	 */
+	protected void kill( Command cmd ) {
+		String target = killTarget;
+
+		try {
+			if ( target == null ) {
+				logger.warn( "no process id from {}, only closing the channel", ssh.getRemoteHostname() );
+				return;
+			}
+
+			signal( "TERM", target );
+
+			long giveUpAt = System.nanoTime() + KILL_GRACE_MILLIS * 1_000_000;
+			LineSplitter discard = new LineSplitter( line -> {} );
+			byte[] buf = new byte[ 8192 ];
+
+			while ( !cmd.isEOF() && cmd.isOpen() && System.nanoTime() < giveUpAt ) {
+				drain( cmd.getInputStream(), discard, buf );
+				drain( cmd.getErrorStream(), discard, buf );
+				Thread.sleep( MAX_POLL_MILLIS );
+			}
+
+			if ( !cmd.isEOF() && cmd.isOpen() ) {
+				signal( "KILL", target );
+			}
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+		catch ( Exception e ) {
+			logger.warn( "cannot signal remote process {} on {}", target, ssh.getRemoteHostname(), e );
+		}
+		finally {
+			try {
+				cmd.close();
+			}
+			catch ( Exception e ) {
+			}
+		}
+	}
+
+	/**
+	 * @param target "-pgid" for the whole group, or a bare pid, whose children are signalled too
+	 */
+	protected void signal( String signal, String target ) throws IOException {
+		String s = target.startsWith( "-" ) ?
+					"kill -s " + signal + " -- " + target :
+					"pkill -" + signal + " -P " + target + "; kill -s " + signal + " " + target;
+
+		Session session = null;
+
+		try {
+			session = ssh.startSession();
+			Command cmd = session.exec( s );
+			cmd.join( SIGNAL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS );
+
+			logger.info( "sent SIG{} to {} on {}, exit status {}", signal, target, ssh.getRemoteHostname(), cmd.getExitStatus() );
+		}
+		finally {
+			try {
+				if ( session != null ) {
+					session.close();
+				}
+			}
+			catch ( IOException e ) {
+			}
+		}
+	}
+
+	/**
+	 * The setsid branch runs the command as a child of the login shell, not with exec: a shell
+	 * that leads its own group would make setsid fork and return before the command finished.
+	 */
+	protected static String wrap( String command ) {
+		String escaped = "'" + command.replace( "'", "'\\''" ) + "'";
+
+		return "if command -v setsid >/dev/null 2>&1; then " +
+					"setsid sh -c 'echo \"" + GROUP_PREFIX + "$$\" >&2; eval \"$1\"' sh " + escaped + "; " +
+				"else " +
+					"echo \"" + PROCESS_PREFIX + "$$\" >&2; eval " + escaped + "; " +
+				"fi";
+	}
+
+	private static boolean drain( InputStream in, Sink sink, byte[] buf ) throws IOException {
+		boolean ret = false;
+		int available;
+
+		while ( ( available = in.available() ) > 0 ) {
+			int n = in.read( buf, 0, Math.min( buf.length, available ) );
+			if ( n <= 0 ) {
+				break;
+			}
+
+			sink.write( buf, n );
+			ret = true;
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Where a stream's output goes as it is drained.
+	 */
+	protected interface Sink {
+		void write( byte[] buf, int len ) throws IOException;
+
+		void finish() throws IOException;
+	}
+
+	private static final class StreamSink implements Sink {
+		private final OutputStream out;
+
+		StreamSink( OutputStream out ) {
+			this.out = out;
+		}
+
+		@Override
+		public void write( byte[] buf, int len ) throws IOException {
+			out.write( buf, 0, len );
+		}
+
+		@Override
+		public void finish() throws IOException {
+			out.flush();
+		}
+	}
+
+	/**
+	 * Turns bytes into lines. Splitting on the newline byte is safe for UTF-8, since it never
+	 * occurs inside a multibyte character. Bytes past MAX_LINE_BYTES in one line are dropped.
+	 */
+	private static final class LineSplitter implements Sink {
+		private final Consumer<String> lines;
+		private final ByteArrayOutputStream pending = new ByteArrayOutputStream( 256 );
+
+		LineSplitter( Consumer<String> lines ) {
+			this.lines = lines;
+		}
+
+		@Override
+		public void write( byte[] buf, int len ) {
+			for ( int i = 0; i < len; i++ ) {
+				byte b = buf[ i ];
+
+				if ( b == '\n' ) {
+					emit();
+				}
+				else if ( pending.size() < MAX_LINE_BYTES ) {
+					pending.write( b );
+				}
+			}
+		}
+
+		@Override
+		public void finish() {
+			if ( pending.size() > 0 ) {
+				emit();
+			}
+		}
+
+		private void emit() {
+			String line = new String( pending.toByteArray(), StandardCharsets.UTF_8 );
+			pending.reset();
+
+			lines.accept( line.endsWith( "\r" ) ? line.substring( 0, line.length() - 1 ) : line );
+		}
+	}
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.ssh;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import net.schmizz.sshj.SSHClient;
+import net.schmizz.sshj.sftp.FileAttributes;
+import net.schmizz.sshj.sftp.FileMode;
+import net.schmizz.sshj.sftp.RemoteFile;
+import net.schmizz.sshj.sftp.SFTPClient;
+
+/**
+ * Reads files on a connected host over one SFTP channel, with several reads in flight at once
+ * so a large file isn't fetched one round trip per block. Hosts without the SFTP subsystem get
+ * the same through exec'd <code>stat</code> and <code>cat</code>, which are killed if they are
+ * still running at the deadline. With a cache, a file whose mtime and size haven't changed since
+ * it was last read is not transferred again.
+ */
+public class RemoteFileAccess implements Closeable {
+	private static final Logger logger = LogManager.getLogger( RemoteFileAccess.class );
+
+	//	32 KB each, so about 512 KB in flight
+	private static final int READ_AHEAD = 16;
+
+	private final SSHClient ssh;
+	private final String host;
+	private final RemoteFileCache cache;
+	private final SFTPClient sftp;
+	private final Deadline deadline;
+
+	/**
+	 * @param cache may be null
+	 * @param deadline for the commands run on hosts without SFTP
+	 */
+	public RemoteFileAccess( SSHClient ssh, RemoteFileCache cache, Deadline deadline ) {
+		this.ssh = ssh;
+		this.host = ssh.getRemoteHostname() + ":" + ssh.getRemotePort();
+		this.cache = cache;
+		this.deadline = deadline;
+
+		SFTPClient tempSftp = null;
+		try {
+			tempSftp = ssh.newSFTPClient();
+		}
+		catch ( IOException e ) {
+			logger.info( "no SFTP on {}, reading files with cat: {}", host, e.getMessage() );
+		}
+
+		this.sftp = tempSftp;
+	}
+
+	/**
+	 * @return null if there is nothing at the path
+	 */
+	public Stat stat( String path ) throws IOException {
+		if ( sftp != null ) {
+			FileAttributes attrs = sftp.statExistence( path );
+			if ( attrs == null ) {
+				return null;
+			}
+
+			return new Stat( attrs.getType() == FileMode.Type.REGULAR, attrs.getType() == FileMode.Type.DIRECTORY, attrs.getMtime(), attrs.getSize() );
+		}
+
+		String p = escape( path );
+		String s = "if [ -e " + p + " ]; then t=f; [ -d " + p + " ] && t=d; " +
+					"echo \"$t $( stat -c '%Y %s' " + p + " 2>/dev/null || stat -f '%m %z' " + p + " 2>/dev/null || echo '-1 -1' )\"; fi";
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream( 64 );
+		exec( s, out );
+
+		String[] fields = out.toString( StandardCharsets.UTF_8 ).trim().split( "\\s+" );
+		if ( fields.length < 3 ) {
+			return null;
+		}
+
+		try {
+			return new Stat( "f".equals( fields[ 0 ] ), "d".equals( fields[ 0 ] ), Long.parseLong( fields[ 1 ] ), Long.parseLong( fields[ 2 ] ) );
+		}
+		catch ( NumberFormatException e ) {
+			return new Stat( "f".equals( fields[ 0 ] ), "d".equals( fields[ 0 ] ), -1, -1 );
+		}
+	}
+
+	public boolean isFile( String path ) throws IOException {
+		Stat stat = stat( path );
+
+		return stat != null && stat.isFile();
+	}
+
+	public boolean isDirectory( String path ) throws IOException {
+		Stat stat = stat( path );
+
+		return stat != null && stat.isDirectory();
+	}
+
+	/**
+	 * @return the file as it arrives; the caller closes it
+	 */
+	public InputStream open( String path ) throws IOException {
+		if ( sftp != null ) {
+			RemoteFile file = sftp.open( path );
+
+			return new FilterInputStream( file.new ReadAheadRemoteFileInputStream( READ_AHEAD ) ) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					}
+					finally {
+						file.close();
+					}
+				}
+			};
+		}
+
+		//	read in full, so the deadline covers the whole transfer
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Integer status = exec( "cat " + escape( path ), out );
+		if ( status == null || status != 0 ) {
+			throw new IOException( "cannot read " + path + " on " + host );
+		}
+
+		return new ByteArrayInputStream( out.toByteArray() );
+	}
+
+	/**
+	 * @return null if the file doesn't exist
+	 */
+	public Contents read( String path ) throws IOException {
+		Stat stat = stat( path );
+		if ( stat == null || !stat.isFile() ) {
+			return null;
+		}
+
+		if ( cache != null ) {
+			RemoteFileCache.Entry entry = cache.get( host, path, stat.getMtime(), stat.getSize() );
+			if ( entry != null ) {
+				logger.debug( "{}:{} unchanged, using the cached copy", host, path );
+				return new Contents( entry.getHash(), null, entry, true );
+			}
+
+			try ( InputStream in = open( path ) ) {
+				return new Contents( null, null, cache.put( host, path, stat.getMtime(), stat.getSize(), in ), false );
+			}
+		}
+
+		MessageDigest digest = RemoteFileCache.newDigest();
+		ByteArrayOutputStream out = new ByteArrayOutputStream( (int) Math.min( Math.max( stat.getSize(), 0 ), Integer.MAX_VALUE - 8 ) );
+
+		try ( InputStream in = new DigestInputStream( open( path ), digest ) ) {
+			in.transferTo( out );
+		}
+
+		return new Contents( HexFormat.of().formatHex( digest.digest() ), out.toByteArray(), null, false );
+	}
+
+	/**
+	 * @return null if the file doesn't exist
+	 */
+	public String readString( String path ) throws IOException {
+		Contents contents = read( path );
+		if ( contents == null ) {
+			return null;
+		}
+
+		try ( InputStream in = contents.openStream() ) {
+			return new String( in.readAllBytes(), StandardCharsets.UTF_8 );
+		}
+	}
+
+	@Override
+	public void close() {
+		if ( sftp != null ) {
+			try {
+				sftp.close();
+			}
+			catch ( IOException e ) {
+			}
+		}
+	}
+
+	/**
+	 * @return the exit status, null if the host didn't send one
+	 * @throws CommandTimeoutException if the deadline passed first
+	 */
+	protected Integer exec( String command, OutputStream stdout ) throws IOException {
+		try {
+			return new RemoteCommand( ssh, command, deadline ).run( stdout, line -> logger.debug( "{}: {}", host, line ) );
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException( "interrupted reading from " + host );
+		}
+	}
+
+	protected String escape( String s ) {
+		return "'" + s.replace( "'", "'\\''" ) + "'";
+	}
+
+	public static final class Stat {
+		private final boolean file;
+		private final boolean directory;
+		private final long mtime;
+		private final long size;
+
+		Stat( boolean file, boolean directory, long mtime, long size ) {
+			this.file = file;
+			this.directory = directory;
+			this.mtime = mtime;
+			this.size = size;
+		}
+
+		public boolean isFile() {
+			return file;
+		}
+
+		public boolean isDirectory() {
+			return directory;
+		}
+
+		/**
+		 * @return seconds since the epoch, -1 if the host wouldn't say
+		 */
+		public long getMtime() {
+			return mtime;
+		}
+
+		public long getSize() {
+			return size;
+		}
+	}
+
+	/**
+	 * A file's contents, either in the cache or, without one, in memory.
+	 */
+	public static final class Contents {
+		private final String hash;
+		private final byte[] bytes;
+		private final RemoteFileCache.Entry entry;
+		private final boolean fromCache;
+
+		Contents( String hash, byte[] bytes, RemoteFileCache.Entry entry, boolean fromCache ) {
+			this.hash = hash != null ? hash : entry.getHash();
+			this.bytes = bytes;
+			this.entry = entry;
+			this.fromCache = fromCache;
+		}
+
+		/**
+		 * @return SHA-256 of the contents, lower case hex as sha256sum prints it
+		 */
+		public String getHash() {
+			return hash;
+		}
+
+		/**
+		 * @return true if nothing was transferred
+		 */
+		public boolean isFromCache() {
+			return fromCache;
+		}
+
+		public InputStream openStream() throws IOException {
+			return bytes != null ? new ByteArrayInputStream( bytes ) : Files.newInputStream( entry.getFile().toPath() );
+		}
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.ssh;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONObject;
+
+import com.tolstoy.drupal.sheephole.app.storage.AtomicFiles;
+
+/**
+ * Local copies of remote files, keyed by host and path and valid while the remote file's
+ * modification time and size are unchanged. Each copy's name includes its SHA-256, and the small
+ * JSON file naming the current copy is replaced last, so a reader never sees a half written
+ * copy even while another thread stores a newer one. A superseded copy is kept for a grace
+ * period, so an {@link Entry} already handed out stays readable, and is deleted by a later put().
+ */
+public class RemoteFileCache {
+	private static final Logger logger = LogManager.getLogger( RemoteFileCache.class );
+
+	private static final long SUPERSEDED_GRACE_MILLIS = TimeUnit.MINUTES.toMillis( 10 );
+
+	private final File directory;
+
+	public RemoteFileCache( File directory ) throws IOException {
+		this.directory = directory;
+
+		Files.createDirectories( directory.toPath() );
+	}
+
+	/**
+	 * @return null unless there is a copy made when the remote file had this mtime and size
+	 */
+	public Entry get( String host, String path, long mtime, long size ) {
+		if ( mtime < 0 || size < 0 ) {
+			return null;
+		}
+
+		String key = getKey( host, path );
+		File metaFile = new File( directory, key + ".json" );
+
+		try {
+			if ( !metaFile.isFile() ) {
+				return null;
+			}
+
+			JSONObject meta = new JSONObject( Files.readString( metaFile.toPath(), StandardCharsets.UTF_8 ) );
+			if ( meta.optLong( "mtime", -1 ) != mtime || meta.optLong( "size", -1 ) != size ) {
+				return null;
+			}
+
+			String hash = meta.getString( "sha256" );
+			File data = new File( directory, key + "-" + hash + ".dat" );
+
+			return data.isFile() && data.length() == size ? new Entry( data, hash ) : null;
+		}
+		catch ( Exception e ) {
+			logger.debug( "ignoring unreadable cache entry for {}:{}: {}", host, path, e.getMessage() );
+			return null;
+		}
+	}
+
+	/**
+	 * Copies the stream to the cache, hashing it on the way.
+	 * @param mtime the remote file's, -1 if unknown, in which case the copy is never found by get()
+	 */
+	public Entry put( String host, String path, long mtime, long size, InputStream in ) throws IOException {
+		String key = getKey( host, path );
+		File temp = File.createTempFile( key, ".tmp", directory );
+
+		try {
+			MessageDigest digest = newDigest();
+
+			try ( OutputStream out = new DigestOutputStream( Files.newOutputStream( temp.toPath() ), digest ) ) {
+				in.transferTo( out );
+			}
+
+			String hash = HexFormat.of().formatHex( digest.digest() );
+			File data = new File( directory, key + "-" + hash + ".dat" );
+			AtomicFiles.move( temp, data );
+
+			JSONObject meta = new JSONObject();
+			meta.put( "host", host );
+			meta.put( "path", path );
+			meta.put( "mtime", mtime );
+			meta.put( "size", data.length() == size ? size : -1 );
+			meta.put( "sha256", hash );
+
+			File previous = new File( directory, key + ".json" );
+			String previousHash = previous.isFile() ? new JSONObject( Files.readString( previous.toPath(), StandardCharsets.UTF_8 ) ).optString( "sha256", null ) : null;
+
+			AtomicFiles.write( previous, meta.toString() );
+
+			//	the grace period starts now, not when the old copy was written
+			if ( previousHash != null && !previousHash.equals( hash ) ) {
+				new File( directory, key + "-" + previousHash + ".dat" ).setLastModified( System.currentTimeMillis() );
+			}
+
+			deleteSuperseded( key, hash );
+
+			return new Entry( data, hash );
+		}
+		finally {
+			Files.deleteIfExists( temp.toPath() );
+		}
+	}
+
+	protected void deleteSuperseded( String key, String currentHash ) {
+		String current = key + "-" + currentHash + ".dat";
+		long cutoff = System.currentTimeMillis() - SUPERSEDED_GRACE_MILLIS;
+
+		File[] copies = directory.listFiles( ( dir, name ) -> name.startsWith( key + "-" ) && name.endsWith( ".dat" ) && !name.equals( current ) );
+		if ( copies == null ) {
+			return;
+		}
+
+		for ( File copy : copies ) {
+			if ( copy.lastModified() < cutoff && !copy.delete() ) {
+				logger.debug( "cannot delete superseded cache copy {}", copy );
+			}
+		}
+	}
+
+	static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance( "SHA-256" );
+		}
+		catch ( NoSuchAlgorithmException e ) {
+			throw new IllegalStateException( e );
+		}
+	}
+
+	protected String getKey( String host, String path ) {
+		return HexFormat.of().formatHex( newDigest().digest( ( host + "\n" + path ).getBytes( StandardCharsets.UTF_8 ) ) ).substring( 0, 32 );
+	}
+
+	public static final class Entry {
+		private final File file;
+		private final String hash;
+
+		Entry( File file, String hash ) {
+			this.file = file;
+			this.hash = hash;
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		/**
+		 * @return SHA-256 of the contents, lower case hex as sha256sum prints it
+		 */
+		public String getHash() {
+			return hash;
+		}
+	}
+}
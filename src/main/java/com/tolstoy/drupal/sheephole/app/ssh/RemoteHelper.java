@@ -0,0 +1,196 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.ssh;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * The shell script that runs a whole composer workflow on the host in one exec. It is kept as
+ * <code>~/.cache/sheephole/helper-v&lt;version&gt;-&lt;checksum&gt;.sh</code>, so a host
+ * gets it once and again only when the script changes. The command for it exits with
+ * {@link #MISSING_STATUS} when the file isn't there, which is the cue to deploy it.
+ */
+public class RemoteHelper {
+	public static final int VERSION = 1;
+	public static final int MISSING_STATUS = 97;
+	public static final String RESULT_PREFIX = "SHEEPHOLE_RESULT ";
+
+	private static final String RESOURCE = "remote/sheephole-helper.sh";
+	private static final String DIRECTORY = "\"$HOME/.cache/sheephole\"";
+
+	private final String script;
+	private final String checksum;
+	private final String fileName;
+
+	public RemoteHelper() {
+		this( load() );
+	}
+
+	public RemoteHelper( String script ) {
+		this.script = script;
+
+		MessageDigest digest = RemoteFileCache.newDigest();
+		this.checksum = HexFormat.of().formatHex( digest.digest( script.getBytes( StandardCharsets.UTF_8 ) ) );
+		this.fileName = "helper-v" + VERSION + "-" + checksum.substring( 0, 16 ) + ".sh";
+	}
+
+	public String getChecksum() {
+		return checksum;
+	}
+
+	/**
+	 * @param args the helper's command and its arguments, unescaped
+	 */
+	public String getCommand( String... args ) {
+		StringBuilder sb = new StringBuilder( 256 );
+
+		sb.append( "f=" ).append( DIRECTORY ).append( "/" ).append( fileName ).append( "; " );
+		sb.append( "[ -f \"$f\" ] || exit " ).append( MISSING_STATUS ).append( "; " );
+		sb.append( "exec sh \"$f\"" );
+
+		for ( String arg : args ) {
+			sb.append( ' ' ).append( escape( arg ) );
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Writes the script in the same exec, as an argument rather than over stdin, to a temporary
+	 * name that is then moved into place.
+	 */
+	public String getDeployCommand() {
+		String target = DIRECTORY + "/" + fileName;
+
+		return "mkdir -p " + DIRECTORY + " && " +
+				"printf '%s' " + escape( script ) + " > " + target + ".$$ && " +
+				"mv -f " + target + ".$$ " + target;
+	}
+
+	public boolean isMissing( CommandResult res ) {
+		return res.getExitStatus() == MISSING_STATUS && parseResult( res ) == null;
+	}
+
+	/**
+	 * @return null if stdout doesn't end with a result line
+	 */
+	public Result parseResult( CommandResult res ) {
+		String line = res.getStdout().getLastLine();
+		if ( line == null || !line.startsWith( RESULT_PREFIX ) ) {
+			return null;
+		}
+
+		try {
+			JSONObject json = new JSONObject( line.substring( RESULT_PREFIX.length() ) );
+
+			return new Result( json.optInt( "version", -1 ),
+								json.optBoolean( "ok", false ),
+								json.optString( "step", "" ),
+								json.optInt( "exit", -1 ),
+								json.optString( "message", "" ),
+								res,
+								res.getOutput().replace( line, "" ).trim() );
+		}
+		catch ( JSONException e ) {
+			return null;
+		}
+	}
+
+	protected static String escape( String s ) {
+		return "'" + s.replace( "'", "'\\''" ) + "'";
+	}
+
+	private static String load() {
+		try ( InputStream in = RemoteHelper.class.getClassLoader().getResourceAsStream( RESOURCE ) ) {
+			if ( in == null ) {
+				throw new IOException( "missing resource " + RESOURCE );
+			}
+
+			return new String( in.readAllBytes(), StandardCharsets.UTF_8 );
+		}
+		catch ( IOException e ) {
+			throw new UncheckedIOException( e );
+		}
+	}
+
+	public static final class Result {
+		private final int version;
+		private final boolean ok;
+		private final String step;
+		private final int exitStatus;
+		private final String message;
+		private final CommandResult command;
+		private final String output;
+
+		Result( int version, boolean ok, String step, int exitStatus, String message, CommandResult command, String output ) {
+			this.version = version;
+			this.ok = ok;
+			this.step = step;
+			this.exitStatus = exitStatus;
+			this.message = message;
+			this.command = command;
+			this.output = output;
+		}
+
+		public int getVersion() {
+			return version;
+		}
+
+		public boolean isOk() {
+			return ok;
+		}
+
+		/**
+		 * @return probe, require, config, require_dev, update or plan
+		 */
+		public String getStep() {
+			return step;
+		}
+
+		public int getExitStatus() {
+			return exitStatus;
+		}
+
+		public String getMessage() {
+			return message;
+		}
+
+		/**
+		 * @return the exec that ran the helper, with composer's summary
+		 */
+		public CommandResult getCommand() {
+			return command;
+		}
+
+		/**
+		 * @return the start and end of what composer printed, without the result line
+		 */
+		public String getOutput() {
+			return output;
+		}
+
+		@Override
+		public String toString() {
+			return "ok=" + ok + ", step=" + step + ", exit=" + exitStatus + ", message=" + message + ", composer=" + command.getComposerSummary();
+		}
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.ssh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.tolstoy.drupal.sheephole.api.ssh.ISSHTransportSettings;
+
+/**
+ * Stored as JSON in the profile. Keys that are missing, e.g. in profiles saved before a setting
+ * existed, get the default.
+ */
+public class SSHTransportSettings implements ISSHTransportSettings {
+	public static final int DEFAULT_KEEPALIVE_SECONDS = 30;
+	public static final int DEFAULT_CONNECT_TIMEOUT_SECONDS = 15;
+	public static final int DEFAULT_COMMAND_TIMEOUT_SECONDS = 30;
+
+	public static final SSHTransportSettings DEFAULTS = new SSHTransportSettings( false,
+																				Collections.emptyList(),
+																				Collections.emptyList(),
+																				DEFAULT_KEEPALIVE_SECONDS,
+																				DEFAULT_CONNECT_TIMEOUT_SECONDS,
+																				DEFAULT_COMMAND_TIMEOUT_SECONDS );
+
+	private final boolean compression;
+	private final List<String> ciphers;
+	private final List<String> keyExchanges;
+	private final int keepAliveSeconds;
+	private final int connectTimeoutSeconds;
+	private final int commandTimeoutSeconds;
+
+	public SSHTransportSettings( boolean compression, List<String> ciphers, List<String> keyExchanges, int keepAliveSeconds, int connectTimeoutSeconds, int commandTimeoutSeconds ) {
+		this.compression = compression;
+		this.ciphers = Collections.unmodifiableList( new ArrayList<String>( ciphers ) );
+		this.keyExchanges = Collections.unmodifiableList( new ArrayList<String>( keyExchanges ) );
+		this.keepAliveSeconds = Math.max( keepAliveSeconds, 0 );
+		this.connectTimeoutSeconds = Math.max( connectTimeoutSeconds, 0 );
+		this.commandTimeoutSeconds = Math.max( commandTimeoutSeconds, 1 );
+	}
+
+	public static SSHTransportSettings of( ISSHTransportSettings other ) {
+		if ( other == null ) {
+			return DEFAULTS;
+		}
+
+		if ( other instanceof SSHTransportSettings ) {
+			return (SSHTransportSettings) other;
+		}
+
+		return new SSHTransportSettings( other.isCompression(), other.getCiphers(), other.getKeyExchanges(),
+											other.getKeepAliveSeconds(), other.getConnectTimeoutSeconds(), other.getCommandTimeoutSeconds() );
+	}
+
+	public static SSHTransportSettings fromJSON( JSONObject obj ) {
+		if ( obj == null ) {
+			return DEFAULTS;
+		}
+
+		return new SSHTransportSettings( obj.optBoolean( "compression", false ),
+											toList( obj.optJSONArray( "ciphers" ) ),
+											toList( obj.optJSONArray( "kex" ) ),
+											obj.optInt( "keepalive_seconds", DEFAULT_KEEPALIVE_SECONDS ),
+											obj.optInt( "connect_timeout_seconds", DEFAULT_CONNECT_TIMEOUT_SECONDS ),
+											obj.optInt( "command_timeout_seconds", DEFAULT_COMMAND_TIMEOUT_SECONDS ) );
+	}
+
+	public JSONObject toJSON() {
+		JSONObject ret = new JSONObject();
+
+		ret.put( "compression", compression );
+		ret.put( "ciphers", new JSONArray( ciphers ) );
+		ret.put( "kex", new JSONArray( keyExchanges ) );
+		ret.put( "keepalive_seconds", keepAliveSeconds );
+		ret.put( "connect_timeout_seconds", connectTimeoutSeconds );
+		ret.put( "command_timeout_seconds", commandTimeoutSeconds );
+
+		return ret;
+	}
+
+	/**
+	 * @param s names separated by commas or spaces, as typed by a user
+	 */
+	public static List<String> parseNames( String s ) {
+		List<String> ret = new ArrayList<String>();
+
+		if ( s != null ) {
+			for ( String name : s.trim().split( "[,\\s]+" ) ) {
+				if ( name.length() > 0 && !ret.contains( name ) ) {
+					ret.add( name );
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	public SSHTransportSettings withCompression( boolean compression ) {
+		return new SSHTransportSettings( compression, ciphers, keyExchanges, keepAliveSeconds, connectTimeoutSeconds, commandTimeoutSeconds );
+	}
+
+	public SSHTransportSettings withCiphers( String... ciphers ) {
+		return new SSHTransportSettings( compression, Arrays.asList( ciphers ), keyExchanges, keepAliveSeconds, connectTimeoutSeconds, commandTimeoutSeconds );
+	}
+
+	@Override
+	public boolean isCompression() {
+		return compression;
+	}
+
+	@Override
+	public List<String> getCiphers() {
+		return ciphers;
+	}
+
+	@Override
+	public List<String> getKeyExchanges() {
+		return keyExchanges;
+	}
+
+	@Override
+	public int getKeepAliveSeconds() {
+		return keepAliveSeconds;
+	}
+
+	@Override
+	public int getConnectTimeoutSeconds() {
+		return connectTimeoutSeconds;
+	}
+
+	@Override
+	public int getCommandTimeoutSeconds() {
+		return commandTimeoutSeconds;
+	}
+
+	@Override
+	public boolean equals( Object o ) {
+		if ( !( o instanceof SSHTransportSettings ) ) {
+			return false;
+		}
+
+		SSHTransportSettings other = (SSHTransportSettings) o;
+
+		return compression == other.compression &&
+				ciphers.equals( other.ciphers ) &&
+				keyExchanges.equals( other.keyExchanges ) &&
+				keepAliveSeconds == other.keepAliveSeconds &&
+				connectTimeoutSeconds == other.connectTimeoutSeconds &&
+				commandTimeoutSeconds == other.commandTimeoutSeconds;
+	}
+
+	@Override
+	public int hashCode() {
+		return toJSON().toString().hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "compression " + ( compression ? "on" : "off" ) +
+				", ciphers " + ( ciphers.isEmpty() ? "default" : String.join( ",", ciphers ) ) +
+				", kex " + ( keyExchanges.isEmpty() ? "default" : String.join( ",", keyExchanges ) ) +
+				", keepalive " + keepAliveSeconds + "s, connect timeout " + connectTimeoutSeconds + "s, command timeout " + commandTimeoutSeconds + "s";
+	}
+
+	private static List<String> toList( JSONArray array ) {
+		List<String> ret = new ArrayList<String>();
+
+		if ( array != null ) {
+			for ( int i = 0; i < array.length(); i++ ) {
+				ret.add( array.getString( i ) );
+			}
+		}
+
+		return ret;
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.ssh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.tolstoy.drupal.sheephole.api.installation.ISiteProfile;
+import com.tolstoy.drupal.sheephole.app.ISSHManager;
+
+/**
+ * Tries a handful of transport settings against one site: the site's own, then each with
+ * compression and with the AES-GCM and ChaCha20 ciphers. Every candidate is measured a few
+ * times and its median run kept, so one slow handshake doesn't decide it.
+ */
+public class TransportBenchmark {
+	private static final Logger logger = LogManager.getLogger( TransportBenchmark.class );
+
+	public static final String AES_GCM = "aes128-gcm@openssh.com";
+	public static final String CHACHA20 = "chacha20-poly1305@openssh.com";
+
+	private final ISSHManager sshManager;
+	private final int rounds;
+
+	public TransportBenchmark( ISSHManager sshManager, int rounds ) {
+		this.sshManager = sshManager;
+		this.rounds = Math.max( rounds, 1 );
+	}
+
+	public List<SSHTransportSettings> getCandidates( ISiteProfile profile ) {
+		SSHTransportSettings current = SSHTransportSettings.of( profile.getTransportSettings() );
+		List<SSHTransportSettings> ret = new ArrayList<SSHTransportSettings>();
+
+		for ( SSHTransportSettings base : Arrays.asList( current, current.withCiphers( AES_GCM ), current.withCiphers( CHACHA20 ) ) ) {
+			for ( boolean compression : new boolean[] { false, true } ) {
+				SSHTransportSettings candidate = base.withCompression( compression );
+				if ( !ret.contains( candidate ) ) {
+					ret.add( candidate );
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * @return one measurement per candidate, fastest first; failed candidates last
+	 */
+	public List<TransportMeasurement> run( ISiteProfile profile, String password ) {
+		List<TransportMeasurement> ret = new ArrayList<TransportMeasurement>();
+
+		for ( SSHTransportSettings candidate : getCandidates( profile ) ) {
+			List<TransportMeasurement> runs = new ArrayList<TransportMeasurement>( rounds );
+
+			try {
+				for ( int i = 0; i < rounds; i++ ) {
+					runs.add( sshManager.measureTransport( profile, password, candidate ) );
+				}
+
+				runs.sort( Comparator.comparingLong( TransportMeasurement::getTotalMillis ) );
+				ret.add( runs.get( runs.size() / 2 ) );
+			}
+			catch ( Exception e ) {
+				logger.info( "transport settings {} failed on {}: {}", candidate, profile.getTitle(), e.getMessage() );
+				ret.add( new TransportMeasurement( candidate, e.getMessage() != null ? e.getMessage() : e.toString() ) );
+			}
+		}
+
+		ret.sort( Comparator.comparingLong( ( TransportMeasurement m ) -> m.getError() != null ? Long.MAX_VALUE : m.getTotalMillis() ) );
+
+		return ret;
+	}
+}
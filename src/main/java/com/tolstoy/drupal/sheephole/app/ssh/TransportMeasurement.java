@@ -0,0 +1,87 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.ssh;
+
+import com.tolstoy.drupal.sheephole.api.ssh.ISSHTransportSettings;
+
+/**
+ * How one set of transport settings did against a site: the time to connect, to authenticate,
+ * and to read the site's composer.lock.
+ */
+public class TransportMeasurement {
+	private final ISSHTransportSettings settings;
+	private final long connectMillis;
+	private final long authMillis;
+	private final long transferMillis;
+	private final long bytes;
+	private final String error;
+
+	public TransportMeasurement( ISSHTransportSettings settings, long connectMillis, long authMillis, long transferMillis, long bytes ) {
+		this.settings = settings;
+		this.connectMillis = connectMillis;
+		this.authMillis = authMillis;
+		this.transferMillis = transferMillis;
+		this.bytes = bytes;
+		this.error = null;
+	}
+
+	public TransportMeasurement( ISSHTransportSettings settings, String error ) {
+		this.settings = settings;
+		this.connectMillis = -1;
+		this.authMillis = -1;
+		this.transferMillis = -1;
+		this.bytes = 0;
+		this.error = error;
+	}
+
+	public ISSHTransportSettings getSettings() {
+		return settings;
+	}
+
+	public long getConnectMillis() {
+		return connectMillis;
+	}
+
+	public long getAuthMillis() {
+		return authMillis;
+	}
+
+	public long getTransferMillis() {
+		return transferMillis;
+	}
+
+	public long getTotalMillis() {
+		return error != null ? -1 : connectMillis + authMillis + transferMillis;
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return null if the settings worked
+	 */
+	public String getError() {
+		return error;
+	}
+
+	@Override
+	public String toString() {
+		if ( error != null ) {
+			return settings + ": failed, " + error;
+		}
+
+		return settings + ": connect " + connectMillis + "ms, auth " + authMillis + "ms, " + bytes + " bytes in " + transferMillis + "ms, total " + getTotalMillis() + "ms";
+	}
+}
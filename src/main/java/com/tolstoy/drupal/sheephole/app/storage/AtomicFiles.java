@@ -0,0 +1,69 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Replaces files so that readers, and a crash part way through, see either the old contents or
+ * the new ones. The new contents go to a temporary file in the target's directory, which is then
+ * renamed over the target; where the file system can't rename atomically, a plain replace is the
+ * best there is.
+ */
+public final class AtomicFiles {
+	private AtomicFiles() {
+	}
+
+	public static void write( File target, String contents ) throws IOException {
+		write( target, temp -> Files.writeString( temp, contents, StandardCharsets.UTF_8 ) );
+	}
+
+	/**
+	 * @param contents writes the new contents to the path it is given
+	 */
+	public static void write( File target, Contents contents ) throws IOException {
+		File temp = File.createTempFile( target.getName(), ".tmp", target.getAbsoluteFile().getParentFile() );
+
+		try {
+			contents.writeTo( temp.toPath() );
+			move( temp, target );
+		}
+		finally {
+			Files.deleteIfExists( temp.toPath() );
+		}
+	}
+
+	/**
+	 * Renames <code>from</code> over <code>to</code>, which should be in the same directory.
+	 */
+	public static void move( File from, File to ) throws IOException {
+		try {
+			Files.move( from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+		}
+		catch ( AtomicMoveNotSupportedException e ) {
+			Files.move( from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING );
+		}
+	}
+
+	@FunctionalInterface
+	public interface Contents {
+		void writeTo( Path temp ) throws IOException;
+	}
+}
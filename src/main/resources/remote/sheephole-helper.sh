@@ -0,0 +1,75 @@
+#!/bin/sh
+# Sheephole's helper, uploaded to each host as ~/.cache/sheephole/helper-v<version>-<checksum>.sh,
+# where <checksum> is the first 16 hex digits of the script's SHA-256, and run with one exec per
+# operation. A changed helper gets a new checksum and so a new file; an uploaded one is never
+# edited in place.
+#
+# usage: helper.sh probe <dir>
+#        helper.sh install <dir> <package> plain|allow_dev|unknown
+#        helper.sh update <dir>
+#        helper.sh plan <dir>
+#
+# composer's output, stdout and stderr together, is passed through as it arrives. The last
+# line is always the result, e.g.
+#   SHEEPHOLE_RESULT {"version":1,"ok":true,"step":"require","exit":0,"message":""}
+
+HELPER_VERSION=1
+
+result() {
+	message=$( printf '%s' "$4" | sed -e 's/\\/\\\\/g' -e 's/"/\\"/g' | tr '\n\r\t' '   ' )
+	printf '\nSHEEPHOLE_RESULT {"version":%s,"ok":%s,"step":"%s","exit":%s,"message":"%s"}\n' "$HELPER_VERSION" "$1" "$2" "$3" "$message"
+	exit 0
+}
+
+enter() {
+	[ -d "$1" ] || result false probe 1 "Root path does not exist: $1"
+	[ -f "$1/composer.json" ] || result false probe 1 "composer.json does not exist in $1"
+	command -v composer >/dev/null 2>&1 || result false probe 127 "composer is not on the PATH"
+	cd "$1" || result false probe 1 "cannot change to $1"
+}
+
+# composer require; exits with a result if it worked, returns composer's status if not
+require() {
+	composer require "$1" 2>&1
+	status=$?
+	[ $status -eq 0 ] && result true "$2" 0 ""
+	return $status
+}
+
+command=$1
+[ $# -gt 0 ] && shift
+
+case "$command" in
+	probe)
+		enter "$1"
+		result true probe 0 ""
+		;;
+	install)
+		enter "$1"
+		if [ "$3" != allow_dev ]; then
+			require "$2" require
+			status=$?
+			[ "$3" = plain ] && result false require $status "composer require $2 failed"
+		fi
+		composer config minimum-stability dev 2>&1 && composer config prefer-stable true 2>&1 || result false config $? "cannot lower minimum-stability"
+		require "$2" require_dev
+		result false require_dev $? "composer require $2 failed, even allowing dev versions"
+		;;
+	update)
+		enter "$1"
+		composer update 2>&1
+		status=$?
+		[ $status -eq 0 ] && result true update 0 ""
+		result false update $status "composer update failed"
+		;;
+	plan)
+		enter "$1"
+		composer update --dry-run --no-interaction 2>&1
+		status=$?
+		[ $status -eq 0 ] && result true plan 0 ""
+		result false plan $status "composer update --dry-run failed"
+		;;
+	*)
+		result false usage 2 "unknown command $command"
+		;;
+esac
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.advisory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class VersionRangeTest {
+	@Test
+	public void caretBumpsFirstNonZeroPart() {
+		assertEquals( "[1.2.3, 2-dev)", parseOne( "^1.2.3" ) );
+		assertEquals( "[0.3, 0.4-dev)", parseOne( "^0.3" ) );
+		assertEquals( "[0.3.1, 0.4-dev)", parseOne( "^0.3.1" ) );
+		assertEquals( "[0.0.3, 0.0.4-dev)", parseOne( "^0.0.3" ) );
+	}
+
+	@Test
+	public void caretOnZeroesBumpsLastGivenPart() {
+		assertEquals( "[0, 1-dev)", parseOne( "^0" ) );
+		assertEquals( "[0.0, 0.1-dev)", parseOne( "^0.0" ) );
+		assertEquals( "[0.0.0, 0.0.1-dev)", parseOne( "^0.0.0" ) );
+	}
+
+	@Test
+	public void caretOnZeroMajorExcludesNextPatch() {
+		List<VersionRange> ranges = VersionRange.parse( "^0.0.3" );
+
+		assertTrue( matches( ranges, "0.0.3" ) );
+		assertFalse( matches( ranges, "0.0.4" ) );
+		assertFalse( matches( ranges, "0.1.0" ) );
+	}
+
+	@Test
+	public void tilde() {
+		assertEquals( "[1.2, 2-dev)", parseOne( "~1.2" ) );
+		assertEquals( "[1.2.3, 1.3-dev)", parseOne( "~1.2.3" ) );
+	}
+
+	@Test
+	public void comparisonsAndAlternatives() {
+		List<VersionRange> ranges = VersionRange.parse( ">=8.0.0, <9.5.11 || >=10.0.0 <10.1.8" );
+
+		assertEquals( 2, ranges.size() );
+		assertTrue( matches( ranges, "9.5.10" ) );
+		assertFalse( matches( ranges, "9.5.11" ) );
+		assertTrue( matches( ranges, "10.1.7" ) );
+		assertFalse( matches( ranges, "10.1.8" ) );
+		assertFalse( matches( ranges, "7.99" ) );
+	}
+
+	@Test
+	public void preReleasesSortBeforeTheRelease() {
+		List<VersionRange> ranges = VersionRange.parse( "<2.0.0" );
+
+		assertTrue( matches( ranges, "2.0.0-rc1" ) );
+		assertTrue( matches( ranges, "2.0.0-beta2" ) );
+		assertFalse( matches( ranges, "2.0.0" ) );
+	}
+
+	@Test
+	public void emptyRangesAreDropped() {
+		assertTrue( VersionRange.parse( ">2.0 <1.0" ).isEmpty() );
+	}
+
+	@Test
+	public void unparseableConstraints() {
+		assertNull( VersionRange.parse( null ) );
+		assertNull( VersionRange.parse( " " ) );
+		assertNull( VersionRange.parse( "dev-main" ) );
+	}
+
+	private static String parseOne( String constraint ) {
+		List<VersionRange> ranges = VersionRange.parse( constraint );
+		assertEquals( 1, ranges.size() );
+
+		return ranges.get( 0 ).toString();
+	}
+
+	private static boolean matches( List<VersionRange> ranges, String version ) {
+		ComposerVersion parsed = ComposerVersion.parse( version );
+
+		for ( VersionRange range : ranges ) {
+			if ( range.contains( parsed ) ) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.composer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class ComposerPreflightTest {
+	@Test
+	public void stableVersions() {
+		assertEquals( "stable", ComposerPreflight.getStability( "1.15.0" ) );
+		assertEquals( "stable", ComposerPreflight.getStability( "v2.3" ) );
+		assertEquals( "stable", ComposerPreflight.getStability( "8.x-1.15" ) );
+	}
+
+	@Test
+	public void devVersions() {
+		assertEquals( "dev", ComposerPreflight.getStability( "dev-main" ) );
+		assertEquals( "dev", ComposerPreflight.getStability( "2.x-dev" ) );
+		assertEquals( "dev", ComposerPreflight.getStability( "1.0.x-DEV" ) );
+	}
+
+	@Test
+	public void preReleases() {
+		assertEquals( "alpha", ComposerPreflight.getStability( "2.0.0-alpha3" ) );
+		assertEquals( "alpha", ComposerPreflight.getStability( "2.0.0a1" ) );
+		assertEquals( "beta", ComposerPreflight.getStability( "2.0.0-beta1" ) );
+		assertEquals( "beta", ComposerPreflight.getStability( "2.0.0-b2" ) );
+		assertEquals( "RC", ComposerPreflight.getStability( "2.0.0-rc1" ) );
+		assertEquals( "RC", ComposerPreflight.getStability( "2.0.0-RC" ) );
+	}
+
+	@Test
+	public void requiredPackagesComeFromComposerJson() {
+		JSONObject json = new JSONObject( "{\"require\":{\"drupal/core-recommended\":\"^10.3\",\"drupal/pathauto\":\"^1.12\"},"
+											+ "\"require-dev\":{\"drupal/devel\":\"^5\"}}" );
+
+		assertEquals( "^1.12", ComposerPreflight.findRequiredVersion( json, "drupal/pathauto" ) );
+		assertEquals( "^5", ComposerPreflight.findRequiredVersion( json, "drupal/devel" ) );
+		assertNull( ComposerPreflight.findRequiredVersion( json, "drupal/token" ) );
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.composer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class PackageMetadataCacheTest {
+	@Test
+	public void minifiedVersionsInheritFromThePreviousOne() {
+		JSONObject root = new JSONObject( "{\"minified\":\"composer/2.0\",\"packages\":{\"drupal/token\":["
+											+ "{\"name\":\"drupal/token\",\"version\":\"1.15.0\",\"require\":{\"drupal/core\":\"^9.2 || ^10 || ^11\"},\"homepage\":\"https://www.drupal.org/project/token\"},"
+											+ "{\"version\":\"1.14.0\",\"require\":{\"drupal/core\":\"^9.2 || ^10\"}},"
+											+ "{\"version\":\"1.13.0\",\"homepage\":\"__unset\"}"
+											+ "]}}" );
+
+		List<JSONObject> versions = PackageMetadataCache.expand( root, "drupal/token" );
+
+		assertEquals( 3, versions.size() );
+		assertEquals( "drupal/token", versions.get( 1 ).getString( "name" ) );
+		assertEquals( "^9.2 || ^10", versions.get( 1 ).getJSONObject( "require" ).getString( "drupal/core" ) );
+		assertTrue( versions.get( 1 ).has( "homepage" ) );
+		assertEquals( "^9.2 || ^10", versions.get( 2 ).getJSONObject( "require" ).getString( "drupal/core" ) );
+		assertFalse( versions.get( 2 ).has( "homepage" ) );
+		assertEquals( "1.13.0", versions.get( 2 ).getString( "version" ) );
+	}
+
+	@Test
+	public void unminifiedVersionsAreLeftAlone() {
+		JSONObject root = new JSONObject( "{\"packages\":{\"drupal/token\":["
+											+ "{\"name\":\"drupal/token\",\"version\":\"1.15.0\"},"
+											+ "{\"version\":\"1.14.0\"}"
+											+ "]}}" );
+
+		List<JSONObject> versions = PackageMetadataCache.expand( root, "drupal/token" );
+
+		assertEquals( 2, versions.size() );
+		assertFalse( versions.get( 1 ).has( "name" ) );
+	}
+
+	@Test
+	public void missingPackage() {
+		assertTrue( PackageMetadataCache.expand( new JSONObject( "{\"packages\":{}}" ), "drupal/token" ).isEmpty() );
+		assertTrue( PackageMetadataCache.expand( new JSONObject( "{}" ), "drupal/token" ).isEmpty() );
+	}
+}
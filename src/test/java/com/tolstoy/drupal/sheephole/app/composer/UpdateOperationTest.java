@@ -0,0 +1,91 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.composer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class UpdateOperationTest {
+	@Test
+	public void upgrade() {
+		UpdateOperation op = UpdateOperation.parseLine( "  - Upgrading drupal/core (10.3.6 => 10.3.9)" );
+
+		assertEquals( UpdateOperation.Type.UPDATE, op.getType() );
+		assertEquals( "drupal/core", op.getPackageName() );
+		assertEquals( "10.3.6", op.getFromVersion() );
+		assertEquals( "10.3.9", op.getToVersion() );
+	}
+
+	@Test
+	public void downgrade() {
+		UpdateOperation op = UpdateOperation.parseLine( "  - Downgrading symfony/yaml (v6.4.3 => v6.4.2)" );
+
+		assertEquals( UpdateOperation.Type.DOWNGRADE, op.getType() );
+		assertEquals( "v6.4.3 => v6.4.2", op.getChange() );
+	}
+
+	@Test
+	public void composerOneUpdate() {
+		UpdateOperation op = UpdateOperation.parseLine( "  - Updating drupal/core (8.9.1) to drupal/core (8.9.2)" );
+
+		assertEquals( UpdateOperation.Type.UPDATE, op.getType() );
+		assertEquals( "8.9.1", op.getFromVersion() );
+		assertEquals( "8.9.2", op.getToVersion() );
+	}
+
+	@Test
+	public void installAndLock() {
+		UpdateOperation installing = UpdateOperation.parseLine( "  - Installing drupal/token (1.15.0): Extracting archive" );
+		UpdateOperation locking = UpdateOperation.parseLine( "  - Locking drupal/token (1.15.0)" );
+
+		assertEquals( UpdateOperation.Type.INSTALL, installing.getType() );
+		assertNull( installing.getFromVersion() );
+		assertEquals( "+ 1.15.0", installing.getChange() );
+		assertEquals( UpdateOperation.Type.INSTALL, locking.getType() );
+	}
+
+	@Test
+	public void remove() {
+		UpdateOperation op = UpdateOperation.parseLine( "  - Removing drupal/old_module (2.1.0)" );
+
+		assertEquals( UpdateOperation.Type.REMOVE, op.getType() );
+		assertNull( op.getToVersion() );
+		assertEquals( "- 2.1.0", op.getChange() );
+	}
+
+	@Test
+	public void otherLinesAreIgnored() {
+		assertNull( UpdateOperation.parseLine( "Loading composer repositories with package information" ) );
+		assertNull( UpdateOperation.parseLine( "Package operations: 0 installs, 1 update, 0 removals" ) );
+		assertNull( UpdateOperation.parseLine( "" ) );
+	}
+
+	@Test
+	public void eachPackageOnce() {
+		String output = String.join( "\n",
+			"Lock file operations: 0 installs, 1 update, 0 removals",
+			"  - Upgrading drupal/core (10.3.6 => 10.3.9)",
+			"Package operations: 0 installs, 1 update, 0 removals",
+			"  - Upgrading drupal/core (10.3.6 => 10.3.9)" );
+
+		List<UpdateOperation> ops = UpdateOperation.parse( output );
+
+		assertEquals( 1, ops.size() );
+		assertEquals( "drupal/core 10.3.6 => 10.3.9", ops.get( 0 ).toString() );
+	}
+}
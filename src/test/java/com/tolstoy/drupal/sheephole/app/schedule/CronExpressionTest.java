@@ -0,0 +1,108 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.schedule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import org.junit.Test;
+
+public class CronExpressionTest {
+	private static final ZoneId UTC = ZoneId.of( "UTC" );
+	private static final ZoneId NEW_YORK = ZoneId.of( "America/New_York" );
+
+	@Test
+	public void daily() {
+		CronExpression cron = CronExpression.parse( "0 3 * * *" );
+
+		assertEquals( at( UTC, 2025, 3, 1, 3, 0 ), cron.next( at( UTC, 2025, 3, 1, 2, 59 ) ) );
+		assertEquals( at( UTC, 2025, 3, 2, 3, 0 ), cron.next( at( UTC, 2025, 3, 1, 3, 0 ) ) );
+	}
+
+	@Test
+	public void rangesListsAndSteps() {
+		CronExpression cron = CronExpression.parse( "0,30 1-4/2 * * *" );
+
+		assertEquals( at( UTC, 2025, 3, 1, 1, 0 ), cron.next( at( UTC, 2025, 3, 1, 0, 0 ) ) );
+		assertEquals( at( UTC, 2025, 3, 1, 1, 30 ), cron.next( at( UTC, 2025, 3, 1, 1, 0 ) ) );
+		assertEquals( at( UTC, 2025, 3, 1, 3, 0 ), cron.next( at( UTC, 2025, 3, 1, 1, 30 ) ) );
+		assertEquals( at( UTC, 2025, 3, 2, 1, 0 ), cron.next( at( UTC, 2025, 3, 1, 3, 30 ) ) );
+	}
+
+	@Test
+	public void namesAndSundayAsSeven() {
+		//	2025-03-01 is a Saturday
+		assertEquals( at( UTC, 2025, 3, 3, 0, 0 ), CronExpression.parse( "0 0 * * mon-fri" ).next( at( UTC, 2025, 3, 1, 0, 0 ) ) );
+		assertEquals( at( UTC, 2025, 3, 2, 0, 0 ), CronExpression.parse( "0 0 * * 7" ).next( at( UTC, 2025, 3, 1, 0, 0 ) ) );
+		assertEquals( at( UTC, 2025, 6, 1, 0, 0 ), CronExpression.parse( "0 0 1 jun *" ).next( at( UTC, 2025, 3, 1, 0, 0 ) ) );
+	}
+
+	@Test
+	public void eitherDayFieldMatchesWhenBothAreRestricted() {
+		CronExpression cron = CronExpression.parse( "0 0 15 * mon" );
+
+		assertEquals( at( UTC, 2025, 3, 3, 0, 0 ), cron.next( at( UTC, 2025, 3, 1, 0, 0 ) ) );
+		assertEquals( at( UTC, 2025, 3, 15, 0, 0 ), cron.next( at( UTC, 2025, 3, 10, 0, 0 ) ) );
+	}
+
+	@Test
+	public void shortcuts() {
+		assertEquals( at( UTC, 2025, 3, 2, 0, 0 ), CronExpression.parse( "@daily" ).next( at( UTC, 2025, 3, 1, 12, 0 ) ) );
+		assertEquals( at( UTC, 2026, 1, 1, 0, 0 ), CronExpression.parse( "@yearly" ).next( at( UTC, 2025, 3, 1, 12, 0 ) ) );
+	}
+
+	@Test
+	public void skippedTimeRunsAfterTheGap() {
+		//	clocks went from 02:00 to 03:00 on 2025-03-09
+		ZonedDateTime next = CronExpression.parse( "30 2 * * *" ).next( at( NEW_YORK, 2025, 3, 9, 0, 0 ) );
+
+		assertEquals( at( NEW_YORK, 2025, 3, 9, 3, 30 ), next );
+	}
+
+	@Test
+	public void repeatedTimeRunsOnce() {
+		//	clocks went from 02:00 back to 01:00 on 2025-11-02
+		CronExpression cron = CronExpression.parse( "30 1 * * *" );
+		ZonedDateTime first = cron.next( at( NEW_YORK, 2025, 11, 2, 0, 0 ) );
+
+		assertEquals( at( NEW_YORK, 2025, 11, 3, 1, 30 ), cron.next( first ) );
+	}
+
+	@Test
+	public void impossibleDayHasNoNextRun() {
+		assertNull( CronExpression.parse( "0 0 30 2 *" ).next( at( UTC, 2025, 3, 1, 0, 0 ) ) );
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void wrongFieldCount() {
+		CronExpression.parse( "0 3 * *" );
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void outOfRange() {
+		CronExpression.parse( "60 3 * * *" );
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void backwardsRange() {
+		CronExpression.parse( "0 5-2 * * *" );
+	}
+
+	private static ZonedDateTime at( ZoneId zone, int year, int month, int day, int hour, int minute ) {
+		return ZonedDateTime.of( year, month, day, hour, minute, 0, 0, zone );
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2025 Chris Kelly
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.tolstoy.drupal.sheephole.app.ssh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class HostAddressTest {
+	@Test
+	public void defaultsToPort22() throws Exception {
+		HostAddress address = HostAddress.parse( "example.com" );
+
+		assertEquals( "example.com", address.getHost() );
+		assertEquals( 22, address.getPort() );
+	}
+
+	@Test
+	public void sameServerHasSameKey() {
+		assertEquals( "example.com:22", HostAddress.getKey( "example.com" ) );
+		assertEquals( "example.com:22", HostAddress.getKey( "example.com:22" ) );
+		assertEquals( "example.com:22", HostAddress.getKey( "Example.COM" ) );
+		assertEquals( "example.com:2222", HostAddress.getKey( "example.com:2222" ) );
+	}
+
+	@Test
+	public void leavesBareIpv6Alone() throws Exception {
+		HostAddress address = HostAddress.parse( "::1" );
+
+		assertEquals( "::1", address.getHost() );
+		assertEquals( 22, address.getPort() );
+	}
+
+	@Test
+	public void badPortNamesTheUri() {
+		try {
+			HostAddress.parse( "example.com:ssh" );
+			fail( "parsed a bad port" );
+		}
+		catch ( IOException e ) {
+			assertEquals( "bad port in example.com:ssh", e.getMessage() );
+		}
+
+		assertEquals( "example.com:ssh", HostAddress.getKey( "Example.com:ssh" ) );
+	}
+}